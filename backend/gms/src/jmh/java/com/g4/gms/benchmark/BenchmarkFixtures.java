@@ -0,0 +1,46 @@
+package com.g4.gms.benchmark;
+
+import com.g4.gms.config.JwtProperties;
+import com.g4.gms.model.User;
+import com.g4.gms.security.JwtTokenProvider;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Shared setup for the benchmarks, mirroring application.properties.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    static JwtProperties jwtProperties() {
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret(Base64.getEncoder().encodeToString(secret));
+        properties.setExpirationMs(86400000L);
+        properties.setAuthCacheMaxSize(10000L);
+        return properties;
+    }
+
+    static JwtTokenProvider tokenProvider(JwtProperties properties) {
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(properties);
+        tokenProvider.init();
+        return tokenProvider;
+    }
+
+    static User user(int i) {
+        User user = new User();
+        user.setUserId("user-" + i);
+        user.setUsername("resident" + i);
+        user.setFirstName("Juan");
+        user.setLastName("Dela Cruz");
+        user.setEmail("resident" + i + "@example.com");
+        user.setRole("USER");
+        user.setLocation("Barangay " + (i % 80));
+        user.setPhoneNumber("+63917" + String.format("%07d", i));
+        return user;
+    }
+}
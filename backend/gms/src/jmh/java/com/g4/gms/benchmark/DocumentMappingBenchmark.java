@@ -0,0 +1,95 @@
+package com.g4.gms.benchmark;
+
+import com.g4.gms.model.PickupLocation;
+import com.g4.gms.model.Schedule;
+import com.g4.gms.model.User;
+import com.g4.gms.repository.DocumentMapper;
+import com.g4.gms.repository.InMemoryDocumentRepository;
+import com.google.cloud.Timestamp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stored field map to model mapping as InMemoryDocumentRepository does it for
+ * every document a read returns: DocumentMapper (Jackson) into the model, then
+ * the ID copied onto the model. Firestore's own toObject needs a snapshot from
+ * the server, so it is not measured here.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentMappingBenchmark {
+
+    private final DocumentMapper mapper = new DocumentMapper();
+    private InMemoryDocumentRepository<Schedule> schedules;
+    private InMemoryDocumentRepository<User> users;
+    private InMemoryDocumentRepository<PickupLocation> pickupLocations;
+
+    @Setup
+    public void setUp() {
+        schedules = new InMemoryDocumentRepository<>(mapper, Schedule.class, Schedule::setScheduleId);
+        users = new InMemoryDocumentRepository<>(mapper, User.class, User::setUserId);
+        pickupLocations = new InMemoryDocumentRepository<>(mapper, PickupLocation.class, PickupLocation::setLocationId);
+
+        Map<String, Object> scheduleFields = new HashMap<>();
+        scheduleFields.put("title", "Biodegradable pickup");
+        scheduleFields.put("pickupDate", "2026-10-19");
+        scheduleFields.put("pickupTime", "7:30 AM");
+        scheduleFields.put("locationId", "loc-0042");
+        scheduleFields.put("status", "PENDING");
+        scheduleFields.put("userId", "user-1");
+        scheduleFields.put("pickupAt", 1792366200000L);
+        schedules.save("sched-0001", mapper.toEntity(scheduleFields, Schedule.class));
+
+        Map<String, Object> userFields = new HashMap<>();
+        userFields.put("username", "resident1");
+        userFields.put("firstName", "Juan");
+        userFields.put("lastName", "Dela Cruz");
+        userFields.put("email", "resident1@example.com");
+        userFields.put("password", "$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z1t3xQZ6i8Xr6gZ1bYv8pQ2a");
+        userFields.put("role", "USER");
+        userFields.put("createdAt", Timestamp.ofTimeSecondsAndNanos(1760000000L, 0));
+        userFields.put("location", "Barangay 12");
+        userFields.put("phoneNumber", "+639170000001");
+        userFields.put("notificationsEnabled", true);
+        users.save("user-1", mapper.toEntity(userFields, User.class));
+
+        Map<String, Object> locationFields = new HashMap<>();
+        locationFields.put("siteName", "Barangay 12 Materials Recovery Facility");
+        locationFields.put("wasteType", "Recyclable");
+        locationFields.put("address", "12 Rizal Street, Cebu City");
+        locationFields.put("latitude", 10.3157);
+        locationFields.put("longitude", 123.8854);
+        pickupLocations.save("loc-0042", mapper.toEntity(locationFields, PickupLocation.class));
+    }
+
+    @Benchmark
+    public Schedule mapSchedule() {
+        return schedules.findById("sched-0001");
+    }
+
+    @Benchmark
+    public User mapUser() {
+        return users.findById("user-1");
+    }
+
+    @Benchmark
+    public PickupLocation mapPickupLocation() {
+        return pickupLocations.findById("loc-0042");
+    }
+}
@@ -0,0 +1,95 @@
+package com.g4.gms.benchmark;
+
+import com.g4.gms.config.JwtProperties;
+import com.g4.gms.security.JwtAuthenticationCache;
+import com.g4.gms.security.JwtAuthenticationFilter;
+import com.g4.gms.security.JwtTokenProvider;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One request through JwtAuthenticationFilter: header parsing, the verified-token
+ * cache, signature verification on a miss and populating the security context.
+ * "cached" reuses one token (the steady state); "verified" signs a new token per
+ * call so every request misses the cache; "anonymous" sends no Authorization header.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"cached", "verified", "anonymous"})
+    private String authorization;
+
+    private JwtAuthenticationFilter filter;
+    private JwtTokenProvider tokenProvider;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+    private String cachedToken;
+    private String[] freshTokens;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        JwtProperties properties = BenchmarkFixtures.jwtProperties();
+        tokenProvider = BenchmarkFixtures.tokenProvider(properties);
+
+        if ("verified".equals(authorization)) {
+            // Nothing is kept, so a token seen again after the array wraps still misses
+            properties.setAuthCacheMaxSize(0L);
+        }
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "tokenProvider", tokenProvider);
+        ReflectionTestUtils.setField(filter, "authenticationCache", new JwtAuthenticationCache(properties));
+
+        request = new MockHttpServletRequest("GET", "/api/schedule");
+        response = new MockHttpServletResponse();
+        chain = (req, res) -> { };
+
+        cachedToken = tokenProvider.generateToken(BenchmarkFixtures.user(0));
+        // Distinct subjects give distinct tokens; signing them here keeps generateToken out of the measurement
+        freshTokens = new String[1 << 16];
+        for (int i = 0; i < freshTokens.length; i++) {
+            freshTokens[i] = tokenProvider.generateToken(BenchmarkFixtures.user(i + 1));
+        }
+    }
+
+    @Benchmark
+    public void doFilter(Blackhole blackhole) throws ServletException, IOException {
+        switch (authorization) {
+            case "cached" -> request.addHeader("Authorization", "Bearer " + cachedToken);
+            case "verified" -> request.addHeader("Authorization", "Bearer " + freshTokens[next++ & (freshTokens.length - 1)]);
+            default -> { }
+        }
+        try {
+            filter.doFilter(request, response, chain);
+            blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        } finally {
+            SecurityContextHolder.clearContext();
+            request.removeHeader("Authorization");
+        }
+    }
+}
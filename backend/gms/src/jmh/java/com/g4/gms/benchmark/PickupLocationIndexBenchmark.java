@@ -0,0 +1,129 @@
+package com.g4.gms.benchmark;
+
+import com.g4.gms.config.PickupLocationIndexProperties;
+import com.g4.gms.model.PickupLocation;
+import com.g4.gms.service.PickupLocationIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PickupLocationIndex queries as the /api/pickup-locations/nearest and search
+ * endpoints run them (nearest-k, nearest within a radius, and a box), plus the
+ * put/remove every create, update and delete makes. Sites are spread over the
+ * Visayas with the default cell size; query points cycle through a fixed set
+ * drawn from the same area.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PickupLocationIndexBenchmark {
+
+    private static final double MIN_LATITUDE = 9.0;
+    private static final double MAX_LATITUDE = 12.0;
+    private static final double MIN_LONGITUDE = 122.0;
+    private static final double MAX_LONGITUDE = 126.0;
+    private static final int QUERY_POINTS = 1024;
+    private static final String[] WASTE_TYPES = {"Biodegradable", "Recyclable", "Residual", "Special"};
+
+    @Param({"100000"})
+    private int sites;
+
+    private PickupLocationIndex index;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int next;
+    private PickupLocation moving;
+    private PickupLocation added;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        List<PickupLocation> locations = new ArrayList<>(sites);
+        for (int i = 0; i < sites; i++) {
+            locations.add(new PickupLocation("loc-" + i, "Site " + i, WASTE_TYPES[i % WASTE_TYPES.length],
+                    i + " Rizal Street", latitude(random), longitude(random)));
+        }
+        index = new PickupLocationIndex(new PickupLocationIndexProperties());
+        index.replaceAll(locations, index.generation());
+
+        latitudes = new double[QUERY_POINTS];
+        longitudes = new double[QUERY_POINTS];
+        for (int i = 0; i < QUERY_POINTS; i++) {
+            latitudes[i] = latitude(random);
+            longitudes[i] = longitude(random);
+        }
+        moving = new PickupLocation(locations.get(0));
+        added = new PickupLocation("loc-new", "New site", "Recyclable", "1 Osmena Boulevard", 10.3157, 123.8854);
+    }
+
+    @Benchmark
+    public List<PickupLocation> nearest10() {
+        int i = nextPoint();
+        return index.nearest(latitudes[i], longitudes[i], null, null, 10);
+    }
+
+    @Benchmark
+    public List<PickupLocation> nearestWithin5Km() {
+        int i = nextPoint();
+        return index.nearest(latitudes[i], longitudes[i], 5_000.0, null, 500);
+    }
+
+    @Benchmark
+    public List<PickupLocation> nearest10OfOneWasteType() {
+        int i = nextPoint();
+        return index.nearest(latitudes[i], longitudes[i], null, "Special", 10);
+    }
+
+    @Benchmark
+    public List<PickupLocation> withinBox() {
+        // About 11 km on a side
+        int i = nextPoint();
+        return index.withinBox(latitudes[i] - 0.05, longitudes[i] - 0.05, latitudes[i] + 0.05, longitudes[i] + 0.05,
+                null, 500);
+    }
+
+    @Benchmark
+    public void moveSite() {
+        // An update that moves an existing site to another cell
+        int i = nextPoint();
+        moving.setLatitude(latitudes[i]);
+        moving.setLongitude(longitudes[i]);
+        index.put(moving);
+    }
+
+    @Benchmark
+    public void addAndRemoveSite() {
+        index.put(added);
+        index.remove(added.getLocationId());
+    }
+
+    private int nextPoint() {
+        next = (next + 1) & (QUERY_POINTS - 1);
+        return next;
+    }
+
+    private static double latitude(SplittableRandom random) {
+        return random.nextDouble(MIN_LATITUDE, MAX_LATITUDE);
+    }
+
+    private static double longitude(SplittableRandom random) {
+        return random.nextDouble(MIN_LONGITUDE, MAX_LONGITUDE);
+    }
+}
@@ -0,0 +1,77 @@
+package com.g4.gms.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g4.gms.dto.ScheduleResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the two list response shapes: ScheduleController's
+ * List&lt;ScheduleResponse&gt; and FeedbackController's per-row Map.of(...) bodies.
+ * Output goes to a null stream (closed by Jackson after each write, so one per call)
+ * so only serialization is measured, not buffering.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ResponseSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int rows;
+
+    // Built the way Spring Boot builds the MVC ObjectMapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<ScheduleResponse> schedules;
+    private List<Map<String, Object>> feedback;
+
+    @Setup
+    public void setUp() {
+        schedules = new ArrayList<>(rows);
+        feedback = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            schedules.add(new ScheduleResponse("sched-" + i, "Biodegradable pickup", "2026-10-19", "7:30 AM",
+                    "loc-" + (i % 500), "PENDING", "user-" + (i % 2000), "resident" + (i % 2000) + "@example.com",
+                    true, "Schedule retrieved successfully"));
+            feedback.add(Map.of(
+                    "feedbackId", "feedback-" + i,
+                    "title", "Missed pickup on our street",
+                    "description", "The truck did not pass by Rizal Street this morning.",
+                    "status", "OPEN",
+                    "userId", "user-" + (i % 2000),
+                    "userEmail", "resident" + (i % 2000) + "@example.com",
+                    "success", true,
+                    "message", "Feedback retrieved successfully"
+            ));
+        }
+    }
+
+    @Benchmark
+    public void scheduleResponses() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), schedules);
+    }
+
+    @Benchmark
+    public void feedbackMaps() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), feedback);
+    }
+}
@@ -0,0 +1,146 @@
+package com.g4.gms.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP client for the backend's REST API that records every call in the
+ * EndpointStats of its endpoint. One instance is shared by all sessions.
+ */
+final class ApiClient {
+
+    /**
+     * A response
+     * @param status The HTTP status
+     * @param body The parsed JSON body, or null if it was empty or not JSON
+     */
+    record Response(int status, JsonNode body) {
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    private final URI baseUrl;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    ApiClient(URI baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    /**
+     * Send a request and wait for the whole response
+     * @param endpoint Name the call is reported under, e.g. "GET /api/schedule/user"
+     * @param method HTTP method
+     * @param pathAndQuery Path (and query) relative to the base URL
+     * @param body Object sent as JSON, or null for no body
+     * @param token Bearer token, or null for an anonymous call
+     * @return The response, or null if none arrived (timeout, connection error)
+     */
+    Response send(String endpoint, String method, String pathAndQuery, Object body, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + pathAndQuery))
+                .timeout(timeout)
+                .header("Accept", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        if (body != null) {
+            builder.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(toJson(body)));
+        } else {
+            builder.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        HttpRequest request = builder.build();
+
+        EndpointStats endpointStats = stats.computeIfAbsent(endpoint, key -> new EndpointStats());
+        long start = System.nanoTime();
+        inFlight.incrementAndGet();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            int status = response.statusCode();
+            endpointStats.record(start, Integer.toString(status), status >= 400);
+            return new Response(status, parse(response.body()));
+        } catch (IOException e) {
+            endpointStats.record(start, e.getClass().getSimpleName(), true);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            endpointStats.record(start, e.getClass().getSimpleName(), true);
+            return null;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Requests sent and not yet answered, across every session
+     * @return The number of requests in flight
+     */
+    int inFlightRequests() {
+        return inFlight.get();
+    }
+
+    /**
+     * Drop everything recorded so far, on every endpoint
+     */
+    void resetStats() {
+        stats.values().forEach(EndpointStats::reset);
+    }
+
+    /**
+     * Summarize every endpoint called since the last reset
+     * @param seconds Length of the measured window
+     * @return Map of endpoint name to its summary, sorted by name; endpoints only used while seeding are left out
+     */
+    Map<String, Map<String, Object>> summarize(double seconds) {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        stats.forEach((endpoint, endpointStats) -> {
+            Map<String, Object> summary = endpointStats.summarize(seconds);
+            if ((long) summary.get("requests") > 0) {
+                result.put(endpoint, summary);
+            }
+        });
+        return result;
+    }
+
+    private String toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Request body is not serializable", e);
+        }
+    }
+
+    private JsonNode parse(byte[] body) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
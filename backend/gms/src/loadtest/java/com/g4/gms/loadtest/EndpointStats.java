@@ -0,0 +1,82 @@
+package com.g4.gms.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counters of one endpoint. Latencies are kept
+ * in microseconds, from just before the request is sent until the response
+ * body has been read.
+ */
+final class EndpointStats {
+
+    // Anything slower than the longest request timeout we would ever configure is clamped
+    private static final long MAX_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Recorder recorder = new Recorder(MAX_MICROS, 3);
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+
+    /**
+     * Record one request
+     * @param startNanos System.nanoTime() taken before sending
+     * @param outcome The HTTP status, or the exception name if there was no response
+     * @param error Whether the request counts as an error
+     */
+    void record(long startNanos, String outcome, boolean error) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+        recorder.recordValue(Math.min(Math.max(micros, 1), MAX_MICROS));
+        requests.increment();
+        if (error) {
+            errors.increment();
+        }
+        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Drop everything recorded so far (end of the warm-up)
+     */
+    void reset() {
+        recorder.reset();
+        requests.reset();
+        errors.reset();
+        outcomes.clear();
+    }
+
+    /**
+     * Summarize what was recorded since the last reset
+     * @param seconds Length of the measured window, for the throughput
+     * @return Map of statistic name to value (latencies in milliseconds)
+     */
+    Map<String, Object> summarize(double seconds) {
+        Histogram histogram = recorder.getIntervalHistogram();
+        long count = requests.sum();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("throughput", count / seconds);
+        summary.put("errors", errors.sum());
+        summary.put("errorRate", count > 0 ? (double) errors.sum() / count : 0.0);
+        summary.put("p50", millis(histogram.getValueAtPercentile(50)));
+        summary.put("p95", millis(histogram.getValueAtPercentile(95)));
+        summary.put("p99", millis(histogram.getValueAtPercentile(99)));
+        summary.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+        summary.put("max", millis(histogram.getMaxValue()));
+        Map<String, Long> byOutcome = new LinkedHashMap<>();
+        outcomes.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> byOutcome.put(entry.getKey(), entry.getValue().sum()));
+        summary.put("outcomes", byOutcome);
+        return summary;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,222 @@
+package com.g4.gms.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model HTTP load generator for the backend. New client sessions arrive as a
+ * Poisson process at the configured rate, whether or not earlier ones have finished,
+ * so a slow server sees its queue grow the way it would in production instead of
+ * the load politely backing off. Every session runs on its own virtual thread,
+ * so thousands can be in flight at once.
+ *
+ * Start the backend on the in-memory store (or on Firestore pointed at the emulator
+ * through FIRESTORE_EMULATOR_HOST), then run:
+ *
+ *   mvn -Ploadtest -DskipTests verify -Dloadtest.args="--base-url http://localhost:8080 --rate 100"
+ *
+ * Throughput, error rate and p50/p95/p99/p99.9 latency per endpoint are printed at
+ * the end and written as JSON to --report (target/loadtest-report.json by default).
+ * See LoadTestOptions for every option. During the measured window the backend's
+ * Prometheus endpoint is sampled too (--metrics-url), and the memory and live threads
+ * it holds above its idle state are reported per request in flight. To compare the backend's
+ * virtual and platform request threads, run once with GMS_VIRTUAL_THREADS=true and
+ * once without, at the same rate, and compare the "server" sections of the reports.
+ */
+public final class LoadTest {
+
+    private final LoadTestOptions options;
+    private final ApiClient api;
+    private final Scenarios scenarios;
+    private final ServerSampler sampler;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAccumulator maxInFlight = new LongAccumulator(Math::max, 0);
+    // How far behind schedule the arrival loop ever started a session; large values mean the generator is the bottleneck
+    private final LongAccumulator maxArrivalLagNanos = new LongAccumulator(Math::max, 0);
+
+    private LoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.api = new ApiClient(options.baseUrl(), options.requestTimeout());
+        this.scenarios = new Scenarios(api, options);
+        this.sampler = options.metricsUrl() != null
+                ? new ServerSampler(options.metricsUrl(), options.metricsInterval(), api::inFlightRequests)
+                : null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        new LoadTest(options).run();
+    }
+
+    private void run() throws InterruptedException, IOException {
+        System.out.printf("Seeding %d residents, %d collectors and %d pickup locations on %s%n",
+                options.residents(), options.collectors(), options.locations(), options.baseUrl());
+        scenarios.seed(32);
+
+        System.out.printf("Arrivals: %.1f sessions/s (ramp-up %ds, warm-up %ds, measured %ds)%n",
+                options.sessionsPerSecond(), options.rampUp().toSeconds(), options.warmup().toSeconds(),
+                options.duration().toSeconds());
+        if (sampler != null) {
+            sampler.sampleIdle();
+        }
+        long measuredNanos;
+        try {
+            measuredNanos = drive();
+        } finally {
+            if (sampler != null) {
+                sampler.stop();
+            }
+        }
+
+        // Sessions still running finish and are counted; nothing new starts
+        long deadline = System.nanoTime() + options.requestTimeout().toNanos() * 2;
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+
+        report(measuredNanos / 1e9);
+    }
+
+    /**
+     * Start sessions until the measured window is over
+     * @return Length of the measured window in nanoseconds
+     */
+    private long drive() {
+        SplittableRandom arrivals = new SplittableRandom(options.seed());
+        long start = System.nanoTime();
+        long rampEnd = start + options.rampUp().toNanos();
+        long warmupEnd = rampEnd + options.warmup().toNanos();
+        long end = warmupEnd + options.duration().toNanos();
+        boolean measuring = false;
+        long next = start;
+
+        while (true) {
+            double rate = options.sessionsPerSecond();
+            if (next < rampEnd) {
+                // Never quite zero, or the first arrival would be scheduled at infinity
+                rate *= Math.max(0.01, (double) (next - start) / (rampEnd - start));
+            }
+            next += (long) (-Math.log(1 - arrivals.nextDouble()) / rate * 1e9);
+            if (next >= end) {
+                break;
+            }
+
+            long now;
+            while ((now = System.nanoTime()) < next) {
+                LockSupport.parkNanos(next - now);
+            }
+            maxArrivalLagNanos.accumulate(now - next);
+
+            if (!measuring && now >= warmupEnd) {
+                measuring = true;
+                api.resetStats();
+                resetSessionCounters();
+                if (sampler != null) {
+                    sampler.start();
+                }
+                System.out.println("Warm-up done, measuring");
+            }
+            startSession(new Random(arrivals.nextLong()));
+        }
+
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            LockSupport.parkNanos(end - now);
+        }
+        return measuring ? end - warmupEnd : end - start;
+    }
+
+    private void startSession(Random random) {
+        if (inFlight.get() >= options.maxSessions()) {
+            dropped.increment();
+            return;
+        }
+        maxInFlight.accumulate(inFlight.incrementAndGet());
+        started.increment();
+        Thread.ofVirtual().start(() -> {
+            try {
+                if (scenarios.runSession(random)) {
+                    completed.increment();
+                } else {
+                    failed.increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.increment();
+            } catch (RuntimeException e) {
+                failed.increment();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private void resetSessionCounters() {
+        started.reset();
+        completed.reset();
+        failed.reset();
+        dropped.reset();
+        maxInFlight.reset();
+        maxArrivalLagNanos.reset();
+    }
+
+    private void report(double seconds) throws IOException {
+        Map<String, Map<String, Object>> endpoints = api.summarize(seconds);
+
+        Map<String, Object> sessions = new LinkedHashMap<>();
+        sessions.put("started", started.sum());
+        sessions.put("completed", completed.sum());
+        sessions.put("failed", failed.sum());
+        sessions.put("dropped", dropped.sum());
+        sessions.put("unfinished", inFlight.get());
+        sessions.put("maxInFlight", maxInFlight.get());
+        sessions.put("arrivalRate", started.sum() / seconds);
+        sessions.put("maxArrivalLagMs", maxArrivalLagNanos.get() / 1e6);
+
+        System.out.printf("%nSessions over %.0fs: %s%n", seconds, sessions);
+        Map<String, Object> server = sampler != null ? sampler.summarize() : null;
+        if (server != null) {
+            System.out.printf("Server: %s%n", server);
+        }
+        System.out.println();
+        System.out.printf("%-34s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "err%", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.forEach((endpoint, summary) -> System.out.printf("%-34s %9d %9.1f %7.2f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                endpoint, summary.get("requests"), summary.get("throughput"), (double) summary.get("errorRate") * 100,
+                summary.get("p50"), summary.get("p95"), summary.get("p99"), summary.get("p999"), summary.get("max")));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options);
+        report.put("measuredSeconds", seconds);
+        report.put("sessions", sessions);
+        report.put("server", server);
+        report.put("endpoints", endpoints);
+        File file = new File(options.reportFile());
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DURATIONS_AS_TIMESTAMPS)
+                .writerWithDefaultPrettyPrinter()
+                .writeValue(file, report);
+        System.out.printf("%nReport written to %s%n", file.getAbsolutePath());
+    }
+}
@@ -0,0 +1,149 @@
+package com.g4.gms.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command-line options of the load test. Every option is "--name value" or
+ * "--name=value"; durations take an ms, s or m suffix.
+ * @param baseUrl Backend to load, e.g. http://localhost:8080
+ * @param sessionsPerSecond Target arrival rate of new client sessions (open model)
+ * @param rampUp Time over which the arrival rate climbs from zero to the target
+ * @param warmup Time after the ramp-up whose requests are left out of the report
+ * @param duration Measured time after the warm-up
+ * @param residents Resident accounts to seed and draw sessions from
+ * @param collectors Collector accounts to seed and draw sessions from
+ * @param collectorShare Fraction of sessions that are collector sessions
+ * @param locations Pickup locations to seed
+ * @param loginShare Fraction of sessions that log in first instead of reusing the account's token
+ * @param missedShare Fraction of resident sessions that file a missed-collection report
+ * @param feedbackShare Fraction of resident sessions that submit feedback
+ * @param scheduleShare Fraction of resident sessions that book a new pickup
+ * @param thinkTime Mean pause between two requests of a session (exponentially distributed)
+ * @param maxSessions Sessions allowed in flight; arrivals beyond it are dropped and counted
+ * @param requestTimeout Per-request timeout
+ * @param reportFile Where the JSON report is written
+ * @param metricsUrl The backend's Prometheus endpoint, sampled during the measured window, or null not to sample it
+ * @param metricsInterval Time between two samples of the Prometheus endpoint
+ * @param seed Seed of the random choices, for repeatable runs
+ */
+record LoadTestOptions(
+        URI baseUrl,
+        double sessionsPerSecond,
+        Duration rampUp,
+        Duration warmup,
+        Duration duration,
+        int residents,
+        int collectors,
+        double collectorShare,
+        int locations,
+        double loginShare,
+        double missedShare,
+        double feedbackShare,
+        double scheduleShare,
+        Duration thinkTime,
+        int maxSessions,
+        Duration requestTimeout,
+        String reportFile,
+        URI metricsUrl,
+        Duration metricsInterval,
+        long seed) {
+
+    private static final Set<String> KNOWN = Set.of(
+            "base-url", "rate", "ramp-up", "warmup", "duration", "residents", "collectors", "collector-share",
+            "locations", "login-share", "missed-share", "feedback-share", "schedule-share", "think-time",
+            "max-sessions", "timeout", "report", "metrics-url", "metrics-interval", "seed");
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals > 0) {
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            } else if (i + 1 < args.length) {
+                values.put(arg.substring(2), args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+        }
+
+        URI baseUrl = URI.create(stripTrailingSlash(values.getOrDefault("base-url", "http://localhost:8080")));
+        LoadTestOptions options = new LoadTestOptions(
+                baseUrl,
+                Double.parseDouble(values.getOrDefault("rate", "50")),
+                duration(values.getOrDefault("ramp-up", "30s")),
+                duration(values.getOrDefault("warmup", "30s")),
+                duration(values.getOrDefault("duration", "120s")),
+                Integer.parseInt(values.getOrDefault("residents", "500")),
+                Integer.parseInt(values.getOrDefault("collectors", "20")),
+                fraction(values, "collector-share", "0.05"),
+                Integer.parseInt(values.getOrDefault("locations", "200")),
+                fraction(values, "login-share", "0.2"),
+                fraction(values, "missed-share", "0.05"),
+                fraction(values, "feedback-share", "0.05"),
+                fraction(values, "schedule-share", "0.1"),
+                duration(values.getOrDefault("think-time", "1s")),
+                Integer.parseInt(values.getOrDefault("max-sessions", "10000")),
+                duration(values.getOrDefault("timeout", "10s")),
+                values.getOrDefault("report", "target/loadtest-report.json"),
+                metricsUrl(values.get("metrics-url"), baseUrl),
+                duration(values.getOrDefault("metrics-interval", "1s")),
+                Long.parseLong(values.getOrDefault("seed", "42")));
+
+        values.keySet().removeAll(KNOWN);
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        if (options.sessionsPerSecond() <= 0 || options.residents() <= 0 || options.collectors() <= 0
+                || options.locations() <= 0 || options.maxSessions() <= 0) {
+            throw new IllegalArgumentException("rate, residents, collectors, locations and max-sessions must be positive");
+        }
+        return options;
+    }
+
+    /**
+     * The given URL, "none" for no sampling, or by default the backend's host on the
+     * default management port (MANAGEMENT_PORT)
+     */
+    private static URI metricsUrl(String value, URI baseUrl) {
+        if ("none".equals(value)) {
+            return null;
+        }
+        if (value != null) {
+            return URI.create(value);
+        }
+        return URI.create(baseUrl.getScheme() + "://" + baseUrl.getHost() + ":8081/actuator/prometheus");
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static double fraction(Map<String, String> values, String name, String defaultValue) {
+        double value = Double.parseDouble(values.getOrDefault(name, defaultValue));
+        if (value < 0 || value > 1) {
+            throw new IllegalArgumentException(name + " must be between 0 and 1");
+        }
+        return value;
+    }
+
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        throw new IllegalArgumentException("Duration needs an ms, s or m suffix: " + value);
+    }
+}
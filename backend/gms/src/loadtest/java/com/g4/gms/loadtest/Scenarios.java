@@ -0,0 +1,274 @@
+package com.g4.gms.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The client sessions, modelled on how the mobile app (ApiService.kt) uses the API,
+ * and the data they need seeded first.
+ *
+ * A resident opens the app, logs in unless the app still holds a token, looks at the
+ * pickup locations and their own schedules, and sometimes books a pickup, reports a
+ * missed collection or sends feedback. A collector looks at today's pickups for a
+ * site, the missed-collection reports and the sites near them.
+ */
+final class Scenarios {
+
+    private static final String PASSWORD = "loadtest123";
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("h:mm a", Locale.ENGLISH);
+    private static final String[] WASTE_TYPES = {"Biodegradable", "Recyclable", "Residual", "Special"};
+    // Around Cebu City, where the seeded sites are spread out
+    private static final double CENTER_LAT = 10.3157;
+    private static final double CENTER_LNG = 123.8854;
+
+    /**
+     * A seeded account; the token is what the app would have kept from its last login
+     */
+    static final class Account {
+        final String email;
+        volatile String userId;
+        volatile String token;
+
+        Account(String email) {
+            this.email = email;
+        }
+    }
+
+    private final ApiClient api;
+    private final LoadTestOptions options;
+    private final List<Account> residents = new ArrayList<>();
+    private final List<Account> collectors = new ArrayList<>();
+    private final List<String> locationIds = new ArrayList<>();
+
+    Scenarios(ApiClient api, LoadTestOptions options) {
+        this.api = api;
+        this.options = options;
+        for (int i = 0; i < options.residents(); i++) {
+            residents.add(new Account("loadtest-resident-" + i + "@example.com"));
+        }
+        for (int i = 0; i < options.collectors(); i++) {
+            collectors.add(new Account("loadtest-collector-" + i + "@example.com"));
+        }
+    }
+
+    /**
+     * Register (or, on a store that already has them, log in) every account, create
+     * the pickup locations and give every resident a pickup today
+     * @param parallelism Seeding requests in flight at once
+     */
+    void seed(int parallelism) throws InterruptedException {
+        Semaphore permits = new Semaphore(parallelism);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < residents.size(); i++) {
+            Account account = residents.get(i);
+            int n = i;
+            threads.add(startBounded(permits, () -> signUp(account, "Resident", n, "USER")));
+        }
+        for (int i = 0; i < collectors.size(); i++) {
+            Account account = collectors.get(i);
+            int n = i;
+            threads.add(startBounded(permits, () -> signUp(account, "Collector", n, "COLLECTOR")));
+        }
+        joinAll(threads);
+
+        String token = collectors.get(0).token;
+        if (token == null) {
+            throw new IllegalStateException("Could not sign up the collector accounts; is the backend up at " + options.baseUrl() + "?");
+        }
+        Random random = new Random(options.seed());
+        for (int i = 0; i < options.locations(); i++) {
+            Map<String, Object> body = Map.of(
+                    "siteName", "Load test site " + i,
+                    "wasteType", WASTE_TYPES[i % WASTE_TYPES.length],
+                    "address", i + " Load Test Street, Cebu City",
+                    "latitude", CENTER_LAT + (random.nextDouble() - 0.5) * 0.2,
+                    "longitude", CENTER_LNG + (random.nextDouble() - 0.5) * 0.2);
+            ApiClient.Response response = api.send("POST /api/pickup-locations", "POST", "/api/pickup-locations", body, token);
+            if (response != null && response.ok() && response.body() != null && response.body().hasNonNull("locationId")) {
+                locationIds.add(response.body().get("locationId").asText());
+            }
+        }
+        if (locationIds.isEmpty()) {
+            throw new IllegalStateException("Could not create any pickup location");
+        }
+
+        threads.clear();
+        for (Account account : residents) {
+            if (account.token == null) {
+                continue;
+            }
+            long seed = random.nextLong();
+            threads.add(startBounded(permits, () -> bookPickup(account, new Random(seed), LocalDate.now())));
+        }
+        joinAll(threads);
+    }
+
+    /**
+     * Run one session of a randomly chosen kind and account
+     * @param random Source of the session's choices
+     * @return Whether every request the session needed succeeded
+     */
+    boolean runSession(Random random) throws InterruptedException {
+        if (random.nextDouble() < options.collectorShare()) {
+            return collector(collectors.get(random.nextInt(collectors.size())), random);
+        }
+        return resident(residents.get(random.nextInt(residents.size())), random);
+    }
+
+    private boolean resident(Account account, Random random) throws InterruptedException {
+        if (!ensureLoggedIn(account, random)) {
+            return false;
+        }
+        boolean ok = true;
+
+        think(random);
+        ok &= succeeded(api.send("GET /api/pickup-locations", "GET", "/api/pickup-locations", null, null));
+
+        think(random);
+        ApiClient.Response schedules = api.send("GET /api/schedule/user", "GET", "/api/schedule/user", null, account.token);
+        ok &= succeeded(schedules);
+
+        if (random.nextDouble() < options.scheduleShare()) {
+            think(random);
+            ok &= bookPickup(account, random, LocalDate.now().plusDays(1 + random.nextInt(14)));
+        }
+
+        if (random.nextDouble() < options.missedShare()) {
+            think(random);
+            String scheduleId = anyScheduleId(schedules, random);
+            Map<String, Object> body = Map.of(
+                    "title", "Missed collection",
+                    "description", "The truck did not come by this morning.",
+                    "reportDateTime", LocalDateTime.now().withNano(0).toString(),
+                    "scheduleId", scheduleId != null ? scheduleId : "",
+                    "userId", account.userId);
+            ok &= succeeded(api.send("POST /api/missed", "POST", "/api/missed", body, account.token));
+        }
+
+        if (random.nextDouble() < options.feedbackShare()) {
+            think(random);
+            Map<String, Object> body = Map.of(
+                    "title", "Pickup feedback",
+                    "description", "Collection was on time, thank you.",
+                    "status", "OPEN");
+            ok &= succeeded(api.send("POST /api/feedback", "POST", "/api/feedback", body, account.token));
+        }
+        return ok;
+    }
+
+    private boolean collector(Account account, Random random) throws InterruptedException {
+        if (!ensureLoggedIn(account, random)) {
+            return false;
+        }
+        boolean ok = true;
+        String today = LocalDate.now().toString();
+        String locationId = locationIds.get(random.nextInt(locationIds.size()));
+
+        think(random);
+        ok &= succeeded(api.send("GET /api/schedule/range", "GET",
+                "/api/schedule/range?from=" + today + "&to=" + today + "&locationId=" + locationId, null, account.token));
+
+        think(random);
+        ok &= succeeded(api.send("GET /api/missed", "GET", "/api/missed?limit=50", null, account.token));
+
+        think(random);
+        double lat = CENTER_LAT + (random.nextDouble() - 0.5) * 0.2;
+        double lng = CENTER_LNG + (random.nextDouble() - 0.5) * 0.2;
+        ok &= succeeded(api.send("GET /api/pickup-locations/search", "GET",
+                "/api/pickup-locations/search?lat=" + lat + "&lng=" + lng + "&radiusMeters=3000", null, null));
+        return ok;
+    }
+
+    private boolean ensureLoggedIn(Account account, Random random) {
+        if (account.token != null && random.nextDouble() >= options.loginShare()) {
+            return true;
+        }
+        return login(account);
+    }
+
+    private boolean login(Account account) {
+        ApiClient.Response response = api.send("POST /api/auth/login", "POST", "/api/auth/login",
+                Map.of("email", account.email, "password", PASSWORD), null);
+        if (response == null || !response.ok() || response.body() == null || !response.body().hasNonNull("token")) {
+            return false;
+        }
+        account.userId = response.body().get("userId").asText();
+        account.token = response.body().get("token").asText();
+        return true;
+    }
+
+    private void signUp(Account account, String kind, int n, String role) {
+        Map<String, Object> body = Map.of(
+                "email", account.email,
+                "password", PASSWORD,
+                "firstName", kind,
+                "lastName", Integer.toString(n),
+                "username", account.email.substring(0, account.email.indexOf('@')),
+                "role", role);
+        ApiClient.Response response = api.send("POST /api/auth/register", "POST", "/api/auth/register", body, null);
+        if (response != null && response.ok() && response.body() != null && response.body().hasNonNull("token")) {
+            account.userId = response.body().get("userId").asText();
+            account.token = response.body().get("token").asText();
+        } else {
+            // Already registered by an earlier run against the same store
+            login(account);
+        }
+    }
+
+    private boolean bookPickup(Account account, Random random, LocalDate date) {
+        Map<String, Object> body = Map.of(
+                "title", "Household pickup",
+                "pickupDate", date.toString(),
+                "pickupTime", TIME.format(LocalTime.of(6 + random.nextInt(10), 15 * random.nextInt(4))),
+                "locationId", locationIds.get(random.nextInt(locationIds.size())),
+                "status", "PENDING");
+        return succeeded(api.send("POST /api/schedule", "POST", "/api/schedule", body, account.token));
+    }
+
+    private static String anyScheduleId(ApiClient.Response schedules, Random random) {
+        if (schedules == null || schedules.body() == null || !schedules.body().isArray() || schedules.body().isEmpty()) {
+            return null;
+        }
+        JsonNode schedule = schedules.body().get(random.nextInt(schedules.body().size()));
+        return schedule.hasNonNull("scheduleId") ? schedule.get("scheduleId").asText() : null;
+    }
+
+    private static boolean succeeded(ApiClient.Response response) {
+        return response != null && response.status() < 400;
+    }
+
+    private void think(Random random) throws InterruptedException {
+        long mean = options.thinkTime().toMillis();
+        if (mean > 0) {
+            TimeUnit.MILLISECONDS.sleep((long) (-Math.log(1 - random.nextDouble()) * mean));
+        }
+    }
+
+    private static Thread startBounded(Semaphore permits, Runnable task) throws InterruptedException {
+        permits.acquire();
+        return Thread.ofVirtual().start(() -> {
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private static void joinAll(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.g4.gms.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/**
+ * Samples the backend's own JVM metrics from its Prometheus endpoint during the
+ * measured window, together with the number of requests the load test has in
+ * flight at that moment. One more sample is taken before the load starts, and
+ * what each sample holds above it, divided by the requests in flight, gives the
+ * server's memory and threads per concurrent request: the figure that differs
+ * between virtual and platform request threads.
+ *
+ * Heap and non-heap figures are jvm.memory.used; the native stacks of platform
+ * threads are not in it, which is why live threads are reported separately.
+ */
+final class ServerSampler {
+
+    /**
+     * One sample
+     * @param heapBytes jvm.memory.used summed over the heap pools
+     * @param nonHeapBytes jvm.memory.used summed over the non-heap pools
+     * @param liveThreads jvm.threads.live
+     * @param inFlightRequests Requests sent by the load test and not yet answered
+     */
+    private record Sample(double heapBytes, double nonHeapBytes, double liveThreads, int inFlightRequests) {
+    }
+
+    private final URI metricsUrl;
+    private final Duration interval;
+    private final IntSupplier inFlightRequests;
+    private final HttpClient httpClient;
+    // Only touched by the sampling thread until it has been joined
+    private final List<Sample> samples = new ArrayList<>();
+    private Sample idle;
+    private int failures;
+    private String lastFailure;
+    private Thread thread;
+
+    ServerSampler(URI metricsUrl, Duration interval, IntSupplier inFlightRequests) {
+        this.metricsUrl = metricsUrl;
+        this.interval = interval;
+        this.inFlightRequests = inFlightRequests;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(interval).build();
+    }
+
+    /**
+     * Take the idle sample, before any load is sent
+     */
+    void sampleIdle() throws InterruptedException {
+        idle = sampleOnce();
+    }
+
+    /**
+     * Start sampling every interval on a background thread
+     */
+    void start() {
+        thread = Thread.ofPlatform().daemon().name("server-sampler").start(() -> {
+            try {
+                while (true) {
+                    Sample sample = sampleOnce();
+                    if (sample != null) {
+                        samples.add(sample);
+                    }
+                    Thread.sleep(interval);
+                }
+            } catch (InterruptedException e) {
+                // Stopped
+            }
+        });
+    }
+
+    /**
+     * Stop sampling and wait for the sampling thread to finish
+     */
+    void stop() throws InterruptedException {
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    /**
+     * Summarize the samples taken. Per-request figures average, over the samples
+     * that had requests in flight, what the sample holds above the idle sample
+     * divided by the requests in flight.
+     * @return Map of statistic name to value (memory in megabytes)
+     */
+    Map<String, Object> summarize() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("metricsUrl", metricsUrl.toString());
+        summary.put("samples", samples.size());
+        summary.put("failedSamples", failures);
+        if (lastFailure != null) {
+            summary.put("lastFailure", lastFailure);
+        }
+        if (idle != null) {
+            summary.put("idleHeapMb", megabytes(idle.heapBytes()));
+            summary.put("idleNonHeapMb", megabytes(idle.nonHeapBytes()));
+            summary.put("idleLiveThreads", idle.liveThreads());
+        }
+        if (samples.isEmpty()) {
+            return summary;
+        }
+        double heap = 0;
+        double nonHeap = 0;
+        double threads = 0;
+        double inFlight = 0;
+        double maxHeap = 0;
+        double maxThreads = 0;
+        double memoryPerRequest = 0;
+        double threadsPerRequest = 0;
+        int loaded = 0;
+        for (Sample sample : samples) {
+            heap += sample.heapBytes();
+            nonHeap += sample.nonHeapBytes();
+            threads += sample.liveThreads();
+            inFlight += sample.inFlightRequests();
+            maxHeap = Math.max(maxHeap, sample.heapBytes());
+            maxThreads = Math.max(maxThreads, sample.liveThreads());
+            if (idle != null && sample.inFlightRequests() > 0) {
+                double memoryAboveIdle = sample.heapBytes() + sample.nonHeapBytes() - idle.heapBytes() - idle.nonHeapBytes();
+                memoryPerRequest += memoryAboveIdle / sample.inFlightRequests();
+                threadsPerRequest += (sample.liveThreads() - idle.liveThreads()) / sample.inFlightRequests();
+                loaded++;
+            }
+        }
+        int count = samples.size();
+        summary.put("meanInFlightRequests", inFlight / count);
+        summary.put("meanHeapMb", megabytes(heap / count));
+        summary.put("maxHeapMb", megabytes(maxHeap));
+        summary.put("meanNonHeapMb", megabytes(nonHeap / count));
+        summary.put("meanLiveThreads", threads / count);
+        summary.put("maxLiveThreads", maxThreads);
+        summary.put("memoryMbPerInFlightRequest", loaded > 0 ? megabytes(memoryPerRequest / loaded) : null);
+        summary.put("threadsPerInFlightRequest", loaded > 0 ? threadsPerRequest / loaded : null);
+        return summary;
+    }
+
+    /**
+     * Scrape the endpoint once
+     * @return The sample, or null if the scrape failed
+     */
+    private Sample sampleOnce() throws InterruptedException {
+        try {
+            HttpResponse<String> response = httpClient.send(
+                    HttpRequest.newBuilder(metricsUrl).timeout(interval).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            // Read right after the scrape so both describe the same moment
+            int inFlight = inFlightRequests.getAsInt();
+            if (response.statusCode() != 200) {
+                fail("HTTP " + response.statusCode());
+                return null;
+            }
+            return parse(response.body(), inFlight);
+        } catch (IOException e) {
+            fail(e.getClass().getSimpleName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void fail(String reason) {
+        if (failures++ == 0) {
+            System.out.printf("Could not sample %s (%s); carrying on without it%n", metricsUrl, reason);
+        }
+        lastFailure = reason;
+    }
+
+    /**
+     * Pick the JVM gauges out of a Prometheus text exposition
+     */
+    private static Sample parse(String exposition, int inFlight) {
+        double heap = 0;
+        double nonHeap = 0;
+        double threads = 0;
+        for (String line : exposition.split("\n")) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("jvm_memory_used_bytes{")) {
+                double value = value(line);
+                if (line.contains("area=\"heap\"")) {
+                    heap += value;
+                } else {
+                    nonHeap += value;
+                }
+            } else if (line.startsWith("jvm_threads_live_threads")) {
+                threads += value(line);
+            }
+        }
+        return new Sample(heap, nonHeap, threads, inFlight);
+    }
+
+    private static double value(String line) {
+        return Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+    }
+
+    private static double megabytes(double bytes) {
+        return bytes / (1024 * 1024);
+    }
+}
@@ -0,0 +1,133 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+@Component
+@ConfigurationProperties(prefix = "app.imports")
+@Validated
+public class BulkImportProperties {
+
+    /**
+     * Imports processed at the same time; further ones wait in the queue.
+     */
+    @NotNull(message = "Import worker count cannot be null")
+    @Positive(message = "Import worker count must be positive")
+    private Integer workers = 1;
+
+    /**
+     * Imports allowed to wait for a worker; beyond this uploads are rejected with 429.
+     */
+    @NotNull(message = "Import queue capacity cannot be null")
+    @Positive(message = "Import queue capacity must be positive")
+    private Integer queueCapacity = 8;
+
+    /**
+     * Write rate an import starts at; Firestore raises it by half every five minutes.
+     */
+    @NotNull(message = "Import initial write rate cannot be null")
+    @Positive(message = "Import initial write rate must be positive")
+    private Integer initialOpsPerSecond = 500;
+
+    /**
+     * Write rate an import never exceeds.
+     */
+    @NotNull(message = "Import max write rate cannot be null")
+    @Positive(message = "Import max write rate must be positive")
+    private Integer maxOpsPerSecond = 10000;
+
+    /**
+     * Rows written but not yet acknowledged; parsing pauses until writes catch up.
+     */
+    @NotNull(message = "Import pending write limit cannot be null")
+    @Positive(message = "Import pending write limit must be positive")
+    private Integer maxPendingWrites = 5000;
+
+    /**
+     * Largest upload accepted (100 MB).
+     */
+    @NotNull(message = "Import payload limit cannot be null")
+    @Positive(message = "Import payload limit must be positive")
+    private Long maxPayloadBytes = 104857600L;
+
+    /**
+     * Row errors kept per import; further ones are only counted.
+     */
+    @NotNull(message = "Import reported error limit cannot be null")
+    @Positive(message = "Import reported error limit must be positive")
+    private Integer maxReportedErrors = 1000;
+
+    /**
+     * How long a finished import's status stays available.
+     */
+    @NotNull(message = "Import retention cannot be null")
+    @Positive(message = "Import retention must be positive")
+    private Long retentionMs = 86400000L;
+
+    public Integer getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(Integer queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Integer getInitialOpsPerSecond() {
+        return initialOpsPerSecond;
+    }
+
+    public void setInitialOpsPerSecond(Integer initialOpsPerSecond) {
+        this.initialOpsPerSecond = initialOpsPerSecond;
+    }
+
+    public Integer getMaxOpsPerSecond() {
+        return maxOpsPerSecond;
+    }
+
+    public void setMaxOpsPerSecond(Integer maxOpsPerSecond) {
+        this.maxOpsPerSecond = maxOpsPerSecond;
+    }
+
+    public Integer getMaxPendingWrites() {
+        return maxPendingWrites;
+    }
+
+    public void setMaxPendingWrites(Integer maxPendingWrites) {
+        this.maxPendingWrites = maxPendingWrites;
+    }
+
+    public Long getMaxPayloadBytes() {
+        return maxPayloadBytes;
+    }
+
+    public void setMaxPayloadBytes(Long maxPayloadBytes) {
+        this.maxPayloadBytes = maxPayloadBytes;
+    }
+
+    public Integer getMaxReportedErrors() {
+        return maxReportedErrors;
+    }
+
+    public void setMaxReportedErrors(Integer maxReportedErrors) {
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public Long getRetentionMs() {
+        return retentionMs;
+    }
+
+    public void setRetentionMs(Long retentionMs) {
+        this.retentionMs = retentionMs;
+    }
+}
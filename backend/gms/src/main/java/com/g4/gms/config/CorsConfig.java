@@ -20,7 +20,7 @@ public class CorsConfig implements WebMvcConfigurer {
                 )
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH")
                 .allowedHeaders("*")
-                .exposedHeaders("Authorization")
+                .exposedHeaders("Authorization", "X-Next-Page-Token", "ETag", "Last-Modified")
                 .allowCredentials(true)
                 .maxAge(3600);
     }
@@ -0,0 +1,103 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+@Component
+@ConfigurationProperties(prefix = "app.device-tokens")
+@Validated
+public class DeviceTokenProperties {
+
+    /**
+     * Most devices kept per user; registering another drops the least recently seen.
+     */
+    @NotNull(message = "Device token max per user cannot be null")
+    @Positive(message = "Device token max per user must be positive")
+    private Integer maxPerUser = 10;
+
+    /**
+     * Tokens not seen for this long are no longer sent to and are deleted by the cleanup job.
+     */
+    @NotNull(message = "Device token stale-after cannot be null")
+    @Positive(message = "Device token stale-after must be positive")
+    private Long staleAfterMs = 5184000000L;
+
+    /**
+     * A repeat registration rewrites last-seen only when the stored value is older than this.
+     */
+    @NotNull(message = "Device token touch interval cannot be null")
+    @Positive(message = "Device token touch interval must be positive")
+    private Long touchIntervalMs = 86400000L;
+
+    /**
+     * Users read per query when fanning out to a location or role.
+     */
+    @NotNull(message = "Fan-out page size cannot be null")
+    @Positive(message = "Fan-out page size must be positive")
+    private Integer fanOutPageSize = 500;
+
+    /**
+     * Pages of a fan-out being delivered at once; the next page is read only when one finishes.
+     */
+    @NotNull(message = "Fan-out window cannot be null")
+    @Positive(message = "Fan-out window must be positive")
+    private Integer fanOutWindow = 4;
+
+    /**
+     * Stale tokens read (and deleted) per query by the cleanup job.
+     */
+    @NotNull(message = "Device token cleanup page size cannot be null")
+    @Positive(message = "Device token cleanup page size must be positive")
+    private Integer cleanupPageSize = 500;
+
+    public Integer getMaxPerUser() {
+        return maxPerUser;
+    }
+
+    public void setMaxPerUser(Integer maxPerUser) {
+        this.maxPerUser = maxPerUser;
+    }
+
+    public Long getStaleAfterMs() {
+        return staleAfterMs;
+    }
+
+    public void setStaleAfterMs(Long staleAfterMs) {
+        this.staleAfterMs = staleAfterMs;
+    }
+
+    public Long getTouchIntervalMs() {
+        return touchIntervalMs;
+    }
+
+    public void setTouchIntervalMs(Long touchIntervalMs) {
+        this.touchIntervalMs = touchIntervalMs;
+    }
+
+    public Integer getFanOutPageSize() {
+        return fanOutPageSize;
+    }
+
+    public void setFanOutPageSize(Integer fanOutPageSize) {
+        this.fanOutPageSize = fanOutPageSize;
+    }
+
+    public Integer getFanOutWindow() {
+        return fanOutWindow;
+    }
+
+    public void setFanOutWindow(Integer fanOutWindow) {
+        this.fanOutWindow = fanOutWindow;
+    }
+
+    public Integer getCleanupPageSize() {
+        return cleanupPageSize;
+    }
+
+    public void setCleanupPageSize(Integer cleanupPageSize) {
+        this.cleanupPageSize = cleanupPageSize;
+    }
+}
@@ -9,12 +9,14 @@ import com.google.cloud.firestore.Firestore;
 import com.google.firebase.messaging.FirebaseMessaging;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ClassPathResource;
 
 import java.io.IOException;
 import java.io.InputStream;
 
 @Configuration
+@Profile("!inmemory")
 public class FirebaseConfig {
 
     @Bean
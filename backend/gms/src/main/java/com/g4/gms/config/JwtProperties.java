@@ -27,6 +27,12 @@ public class JwtProperties {
     @NotNull(message = "JWT expiration cannot be null")
     private Long expirationMs = 3600000L; // Default 1 hour
 
+    /**
+     * Maximum number of verified tokens whose principal is cached until the token expires.
+     */
+    @NotNull(message = "JWT authentication cache size cannot be null")
+    private Long authCacheMaxSize = 10000L;
+
     // Getters and Setters (required for @ConfigurationProperties binding)
 
     public String getSecret() {
@@ -44,4 +50,12 @@ public class JwtProperties {
     public void setExpirationMs(Long expirationMs) {
         this.expirationMs = expirationMs;
     }
+
+    public Long getAuthCacheMaxSize() {
+        return authCacheMaxSize;
+    }
+
+    public void setAuthCacheMaxSize(Long authCacheMaxSize) {
+        this.authCacheMaxSize = authCacheMaxSize;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,110 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+@Component
+@ConfigurationProperties(prefix = "app.pagination")
+@Validated
+public class PaginationProperties {
+
+    /**
+     * Page size used when a list request does not pass a limit.
+     */
+    @NotNull(message = "Default page size cannot be null")
+    @Positive(message = "Default page size must be positive")
+    private Integer defaultPageSize = 500;
+
+    /**
+     * Hard upper bound on the page size, whatever limit the client asks for.
+     */
+    @NotNull(message = "Max page size cannot be null")
+    @Positive(message = "Max page size must be positive")
+    private Integer maxPageSize = 500;
+
+    /**
+     * Documents read per Firestore query while streaming a bulk export.
+     */
+    @NotNull(message = "Export page size cannot be null")
+    @Positive(message = "Export page size must be positive")
+    private Integer exportPageSize = 500;
+
+    /**
+     * Answer a list request that passes neither limit nor pageToken with the whole list,
+     * up to max-unpaged, as the list endpoints did before they were paginated; the web and
+     * mobile clients rely on it. Set to false once every client follows X-Next-Page-Token.
+     */
+    @NotNull(message = "Whole list when unpaged flag cannot be null")
+    private Boolean wholeListWhenUnpaged = true;
+
+    /**
+     * Hard ceiling on the documents an unpaged list request gets. A longer list is cut
+     * here and answered with X-Next-Page-Token, and the cut is logged as a warning.
+     */
+    @NotNull(message = "Max unpaged cannot be null")
+    @Positive(message = "Max unpaged must be positive")
+    private Integer maxUnpaged = 5000;
+
+    public Integer getDefaultPageSize() {
+        return defaultPageSize;
+    }
+
+    public void setDefaultPageSize(Integer defaultPageSize) {
+        this.defaultPageSize = defaultPageSize;
+    }
+
+    public Integer getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(Integer maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    public Integer getExportPageSize() {
+        return exportPageSize;
+    }
+
+    public void setExportPageSize(Integer exportPageSize) {
+        this.exportPageSize = exportPageSize;
+    }
+
+    public Boolean getWholeListWhenUnpaged() {
+        return wholeListWhenUnpaged;
+    }
+
+    public void setWholeListWhenUnpaged(Boolean wholeListWhenUnpaged) {
+        this.wholeListWhenUnpaged = wholeListWhenUnpaged;
+    }
+
+    public Integer getMaxUnpaged() {
+        return maxUnpaged;
+    }
+
+    public void setMaxUnpaged(Integer maxUnpaged) {
+        this.maxUnpaged = maxUnpaged;
+    }
+
+    /**
+     * Whether a list request should get the whole list (up to max-unpaged) rather than a page
+     * @param limit The requested page size, or null
+     * @param pageToken The requested page token, or null
+     * @return true if neither was passed and whole-list-when-unpaged is on
+     */
+    public boolean wantsWholeList(Integer limit, String pageToken) {
+        return wholeListWhenUnpaged && limit == null && (pageToken == null || pageToken.isEmpty());
+    }
+
+    /**
+     * Clamp a client-supplied limit to the configured bounds
+     * @param requested The requested page size, or null for the default
+     * @return A page size between 1 and the maximum
+     */
+    public int resolvePageSize(Integer requested) {
+        int size = requested != null ? requested : defaultPageSize;
+        return Math.max(1, Math.min(size, maxPageSize));
+    }
+}
@@ -0,0 +1,45 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+
+@Component
+@ConfigurationProperties(prefix = "app.password-hashing")
+@Validated
+public class PasswordHashingProperties {
+
+    /**
+     * Threads allowed to run BCrypt at once. Defaults to half the cores so
+     * a login burst always leaves CPU for the other endpoints.
+     */
+    @NotNull(message = "Password hashing thread count cannot be null")
+    @Positive(message = "Password hashing thread count must be positive")
+    private Integer threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * Hash requests allowed to wait for a thread; beyond this they are rejected with 429.
+     */
+    @NotNull(message = "Password hashing queue capacity cannot be null")
+    @PositiveOrZero(message = "Password hashing queue capacity cannot be negative")
+    private Integer queueCapacity = 64;
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(Integer queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+}
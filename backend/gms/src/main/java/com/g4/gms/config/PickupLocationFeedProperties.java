@@ -0,0 +1,29 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+@Component
+@ConfigurationProperties(prefix = "app.pickup-location-feed")
+@Validated
+public class PickupLocationFeedProperties {
+
+    /**
+     * Maximum number of serialized pickup location pages kept in memory
+     * (one per distinct limit/pageToken requested since the last change).
+     */
+    @NotNull(message = "Pickup location feed cache max entries cannot be null")
+    @Positive(message = "Pickup location feed cache max entries must be positive")
+    private Long maxEntries = 64L;
+
+    public Long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(Long maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+}
@@ -0,0 +1,31 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+@Component
+@ConfigurationProperties(prefix = "app.pickup-location-index")
+@Validated
+public class PickupLocationIndexProperties {
+
+    /**
+     * Edge length in degrees of one grid cell of the pickup location index.
+     * 0.05 is roughly 5.5 km north-south, which keeps a city-scale search to a few cells.
+     */
+    @NotNull(message = "Pickup location index cell size cannot be null")
+    @Positive(message = "Pickup location index cell size must be positive")
+    @DecimalMax(value = "10.0", message = "Pickup location index cell size cannot exceed 10 degrees")
+    private Double cellSizeDegrees = 0.05;
+
+    public Double getCellSizeDegrees() {
+        return cellSizeDegrees;
+    }
+
+    public void setCellSizeDegrees(Double cellSizeDegrees) {
+        this.cellSizeDegrees = cellSizeDegrees;
+    }
+}
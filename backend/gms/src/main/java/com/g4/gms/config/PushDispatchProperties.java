@@ -0,0 +1,169 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+
+@Component
+@ConfigurationProperties(prefix = "app.push")
+@Validated
+public class PushDispatchProperties {
+
+    /**
+     * Worker threads that take queued deliveries and call the push sender.
+     */
+    @NotNull(message = "Push worker count cannot be null")
+    @Positive(message = "Push worker count must be positive")
+    private Integer workers = 2;
+
+    /**
+     * Deliveries (one per device token) allowed to wait; beyond this sends are rejected with 429.
+     */
+    @NotNull(message = "Push queue capacity cannot be null")
+    @Positive(message = "Push queue capacity must be positive")
+    private Integer queueCapacity = 100000;
+
+    /**
+     * Most device tokens sent in one call; FCM accepts at most 500 per multicast.
+     */
+    @NotNull(message = "Push batch size cannot be null")
+    @Positive(message = "Push batch size must be positive")
+    @Max(value = 500, message = "Push batch size cannot exceed 500")
+    private Integer batchSize = 500;
+
+    /**
+     * How long a worker waits for more deliveries to fill a batch before sending it.
+     */
+    @NotNull(message = "Push linger cannot be null")
+    @PositiveOrZero(message = "Push linger cannot be negative")
+    private Long lingerMs = 10L;
+
+    /**
+     * Send attempts per delivery, including the first, before a transient failure is final.
+     */
+    @NotNull(message = "Push max attempts cannot be null")
+    @Positive(message = "Push max attempts must be positive")
+    private Integer maxAttempts = 5;
+
+    /**
+     * Delay before the first retry; doubled on every further attempt, with jitter.
+     */
+    @NotNull(message = "Push initial backoff cannot be null")
+    @Positive(message = "Push initial backoff must be positive")
+    private Long initialBackoffMs = 500L;
+
+    /**
+     * Upper bound on the delay between retries.
+     */
+    @NotNull(message = "Push max backoff cannot be null")
+    @Positive(message = "Push max backoff must be positive")
+    private Long maxBackoffMs = 60000L;
+
+    /**
+     * Tokens remembered as unregistered, so later sends to them are skipped without a call.
+     */
+    @NotNull(message = "Push unregistered token memory cannot be null")
+    @Positive(message = "Push unregistered token memory must be positive")
+    private Long unregisteredTokenMemory = 100000L;
+
+    /**
+     * Simulated send latency of the "inmemory" profile's fake sender.
+     */
+    @NotNull(message = "Fake push latency cannot be null")
+    @PositiveOrZero(message = "Fake push latency cannot be negative")
+    private Long fakeLatencyMs = 20L;
+
+    /**
+     * Fraction of the fake sender's calls that fail as if FCM were unavailable.
+     */
+    @NotNull(message = "Fake push failure rate cannot be null")
+    @DecimalMin(value = "0.0", message = "Fake push failure rate cannot be negative")
+    @DecimalMax(value = "1.0", message = "Fake push failure rate cannot exceed 1")
+    private Double fakeTransientFailureRate = 0.0;
+
+    public Integer getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(Integer queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Long getLingerMs() {
+        return lingerMs;
+    }
+
+    public void setLingerMs(Long lingerMs) {
+        this.lingerMs = lingerMs;
+    }
+
+    public Integer getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(Integer maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public Long getInitialBackoffMs() {
+        return initialBackoffMs;
+    }
+
+    public void setInitialBackoffMs(Long initialBackoffMs) {
+        this.initialBackoffMs = initialBackoffMs;
+    }
+
+    public Long getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    public void setMaxBackoffMs(Long maxBackoffMs) {
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public Long getUnregisteredTokenMemory() {
+        return unregisteredTokenMemory;
+    }
+
+    public void setUnregisteredTokenMemory(Long unregisteredTokenMemory) {
+        this.unregisteredTokenMemory = unregisteredTokenMemory;
+    }
+
+    public Long getFakeLatencyMs() {
+        return fakeLatencyMs;
+    }
+
+    public void setFakeLatencyMs(Long fakeLatencyMs) {
+        this.fakeLatencyMs = fakeLatencyMs;
+    }
+
+    public Double getFakeTransientFailureRate() {
+        return fakeTransientFailureRate;
+    }
+
+    public void setFakeTransientFailureRate(Double fakeTransientFailureRate) {
+        this.fakeTransientFailureRate = fakeTransientFailureRate;
+    }
+}
@@ -0,0 +1,147 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+@Component
+@ConfigurationProperties(prefix = "app.reminders")
+@Validated
+public class ReminderDeliveryProperties {
+
+    /**
+     * Whether this instance fires due reminders. Enable it on one instance only,
+     * since every enabled instance delivers every reminder.
+     */
+    @NotNull(message = "Reminder delivery enabled flag cannot be null")
+    private Boolean enabled = true;
+
+    /**
+     * Time zone for reminder dates written without an offset.
+     */
+    @NotBlank(message = "Reminder time zone cannot be blank")
+    private String zone = "Asia/Manila";
+
+    /**
+     * Local time at which a date-only reminder fires (HH:mm).
+     */
+    @NotBlank(message = "Reminder default time cannot be blank")
+    private String defaultTime = "07:00";
+
+    /**
+     * How far ahead of now pending reminders are loaded into memory.
+     */
+    @NotNull(message = "Reminder horizon cannot be null")
+    @Positive(message = "Reminder horizon must be positive")
+    private Long horizonMs = 600000L;
+
+    /**
+     * Most reminders held in memory at once; the rest stay in Firestore until there is room.
+     */
+    @NotNull(message = "Reminder max loaded cannot be null")
+    @Positive(message = "Reminder max loaded must be positive")
+    private Integer maxLoaded = 50000;
+
+    /**
+     * Reminders read per query while loading.
+     */
+    @NotNull(message = "Reminder load page size cannot be null")
+    @Positive(message = "Reminder load page size must be positive")
+    private Integer loadPageSize = 1000;
+
+    /**
+     * Most reminders fired per tick; also paces catch-up after a restart.
+     */
+    @NotNull(message = "Reminder fire batch size cannot be null")
+    @Positive(message = "Reminder fire batch size must be positive")
+    private Integer fireBatchSize = 500;
+
+    /**
+     * Most reminders being sent or recorded at once; ticks skip firing beyond this.
+     */
+    @NotNull(message = "Reminder max in flight cannot be null")
+    @Positive(message = "Reminder max in flight must be positive")
+    private Integer maxInFlight = 5000;
+
+    /**
+     * Reminders overdue by more than this when they come to fire are recorded as expired, not sent.
+     */
+    @NotNull(message = "Reminder max lateness cannot be null")
+    @Positive(message = "Reminder max lateness must be positive")
+    private Long maxLatenessMs = 21600000L;
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
+    public String getDefaultTime() {
+        return defaultTime;
+    }
+
+    public void setDefaultTime(String defaultTime) {
+        this.defaultTime = defaultTime;
+    }
+
+    public Long getHorizonMs() {
+        return horizonMs;
+    }
+
+    public void setHorizonMs(Long horizonMs) {
+        this.horizonMs = horizonMs;
+    }
+
+    public Integer getMaxLoaded() {
+        return maxLoaded;
+    }
+
+    public void setMaxLoaded(Integer maxLoaded) {
+        this.maxLoaded = maxLoaded;
+    }
+
+    public Integer getLoadPageSize() {
+        return loadPageSize;
+    }
+
+    public void setLoadPageSize(Integer loadPageSize) {
+        this.loadPageSize = loadPageSize;
+    }
+
+    public Integer getFireBatchSize() {
+        return fireBatchSize;
+    }
+
+    public void setFireBatchSize(Integer fireBatchSize) {
+        this.fireBatchSize = fireBatchSize;
+    }
+
+    public Integer getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(Integer maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Long getMaxLatenessMs() {
+        return maxLatenessMs;
+    }
+
+    public void setMaxLatenessMs(Long maxLatenessMs) {
+        this.maxLatenessMs = maxLatenessMs;
+    }
+}
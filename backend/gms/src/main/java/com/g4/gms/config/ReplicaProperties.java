@@ -0,0 +1,27 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotNull;
+
+@Component
+@ConfigurationProperties(prefix = "app.replica")
+@Validated
+public class ReplicaProperties {
+
+    /**
+     * Serve reads of the replicated collections (pickup_locations, tips) from a
+     * listener-fed in-memory copy. When false every read goes to the store.
+     */
+    @NotNull(message = "Replica enabled flag cannot be null")
+    private Boolean enabled = true;
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+}
@@ -0,0 +1,40 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotBlank;
+
+@Component
+@ConfigurationProperties(prefix = "app.schedules")
+@Validated
+public class ScheduleProperties {
+
+    /**
+     * Time zone that pickup dates and times are entered in.
+     */
+    @NotBlank(message = "Schedule time zone cannot be blank")
+    private String zone = "Asia/Manila";
+
+    /**
+     * Time of day (HH:mm) used for a schedule with a pickup date but no pickup time.
+     */
+    @NotBlank(message = "Schedule default pickup time cannot be blank")
+    private String defaultPickupTime = "00:00";
+
+    public String getZone() {
+        return zone;
+    }
+
+    public void setZone(String zone) {
+        this.zone = zone;
+    }
+
+    public String getDefaultPickupTime() {
+        return defaultPickupTime;
+    }
+
+    public void setDefaultPickupTime(String defaultPickupTime) {
+        this.defaultPickupTime = defaultPickupTime;
+    }
+}
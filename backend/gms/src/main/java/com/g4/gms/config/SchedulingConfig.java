@@ -0,0 +1,12 @@
+package com.g4.gms.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Turns on @Scheduled background jobs (e.g. the auth account directory sync).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,8 +1,10 @@
 package com.g4.gms.config;
 
 import com.g4.gms.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -11,22 +13,34 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer; 
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.DelegatingRequestMatcherHeaderWriter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.NegatedRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+    // Public reads that set their own ETag and "Cache-Control: no-cache" so clients can
+    // store them and revalidate; everything else keeps Spring Security's no-store headers
+    private static final RequestMatcher CONDITIONAL_GETS = new AndRequestMatcher(
+            new OrRequestMatcher(
+                    antMatcher(HttpMethod.GET, "/api/pickup-locations/**"),
+                    antMatcher(HttpMethod.GET, "/api/tip/**"),
+                    antMatcher(HttpMethod.GET, "/api/schedule/**"),
+                    antMatcher(HttpMethod.GET, "/api/feedback/**")),
+            new NegatedRequestMatcher(antMatcher(HttpMethod.GET, "/api/schedule/user")));
+
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
-    @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
-    }
-
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -40,10 +54,18 @@ public class SecurityConfig {
                     response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized")
                 )
             )
+            .headers(headers -> headers
+                .cacheControl(cacheControl -> cacheControl.disable())
+                .addHeaderWriter(new DelegatingRequestMatcherHeaderWriter(
+                        new NegatedRequestMatcher(CONDITIONAL_GETS), new CacheControlHeadersWriter()))
+            )
             // Set session management to stateless
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             // Define authorization rules for different endpoints
             .authorizeHttpRequests(auth -> auth
+                // Async handlers re-dispatch once their future completes; the original request was already authorized
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                
                 // Auth endpoints
                 .requestMatchers(HttpMethod.POST, "/api/auth/register", "/api/auth/login", "/api/auth/request-password-reset").permitAll()
                 
@@ -89,13 +111,21 @@ public class SecurityConfig {
                 
                 // User profile endpoints
                 .requestMatchers(HttpMethod.GET, "/api/users/{userId}/profile", "/api/users/{userId}/profile/email", "/api/users/{userId}/profile/notifications").authenticated()
-                .requestMatchers(HttpMethod.PUT, "/api/users/{userId}/profile", "/api/users/{userId}/profile/email", "/api/users/{userId}/profile/notifications").authenticated()
+                .requestMatchers(HttpMethod.PUT, "/api/users/{userId}/profile", "/api/users/{userId}/profile/email", "/api/users/{userId}/profile/notifications", "/api/users/{userId}/profile/password").authenticated()
                 
                 // Notification endpoints - all require authentication
                 .requestMatchers(HttpMethod.POST, "/api/notifications/send", "/api/notifications/send-multicast").authenticated()
+                .requestMatchers("/api/notifications/devices").authenticated()
+                .requestMatchers(HttpMethod.POST, "/api/notifications/audience").hasRole("ADMIN")
+                
+                // Timeline of the authenticated user
+                .requestMatchers(HttpMethod.GET, "/api/timeline").authenticated()
+                
+                // Health, Prometheus scrape and meter view, served on the management port (management.server.port)
+                .requestMatchers(EndpointRequest.to("health", "prometheus", "metrics")).permitAll()
                 
-                // Example: Secure a hypothetical admin endpoint - requires ADMIN role
-                // .requestMatchers("/api/admin/**").hasRole("ADMIN") 
+                // Admin endpoints - require ADMIN role
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 
                 // Any other request needs authentication
                 .anyRequest().authenticated()
@@ -0,0 +1,29 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+@Component
+@ConfigurationProperties(prefix = "app.timeline")
+@Validated
+public class TimelineProperties {
+
+    /**
+     * How long the timeline waits for each source (schedules, missed reports, reminders,
+     * history) before leaving it out of the response.
+     */
+    @NotNull(message = "Timeline source timeout cannot be null")
+    @Positive(message = "Timeline source timeout must be positive")
+    private Long sourceTimeoutMs = 3000L;
+
+    public Long getSourceTimeoutMs() {
+        return sourceTimeoutMs;
+    }
+
+    public void setSourceTimeoutMs(Long sourceTimeoutMs) {
+        this.sourceTimeoutMs = sourceTimeoutMs;
+    }
+}
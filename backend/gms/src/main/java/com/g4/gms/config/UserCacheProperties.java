@@ -0,0 +1,43 @@
+package com.g4.gms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+@Component
+@ConfigurationProperties(prefix = "app.user-cache")
+@Validated
+public class UserCacheProperties {
+
+    /**
+     * Maximum number of User documents kept in memory.
+     */
+    @NotNull(message = "User cache max size cannot be null")
+    @Positive(message = "User cache max size must be positive")
+    private Long maxSize = 10000L;
+
+    /**
+     * Time in seconds after which a cached User is re-read from Firestore.
+     */
+    @NotNull(message = "User cache TTL cannot be null")
+    @Positive(message = "User cache TTL must be positive")
+    private Long ttlSeconds = 300L;
+
+    public Long getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(Long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    public void setTtlSeconds(Long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+}
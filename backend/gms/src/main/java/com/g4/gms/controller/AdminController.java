@@ -0,0 +1,202 @@
+package com.g4.gms.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g4.gms.dto.HistoryResponse;
+import com.g4.gms.dto.MissedResponse;
+import com.g4.gms.dto.ScheduleResponse;
+import com.g4.gms.model.History;
+import com.g4.gms.model.Missed;
+import com.g4.gms.model.Schedule;
+import com.g4.gms.repository.Page;
+import com.g4.gms.service.HistoryService;
+import com.g4.gms.service.MissedService;
+import com.g4.gms.service.ReminderScheduler;
+import com.g4.gms.service.ScheduleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private HistoryService historyService;
+
+    @Autowired
+    private MissedService missedService;
+
+    @Autowired
+    private ReminderScheduler reminderScheduler;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Arm reminders created before delivery tracking so they fire (or are marked expired)
+     * Requires the ADMIN role
+     * @return Counts of reminders scanned, armed, expired and unparseable
+     */
+    @PostMapping("/reminders/backfill")
+    public ResponseEntity<Map<String, Object>> backfillReminders() {
+        try {
+            return ResponseEntity.ok(reminderScheduler.backfill());
+        } catch (ExecutionException e) {
+            return ResponseEntity.internalServerError().body(Map.of("message", "Reminder backfill failed: " + e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().body(Map.of("message", "Reminder backfill interrupted"));
+        }
+    }
+
+    /**
+     * Store the resolved pickup time on existing schedules so date-range queries find them
+     * Requires the ADMIN role
+     * @return Counts of schedules scanned, updated and with an unparseable pickup date or time
+     */
+    @PostMapping("/schedules/backfill-pickup-at")
+    public ResponseEntity<Map<String, Object>> backfillSchedulePickupAt() {
+        try {
+            return ResponseEntity.ok(scheduleService.backfillPickupAt());
+        } catch (ExecutionException e) {
+            return ResponseEntity.internalServerError().body(Map.of("message", "Schedule backfill failed: " + e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.internalServerError().body(Map.of("message", "Schedule backfill interrupted"));
+        }
+    }
+
+    /**
+     * Export every schedule as a JSON array, streamed one Firestore page at a time
+     * Requires the ADMIN role
+     * @return Streaming JSON array of schedules
+     */
+    @GetMapping("/export/schedules")
+    public ResponseEntity<StreamingResponseBody> exportSchedules() {
+        return streamJsonArray(generator -> {
+            String pageToken = null;
+            do {
+                Page<Schedule> page = scheduleService.getScheduleExportPage(pageToken);
+                
+                // One batched email lookup per page, as in the list endpoint
+                Set<String> userIds = new HashSet<>();
+                for (Schedule schedule : page.items()) {
+                    userIds.add(schedule.getUserId());
+                }
+                Map<String, String> userEmails = scheduleService.getUserEmails(userIds);
+                
+                for (Schedule schedule : page.items()) {
+                    generator.writeObject(new ScheduleResponse(
+                        schedule.getScheduleId(),
+                        schedule.getTitle(),
+                        schedule.getPickupDate(),
+                        schedule.getPickupTime(),
+                        schedule.getLocationId(),
+                        schedule.getStatus(),
+                        schedule.getUserId(),
+                        userEmails.get(schedule.getUserId()),
+                        true,
+                        null
+                    ));
+                }
+                generator.flush();
+                pageToken = page.nextPageToken();
+            } while (pageToken != null);
+        });
+    }
+
+    /**
+     * Export every history record as a JSON array, streamed one Firestore page at a time
+     * Requires the ADMIN role
+     * @return Streaming JSON array of history records
+     */
+    @GetMapping("/export/history")
+    public ResponseEntity<StreamingResponseBody> exportHistory() {
+        return streamJsonArray(generator -> {
+            String pageToken = null;
+            do {
+                Page<History> page = historyService.getHistoryExportPage(pageToken);
+                for (History history : page.items()) {
+                    generator.writeObject(new HistoryResponse(
+                        history.getHistoryId(),
+                        history.getCollectionDate(),
+                        history.getNotes(),
+                        history.getScheduleId(),
+                        true,
+                        null
+                    ));
+                }
+                generator.flush();
+                pageToken = page.nextPageToken();
+            } while (pageToken != null);
+        });
+    }
+
+    /**
+     * Export every missed collection report as a JSON array, streamed one Firestore page at a time
+     * Requires the ADMIN role
+     * @return Streaming JSON array of missed records
+     */
+    @GetMapping("/export/missed")
+    public ResponseEntity<StreamingResponseBody> exportMissed() {
+        return streamJsonArray(generator -> {
+            String pageToken = null;
+            do {
+                Page<Missed> page = missedService.getMissedExportPage(pageToken);
+                for (Missed missed : page.items()) {
+                    generator.writeObject(new MissedResponse(
+                        missed.getMissedId(),
+                        missed.getTitle(),
+                        missed.getDescription(),
+                        missed.getReportDateTime(),
+                        missed.getScheduleId(),
+                        missed.getUserId()
+                    ));
+                }
+                generator.flush();
+                pageToken = page.nextPageToken();
+            } while (pageToken != null);
+        });
+    }
+
+    /**
+     * Wrap an export in a streaming JSON array body. Only the current page is
+     * ever held in memory, and each page is flushed to the client as soon as
+     * it is written. A failure mid-stream aborts the connection, leaving the
+     * array unterminated so clients can tell the dump is incomplete.
+     */
+    private ResponseEntity<StreamingResponseBody> streamJsonArray(ExportWriter writer) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                // Never auto-close the array on failure; a truncated dump must not parse as complete
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                generator.writeStartArray();
+                writer.write(generator);
+                generator.writeEndArray();
+            } catch (ExecutionException e) {
+                throw new IOException("Export failed: " + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Export interrupted", e);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @FunctionalInterface
+    private interface ExportWriter {
+        void write(JsonGenerator generator) throws IOException, ExecutionException, InterruptedException;
+    }
+}
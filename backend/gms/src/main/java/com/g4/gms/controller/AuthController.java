@@ -4,9 +4,12 @@ import com.g4.gms.dto.AuthResponse;
 import com.g4.gms.dto.LoginRequest;
 import com.g4.gms.dto.RegisterRequest;
 import com.g4.gms.dto.PasswordResetRequest;
+import com.g4.gms.security.PasswordHashingRejectedException;
 import com.g4.gms.service.AuthService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -54,4 +57,16 @@ public class AuthController {
         // Always return OK with the JSON body
         return ResponseEntity.ok(responseBody);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Shed load when the password hashing pool is saturated
+     * @param e The rejection
+     * @return 429 with a Retry-After hint
+     */
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<AuthResponse> handleHashingRejected(PasswordHashingRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new AuthResponse(e.getMessage()));
+    }
+}
@@ -0,0 +1,159 @@
+package com.g4.gms.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Conditional GET support for the public read endpoints. Two kinds of validator are used:
+ * <ul>
+ *   <li>a collection version (pickup locations), checked before anything is read, so a
+ *       matching request skips the store read as well as the body;</li>
+ *   <li>a content hash over the fields the body is built from (schedules, feedback, tips),
+ *       which can only be taken after the page has been read and the user emails looked
+ *       up. A match there saves building, serializing and sending the body, not the reads
+ *       behind it.</li>
+ * </ul>
+ */
+final class ConditionalGet {
+
+    // Bump when the shape of a tagged response body changes so old tags stop matching
+    private static final String FORMAT_VERSION = "v1";
+
+    private final String ifNoneMatch;
+    private final long ifModifiedSince;
+
+    private ConditionalGet(String ifNoneMatch, long ifModifiedSince) {
+        this.ifNoneMatch = ifNoneMatch;
+        this.ifModifiedSince = ifModifiedSince;
+    }
+
+    /**
+     * Capture the request's preconditions (safe to use later from another thread)
+     * @param request The current request
+     * @return The captured preconditions
+     */
+    static ConditionalGet of(WebRequest request) {
+        long ifModifiedSince = -1;
+        String header = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (header != null) {
+            HttpHeaders parsed = new HttpHeaders();
+            parsed.set(HttpHeaders.IF_MODIFIED_SINCE, header);
+            try {
+                ifModifiedSince = parsed.getIfModifiedSince();
+            } catch (IllegalArgumentException e) {
+                // An unparseable date is ignored, as the spec requires
+            }
+        }
+        return new ConditionalGet(request.getHeader(HttpHeaders.IF_NONE_MATCH), ifModifiedSince);
+    }
+
+    /**
+     * Whether the client's copy is still current. If-None-Match takes precedence;
+     * If-Modified-Since is only consulted when there is no If-None-Match.
+     * @param etag The current entity tag
+     * @param lastModifiedMillis The current modification time, or null if unknown
+     * @return true if a 304 should be sent
+     */
+    boolean isNotModified(String etag, Long lastModifiedMillis) {
+        if (ifNoneMatch != null) {
+            return etag != null && matchesAny(ifNoneMatch, etag);
+        }
+        return lastModifiedMillis != null && ifModifiedSince >= 0
+                && lastModifiedMillis / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * A 304 response carrying the current validators
+     * @param etag The current entity tag
+     * @param lastModifiedMillis The current modification time, or null if unknown
+     * @return The response
+     */
+    <T> ResponseEntity<T> notModified(String etag, Long lastModifiedMillis) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers(etag, lastModifiedMillis)).build();
+    }
+
+    /**
+     * Validator headers for a full response
+     * @param etag The entity tag
+     * @param lastModifiedMillis The modification time, or null if unknown
+     * @return Headers with ETag, Last-Modified and a Cache-Control that makes clients revalidate
+     */
+    static HttpHeaders headers(String etag, Long lastModifiedMillis) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        if (lastModifiedMillis != null) {
+            headers.setLastModified(lastModifiedMillis);
+        }
+        headers.setCacheControl(CacheControl.noCache());
+        return headers;
+    }
+
+    /**
+     * Start a strong entity tag over the values a response is built from
+     * @return A tag builder
+     */
+    static Tag tag() {
+        return new Tag();
+    }
+
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        String current = opaque(etag);
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(candidate -> candidate.equals("*") || opaque(candidate).equals(current));
+    }
+
+    // If-None-Match uses the weak comparison, so a W/ prefix is ignored
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    /**
+     * Accumulates values into a SHA-256 digest; each value is delimited so
+     * ("ab", "c") and ("a", "bc") produce different tags
+     */
+    static final class Tag {
+
+        private final MessageDigest digest;
+
+        private Tag() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+            add(FORMAT_VERSION);
+        }
+
+        Tag add(Object value) {
+            if (value == null) {
+                digest.update((byte) 1);
+            } else {
+                digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            return this;
+        }
+
+        Tag addAll(Object... values) {
+            for (Object value : values) {
+                add(value);
+            }
+            return this;
+        }
+
+        String build() {
+            byte[] hash = Arrays.copyOf(digest.digest(), 16);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+        }
+    }
+}
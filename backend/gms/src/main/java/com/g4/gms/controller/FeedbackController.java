@@ -4,15 +4,20 @@ import com.g4.gms.dto.FeedbackRequest;
 import com.g4.gms.dto.FeedbackResponse;
 import com.g4.gms.model.Feedback;
 import com.g4.gms.service.FeedbackService;
+import com.g4.gms.repository.Page;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -24,16 +29,41 @@ public class FeedbackController {
 
     /**
      * Get all feedback entries (public endpoint)
-     * @return List of feedback entries
+     * @param limit Maximum number of entries to return (capped server-side)
+     * @param pageToken Token from the X-Next-Page-Token header of the previous page
+     * @param webRequest The current request, for If-None-Match
+     * @return One page of feedback entries, or 304 if the client's copy is current
      */
     @GetMapping
-    public ResponseEntity<?> getAllFeedback() {
+    public ResponseEntity<?> getAllFeedback(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken,
+            WebRequest webRequest) {
         try {
-            List<Feedback> feedbackList = feedbackService.getAllFeedback();
+            ConditionalGet conditional = ConditionalGet.of(webRequest);
+            Page<Feedback> page = feedbackService.getFeedbackPage(limit, pageToken);
+            List<Feedback> feedbackList = page.items();
+            
+            // Resolve all author emails in one batched lookup instead of one read per row
+            Set<String> userIds = new HashSet<>();
+            for (Feedback feedback : feedbackList) {
+                userIds.add(feedback.getUserId());
+            }
+            Map<String, String> userEmails = feedbackService.getUserEmailsByIds(userIds);
+            
+            // Hash the values the body is built from; a match only saves building and sending it
+            ConditionalGet.Tag tag = ConditionalGet.tag().add(page.nextPageToken());
+            for (Feedback feedback : feedbackList) {
+                addTo(tag, feedback, userEmails.get(feedback.getUserId()));
+            }
+            String etag = tag.build();
+            if (conditional.isNotModified(etag, null)) {
+                return conditional.notModified(etag, null);
+            }
             
             List<Map<String, Object>> responseList = new ArrayList<>();
             for (Feedback feedback : feedbackList) {
-                String userEmail = feedbackService.getUserEmailById(feedback.getUserId());
+                String userEmail = userEmails.get(feedback.getUserId());
                 
                 // Create response without timestamps
                 Map<String, Object> response = Map.of(
@@ -50,7 +80,11 @@ public class FeedbackController {
                 responseList.add(response);
             }
             
-            return ResponseEntity.ok(responseList);
+            HttpHeaders headers = PageHeaders.of(page);
+            headers.addAll(ConditionalGet.headers(etag, null));
+            return ResponseEntity.ok().headers(headers).body(responseList);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("message", "Error retrieving feedback: " + e.getMessage()));
         }
@@ -59,11 +93,13 @@ public class FeedbackController {
     /**
      * Get a specific feedback by ID (public endpoint)
      * @param feedbackId Feedback ID
-     * @return Feedback entry
+     * @param webRequest The current request, for If-None-Match / If-Modified-Since
+     * @return Feedback entry, or 304 if the client's copy is current
      */
     @GetMapping("/{feedbackId}")
-    public ResponseEntity<?> getFeedbackById(@PathVariable String feedbackId) {
+    public ResponseEntity<?> getFeedbackById(@PathVariable String feedbackId, WebRequest webRequest) {
         try {
+            ConditionalGet conditional = ConditionalGet.of(webRequest);
             Feedback feedback = feedbackService.getFeedbackById(feedbackId);
             
             if (feedback == null) {
@@ -71,6 +107,11 @@ public class FeedbackController {
             }
             
             String userEmail = feedbackService.getUserEmailById(feedback.getUserId());
+            String etag = addTo(ConditionalGet.tag(), feedback, userEmail).build();
+            Long lastModified = lastModified(feedback.getUpdatedAt(), feedback.getCreatedAt());
+            if (conditional.isNotModified(etag, lastModified)) {
+                return conditional.notModified(etag, lastModified);
+            }
             
             // Create response without timestamps
             Map<String, Object> response = Map.of(
@@ -84,7 +125,7 @@ public class FeedbackController {
                 "message", "Feedback retrieved successfully"
             );
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().headers(ConditionalGet.headers(etag, lastModified)).body(response);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("message", "Error retrieving feedback: " + e.getMessage()));
         }
@@ -145,26 +186,17 @@ public class FeedbackController {
             @PathVariable String feedbackId,
             @RequestBody FeedbackRequest request) {
         try {
-            // Get the authenticated user's ID
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String userId = authentication.getName();
-            
-            // Fetch existing feedback to check ownership
-            Feedback existingFeedback = feedbackService.getFeedbackById(feedbackId);
-            if (existingFeedback == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            // Update the feedback fields
+            // Update the feedback fields; its author and creation time stay as stored
             Feedback updatedFeedback = new Feedback();
             updatedFeedback.setFeedbackId(feedbackId);
             updatedFeedback.setTitle(request.getTitle());
             updatedFeedback.setDescription(request.getDescription());
             updatedFeedback.setStatus(request.getStatus());
-            updatedFeedback.setUserId(existingFeedback.getUserId()); // Preserve original user ID
             
             Feedback savedFeedback = feedbackService.updateFeedback(feedbackId, updatedFeedback);
-            String userEmail = feedbackService.getUserEmailById(savedFeedback.getUserId());
+            if (savedFeedback == null) {
+                return ResponseEntity.notFound().build();
+            }
             
             // Format updatedAt timestamp
             String formattedUpdatedAt = null;
@@ -172,20 +204,16 @@ public class FeedbackController {
                 formattedUpdatedAt = formatTimestamp(savedFeedback.getUpdatedAt());
             }
             
-            // Create response with only updatedAt timestamp
+            // Create response with only updatedAt timestamp; the author was not read, so it is not included
             return ResponseEntity.ok(Map.of(
                 "feedbackId", savedFeedback.getFeedbackId(),
                 "title", savedFeedback.getTitle(),
                 "description", savedFeedback.getDescription(),
                 "status", savedFeedback.getStatus(),
-                "userId", savedFeedback.getUserId(),
-                "userEmail", userEmail != null ? userEmail : "",
                 "updatedAt", formattedUpdatedAt,
                 "success", true,
                 "message", "Feedback updated successfully"
             ));
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("message", "Error updating feedback: " + e.getMessage()));
         }
@@ -199,30 +227,31 @@ public class FeedbackController {
     @DeleteMapping("/{feedbackId}")
     public ResponseEntity<?> deleteFeedback(@PathVariable String feedbackId) {
         try {
-            // Get the authenticated user's ID
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String userId = authentication.getName();
-            
-            // Fetch existing feedback to check ownership
-            Feedback existingFeedback = feedbackService.getFeedbackById(feedbackId);
-            if (existingFeedback == null) {
+            if (!feedbackService.deleteFeedback(feedbackId)) {
                 return ResponseEntity.notFound().build();
             }
-            
-            boolean deleted = feedbackService.deleteFeedback(feedbackId);
-            
-            if (deleted) {
-                return ResponseEntity.ok(Map.of("message", "Feedback deleted successfully"));
-            } else {
-                return ResponseEntity.status(500).body(Map.of("message", "Failed to delete feedback"));
-            }
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            return ResponseEntity.ok(Map.of("message", "Feedback deleted successfully"));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("message", "Error deleting feedback: " + e.getMessage()));
         }
     }
     
+    /**
+     * Add every value a feedback response is built from to an entity tag
+     */
+    private static ConditionalGet.Tag addTo(ConditionalGet.Tag tag, Feedback feedback, String userEmail) {
+        return tag.addAll(feedback.getFeedbackId(), feedback.getTitle(), feedback.getDescription(), feedback.getStatus(),
+                feedback.getUserId(), userEmail, feedback.getCreatedAt(), feedback.getUpdatedAt());
+    }
+
+    /**
+     * Last-Modified for a document: its update time, else its creation time
+     */
+    private static Long lastModified(com.google.cloud.Timestamp updatedAt, com.google.cloud.Timestamp createdAt) {
+        com.google.cloud.Timestamp timestamp = updatedAt != null ? updatedAt : createdAt;
+        return timestamp != null ? timestamp.toDate().getTime() : null;
+    }
+
     /**
      * Helper method to format timestamp
      */
@@ -6,13 +6,12 @@ import com.g4.gms.model.History;
 import com.g4.gms.service.HistoryService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/history")
@@ -24,15 +23,18 @@ public class HistoryController {
     /**
      * Get all history records
      * This endpoint is public (no JWT required)
-     * @return List of all history records
+     * @param limit Maximum number of items to return (capped server-side)
+     * @param pageToken Token from the X-Next-Page-Token header of the previous page
+     * @return One page of history records
      */
     @GetMapping
-    public ResponseEntity<List<HistoryResponse>> getAllHistory() {
-        try {
-            List<History> historyList = historyService.getAllHistory();
+    public CompletableFuture<ResponseEntity<List<HistoryResponse>>> getAllHistory(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken) {
+        return historyService.getHistoryPageAsync(limit, pageToken).thenApply(page -> {
             List<HistoryResponse> responseList = new ArrayList<>();
             
-            for (History history : historyList) {
+            for (History history : page.items()) {
                 HistoryResponse response = new HistoryResponse(
                     history.getHistoryId(),
                     history.getCollectionDate(),
@@ -45,10 +47,10 @@ public class HistoryController {
                 responseList.add(response);
             }
             
-            return ResponseEntity.ok(responseList);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(null);
-        }
+            return ResponseEntity.ok().headers(PageHeaders.of(page)).body(responseList);
+        }).exceptionally(e -> unwrap(e) instanceof IllegalArgumentException
+                ? ResponseEntity.badRequest().body(null)
+                : ResponseEntity.status(500).body(null));
     }
 
     /**
@@ -58,17 +60,15 @@ public class HistoryController {
      * @return The created history record
      */
     @PostMapping
-    public ResponseEntity<HistoryResponse> createHistory(@RequestBody HistoryRequest request) {
-        try {
-            // Create a new History object from the request
-            History history = new History();
-            history.setCollectionDate(request.getCollectionDate());
-            history.setNotes(request.getNotes());
-            history.setScheduleId(request.getScheduleId());
-            
-            // Save the history record
-            History createdHistory = historyService.createHistory(history);
-            
+    public CompletableFuture<ResponseEntity<HistoryResponse>> createHistory(@RequestBody HistoryRequest request) {
+        // Create a new History object from the request
+        History history = new History();
+        history.setCollectionDate(request.getCollectionDate());
+        history.setNotes(request.getNotes());
+        history.setScheduleId(request.getScheduleId());
+        
+        // Save the history record
+        return historyService.createHistoryAsync(history).thenApply(createdHistory -> {
             HistoryResponse response = new HistoryResponse(
                 createdHistory.getHistoryId(),
                 createdHistory.getCollectionDate(),
@@ -79,9 +79,16 @@ public class HistoryController {
             );
             
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            HistoryResponse response = new HistoryResponse(false, "Error creating history record: " + e.getMessage());
+        }).exceptionally(e -> {
+            HistoryResponse response = new HistoryResponse(false, "Error creating history record: " + unwrap(e).getMessage());
             return ResponseEntity.badRequest().body(response);
-        }
+        });
+    }
+
+    /**
+     * Strip the CompletionException wrapper added when a stage fails
+     */
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,107 @@
+package com.g4.gms.controller;
+
+import com.g4.gms.dto.ImportJobResponse;
+import com.g4.gms.service.BulkImportService;
+import com.g4.gms.service.ImportRejectedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk imports of pickup locations and schedules. Only admins reach these
+ * endpoints (see SecurityConfig). An upload is accepted with 202 and imported
+ * in the background; poll the job resource in the Location header for progress.
+ */
+@RestController
+@RequestMapping("/api/admin/imports")
+public class ImportController {
+
+    private static final String TEXT_CSV = "text/csv";
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    /**
+     * Import pickup locations
+     * Columns or fields: siteName, wasteType, address, latitude, longitude
+     * @param contentType text/csv (with a header row) or application/json (an array of objects)
+     * @param body The rows
+     * @return 202 with the queued job
+     */
+    @PostMapping(value = "/pickup-locations", consumes = {TEXT_CSV, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ImportJobResponse> importPickupLocations(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        return accepted(bulkImportService.importPickupLocations(format(contentType), body));
+    }
+
+    /**
+     * Import schedules on behalf of users
+     * Columns or fields: title, pickupDate, pickupTime, locationId, userId, status (defaults to PENDING)
+     * @param contentType text/csv (with a header row) or application/json (an array of objects)
+     * @param body The rows
+     * @return 202 with the queued job
+     */
+    @PostMapping(value = "/schedules", consumes = {TEXT_CSV, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<ImportJobResponse> importSchedules(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body) throws IOException {
+        return accepted(bulkImportService.importSchedules(format(contentType), body));
+    }
+
+    /**
+     * Get an import job with its progress and row errors
+     * @param jobId ID of the job
+     * @return The job, or 404 if it does not exist or has expired
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getImportJob(@PathVariable String jobId) {
+        ImportJobResponse job = bulkImportService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "Import job not found"));
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * Get all recent import jobs, newest first, without their row errors
+     * @return The jobs
+     */
+    @GetMapping
+    public ResponseEntity<List<ImportJobResponse>> getImportJobs() {
+        return ResponseEntity.ok(bulkImportService.getJobs());
+    }
+
+    @ExceptionHandler(ImportRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleImportRejected(ImportRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(Map.of("message", e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+
+    private static BulkImportService.Format format(String contentType) {
+        return MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_JSON)
+                ? BulkImportService.Format.JSON
+                : BulkImportService.Format.CSV;
+    }
+
+    private static ResponseEntity<ImportJobResponse> accepted(ImportJobResponse job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/admin/imports/" + job.getJobId()))
+                .body(job);
+    }
+}
@@ -6,13 +6,12 @@ import com.g4.gms.model.Missed;
 import com.g4.gms.service.MissedService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/missed")
@@ -24,31 +23,19 @@ public class MissedController {
     /**
      * Get all missed records
      * This endpoint is public (no JWT required)
-     * @return List of all missed records
+     * @param limit Maximum number of items to return (capped server-side)
+     * @param pageToken Token from the X-Next-Page-Token header of the previous page
+     * @return One page of missed records
      */
     @GetMapping
-    public ResponseEntity<List<MissedResponse>> getAllMissed() {
-        try {
-            List<Missed> missedList = missedService.getAllMissed();
-            List<MissedResponse> responseList = new ArrayList<>();
-            
-            for (Missed missed : missedList) {
-                MissedResponse response = new MissedResponse(
-                    missed.getMissedId(),
-                    missed.getTitle(),
-                    missed.getDescription(),
-                    missed.getReportDateTime(),
-                    missed.getScheduleId(),
-                    missed.getUserId()
-                );
-                
-                responseList.add(response);
-            }
-            
-            return ResponseEntity.ok(responseList);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(null);
-        }
+    public CompletableFuture<ResponseEntity<List<MissedResponse>>> getAllMissed(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken) {
+        return missedService.getMissedPageAsync(limit, pageToken)
+                .thenApply(page -> ResponseEntity.ok().headers(PageHeaders.of(page)).body(toResponseList(page.items())))
+                .exceptionally(e -> unwrap(e) instanceof IllegalArgumentException
+                        ? ResponseEntity.badRequest().body(null)
+                        : ResponseEntity.status(500).body(null));
     }
 
     /**
@@ -58,10 +45,8 @@ public class MissedController {
      * @return The missed record if found
      */
     @GetMapping("/{missedId}")
-    public ResponseEntity<MissedResponse> getMissedById(@PathVariable String missedId) {
-        try {
-            Missed missed = missedService.getMissedById(missedId);
-            
+    public CompletableFuture<ResponseEntity<MissedResponse>> getMissedById(@PathVariable String missedId) {
+        return missedService.getMissedByIdAsync(missedId).<ResponseEntity<MissedResponse>>thenApply(missed -> {
             if (missed != null) {
                 MissedResponse response = new MissedResponse(
                     missed.getMissedId(),
@@ -74,12 +59,12 @@ public class MissedController {
                 
                 return ResponseEntity.ok(response);
             } else {
-                return ResponseEntity.notFound().build();
+                return ResponseEntity.<MissedResponse>notFound().build();
             }
-        } catch (Exception e) {
-            MissedResponse response = new MissedResponse(false, "Error retrieving missed record: " + e.getMessage());
+        }).exceptionally(e -> {
+            MissedResponse response = new MissedResponse(false, "Error retrieving missed record: " + unwrap(e).getMessage());
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -89,22 +74,17 @@ public class MissedController {
      * @return The created missed record
      */
     @PostMapping
-    public ResponseEntity<MissedResponse> createMissed(@RequestBody MissedRequest request) {
-        try {
-            // Get the authenticated user
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            
-            // Create a new Missed object from the request
-            Missed missed = new Missed();
-            missed.setTitle(request.getTitle());
-            missed.setDescription(request.getDescription());
-            missed.setReportDateTime(request.getReportDateTime());
-            missed.setScheduleId(request.getScheduleId());
-            missed.setUserId(request.getUserId());
-            
-            // Save the missed record
-            Missed createdMissed = missedService.createMissed(missed);
-            
+    public CompletableFuture<ResponseEntity<MissedResponse>> createMissed(@RequestBody MissedRequest request) {
+        // Create a new Missed object from the request
+        Missed missed = new Missed();
+        missed.setTitle(request.getTitle());
+        missed.setDescription(request.getDescription());
+        missed.setReportDateTime(request.getReportDateTime());
+        missed.setScheduleId(request.getScheduleId());
+        missed.setUserId(request.getUserId());
+        
+        // Save the missed record
+        return missedService.createMissedAsync(missed).thenApply(createdMissed -> {
             MissedResponse response = new MissedResponse(
                 createdMissed.getMissedId(),
                 createdMissed.getTitle(),
@@ -117,10 +97,10 @@ public class MissedController {
             );
             
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            MissedResponse response = new MissedResponse(false, "Error creating missed record: " + e.getMessage());
+        }).exceptionally(e -> {
+            MissedResponse response = new MissedResponse(false, "Error creating missed record: " + unwrap(e).getMessage());
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -131,25 +111,19 @@ public class MissedController {
      * @return The updated missed record
      */
     @PutMapping("/{missedId}")
-    public ResponseEntity<MissedResponse> updateMissed(@PathVariable String missedId, @RequestBody MissedRequest request) {
-        try {
-            // Get the current missed record
-            Missed existingMissed = missedService.getMissedById(missedId);
-            
-            if (existingMissed == null) {
-                return ResponseEntity.notFound().build();
+    public CompletableFuture<ResponseEntity<MissedResponse>> updateMissed(@PathVariable String missedId, @RequestBody MissedRequest request) {
+        // Every field comes from the request, so the record is replaced without reading it first
+        Missed missed = new Missed();
+        missed.setTitle(request.getTitle());
+        missed.setDescription(request.getDescription());
+        missed.setReportDateTime(request.getReportDateTime());
+        missed.setScheduleId(request.getScheduleId());
+        missed.setUserId(request.getUserId());
+        
+        return missedService.updateMissedAsync(missedId, missed).<ResponseEntity<MissedResponse>>thenApply(updatedMissed -> {
+            if (updatedMissed == null) {
+                return ResponseEntity.<MissedResponse>notFound().build();
             }
-            
-            // Update the missed record with new values
-            existingMissed.setTitle(request.getTitle());
-            existingMissed.setDescription(request.getDescription());
-            existingMissed.setReportDateTime(request.getReportDateTime());
-            existingMissed.setScheduleId(request.getScheduleId());
-            existingMissed.setUserId(request.getUserId());
-            
-            // Save the updated missed record
-            Missed updatedMissed = missedService.updateMissed(missedId, existingMissed);
-            
             MissedResponse response = new MissedResponse(
                 updatedMissed.getMissedId(),
                 updatedMissed.getTitle(),
@@ -162,10 +136,10 @@ public class MissedController {
             );
             
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            MissedResponse response = new MissedResponse(false, "Error updating missed record: " + e.getMessage());
+        }).exceptionally(e -> {
+            MissedResponse response = new MissedResponse(false, "Error updating missed record: " + unwrap(e).getMessage());
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -175,20 +149,18 @@ public class MissedController {
      * @return Success response
      */
     @DeleteMapping("/{missedId}")
-    public ResponseEntity<MissedResponse> deleteMissed(@PathVariable String missedId) {
-        try {
-            boolean deleted = missedService.deleteMissed(missedId);
-            
+    public CompletableFuture<ResponseEntity<MissedResponse>> deleteMissed(@PathVariable String missedId) {
+        return missedService.deleteMissedAsync(missedId).<ResponseEntity<MissedResponse>>thenApply(deleted -> {
             if (deleted) {
                 MissedResponse response = new MissedResponse(true, "Missed record deleted successfully");
                 return ResponseEntity.ok(response);
             } else {
-                return ResponseEntity.notFound().build();
+                return ResponseEntity.<MissedResponse>notFound().build();
             }
-        } catch (Exception e) {
-            MissedResponse response = new MissedResponse(false, "Error deleting missed record: " + e.getMessage());
+        }).exceptionally(e -> {
+            MissedResponse response = new MissedResponse(false, "Error deleting missed record: " + unwrap(e).getMessage());
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -198,28 +170,10 @@ public class MissedController {
      * @return List of missed records for the schedule
      */
     @GetMapping("/schedule/{scheduleId}")
-    public ResponseEntity<List<MissedResponse>> getMissedByScheduleId(@PathVariable String scheduleId) {
-        try {
-            List<Missed> missedList = missedService.getMissedByScheduleId(scheduleId);
-            List<MissedResponse> responseList = new ArrayList<>();
-            
-            for (Missed missed : missedList) {
-                MissedResponse response = new MissedResponse(
-                    missed.getMissedId(),
-                    missed.getTitle(),
-                    missed.getDescription(),
-                    missed.getReportDateTime(),
-                    missed.getScheduleId(),
-                    missed.getUserId()
-                );
-                
-                responseList.add(response);
-            }
-            
-            return ResponseEntity.ok(responseList);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(null);
-        }
+    public CompletableFuture<ResponseEntity<List<MissedResponse>>> getMissedByScheduleId(@PathVariable String scheduleId) {
+        return missedService.getMissedByScheduleIdAsync(scheduleId)
+                .thenApply(missedList -> ResponseEntity.ok(toResponseList(missedList)))
+                .exceptionally(e -> ResponseEntity.status(500).body(null));
     }
 
     /**
@@ -229,27 +183,35 @@ public class MissedController {
      * @return List of missed records for the user
      */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<MissedResponse>> getMissedByUserId(@PathVariable String userId) {
-        try {
-            List<Missed> missedList = missedService.getMissedByUserId(userId);
-            List<MissedResponse> responseList = new ArrayList<>();
-            
-            for (Missed missed : missedList) {
-                MissedResponse response = new MissedResponse(
-                    missed.getMissedId(),
-                    missed.getTitle(),
-                    missed.getDescription(),
-                    missed.getReportDateTime(),
-                    missed.getScheduleId(),
-                    missed.getUserId()
-                );
-                
-                responseList.add(response);
-            }
+    public CompletableFuture<ResponseEntity<List<MissedResponse>>> getMissedByUserId(@PathVariable String userId) {
+        return missedService.getMissedByUserIdAsync(userId)
+                .thenApply(missedList -> ResponseEntity.ok(toResponseList(missedList)))
+                .exceptionally(e -> ResponseEntity.status(500).body(null));
+    }
+
+    private List<MissedResponse> toResponseList(List<Missed> missedList) {
+        List<MissedResponse> responseList = new ArrayList<>();
+        
+        for (Missed missed : missedList) {
+            MissedResponse response = new MissedResponse(
+                missed.getMissedId(),
+                missed.getTitle(),
+                missed.getDescription(),
+                missed.getReportDateTime(),
+                missed.getScheduleId(),
+                missed.getUserId()
+            );
             
-            return ResponseEntity.ok(responseList);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(null);
+            responseList.add(response);
         }
+        
+        return responseList;
+    }
+
+    /**
+     * Strip the CompletionException wrapper added when a stage fails
+     */
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
-} 
\ No newline at end of file
+}
@@ -1,58 +1,199 @@
 package com.g4.gms.controller;
 
+import com.g4.gms.dto.AudienceNotificationRequest;
+import com.g4.gms.dto.DeviceTokenRequest;
 import com.g4.gms.dto.NotificationRequest;
+import com.g4.gms.model.DeviceToken;
+import com.g4.gms.service.DeviceTokenService;
 import com.g4.gms.service.FirebaseMessagingService;
+import com.g4.gms.service.PushDispatchRejectedException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.validation.Valid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 @RestController
 @RequestMapping("/api/notifications")
 public class NotificationController {
 
     private final FirebaseMessagingService firebaseMessagingService;
+    private final DeviceTokenService deviceTokenService;
 
     @Autowired
-    public NotificationController(FirebaseMessagingService firebaseMessagingService) {
+    public NotificationController(FirebaseMessagingService firebaseMessagingService,
+                                  DeviceTokenService deviceTokenService) {
         this.firebaseMessagingService = firebaseMessagingService;
+        this.deviceTokenService = deviceTokenService;
     }
 
     @PostMapping("/send")
-    public ResponseEntity<?> sendNotification(@RequestBody NotificationRequest request) {
-        String response = firebaseMessagingService.sendNotification(
+    public CompletableFuture<ResponseEntity<?>> sendNotification(@RequestBody NotificationRequest request) {
+        return firebaseMessagingService.sendNotificationAsync(
                 request.getToken(),
                 request.getTitle(),
                 request.getBody()
-        );
-
-        if (response != null) {
-            Map<String, String> responseMap = new HashMap<>();
-            responseMap.put("messageId", response);
-            responseMap.put("status", "success");
-            return ResponseEntity.ok(responseMap);
-        } else {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "status", "error",
-                    "message", "Failed to send notification"
-            ));
-        }
+        ).thenApply(result -> {
+            if (result.status() == FirebaseMessagingService.Status.DELIVERED) {
+                Map<String, String> responseMap = new HashMap<>();
+                responseMap.put("messageId", result.messageId());
+                responseMap.put("status", "success");
+                return ResponseEntity.ok(responseMap);
+            } else {
+                return ResponseEntity.badRequest().body(Map.of(
+                        "status", "error",
+                        "message", "Failed to send notification"
+                ));
+            }
+        });
     }
 
     @PostMapping("/send-multicast")
-    public ResponseEntity<?> sendMulticastNotification(
+    public CompletableFuture<ResponseEntity<?>> sendMulticastNotification(
             @RequestParam String[] tokens,
             @RequestParam String title,
             @RequestParam String body) {
         
-        int successCount = firebaseMessagingService.sendMulticastNotification(tokens, title, body);
-        
-        return ResponseEntity.ok(Map.of(
+        return firebaseMessagingService.sendMulticastNotificationAsync(Arrays.asList(tokens), title, body)
+                .thenApply(summary -> ResponseEntity.ok(Map.of(
+                        "status", "success",
+                        "successCount", summary.delivered(),
+                        "unregisteredCount", summary.unregistered(),
+                        "failureCount", summary.failed(),
+                        "totalTokens", tokens.length
+                )));
+    }
+
+    /**
+     * Send a notification to users rather than tokens: the given users, everyone in a location,
+     * or everyone with a role. Requires the ADMIN role.
+     * @param request Exactly one of userIds, location or role, plus the title and body
+     * @return Counts of matched users, recipients and per-token outcomes
+     */
+    @PostMapping("/audience")
+    public CompletableFuture<ResponseEntity<?>> sendToAudience(@Valid @RequestBody AudienceNotificationRequest request) {
+        boolean byUsers = request.getUserIds() != null && !request.getUserIds().isEmpty();
+        boolean byLocation = request.getLocation() != null && !request.getLocation().isBlank();
+        boolean byRole = request.getRole() != null && !request.getRole().isBlank();
+        if ((byUsers ? 1 : 0) + (byLocation ? 1 : 0) + (byRole ? 1 : 0) != 1) {
+            throw new IllegalArgumentException("Specify exactly one of userIds, location or role");
+        }
+
+        CompletableFuture<DeviceTokenService.FanOutSummary> fanOut;
+        if (byUsers) {
+            fanOut = deviceTokenService.notifyUsersAsync(request.getUserIds(), request.getTitle(), request.getBody());
+        } else if (byLocation) {
+            fanOut = deviceTokenService.notifyLocationAsync(request.getLocation(), request.getTitle(), request.getBody());
+        } else {
+            fanOut = deviceTokenService.notifyRoleAsync(request.getRole(), request.getTitle(), request.getBody());
+        }
+        return fanOut.thenApply(summary -> ResponseEntity.ok(Map.of(
                 "status", "success",
-                "successCount", successCount,
-                "totalTokens", tokens.length
-        ));
+                "users", summary.users(),
+                "recipients", summary.recipients(),
+                "totalTokens", summary.tokens(),
+                "successCount", summary.delivered(),
+                "unregisteredCount", summary.unregistered(),
+                "failureCount", summary.failed(),
+                "rejectedCount", summary.rejected()
+        )));
+    }
+
+    /**
+     * Register the caller's device for push notifications (repeat on every app start to keep it current)
+     * @param request The FCM token and, optionally, the platform
+     * @return The stored registration
+     */
+    @PostMapping("/devices")
+    public ResponseEntity<?> registerDevice(@Valid @RequestBody DeviceTokenRequest request) {
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            DeviceToken device = deviceTokenService.registerToken(userId, request.getToken(), request.getPlatform());
+            return ResponseEntity.ok(toDeviceMap(device));
+        } catch (ExecutionException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Failed to register device: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Get the caller's registered devices, most recently seen first
+     * @return The registrations
+     */
+    @GetMapping("/devices")
+    public ResponseEntity<?> getDevices() {
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            List<Map<String, Object>> devices = new ArrayList<>();
+            for (DeviceToken device : deviceTokenService.getDevices(userId)) {
+                devices.add(toDeviceMap(device));
+            }
+            return ResponseEntity.ok(Map.of("devices", devices));
+        } catch (ExecutionException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Failed to get devices: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Remove one of the caller's devices, e.g. on sign-out
+     * @param token The FCM token of the device
+     * @return 200 if removed, 404 if the caller has no such device
+     */
+    @DeleteMapping("/devices")
+    public ResponseEntity<?> unregisterDevice(@RequestParam String token) {
+        String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+        try {
+            if (!deviceTokenService.unregisterToken(userId, token)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("status", "error", "message", "Device not registered"));
+            }
+            return ResponseEntity.ok(Map.of("status", "success"));
+        } catch (ExecutionException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("status", "error", "message", "Failed to remove device: " + e.getMessage()));
+        }
+    }
+
+    private static Map<String, Object> toDeviceMap(DeviceToken device) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("token", device.getToken());
+        body.put("platform", device.getPlatform());
+        body.put("createdAt", device.getCreatedAt() != null ? device.getCreatedAt().toString() : null);
+        body.put("lastSeenAt", device.getLastSeenAt());
+        return body;
+    }
+
+    @ExceptionHandler(PushDispatchRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleDispatchRejected(PushDispatchRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("status", "error", "message", e.getMessage()));
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("status", "error", "message", e.getMessage()));
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,29 @@
+package com.g4.gms.controller;
+
+import com.g4.gms.repository.Page;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Response headers shared by the paginated list endpoints. The body keeps
+ * its existing shape; the cursor for the next page travels in a header.
+ */
+final class PageHeaders {
+
+    static final String NEXT_PAGE_TOKEN = "X-Next-Page-Token";
+
+    private PageHeaders() {
+    }
+
+    /**
+     * Headers for a page response
+     * @param page The page being returned
+     * @return Headers carrying the next page token, if there is one
+     */
+    static HttpHeaders of(Page<?> page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.nextPageToken() != null) {
+            headers.set(NEXT_PAGE_TOKEN, page.nextPageToken());
+        }
+        return headers;
+    }
+}
@@ -3,14 +3,21 @@ package com.g4.gms.controller;
 import com.g4.gms.dto.PickupLocationRequest;
 import com.g4.gms.dto.PickupLocationResponse;
 import com.g4.gms.model.PickupLocation;
+import com.g4.gms.repository.CollectionVersion;
+import com.g4.gms.service.PickupLocationFeedCache;
 import com.g4.gms.service.PickupLocationService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/pickup-locations")
@@ -22,59 +29,156 @@ public class PickupLocationController {
     /**
      * Get all pickup locations
      * This endpoint is publicly accessible (no JWT required)
-     * @return List of all pickup locations
+     * The body is served from pre-serialized JSON (gzip-compressed when the client accepts it)
+     * @param limit Maximum number of items to return (capped server-side)
+     * @param pageToken Token from the X-Next-Page-Token header of the previous page
+     * @param webRequest The current request, for If-None-Match / If-Modified-Since / Accept-Encoding
+     * @return One page of pickup locations, or 304 if the client's copy is current
      */
     @GetMapping
-    public ResponseEntity<PickupLocationResponse> getAllPickupLocations() {
+    public CompletableFuture<ResponseEntity<?>> getAllPickupLocations(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken,
+            WebRequest webRequest) {
+        ConditionalGet conditional = ConditionalGet.of(webRequest);
+        boolean gzip = acceptsGzip(webRequest);
+        CollectionVersion version = pickupLocationService.getCollectionVersion();
+        String versionTag = versionTag(version, "list", limit, pageToken);
+        if (versionTag != null) {
+            long lastModified = version.lastModifiedMillis();
+            if (conditional.isNotModified(versionTag, lastModified)) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .headers(feedHeaders(versionTag, lastModified, gzip)).build());
+            }
+            // Only cached while the replica is live: the version tag then identifies the body exactly
+            return pickupLocationService.getPickupLocationsFeedAsync(versionTag, limit, pageToken)
+                    .<ResponseEntity<?>>thenApply(feed -> feedResponse(feed, versionTag, lastModified, gzip))
+                    .exceptionally(PickupLocationController::listError);
+        }
+
+        return pickupLocationService.getPickupLocationsPageAsync(limit, pageToken).<ResponseEntity<?>>thenApply(page -> {
+            String etag = locationsTag(page.items()).add(page.nextPageToken()).build();
+            if (conditional.isNotModified(etag, null)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(feedHeaders(etag, null, gzip)).build();
+            }
+            return feedResponse(pickupLocationService.serializePickupLocationsPage(page), etag, null, gzip);
+        }).exceptionally(PickupLocationController::listError);
+    }
+
+    /**
+     * Search pickup locations by position, served from the in-memory spatial index.
+     * Pass lat/lng for the nearest sites (optionally within radiusMeters), or
+     * minLat/minLng/maxLat/maxLng for the sites inside a box.
+     * This endpoint is publicly accessible (no JWT required)
+     * @param lat Latitude of the search point
+     * @param lng Longitude of the search point
+     * @param radiusMeters Maximum distance from the search point
+     * @param minLat South edge of the box
+     * @param minLng West edge of the box
+     * @param maxLat North edge of the box
+     * @param maxLng East edge of the box
+     * @param wasteType Only return sites accepting this waste type
+     * @param limit Maximum number of sites to return (capped server-side)
+     * @param webRequest The current request, for If-None-Match / If-Modified-Since
+     * @return Matching pickup locations, nearest first, or 304 if the client's copy is current
+     */
+    @GetMapping("/search")
+    public CompletableFuture<ResponseEntity<PickupLocationResponse>> searchPickupLocations(
+            @RequestParam(required = false) Double lat,
+            @RequestParam(required = false) Double lng,
+            @RequestParam(required = false) Double radiusMeters,
+            @RequestParam(required = false) Double minLat,
+            @RequestParam(required = false) Double minLng,
+            @RequestParam(required = false) Double maxLat,
+            @RequestParam(required = false) Double maxLng,
+            @RequestParam(required = false) String wasteType,
+            @RequestParam(required = false) Integer limit,
+            WebRequest webRequest) {
+        ConditionalGet conditional = ConditionalGet.of(webRequest);
+        CollectionVersion version = pickupLocationService.getCollectionVersion();
+        String versionTag = versionTag(version, "search", lat, lng, radiusMeters, minLat, minLng, maxLat, maxLng, wasteType, limit);
+        if (versionTag != null && conditional.isNotModified(versionTag, version.lastModifiedMillis())) {
+            return CompletableFuture.completedFuture(conditional.notModified(versionTag, version.lastModifiedMillis()));
+        }
+
+        CompletableFuture<List<PickupLocation>> search;
         try {
-            List<PickupLocation> locations = pickupLocationService.getAllPickupLocations();
+            if (lat != null && lng != null) {
+                search = pickupLocationService.findNearestPickupLocationsAsync(lat, lng, radiusMeters, wasteType, limit);
+            } else if (minLat != null && minLng != null && maxLat != null && maxLng != null) {
+                search = pickupLocationService.findPickupLocationsInBoxAsync(minLat, minLng, maxLat, maxLng, wasteType, limit);
+            } else {
+                throw new IllegalArgumentException("Provide lat and lng, or minLat, minLng, maxLat and maxLng");
+            }
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(
+                    new PickupLocationResponse(false, "Error searching pickup locations: " + e.getMessage())));
+        }
+
+        return search.thenApply(locations -> {
+            String etag = versionTag != null ? versionTag : locationsTag(locations).build();
+            Long lastModified = version != null ? version.lastModifiedMillis() : null;
+            if (versionTag == null && conditional.isNotModified(etag, null)) {
+                return conditional.<PickupLocationResponse>notModified(etag, null);
+            }
+
             PickupLocationResponse response = new PickupLocationResponse(
                     locations,
                     true,
                     "Pickup locations retrieved successfully"
             );
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
+            return ResponseEntity.ok().headers(ConditionalGet.headers(etag, lastModified)).body(response);
+        }).exceptionally(e -> {
             PickupLocationResponse response = new PickupLocationResponse(
                     false,
-                    "Error retrieving pickup locations: " + e.getMessage()
+                    "Error searching pickup locations: " + unwrap(e).getMessage()
             );
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
      * Get a pickup location by ID
      * This endpoint is publicly accessible (no JWT required)
      * @param locationId The ID of the pickup location to retrieve
-     * @return The pickup location with the specified ID
+     * @param webRequest The current request, for If-None-Match / If-Modified-Since
+     * @return The pickup location with the specified ID, or 304 if the client's copy is current
      */
     @GetMapping("/{locationId}")
-    public ResponseEntity<PickupLocationResponse> getPickupLocationById(@PathVariable String locationId) {
-        try {
-            PickupLocation location = pickupLocationService.getPickupLocationById(locationId);
-            
+    public CompletableFuture<ResponseEntity<PickupLocationResponse>> getPickupLocationById(
+            @PathVariable String locationId,
+            WebRequest webRequest) {
+        ConditionalGet conditional = ConditionalGet.of(webRequest);
+        CollectionVersion version = pickupLocationService.getCollectionVersion();
+        String versionTag = versionTag(version, "location", locationId);
+        if (versionTag != null && conditional.isNotModified(versionTag, version.lastModifiedMillis())) {
+            return CompletableFuture.completedFuture(conditional.notModified(versionTag, version.lastModifiedMillis()));
+        }
+
+        return pickupLocationService.getPickupLocationByIdAsync(locationId).<ResponseEntity<PickupLocationResponse>>thenApply(location -> {
             if (location == null) {
-                PickupLocationResponse response = new PickupLocationResponse(
-                        false,
-                        "Pickup location not found with ID: " + locationId
-                );
-                return ResponseEntity.notFound().build();
+                return ResponseEntity.<PickupLocationResponse>notFound().build();
             }
             
+            String etag = versionTag != null ? versionTag : locationsTag(List.of(location)).build();
+            Long lastModified = version != null ? version.lastModifiedMillis() : null;
+            if (versionTag == null && conditional.isNotModified(etag, null)) {
+                return conditional.notModified(etag, null);
+            }
+
             PickupLocationResponse response = new PickupLocationResponse(
                     location,
                     true,
                     "Pickup location retrieved successfully"
             );
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
+            return ResponseEntity.ok().headers(ConditionalGet.headers(etag, lastModified)).body(response);
+        }).exceptionally(e -> {
             PickupLocationResponse response = new PickupLocationResponse(
                     false,
-                    "Error retrieving pickup location: " + e.getMessage()
+                    "Error retrieving pickup location: " + unwrap(e).getMessage()
             );
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -84,32 +188,30 @@ public class PickupLocationController {
      * @return The created pickup location
      */
     @PostMapping
-    public ResponseEntity<PickupLocationResponse> createPickupLocation(@Valid @RequestBody PickupLocationRequest request) {
-        try {
-            PickupLocation newLocation = new PickupLocation();
-            newLocation.setSiteName(request.getSiteName());
-            newLocation.setWasteType(request.getWasteType());
-            newLocation.setAddress(request.getAddress());
-            if (request.getLatitude() != null && request.getLongitude() != null) {
-                newLocation.setLatitude(request.getLatitude());
-                newLocation.setLongitude(request.getLongitude());
-            }
-            
-            PickupLocation createdLocation = pickupLocationService.createPickupLocation(newLocation);
-            
+    public CompletableFuture<ResponseEntity<PickupLocationResponse>> createPickupLocation(@Valid @RequestBody PickupLocationRequest request) {
+        PickupLocation newLocation = new PickupLocation();
+        newLocation.setSiteName(request.getSiteName());
+        newLocation.setWasteType(request.getWasteType());
+        newLocation.setAddress(request.getAddress());
+        if (request.getLatitude() != null && request.getLongitude() != null) {
+            newLocation.setLatitude(request.getLatitude());
+            newLocation.setLongitude(request.getLongitude());
+        }
+        
+        return pickupLocationService.createPickupLocationAsync(newLocation).thenApply(createdLocation -> {
             PickupLocationResponse response = new PickupLocationResponse(
                     createdLocation,
                     true,
                     "Pickup location created successfully"
             );
             return ResponseEntity.ok(response);
-        } catch (Exception e) {
+        }).exceptionally(e -> {
             PickupLocationResponse response = new PickupLocationResponse(
                     false,
-                    "Error creating pickup location: " + e.getMessage()
+                    "Error creating pickup location: " + unwrap(e).getMessage()
             );
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -120,40 +222,36 @@ public class PickupLocationController {
      * @return The updated pickup location
      */
     @PutMapping("/{locationId}")
-    public ResponseEntity<PickupLocationResponse> updatePickupLocation(
+    public CompletableFuture<ResponseEntity<PickupLocationResponse>> updatePickupLocation(
             @PathVariable String locationId,
             @Valid @RequestBody PickupLocationRequest request) {
-        try {
-            PickupLocation updatedLocation = new PickupLocation();
-            updatedLocation.setSiteName(request.getSiteName());
-            updatedLocation.setWasteType(request.getWasteType());
-            updatedLocation.setAddress(request.getAddress());
-            if (request.getLatitude() != null && request.getLongitude() != null) {
-                updatedLocation.setLatitude(request.getLatitude());
-                updatedLocation.setLongitude(request.getLongitude());
-            }
-            
-            PickupLocation result = pickupLocationService.updatePickupLocation(locationId, updatedLocation);
-            
+        PickupLocation updatedLocation = new PickupLocation();
+        updatedLocation.setSiteName(request.getSiteName());
+        updatedLocation.setWasteType(request.getWasteType());
+        updatedLocation.setAddress(request.getAddress());
+        if (request.getLatitude() != null && request.getLongitude() != null) {
+            updatedLocation.setLatitude(request.getLatitude());
+            updatedLocation.setLongitude(request.getLongitude());
+        }
+        
+        return pickupLocationService.updatePickupLocationAsync(locationId, updatedLocation).thenApply(result -> {
             PickupLocationResponse response = new PickupLocationResponse(
                     result,
                     true,
                     "Pickup location updated successfully"
             );
             return ResponseEntity.ok(response);
-        } catch (IllegalArgumentException e) {
-            PickupLocationResponse response = new PickupLocationResponse(
-                    false,
-                    e.getMessage()
-            );
-            return ResponseEntity.notFound().build();
-        } catch (Exception e) {
+        }).exceptionally(e -> {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IllegalArgumentException) {
+                return ResponseEntity.<PickupLocationResponse>notFound().build();
+            }
             PickupLocationResponse response = new PickupLocationResponse(
                     false,
-                    "Error updating pickup location: " + e.getMessage()
+                    "Error updating pickup location: " + cause.getMessage()
             );
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -163,10 +261,8 @@ public class PickupLocationController {
      * @return Success or error message
      */
     @DeleteMapping("/{locationId}")
-    public ResponseEntity<PickupLocationResponse> deletePickupLocation(@PathVariable String locationId) {
-        try {
-            boolean deleted = pickupLocationService.deletePickupLocation(locationId);
-            
+    public CompletableFuture<ResponseEntity<PickupLocationResponse>> deletePickupLocation(@PathVariable String locationId) {
+        return pickupLocationService.deletePickupLocationAsync(locationId).thenApply(deleted -> {
             if (deleted) {
                 PickupLocationResponse response = new PickupLocationResponse(
                         true,
@@ -180,18 +276,101 @@ public class PickupLocationController {
                 );
                 return ResponseEntity.badRequest().body(response);
             }
-        } catch (IllegalArgumentException e) {
-            PickupLocationResponse response = new PickupLocationResponse(
-                    false,
-                    e.getMessage()
-            );
-            return ResponseEntity.notFound().build();
-        } catch (Exception e) {
+        }).exceptionally(e -> {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IllegalArgumentException) {
+                return ResponseEntity.<PickupLocationResponse>notFound().build();
+            }
             PickupLocationResponse response = new PickupLocationResponse(
                     false,
-                    "Error deleting pickup location: " + e.getMessage()
+                    "Error deleting pickup location: " + cause.getMessage()
             );
             return ResponseEntity.badRequest().body(response);
+        });
+    }
+
+    private static ResponseEntity<?> feedResponse(PickupLocationFeedCache.Feed feed, String etag,
+                                                  Long lastModified, boolean gzip) {
+        HttpHeaders headers = feedHeaders(etag, lastModified, gzip);
+        if (feed.nextPageToken() != null) {
+            headers.set(PageHeaders.NEXT_PAGE_TOKEN, feed.nextPageToken());
+        }
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        byte[] body = gzip ? feed.gzip() : feed.json();
+        headers.setContentLength(body.length);
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    /**
+     * Validator headers for the list endpoint. The gzip body is a different representation,
+     * so it carries the weak form of the tag; If-None-Match compares weakly, so either form
+     * revalidates either body.
+     */
+    private static HttpHeaders feedHeaders(String etag, Long lastModified, boolean gzip) {
+        HttpHeaders headers = ConditionalGet.headers(gzip ? "W/" + etag : etag, lastModified);
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        return headers;
+    }
+
+    private static ResponseEntity<?> listError(Throwable e) {
+        PickupLocationResponse response = new PickupLocationResponse(
+                false,
+                "Error retrieving pickup locations: " + unwrap(e).getMessage()
+        );
+        return ResponseEntity.badRequest().body(response);
+    }
+
+    /**
+     * Whether the client accepts a gzip-encoded body (and has not refused it with q=0)
+     */
+    private static boolean acceptsGzip(WebRequest webRequest) {
+        String acceptEncoding = webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding == null) {
+            return false;
         }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].replace(" ", "");
+                    if (parameter.matches("q=0(\\.0{0,3})?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Entity tag from the collection version and the request parameters, so a matching
+     * request is answered without reading anything
+     * @return The tag, or null if the collection version is not known
+     */
+    private static String versionTag(CollectionVersion version, Object... request) {
+        return version != null ? ConditionalGet.tag().add(version.tag()).addAll(request).build() : null;
+    }
+
+    /**
+     * Entity tag over every field of the locations in a response
+     */
+    private static ConditionalGet.Tag locationsTag(List<PickupLocation> locations) {
+        ConditionalGet.Tag tag = ConditionalGet.tag();
+        for (PickupLocation location : locations) {
+            tag.addAll(location.getLocationId(), location.getSiteName(), location.getWasteType(),
+                    location.getAddress(), location.getLatitude(), location.getLongitude());
+        }
+        return tag;
+    }
+
+    /**
+     * Strip the CompletionException wrapper added when a stage fails
+     */
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
-} 
\ No newline at end of file
+}
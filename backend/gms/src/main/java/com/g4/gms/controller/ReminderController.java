@@ -4,6 +4,9 @@ import com.g4.gms.model.Reminder;
 import com.g4.gms.dto.ReminderRequest;
 import com.g4.gms.dto.ReminderResponse;
 import com.g4.gms.service.ReminderService;
+import com.g4.gms.repository.DocumentConflictException;
+import com.g4.gms.repository.Page;
+import com.g4.gms.repository.Versioned;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -25,11 +28,14 @@ public class ReminderController {
         this.reminderService = reminderService;
     }
 
-    // GET endpoint - accessible to everyone
+    // GET endpoint - accessible to everyone, paged with ?limit=&pageToken=
     @GetMapping
-    public ResponseEntity<List<ReminderResponse>> getAllReminders() {
+    public ResponseEntity<List<ReminderResponse>> getAllReminders(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken) {
         try {
-            List<Reminder> reminders = reminderService.getAllReminders();
+            Page<Reminder> page = reminderService.getRemindersPage(limit, pageToken);
+            List<Reminder> reminders = page.items();
             List<ReminderResponse> responseList = new ArrayList<>();
             
             for (Reminder reminder : reminders) {
@@ -46,7 +52,11 @@ public class ReminderController {
                 responseList.add(response);
             }
             
-            return ResponseEntity.ok(responseList);
+            return ResponseEntity.ok().headers(PageHeaders.of(page)).body(responseList);
+        } catch (IllegalArgumentException e) {
+            List<ReminderResponse> errorList = new ArrayList<>();
+            errorList.add(new ReminderResponse(false, e.getMessage()));
+            return ResponseEntity.badRequest().body(errorList);
         } catch (Exception e) {
             // Return a more informative error response
             List<ReminderResponse> errorList = new ArrayList<>();
@@ -114,6 +124,9 @@ public class ReminderController {
             );
             
             return new ResponseEntity<>(response, HttpStatus.CREATED);
+        } catch (DocumentConflictException e) {
+            ReminderResponse response = new ReminderResponse(false, "Reminder was changed by someone else, reload and try again");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (IllegalArgumentException e) {
             // Return only success status and message for validation errors
             ReminderResponse response = new ReminderResponse(false, e.getMessage());
@@ -133,13 +146,14 @@ public class ReminderController {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String userId = authentication.getName();
             
-            // Retrieve existing reminder
-            Reminder existingReminder = reminderService.getReminderById(reminderId);
+            // Retrieve existing reminder with its version, so the write fails if it changes in between
+            Versioned<Reminder> versioned = reminderService.getVersionedReminderById(reminderId);
             
-            if (existingReminder == null) {
+            if (versioned == null) {
                 // Return only success status and message for not found errors
                 return ResponseEntity.status(404).body(new ReminderResponse(false, "Reminder not found"));
             }
+            Reminder existingReminder = versioned.document();
             
             // Check if the authenticated user is the owner of the reminder
             if (!existingReminder.getUserId().equals(userId)) {
@@ -154,7 +168,7 @@ public class ReminderController {
             existingReminder.setReminderDate(reminderRequest.getReminderDate());
             existingReminder.setScheduleId(reminderRequest.getScheduleId());
             
-            Reminder updatedReminder = reminderService.updateReminder(reminderId, existingReminder);
+            Reminder updatedReminder = reminderService.updateReminder(reminderId, existingReminder, versioned.version());
             
             if (updatedReminder != null) {
                 ReminderResponse response = new ReminderResponse(
@@ -191,13 +205,14 @@ public class ReminderController {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String userId = authentication.getName();
             
-            // Retrieve existing reminder
-            Reminder existingReminder = reminderService.getReminderById(reminderId);
+            // Retrieve existing reminder with its version, so the write fails if it changes in between
+            Versioned<Reminder> versioned = reminderService.getVersionedReminderById(reminderId);
             
-            if (existingReminder == null) {
+            if (versioned == null) {
                 // Return only success status and message for not found errors
                 return ResponseEntity.status(404).body(new ReminderResponse(false, "Reminder not found"));
             }
+            Reminder existingReminder = versioned.document();
             
             // Check if the authenticated user is the owner of the reminder
             if (!existingReminder.getUserId().equals(userId)) {
@@ -206,7 +221,7 @@ public class ReminderController {
                 return ResponseEntity.status(403).body(response);
             }
             
-            boolean deleted = reminderService.deleteReminder(reminderId);
+            boolean deleted = reminderService.deleteReminder(reminderId, versioned.version());
             
             if (deleted) {
                 // Return only success status and message for DELETE operations
@@ -216,6 +231,9 @@ public class ReminderController {
                 // Return only success status and message for not found errors
                 return ResponseEntity.status(404).body(new ReminderResponse(false, "Reminder not found"));
             }
+        } catch (DocumentConflictException e) {
+            ReminderResponse response = new ReminderResponse(false, "Reminder was changed by someone else, reload and try again");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         } catch (ExecutionException | InterruptedException e) {
             // Return only success status and message for errors
             ReminderResponse response = new ReminderResponse(false, "Error deleting reminder: " + e.getMessage());
@@ -3,18 +3,26 @@ package com.g4.gms.controller;
 import com.g4.gms.dto.ScheduleRequest;
 import com.g4.gms.dto.ScheduleResponse;
 import com.g4.gms.model.Schedule;
+import com.g4.gms.repository.DocumentConflictException;
+import com.g4.gms.repository.Page;
 import com.g4.gms.service.ScheduleService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/schedule")
@@ -26,17 +34,77 @@ public class ScheduleController {
     /**
      * Get all schedules
      * This endpoint is public (no JWT required)
-     * @return List of all schedules
+     * @param limit Maximum number of items to return (capped server-side)
+     * @param pageToken Token from the X-Next-Page-Token header of the previous page
+     * @param webRequest The current request, for If-None-Match
+     * @return One page of schedules, or 304 if the client's copy is current
      */
     @GetMapping
-    public ResponseEntity<List<ScheduleResponse>> getAllSchedules() {
-        try {
-            List<Schedule> schedules = scheduleService.getAllSchedules();
-            List<ScheduleResponse> responseList = new ArrayList<>();
+    public CompletableFuture<ResponseEntity<List<ScheduleResponse>>> getAllSchedules(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken,
+            WebRequest webRequest) {
+        ConditionalGet conditional = ConditionalGet.of(webRequest);
+        return scheduleService.getSchedulesPageAsync(limit, pageToken)
+                .thenCompose(page -> pageResponse(page, conditional))
+                .exceptionally(e -> unwrap(e) instanceof IllegalArgumentException
+                        ? ResponseEntity.badRequest().body(null)
+                        : ResponseEntity.status(500).body(null));
+    }
+
+    /**
+     * Get the schedules picked up in a time window, in pickup order, optionally only at one
+     * location or with one status (e.g. this week's pickups for the dashboard)
+     * This endpoint is public (no JWT required)
+     * @param from Start of the window: an ISO date ("2025-05-05", start of day) or date-time
+     * @param to End of the window: an ISO date (whole day included) or date-time (exclusive)
+     * @param locationId Only schedules at this location (optional)
+     * @param status Only schedules with this status (optional)
+     * @param limit Maximum number of items to return (capped server-side)
+     * @param pageToken Token from the X-Next-Page-Token header of the previous page
+     * @param webRequest The current request, for If-None-Match
+     * @return One page of schedules, 304 if the client's copy is current, or 400 for an invalid window
+     */
+    @GetMapping("/range")
+    public CompletableFuture<ResponseEntity<List<ScheduleResponse>>> getSchedulesByPickupWindow(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(required = false) String locationId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken,
+            WebRequest webRequest) {
+        ConditionalGet conditional = ConditionalGet.of(webRequest);
+        return scheduleService.getSchedulesByPickupWindowAsync(from, to, locationId, status, limit, pageToken)
+                .thenCompose(page -> pageResponse(page, conditional))
+                .exceptionally(e -> unwrap(e) instanceof IllegalArgumentException
+                        ? ResponseEntity.badRequest().body(null)
+                        : ResponseEntity.status(500).body(null));
+    }
+
+    /**
+     * Get schedule by ID
+     * This endpoint is public (no JWT required)
+     * @param scheduleId The ID of the schedule to retrieve
+     * @param webRequest The current request, for If-None-Match
+     * @return The schedule if found, or 304 if the client's copy is current
+     */
+    @GetMapping("/{scheduleId}")
+    public CompletableFuture<ResponseEntity<ScheduleResponse>> getScheduleById(
+            @PathVariable String scheduleId,
+            WebRequest webRequest) {
+        ConditionalGet conditional = ConditionalGet.of(webRequest);
+        return scheduleService.getScheduleByIdAsync(scheduleId).<ResponseEntity<ScheduleResponse>>thenCompose(schedule -> {
+            if (schedule == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.<ScheduleResponse>notFound().build());
+            }
             
-            for (Schedule schedule : schedules) {
-                String userEmail = scheduleService.getUserEmail(schedule.getUserId());
-                
+            return scheduleService.getUserEmailAsync(schedule.getUserId()).thenApply(userEmail -> {
+                String etag = addTo(ConditionalGet.tag(), schedule, userEmail).build();
+                if (conditional.isNotModified(etag, null)) {
+                    return conditional.<ScheduleResponse>notModified(etag, null);
+                }
+
                 ScheduleResponse response = new ScheduleResponse(
                     schedule.getScheduleId(),
                     schedule.getTitle(),
@@ -47,53 +115,15 @@ public class ScheduleController {
                     schedule.getUserId(),
                     userEmail,
                     true,
-                    null
+                    "Schedule retrieved successfully"
                 );
                 
-                responseList.add(response);
-            }
-            
-            return ResponseEntity.ok(responseList);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(null);
-        }
-    }
-
-    /**
-     * Get schedule by ID
-     * This endpoint is public (no JWT required)
-     * @param scheduleId The ID of the schedule to retrieve
-     * @return The schedule if found
-     */
-    @GetMapping("/{scheduleId}")
-    public ResponseEntity<ScheduleResponse> getScheduleById(@PathVariable String scheduleId) {
-        try {
-            Schedule schedule = scheduleService.getScheduleById(scheduleId);
-            
-            if (schedule == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            String userEmail = scheduleService.getUserEmail(schedule.getUserId());
-            
-            ScheduleResponse response = new ScheduleResponse(
-                schedule.getScheduleId(),
-                schedule.getTitle(),
-                schedule.getPickupDate(),
-                schedule.getPickupTime(),
-                schedule.getLocationId(),
-                schedule.getStatus(),
-                schedule.getUserId(),
-                userEmail,
-                true,
-                "Schedule retrieved successfully"
-            );
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            ScheduleResponse response = new ScheduleResponse(false, "Error retrieving schedule: " + e.getMessage());
+                return ResponseEntity.ok().headers(ConditionalGet.headers(etag, null)).body(response);
+            });
+        }).exceptionally(e -> {
+            ScheduleResponse response = new ScheduleResponse(false, "Error retrieving schedule: " + unwrap(e).getMessage());
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -103,43 +133,42 @@ public class ScheduleController {
      * @return The created schedule
      */
     @PostMapping
-    public ResponseEntity<ScheduleResponse> createSchedule(@RequestBody ScheduleRequest request) {
-        try {
-            // Get the authenticated user ID from the security context
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String userId = authentication.getName();
-            
-            // Create a new Schedule object from the request
-            Schedule schedule = new Schedule();
-            schedule.setTitle(request.getTitle());
-            schedule.setPickupDate(request.getPickupDate());
-            schedule.setPickupTime(request.getPickupTime());
-            schedule.setLocationId(request.getLocationId());
-            schedule.setStatus(request.getStatus());
-            schedule.setUserId(userId);
-            
-            // Save the schedule
-            Schedule createdSchedule = scheduleService.createSchedule(schedule);
-            String userEmail = scheduleService.getUserEmail(userId);
-            
-            ScheduleResponse response = new ScheduleResponse(
-                createdSchedule.getScheduleId(),
-                createdSchedule.getTitle(),
-                createdSchedule.getPickupDate(),
-                createdSchedule.getPickupTime(),
-                createdSchedule.getLocationId(),
-                createdSchedule.getStatus(),
-                createdSchedule.getUserId(),
-                userEmail,
-                true,
-                "Schedule created successfully"
-            );
-            
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            ScheduleResponse response = new ScheduleResponse(false, "Error creating schedule: " + e.getMessage());
-            return ResponseEntity.badRequest().body(response);
-        }
+    public CompletableFuture<ResponseEntity<ScheduleResponse>> createSchedule(@RequestBody ScheduleRequest request) {
+        // Get the authenticated user ID from the security context
+        // (read it here, the security context is not propagated to the completion thread)
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userId = authentication.getName();
+        
+        // Create a new Schedule object from the request
+        Schedule schedule = new Schedule();
+        schedule.setTitle(request.getTitle());
+        schedule.setPickupDate(request.getPickupDate());
+        schedule.setPickupTime(request.getPickupTime());
+        schedule.setLocationId(request.getLocationId());
+        schedule.setStatus(request.getStatus());
+        schedule.setUserId(userId);
+        
+        // Save the schedule
+        return scheduleService.createScheduleAsync(schedule)
+                .thenCombine(scheduleService.getUserEmailAsync(userId), (createdSchedule, userEmail) -> {
+                    ScheduleResponse response = new ScheduleResponse(
+                        createdSchedule.getScheduleId(),
+                        createdSchedule.getTitle(),
+                        createdSchedule.getPickupDate(),
+                        createdSchedule.getPickupTime(),
+                        createdSchedule.getLocationId(),
+                        createdSchedule.getStatus(),
+                        createdSchedule.getUserId(),
+                        userEmail,
+                        true,
+                        "Schedule created successfully"
+                    );
+                    
+                    return ResponseEntity.ok(response);
+                }).exceptionally(e -> {
+                    ScheduleResponse response = new ScheduleResponse(false, "Error creating schedule: " + unwrap(e).getMessage());
+                    return ResponseEntity.badRequest().body(response);
+                });
     }
 
     /**
@@ -150,25 +179,24 @@ public class ScheduleController {
      * @return The updated schedule
      */
     @PutMapping("/{scheduleId}")
-    public ResponseEntity<ScheduleResponse> updateSchedule(
+    public CompletableFuture<ResponseEntity<ScheduleResponse>> updateSchedule(
             @PathVariable String scheduleId,
             @RequestBody ScheduleRequest request) {
-        try {
-            // Get the authenticated user ID from the security context
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String userId = authentication.getName();
-            
-            // Retrieve the existing schedule
-            Schedule existingSchedule = scheduleService.getScheduleById(scheduleId);
-            
-            if (existingSchedule == null) {
-                return ResponseEntity.notFound().build();
+        // Get the authenticated user ID from the security context
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userId = authentication.getName();
+        
+        // Retrieve the existing schedule with its version, so the write fails if it changes in between
+        return scheduleService.getVersionedScheduleByIdAsync(scheduleId).<ResponseEntity<ScheduleResponse>>thenCompose(versioned -> {
+            if (versioned == null) {
+                return CompletableFuture.completedFuture(ResponseEntity.<ScheduleResponse>notFound().build());
             }
+            Schedule existingSchedule = versioned.document();
             
             // Check if the authenticated user is the owner of the schedule
             if (!existingSchedule.getUserId().equals(userId)) {
                 ScheduleResponse response = new ScheduleResponse(false, "You are not authorized to update this schedule");
-                return ResponseEntity.status(403).body(response);
+                return CompletableFuture.completedFuture(ResponseEntity.status(403).body(response));
             }
             
             // Update the schedule with the new data
@@ -179,30 +207,36 @@ public class ScheduleController {
             existingSchedule.setStatus(request.getStatus());
             
             // Save the updated schedule
-            Schedule updatedSchedule = scheduleService.updateSchedule(scheduleId, existingSchedule);
-            String userEmail = scheduleService.getUserEmail(userId);
-            
-            ScheduleResponse response = new ScheduleResponse(
-                updatedSchedule.getScheduleId(),
-                updatedSchedule.getTitle(),
-                updatedSchedule.getPickupDate(),
-                updatedSchedule.getPickupTime(),
-                updatedSchedule.getLocationId(),
-                updatedSchedule.getStatus(),
-                updatedSchedule.getUserId(),
-                userEmail,
-                true,
-                "Schedule updated successfully"
-            );
-            
-            return ResponseEntity.ok(response);
-        } catch (IllegalArgumentException e) {
-            ScheduleResponse response = new ScheduleResponse(false, e.getMessage());
-            return ResponseEntity.badRequest().body(response);
-        } catch (Exception e) {
-            ScheduleResponse response = new ScheduleResponse(false, "Error updating schedule: " + e.getMessage());
+            return scheduleService.updateScheduleAsync(scheduleId, existingSchedule, versioned.version())
+                    .thenCombine(scheduleService.getUserEmailAsync(userId), (updatedSchedule, userEmail) -> {
+                        ScheduleResponse response = new ScheduleResponse(
+                            updatedSchedule.getScheduleId(),
+                            updatedSchedule.getTitle(),
+                            updatedSchedule.getPickupDate(),
+                            updatedSchedule.getPickupTime(),
+                            updatedSchedule.getLocationId(),
+                            updatedSchedule.getStatus(),
+                            updatedSchedule.getUserId(),
+                            userEmail,
+                            true,
+                            "Schedule updated successfully"
+                        );
+                        
+                        return ResponseEntity.ok(response);
+                    });
+        }).exceptionally(e -> {
+            Throwable cause = unwrap(e);
+            if (cause instanceof DocumentConflictException) {
+                ScheduleResponse response = new ScheduleResponse(false, "Schedule was changed by someone else, reload and try again");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            if (cause instanceof IllegalArgumentException) {
+                ScheduleResponse response = new ScheduleResponse(false, cause.getMessage());
+                return ResponseEntity.badRequest().body(response);
+            }
+            ScheduleResponse response = new ScheduleResponse(false, "Error updating schedule: " + cause.getMessage());
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -212,54 +246,56 @@ public class ScheduleController {
      * @return Success message
      */
     @DeleteMapping("/{scheduleId}")
-    public ResponseEntity<Map<String, Object>> deleteSchedule(@PathVariable String scheduleId) {
-        try {
-            // Get the authenticated user ID from the security context
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String userId = authentication.getName();
-            
-            // Retrieve the existing schedule
-            Schedule existingSchedule = scheduleService.getScheduleById(scheduleId);
-            
-            if (existingSchedule == null) {
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> deleteSchedule(@PathVariable String scheduleId) {
+        // Get the authenticated user ID from the security context
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userId = authentication.getName();
+        
+        // Retrieve the existing schedule with its version, so the delete fails if it changes in between
+        return scheduleService.getVersionedScheduleByIdAsync(scheduleId).thenCompose(versioned -> {
+            if (versioned == null) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", false);
                 response.put("message", "Schedule not found");
-                return ResponseEntity.status(404).body(response);
+                return CompletableFuture.completedFuture(ResponseEntity.status(404).body(response));
             }
             
             // Check if the authenticated user is the owner of the schedule
-            if (!existingSchedule.getUserId().equals(userId)) {
+            if (!versioned.document().getUserId().equals(userId)) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("success", false);
                 response.put("message", "You are not authorized to delete this schedule");
-                return ResponseEntity.status(403).body(response);
+                return CompletableFuture.completedFuture(ResponseEntity.status(403).body(response));
             }
             
             // Delete the schedule
-            boolean deleted = scheduleService.deleteSchedule(scheduleId);
-            
-            Map<String, Object> responseMap = new HashMap<>();
-            if (deleted) {
-                responseMap.put("success", true);
-                responseMap.put("message", "Schedule deleted successfully");
-                return ResponseEntity.ok(responseMap);
-            } else {
-                responseMap.put("success", false);
-                responseMap.put("message", "Failed to delete schedule");
-                return ResponseEntity.badRequest().body(responseMap);
-            }
-        } catch (IllegalArgumentException e) {
+            return scheduleService.deleteScheduleAsync(scheduleId, versioned.version()).thenApply(deleted -> {
+                Map<String, Object> responseMap = new HashMap<>();
+                if (deleted) {
+                    responseMap.put("success", true);
+                    responseMap.put("message", "Schedule deleted successfully");
+                    return ResponseEntity.ok(responseMap);
+                } else {
+                    responseMap.put("success", false);
+                    responseMap.put("message", "Failed to delete schedule");
+                    return ResponseEntity.badRequest().body(responseMap);
+                }
+            });
+        }).exceptionally(e -> {
+            Throwable cause = unwrap(e);
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
-            response.put("message", e.getMessage());
-            return ResponseEntity.badRequest().body(response);
-        } catch (Exception e) {
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "Error deleting schedule: " + e.getMessage());
+            if (cause instanceof DocumentConflictException) {
+                response.put("message", "Schedule was changed by someone else, reload and try again");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            if (cause instanceof IllegalArgumentException) {
+                response.put("message", cause.getMessage());
+            } else {
+                response.put("message", "Error deleting schedule: " + cause.getMessage());
+            }
             return ResponseEntity.badRequest().body(response);
-        }
+        });
     }
 
     /**
@@ -268,18 +304,65 @@ public class ScheduleController {
      * @return List of schedules for the user
      */
     @GetMapping("/user")
-    public ResponseEntity<List<ScheduleResponse>> getSchedulesForUser() {
-        try {
-            // Get the authenticated user ID from the security context
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String userId = authentication.getName();
-            
-            List<Schedule> schedules = scheduleService.getSchedulesByUserId(userId);
+    public CompletableFuture<ResponseEntity<List<ScheduleResponse>>> getSchedulesForUser() {
+        // Get the authenticated user ID from the security context
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userId = authentication.getName();
+        
+        return scheduleService.getSchedulesByUserIdAsync(userId)
+                .thenCombine(scheduleService.getUserEmailAsync(userId), (schedules, userEmail) -> {
+                    List<ScheduleResponse> responseList = new ArrayList<>();
+                    
+                    for (Schedule schedule : schedules) {
+                        ScheduleResponse response = new ScheduleResponse(
+                            schedule.getScheduleId(),
+                            schedule.getTitle(),
+                            schedule.getPickupDate(),
+                            schedule.getPickupTime(),
+                            schedule.getLocationId(),
+                            schedule.getStatus(),
+                            schedule.getUserId(),
+                            userEmail,
+                            true,
+                            null
+                        );
+                        
+                        responseList.add(response);
+                    }
+                    
+                    return ResponseEntity.ok(responseList);
+                }).exceptionally(e -> ResponseEntity.status(500).body(null));
+    }
+
+    /**
+     * Build the response for one page of schedules, resolving owner emails in one batched lookup
+     */
+    private CompletableFuture<ResponseEntity<List<ScheduleResponse>>> pageResponse(Page<Schedule> page,
+                                                                                  ConditionalGet conditional) {
+        List<Schedule> schedules = page.items();
+        
+        // Resolve all owner emails in one batched lookup instead of one read per row
+        Set<String> userIds = new HashSet<>();
+        for (Schedule schedule : schedules) {
+            userIds.add(schedule.getUserId());
+        }
+        
+        return scheduleService.getUserEmailsAsync(userIds).thenApply(userEmails -> {
+            // Hash the values the body is built from; a match only saves building and sending it
+            ConditionalGet.Tag tag = ConditionalGet.tag().add(page.nextPageToken());
+            for (Schedule schedule : schedules) {
+                addTo(tag, schedule, userEmails.get(schedule.getUserId()));
+            }
+            String etag = tag.build();
+            if (conditional.isNotModified(etag, null)) {
+                return conditional.<List<ScheduleResponse>>notModified(etag, null);
+            }
+
             List<ScheduleResponse> responseList = new ArrayList<>();
             
-            String userEmail = scheduleService.getUserEmail(userId);
-            
             for (Schedule schedule : schedules) {
+                String userEmail = userEmails.get(schedule.getUserId());
+                
                 ScheduleResponse response = new ScheduleResponse(
                     schedule.getScheduleId(),
                     schedule.getTitle(),
@@ -296,9 +379,25 @@ public class ScheduleController {
                 responseList.add(response);
             }
             
-            return ResponseEntity.ok(responseList);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).body(null);
-        }
+            HttpHeaders headers = PageHeaders.of(page);
+            headers.addAll(ConditionalGet.headers(etag, null));
+            return ResponseEntity.ok().headers(headers).body(responseList);
+        });
+    }
+
+    /**
+     * Add every value a ScheduleResponse is built from to an entity tag
+     */
+    private static ConditionalGet.Tag addTo(ConditionalGet.Tag tag, Schedule schedule, String userEmail) {
+        return tag.addAll(schedule.getScheduleId(), schedule.getTitle(), schedule.getPickupDate(),
+                schedule.getPickupTime(), schedule.getLocationId(), schedule.getStatus(),
+                schedule.getUserId(), userEmail);
+    }
+
+    /**
+     * Strip the CompletionException wrapper added when a stage fails
+     */
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package com.g4.gms.controller;
+
+import com.g4.gms.service.TimelineService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/timeline")
+public class TimelineController {
+
+    @Autowired
+    private TimelineService timelineService;
+
+    /**
+     * Get the authenticated user's schedules, missed-pickup reports, reminders and collection
+     * history as one time-ordered feed, read concurrently in a single request
+     * Requires JWT authentication
+     * @return The entries, and the sources left out because they could not be read in time
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getTimeline() {
+        // Read the user here, the security context is not propagated to the completion thread
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userId = authentication.getName();
+
+        return timelineService.getTimelineAsync(userId).thenApply(timeline -> ResponseEntity.ok(Map.of(
+                "entries", timeline.entries(),
+                "unavailable", timeline.unavailable()
+        )));
+    }
+}
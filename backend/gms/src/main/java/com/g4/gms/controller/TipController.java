@@ -3,15 +3,20 @@ package com.g4.gms.controller;
 import com.g4.gms.dto.TipRequest;
 import com.g4.gms.model.Tip;
 import com.g4.gms.service.TipService;
+import com.g4.gms.repository.Page;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -23,16 +28,41 @@ public class TipController {
 
     /**
      * Get all tips (public endpoint)
-     * @return List of tips
+     * @param limit Maximum number of tips to return (capped server-side)
+     * @param pageToken Token from the X-Next-Page-Token header of the previous page
+     * @param webRequest The current request, for If-None-Match
+     * @return One page of tips, or 304 if the client's copy is current
      */
     @GetMapping
-    public ResponseEntity<?> getAllTips() {
+    public ResponseEntity<?> getAllTips(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String pageToken,
+            WebRequest webRequest) {
         try {
-            List<Tip> tipList = tipService.getAllTips();
+            ConditionalGet conditional = ConditionalGet.of(webRequest);
+            Page<Tip> page = tipService.getTipsPage(limit, pageToken);
+            List<Tip> tipList = page.items();
+            
+            // Resolve all author emails in one batched lookup instead of one read per row
+            Set<String> userIds = new HashSet<>();
+            for (Tip tip : tipList) {
+                userIds.add(tip.getUserId());
+            }
+            Map<String, String> userEmails = tipService.getUserEmailsByIds(userIds);
+            
+            // Hash the values the body is built from; a match only saves building and sending it
+            ConditionalGet.Tag tag = ConditionalGet.tag().add(page.nextPageToken());
+            for (Tip tip : tipList) {
+                addTo(tag, tip, userEmails.get(tip.getUserId()));
+            }
+            String etag = tag.build();
+            if (conditional.isNotModified(etag, null)) {
+                return conditional.notModified(etag, null);
+            }
             
             List<Map<String, Object>> responseList = new ArrayList<>();
             for (Tip tip : tipList) {
-                String userEmail = tipService.getUserEmailById(tip.getUserId());
+                String userEmail = userEmails.get(tip.getUserId());
                 
                 // Create response including all fields
                 Map<String, Object> response = Map.of(
@@ -51,7 +81,11 @@ public class TipController {
                 responseList.add(response);
             }
             
-            return ResponseEntity.ok(responseList);
+            HttpHeaders headers = PageHeaders.of(page);
+            headers.addAll(ConditionalGet.headers(etag, null));
+            return ResponseEntity.ok().headers(headers).body(responseList);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("message", "Error retrieving tips: " + e.getMessage()));
         }
@@ -60,11 +94,13 @@ public class TipController {
     /**
      * Get a specific tip by ID (public endpoint)
      * @param tipId Tip ID
-     * @return Tip entry
+     * @param webRequest The current request, for If-None-Match / If-Modified-Since
+     * @return Tip entry, or 304 if the client's copy is current
      */
     @GetMapping("/{tipId}")
-    public ResponseEntity<?> getTipById(@PathVariable String tipId) {
+    public ResponseEntity<?> getTipById(@PathVariable String tipId, WebRequest webRequest) {
         try {
+            ConditionalGet conditional = ConditionalGet.of(webRequest);
             Tip tip = tipService.getTipById(tipId);
             
             if (tip == null) {
@@ -72,6 +108,11 @@ public class TipController {
             }
             
             String userEmail = tipService.getUserEmailById(tip.getUserId());
+            String etag = addTo(ConditionalGet.tag(), tip, userEmail).build();
+            Long lastModified = lastModified(tip.getUpdatedAt(), tip.getCreatedAt());
+            if (conditional.isNotModified(etag, lastModified)) {
+                return conditional.notModified(etag, lastModified);
+            }
             
             // Create response including all fields
             Map<String, Object> response = Map.of(
@@ -87,7 +128,7 @@ public class TipController {
                 "message", "Tip retrieved successfully"
             );
             
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok().headers(ConditionalGet.headers(etag, lastModified)).body(response);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("message", "Error retrieving tip: " + e.getMessage()));
         }
@@ -143,42 +184,28 @@ public class TipController {
             @PathVariable String tipId,
             @RequestBody TipRequest request) {
         try {
-            // Get the authenticated user's ID
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String userId = authentication.getName();
-            
-            // Fetch existing tip to check ownership
-            Tip existingTip = tipService.getTipById(tipId);
-            if (existingTip == null) {
-                return ResponseEntity.notFound().build();
-            }
-            
-            // Update the tip fields
+            // Update the tip fields; its author and creation time stay as stored
             Tip updatedTip = new Tip();
             updatedTip.setTipId(tipId);
             updatedTip.setTitle(request.getTitle());
             updatedTip.setDescription(request.getDescription());
             updatedTip.setStatus(request.getStatus());
-            updatedTip.setUserId(existingTip.getUserId()); // Preserve original user ID
             
             Tip savedTip = tipService.updateTip(tipId, updatedTip);
-            String userEmail = tipService.getUserEmailById(savedTip.getUserId());
+            if (savedTip == null) {
+                return ResponseEntity.notFound().build();
+            }
             
-            // Create response including all fields
+            // Create response; the author and creation time were not read, so they are not included
             return ResponseEntity.ok(Map.of(
                 "tipId", savedTip.getTipId(),
                 "title", savedTip.getTitle(),
                 "description", savedTip.getDescription(),
                 "status", savedTip.getStatus(),
-                "userId", savedTip.getUserId(),
-                "userEmail", userEmail != null ? userEmail : "",
-                "createdAt", formatTimestamp(savedTip.getCreatedAt()),
                 "updatedAt", formatTimestamp(savedTip.getUpdatedAt()),
                 "success", true,
                 "message", "Tip updated successfully"
             ));
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("message", "Error updating tip: " + e.getMessage()));
         }
@@ -192,30 +219,31 @@ public class TipController {
     @DeleteMapping("/{tipId}")
     public ResponseEntity<?> deleteTip(@PathVariable String tipId) {
         try {
-            // Get the authenticated user's ID
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String userId = authentication.getName();
-            
-            // Fetch existing tip to check ownership
-            Tip existingTip = tipService.getTipById(tipId);
-            if (existingTip == null) {
+            if (!tipService.deleteTip(tipId)) {
                 return ResponseEntity.notFound().build();
             }
-            
-            boolean deleted = tipService.deleteTip(tipId);
-            
-            if (deleted) {
-                return ResponseEntity.ok(Map.of("message", "Tip deleted successfully"));
-            } else {
-                return ResponseEntity.status(500).body(Map.of("message", "Failed to delete tip"));
-            }
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            return ResponseEntity.ok(Map.of("message", "Tip deleted successfully"));
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("message", "Error deleting tip: " + e.getMessage()));
         }
     }
     
+    /**
+     * Add every value a tip response is built from to an entity tag
+     */
+    private static ConditionalGet.Tag addTo(ConditionalGet.Tag tag, Tip tip, String userEmail) {
+        return tag.addAll(tip.getTipId(), tip.getTitle(), tip.getDescription(), tip.getStatus(),
+                tip.getUserId(), userEmail, tip.getCreatedAt(), tip.getUpdatedAt());
+    }
+
+    /**
+     * Last-Modified for a document: its update time, else its creation time
+     */
+    private static Long lastModified(com.google.cloud.Timestamp updatedAt, com.google.cloud.Timestamp createdAt) {
+        com.google.cloud.Timestamp timestamp = updatedAt != null ? updatedAt : createdAt;
+        return timestamp != null ? timestamp.toDate().getTime() : null;
+    }
+
     /**
      * Helper method to format timestamp
      */
@@ -2,12 +2,16 @@ package com.g4.gms.controller;
 
 import com.g4.gms.dto.EmailRequest;
 import com.g4.gms.dto.EmailResponse;
+import com.g4.gms.dto.PasswordChangeRequest;
 import com.g4.gms.dto.ProfileRequest;
 import com.g4.gms.dto.ProfileResponse;
 import com.g4.gms.dto.UpdateNotificationSettingsDto;
 import com.g4.gms.model.User;
+import com.g4.gms.security.PasswordHashingRejectedException;
 import com.g4.gms.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -137,6 +141,31 @@ public class UserController {
         }
     }
 
+    /**
+     * Change the user's password
+     * @param userId User ID
+     * @param request PasswordChangeRequest containing the current and new password
+     * @return ResponseEntity indicating success or failure
+     */
+    @PutMapping("/{userId}/profile/password")
+    public ResponseEntity<?> changePassword(
+            @PathVariable String userId,
+            @RequestBody PasswordChangeRequest request) {
+        try {
+            userService.changePassword(userId, request.getCurrentPassword(), request.getNewPassword());
+            return ResponseEntity.ok().body(Map.of("message", "Password changed successfully"));
+        } catch (PasswordHashingRejectedException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            // User not found or current password is wrong
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("message", "Error changing password: " + e.getMessage()));
+        }
+    }
+
     /**
      * Update user notification settings
      * @param userId User ID
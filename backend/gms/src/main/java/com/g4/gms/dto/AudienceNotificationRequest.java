@@ -0,0 +1,29 @@
+package com.g4.gms.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A notification for a set of users rather than raw device tokens.
+ * Exactly one of userIds, location or role selects the audience.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudienceNotificationRequest {
+    private List<String> userIds;
+
+    private String location;
+
+    private String role;
+
+    @NotBlank(message = "Title cannot be empty")
+    private String title;
+
+    @NotBlank(message = "Body cannot be empty")
+    private String body;
+}
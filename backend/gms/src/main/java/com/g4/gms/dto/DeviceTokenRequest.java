@@ -0,0 +1,17 @@
+package com.g4.gms.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeviceTokenRequest {
+    @NotBlank(message = "Token cannot be empty")
+    private String token;
+
+    // e.g. "android", "ios", "web"
+    private String platform;
+}
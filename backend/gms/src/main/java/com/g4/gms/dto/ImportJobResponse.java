@@ -0,0 +1,61 @@
+package com.g4.gms.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Status of a bulk import job, as returned by /api/admin/imports.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportJobResponse {
+
+    /**
+     * A row that was not imported; row numbers count data rows from 1, without the CSV header
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long row;
+        private String message;
+    }
+
+    private String jobId;
+
+    // "pickup-locations" or "schedules"
+    private String kind;
+
+    // "csv" or "json"
+    private String format;
+
+    // QUEUED, RUNNING, COMPLETED or FAILED
+    private String status;
+
+    private long rowsRead;
+
+    private long rowsWritten;
+
+    private long rowsFailed;
+
+    private List<RowError> errors;
+
+    // True when more rows failed than are listed in errors
+    private boolean errorsTruncated;
+
+    // Epoch milliseconds
+    private Long createdAt;
+
+    private Long startedAt;
+
+    private Long finishedAt;
+
+    // Why the whole job failed, e.g. a malformed payload
+    private String message;
+}
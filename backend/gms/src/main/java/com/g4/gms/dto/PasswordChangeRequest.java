@@ -0,0 +1,26 @@
+package com.g4.gms.dto;
+
+public class PasswordChangeRequest {
+    private String currentPassword;
+    private String newPassword;
+
+    // Default constructor
+    public PasswordChangeRequest() {}
+
+    // Getters and setters
+    public String getCurrentPassword() {
+        return currentPassword;
+    }
+
+    public void setCurrentPassword(String currentPassword) {
+        this.currentPassword = currentPassword;
+    }
+
+    public String getNewPassword() {
+        return newPassword;
+    }
+
+    public void setNewPassword(String newPassword) {
+        this.newPassword = newPassword;
+    }
+}
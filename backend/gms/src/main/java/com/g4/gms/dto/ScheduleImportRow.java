@@ -0,0 +1,31 @@
+package com.g4.gms.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One row of a schedule import. Unlike ScheduleRequest it names the user the
+ * pickup belongs to, since an admin imports schedules on behalf of residents.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScheduleImportRow {
+    @NotBlank(message = "Title cannot be blank")
+    private String title;
+
+    @NotBlank(message = "Pickup date cannot be blank")
+    private String pickupDate;
+
+    private String pickupTime;
+
+    @NotBlank(message = "Location ID cannot be blank")
+    private String locationId;
+
+    @NotBlank(message = "User ID cannot be blank")
+    private String userId;
+
+    private String status;
+}
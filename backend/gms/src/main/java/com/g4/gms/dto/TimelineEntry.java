@@ -0,0 +1,37 @@
+package com.g4.gms.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One item of a user's timeline: a schedule, missed-pickup report, reminder or history record.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TimelineEntry {
+    // "schedule", "missed", "reminder" or "history"
+    private String type;
+
+    // ID of the schedule, report, reminder or history record
+    private String id;
+
+    // When it happens or happened, in epoch milliseconds; null if its date could not be read
+    private Long at;
+
+    // The date as stored, for display
+    private String date;
+
+    private String title;
+
+    private String detail;
+
+    private String scheduleId;
+
+    private String locationId;
+
+    private String status;
+}
@@ -0,0 +1,80 @@
+package com.g4.gms.model;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.annotation.PropertyName;
+
+/**
+ * A device registered for push notifications. The document ID is the FCM token
+ * itself, so registering the same device twice touches one document and a device
+ * that changes hands moves to its new user.
+ */
+public class DeviceToken {
+    private String token;
+    private String userId;
+    private String platform;
+    private Timestamp createdAt;
+    // Epoch milliseconds of the last registration from the device; stale tokens are removed by range query
+    private Long lastSeenAt;
+
+    // Default constructor
+    public DeviceToken() {}
+
+    // Constructor with all fields
+    public DeviceToken(String token, String userId, String platform, Timestamp createdAt, Long lastSeenAt) {
+        this.token = token;
+        this.userId = userId;
+        this.platform = platform;
+        this.createdAt = createdAt;
+        this.lastSeenAt = lastSeenAt;
+    }
+
+    @PropertyName("token")
+    public String getToken() {
+        return token;
+    }
+
+    @PropertyName("token")
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    @PropertyName("userId")
+    public String getUserId() {
+        return userId;
+    }
+
+    @PropertyName("userId")
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    @PropertyName("platform")
+    public String getPlatform() {
+        return platform;
+    }
+
+    @PropertyName("platform")
+    public void setPlatform(String platform) {
+        this.platform = platform;
+    }
+
+    @PropertyName("createdAt")
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    @PropertyName("createdAt")
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @PropertyName("lastSeenAt")
+    public Long getLastSeenAt() {
+        return lastSeenAt;
+    }
+
+    @PropertyName("lastSeenAt")
+    public void setLastSeenAt(Long lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+}
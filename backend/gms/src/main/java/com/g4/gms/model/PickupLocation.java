@@ -13,6 +13,16 @@ public class PickupLocation {
     // Default constructor
     public PickupLocation() {}
 
+    // Copy constructor
+    public PickupLocation(PickupLocation other) {
+        this.locationId = other.locationId;
+        this.siteName = other.siteName;
+        this.wasteType = other.wasteType;
+        this.address = other.address;
+        this.latitude = other.latitude;
+        this.longitude = other.longitude;
+    }
+
     // Constructor with all fields
     public PickupLocation(String locationId, String siteName, String wasteType, String address, Double latitude, Double longitude) {
         this.locationId = locationId;
@@ -1,5 +1,6 @@
 package com.g4.gms.model;
 
+import com.google.cloud.Timestamp;
 import com.google.cloud.firestore.annotation.PropertyName;
 
 public class Reminder {
@@ -9,6 +10,13 @@ public class Reminder {
     private String reminderDate;
     private String userId;
     private String scheduleId;
+    // reminderDate resolved to epoch milliseconds, or null if it could not be parsed
+    private Long fireAt;
+    // Same as fireAt while the reminder waits to be delivered; cleared once it is handled,
+    // so a range query on this field finds exactly the reminders still to fire
+    private Long pendingFireAt;
+    private String deliveryStatus;
+    private Timestamp handledAt;
 
     // Default constructor
     public Reminder() {}
@@ -83,4 +91,44 @@ public class Reminder {
     public void setScheduleId(String scheduleId) {
         this.scheduleId = scheduleId;
     }
+
+    @PropertyName("fireAt")
+    public Long getFireAt() {
+        return fireAt;
+    }
+
+    @PropertyName("fireAt")
+    public void setFireAt(Long fireAt) {
+        this.fireAt = fireAt;
+    }
+
+    @PropertyName("pendingFireAt")
+    public Long getPendingFireAt() {
+        return pendingFireAt;
+    }
+
+    @PropertyName("pendingFireAt")
+    public void setPendingFireAt(Long pendingFireAt) {
+        this.pendingFireAt = pendingFireAt;
+    }
+
+    @PropertyName("deliveryStatus")
+    public String getDeliveryStatus() {
+        return deliveryStatus;
+    }
+
+    @PropertyName("deliveryStatus")
+    public void setDeliveryStatus(String deliveryStatus) {
+        this.deliveryStatus = deliveryStatus;
+    }
+
+    @PropertyName("handledAt")
+    public Timestamp getHandledAt() {
+        return handledAt;
+    }
+
+    @PropertyName("handledAt")
+    public void setHandledAt(Timestamp handledAt) {
+        this.handledAt = handledAt;
+    }
 } 
\ No newline at end of file
@@ -10,6 +10,9 @@ public class Schedule {
     private String locationId;
     private String status;
     private String userId;
+    // pickupDate and pickupTime resolved to epoch milliseconds, or null if they could not be parsed;
+    // range queries on this field answer "what is being picked up this week"
+    private Long pickupAt;
 
     // Default constructor
     public Schedule() {}
@@ -94,4 +97,14 @@ public class Schedule {
     public void setUserId(String userId) {
         this.userId = userId;
     }
+
+    @PropertyName("pickupAt")
+    public Long getPickupAt() {
+        return pickupAt;
+    }
+
+    @PropertyName("pickupAt")
+    public void setPickupAt(Long pickupAt) {
+        this.pickupAt = pickupAt;
+    }
 } 
\ No newline at end of file
@@ -15,6 +15,17 @@ public class Tip {
     // Default constructor
     public Tip() {}
 
+    // Copy constructor
+    public Tip(Tip other) {
+        this.tipId = other.tipId;
+        this.title = other.title;
+        this.description = other.description;
+        this.status = other.status;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+        this.userId = other.userId;
+    }
+
     // Constructor with fields
     public Tip(String tipId, String title, String description, String status, 
                    Timestamp createdAt, Timestamp updatedAt, String userId) {
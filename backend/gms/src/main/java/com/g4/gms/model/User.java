@@ -19,6 +19,21 @@ public class User {
     // Default constructor
     public User() {}
 
+    // Copy constructor
+    public User(User other) {
+        this.userId = other.userId;
+        this.username = other.username;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.email = other.email;
+        this.password = other.password;
+        this.role = other.role;
+        this.createdAt = other.createdAt;
+        this.location = other.location;
+        this.phoneNumber = other.phoneNumber;
+        this.notificationsEnabled = other.notificationsEnabled;
+    }
+
     // Explicit PropertyName annotations to ensure correct field mapping
     @PropertyName("userId")
     public String getUserId() {
@@ -0,0 +1,38 @@
+package com.g4.gms.repository;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bridges Google ApiFutures to CompletableFuture through a completion
+ * callback, so no thread waits on get().
+ */
+public final class ApiFutureAdapter {
+
+    private ApiFutureAdapter() {}
+
+    /**
+     * Adapt an ApiFuture
+     * @param apiFuture The future returned by a Firestore call
+     * @return A CompletableFuture completed with the same value or failure
+     */
+    public static <V> CompletableFuture<V> toCompletableFuture(ApiFuture<V> apiFuture) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<V>() {
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onSuccess(V result) {
+                future.complete(result);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+}
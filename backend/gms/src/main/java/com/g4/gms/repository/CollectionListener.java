@@ -0,0 +1,29 @@
+package com.g4.gms.repository;
+
+import com.google.cloud.Timestamp;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Receives the changes to a collection watched with {@link DocumentRepository#watch}.
+ * Callbacks for one registration are never delivered concurrently.
+ * @param <T> The model class stored in the collection
+ */
+public interface CollectionListener<T> {
+
+    /**
+     * Apply one set of changes
+     * @param upserts Documents added or modified, keyed by document ID
+     * @param removedIds IDs of documents deleted
+     * @param readTime The store's time for the state these changes bring the collection to
+     * @param initial true for the first call of a registration, which carries every document
+     */
+    void onChanges(Map<String, T> upserts, Set<String> removedIds, Timestamp readTime, boolean initial);
+
+    /**
+     * The registration has failed and will deliver no further changes
+     * @param error The cause
+     */
+    void onError(Throwable error);
+}
@@ -0,0 +1,70 @@
+package com.g4.gms.repository;
+
+import com.g4.gms.config.ReplicaProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.UnaryOperator;
+
+/**
+ * Owns the in-memory replicas of read-mostly collections: wraps a repository in a
+ * {@link ReplicatedDocumentRepository}, attaches its listener, and re-attaches any
+ * listener that has failed every app.replica.reconnect-interval-ms. Each replica's
+ * meters are registered as it is created.
+ */
+@Component
+public class CollectionReplicas {
+
+    private final ReplicaProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<ReplicatedDocumentRepository<?>> replicas = new CopyOnWriteArrayList<>();
+    // Merges field updates into replicated documents
+    private final DocumentMapper mapper = new DocumentMapper();
+
+    public CollectionReplicas(ReplicaProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Serve a collection's reads from a live in-memory copy
+     * @param collectionName The collection name (for logs and meter tags)
+     * @param repository The repository to replicate
+     * @param copier Makes an independent copy of a model
+     * @return The replicated repository, or the given repository if replicas are disabled
+     */
+    public <T> DocumentRepository<T> replicate(String collectionName, DocumentRepository<T> repository,
+                                               UnaryOperator<T> copier) {
+        if (!properties.getEnabled()) {
+            return repository;
+        }
+        ReplicatedDocumentRepository<T> replica =
+                new ReplicatedDocumentRepository<>(collectionName, repository, copier, mapper);
+        replicas.add(replica);
+        replica.bindTo(meterRegistry);
+        replica.reconnect();
+        return replica;
+    }
+
+    /**
+     * Re-attach the listener of every replica that has lost it
+     */
+    @Scheduled(fixedDelayString = "${app.replica.reconnect-interval-ms:30000}",
+            initialDelayString = "${app.replica.reconnect-interval-ms:30000}")
+    public void reconnectFailed() {
+        for (ReplicatedDocumentRepository<?> replica : replicas) {
+            replica.reconnect();
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        for (ReplicatedDocumentRepository<?> replica : replicas) {
+            replica.close();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.g4.gms.repository;
+
+/**
+ * Identifies one state of a whole collection, for HTTP validators.
+ * @param tag Changes whenever any document in the collection changes
+ * @param lastModifiedMillis When this state was reached, in epoch milliseconds
+ */
+public record CollectionVersion(String tag, long lastModifiedMillis) {
+}
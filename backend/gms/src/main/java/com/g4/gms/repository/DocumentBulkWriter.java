@@ -0,0 +1,29 @@
+package com.g4.gms.repository;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Writer for many independent writes to one collection, opened with
+ * {@link DocumentRepository#openBulkWriter}. Writes are batched and sent in
+ * parallel, throttled from an initial rate upwards, and retried by the store
+ * where it can; each write still succeeds or fails on its own.
+ * @param <T> The model class stored in the collection
+ */
+public interface DocumentBulkWriter<T> extends AutoCloseable {
+
+    /**
+     * Queue a create-or-overwrite of a document
+     * @param id The document ID
+     * @param entity The model to store
+     * @return Future that completes once this write is durable, or fails if it was rejected
+     */
+    CompletableFuture<Void> save(String id, T entity);
+
+    /**
+     * Send everything queued and wait until every write has succeeded or failed.
+     * The writer cannot be used afterwards.
+     */
+    @Override
+    void close() throws ExecutionException, InterruptedException;
+}
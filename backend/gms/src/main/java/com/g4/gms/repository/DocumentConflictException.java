@@ -0,0 +1,12 @@
+package com.g4.gms.repository;
+
+/**
+ * Thrown by a write made against an expected version when the document has
+ * changed (or been deleted) since that version was read.
+ */
+public class DocumentConflictException extends RuntimeException {
+
+    public DocumentConflictException(String id) {
+        super("Document " + id + " changed since it was read");
+    }
+}
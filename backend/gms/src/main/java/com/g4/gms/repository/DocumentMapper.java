@@ -0,0 +1,83 @@
+package com.g4.gms.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.cloud.Timestamp;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts models to and from plain field maps, the same shape Firestore
+ * stores. Timestamps pass through untouched rather than being flattened.
+ */
+public class DocumentMapper {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private final ObjectMapper objectMapper;
+
+    public DocumentMapper() {
+        SimpleModule timestampModule = new SimpleModule("FirestoreTimestamp");
+        timestampModule.addSerializer(Timestamp.class, new JsonSerializer<>() {
+            @Override
+            public void serialize(Timestamp value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+                gen.writeEmbeddedObject(value);
+            }
+        });
+        timestampModule.addDeserializer(Timestamp.class, new JsonDeserializer<>() {
+            @Override
+            public Timestamp deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+                if (p.currentToken() == JsonToken.VALUE_EMBEDDED_OBJECT && p.getEmbeddedObject() instanceof Timestamp) {
+                    return (Timestamp) p.getEmbeddedObject();
+                }
+                return Timestamp.parseTimestamp(p.getValueAsString());
+            }
+        });
+
+        this.objectMapper = new ObjectMapper()
+                .registerModule(timestampModule)
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /**
+     * Convert a model to its field map
+     * @param entity The model
+     * @return A new mutable map of field name to value
+     */
+    public Map<String, Object> toMap(Object entity) {
+        return objectMapper.convertValue(entity, MAP_TYPE);
+    }
+
+    /**
+     * Convert a model to its field map, leaving out the given fields
+     * @param entity The model
+     * @param excludedFields Field names to leave out
+     * @return A new mutable map of field name to value
+     */
+    public Map<String, Object> toMap(Object entity, Set<String> excludedFields) {
+        Map<String, Object> fields = toMap(entity);
+        fields.keySet().removeAll(excludedFields);
+        return fields;
+    }
+
+    /**
+     * Convert a field map back to a model
+     * @param fields Map of field name to value
+     * @param type The model class
+     * @return A new model instance
+     */
+    public <T> T toEntity(Map<String, Object> fields, Class<T> type) {
+        return objectMapper.convertValue(fields, type);
+    }
+}
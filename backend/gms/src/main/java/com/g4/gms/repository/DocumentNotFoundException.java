@@ -0,0 +1,11 @@
+package com.g4.gms.repository;
+
+/**
+ * Thrown by a write that requires its document to exist when it does not.
+ */
+public class DocumentNotFoundException extends RuntimeException {
+
+    public DocumentNotFoundException(String id) {
+        super("No document to write: " + id);
+    }
+}
@@ -0,0 +1,326 @@
+package com.g4.gms.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Document-level access to a single collection. Services go through this
+ * instead of talking to Firestore directly so the backing store can be
+ * swapped (see the "inmemory" profile).
+ * @param <T> The model class stored in the collection
+ */
+public interface DocumentRepository<T> {
+
+    /**
+     * Generate a new, unused document ID
+     * @return The document ID
+     */
+    String newId();
+
+    /**
+     * Get a document by ID
+     * @param id The document ID
+     * @return The mapped model, or null if the document does not exist
+     */
+    T findById(String id) throws ExecutionException, InterruptedException;
+
+    /**
+     * Get a document by ID together with its version, for a later conditional write
+     * @param id The document ID
+     * @return The model and its version, or null if the document does not exist
+     */
+    Versioned<T> findVersionedById(String id) throws ExecutionException, InterruptedException;
+
+    /**
+     * Get several documents by ID in as few round trips as the store allows
+     * @param ids The document IDs
+     * @return Map of document ID to model, containing only documents that exist
+     */
+    Map<String, T> findAllById(Collection<String> ids) throws ExecutionException, InterruptedException;
+
+    /**
+     * Get every document in the collection
+     * @return List of mapped models
+     */
+    List<T> findAll() throws ExecutionException, InterruptedException;
+
+    /**
+     * Get one page of the collection, ordered by document ID
+     * @param limit Maximum number of documents on the page
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return The page and the token for the next one
+     * @throws IllegalArgumentException if the page token is malformed
+     */
+    Page<T> findPage(int limit, String pageToken) throws ExecutionException, InterruptedException;
+
+    /**
+     * Get one page of the documents whose numeric field lies in [fromInclusive, toExclusive),
+     * ordered by that field and then by document ID. Documents without the field (or with
+     * null in it) never match.
+     * @param field The field name (an indexed integer field, e.g. epoch milliseconds)
+     * @param fromInclusive Lower bound
+     * @param toExclusive Upper bound
+     * @param limit Maximum number of documents on the page
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return The page and the token for the next one
+     * @throws IllegalArgumentException if the page token is malformed
+     */
+    Page<T> findPageByRange(String field, long fromInclusive, long toExclusive, int limit, String pageToken)
+            throws ExecutionException, InterruptedException;
+
+    /**
+     * Get the documents whose field equals the given value
+     * @param field The field name
+     * @param value The value to match
+     * @return List of mapped models
+     */
+    List<T> findByField(String field, Object value) throws ExecutionException, InterruptedException;
+
+    /**
+     * Get the first document whose field equals the given value
+     * @param field The field name
+     * @param value The value to match
+     * @return The mapped model, or null if nothing matches
+     */
+    T findFirstByField(String field, Object value) throws ExecutionException, InterruptedException;
+
+    /**
+     * Create or overwrite a document
+     * @param id The document ID
+     * @param entity The model to store
+     */
+    void save(String id, T entity) throws ExecutionException, InterruptedException;
+
+    /**
+     * Merge the model's fields into a document, creating it if needed
+     * @param id The document ID
+     * @param entity The model whose fields are merged
+     */
+    void merge(String id, T entity) throws ExecutionException, InterruptedException;
+
+    /**
+     * Update individual fields of an existing document
+     * @param id The document ID
+     * @param fields Map of field name to new value
+     */
+    void update(String id, Map<String, Object> fields) throws ExecutionException, InterruptedException;
+
+    /**
+     * Delete a document (no-op if it does not exist)
+     * @param id The document ID
+     */
+    void delete(String id) throws ExecutionException, InterruptedException;
+
+    // Conditional writes: each is a single round trip carrying a precondition, instead of
+    // a read followed by a write, so a concurrent delete or edit cannot slip in between.
+    // expectedVersion is a version from findVersionedById, or null to only require that
+    // the document exists.
+
+    /**
+     * Overwrite an existing document
+     * @param id The document ID
+     * @param entity The model to store
+     * @param expectedVersion Version the document must still have, or null for any
+     * @throws DocumentNotFoundException if the document does not exist
+     * @throws DocumentConflictException if the document no longer has expectedVersion
+     */
+    void replace(String id, T entity, Long expectedVersion) throws ExecutionException, InterruptedException;
+
+    /**
+     * Update individual fields of an existing document, leaving the others as they are
+     * @param id The document ID
+     * @param fields Map of field name to new value
+     * @param expectedVersion Version the document must still have, or null for any
+     * @throws DocumentNotFoundException if the document does not exist
+     * @throws DocumentConflictException if the document no longer has expectedVersion
+     */
+    void update(String id, Map<String, Object> fields, Long expectedVersion)
+            throws ExecutionException, InterruptedException;
+
+    /**
+     * Write every field of the model to an existing document except the kept ones, which
+     * stay as stored. The fields are mapped from the model, so a field added to it is
+     * written without being listed anywhere.
+     * @param id The document ID
+     * @param entity The model whose fields are written
+     * @param keptFields Fields left as stored, e.g. the creation time
+     * @param expectedVersion Version the document must still have, or null for any
+     * @throws DocumentNotFoundException if the document does not exist
+     * @throws DocumentConflictException if the document no longer has expectedVersion
+     */
+    void update(String id, T entity, Set<String> keptFields, Long expectedVersion)
+            throws ExecutionException, InterruptedException;
+
+    /**
+     * Delete an existing document
+     * @param id The document ID
+     * @param expectedVersion Version the document must still have, or null for any
+     * @throws DocumentNotFoundException if the document does not exist
+     * @throws DocumentConflictException if the document no longer has expectedVersion
+     */
+    void deleteExisting(String id, Long expectedVersion) throws ExecutionException, InterruptedException;
+
+    /**
+     * Listen to every document in the collection. The listener first receives the
+     * whole collection as one initial change set, then one change set per later change,
+     * until the handle is removed or the listener is told of an error.
+     * @param listener Receives change sets and errors
+     * @return Handle that detaches the listener
+     */
+    ListenerHandle watch(CollectionListener<T> listener);
+
+    /**
+     * The current version of the whole collection, if this repository can tell without a read
+     * @return The version, or null if unknown
+     */
+    default CollectionVersion currentVersion() {
+        return null;
+    }
+
+    // Non-blocking variants: the returned future completes when the store answers,
+    // so the calling thread is never parked waiting on the network.
+
+    /**
+     * Get a document by ID without blocking
+     * @param id The document ID
+     * @return Future of the mapped model, or of null if the document does not exist
+     */
+    CompletableFuture<T> findByIdAsync(String id);
+
+    /**
+     * Get a document by ID together with its version without blocking
+     * @param id The document ID
+     * @return Future of the model and its version, or of null if the document does not exist
+     */
+    CompletableFuture<Versioned<T>> findVersionedByIdAsync(String id);
+
+    /**
+     * Get several documents by ID without blocking
+     * @param ids The document IDs
+     * @return Future of a map of document ID to model, containing only documents that exist
+     */
+    CompletableFuture<Map<String, T>> findAllByIdAsync(Collection<String> ids);
+
+    /**
+     * Get every document in the collection without blocking
+     * @return Future of the mapped models
+     */
+    CompletableFuture<List<T>> findAllAsync();
+
+    /**
+     * Get one page of the collection, ordered by document ID, without blocking
+     * @param limit Maximum number of documents on the page
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return Future of the page; fails with IllegalArgumentException if the page token is malformed
+     */
+    CompletableFuture<Page<T>> findPageAsync(int limit, String pageToken);
+
+    /**
+     * Get one page of the documents whose numeric field lies in [fromInclusive, toExclusive) and whose
+     * other fields equal the given values, ordered by the numeric field and then by document ID,
+     * without blocking. On Firestore every combination of equality fields used needs a composite
+     * index (equality fields, then the range field), see firestore.indexes.json.
+     * @param field The range field name (an indexed integer field, e.g. epoch milliseconds)
+     * @param fromInclusive Lower bound
+     * @param toExclusive Upper bound
+     * @param equalTo Map of field name to required value; empty for none
+     * @param limit Maximum number of documents on the page
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return Future of the page; fails with IllegalArgumentException if the page token is malformed
+     */
+    CompletableFuture<Page<T>> findPageByRangeAsync(String field, long fromInclusive, long toExclusive,
+                                                    Map<String, Object> equalTo, int limit, String pageToken);
+
+    /**
+     * Get one page of the documents whose field equals the given value, ordered by document ID,
+     * without blocking
+     * @param field The field name
+     * @param value The value to match
+     * @param limit Maximum number of documents on the page
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return Future of the page; fails with IllegalArgumentException if the page token is malformed
+     */
+    CompletableFuture<Page<T>> findPageByFieldAsync(String field, Object value, int limit, String pageToken);
+
+    /**
+     * Get the documents whose field equals any of the given values without blocking
+     * @param field The field name
+     * @param values The values to match (duplicates are ignored)
+     * @return Future of the mapped models
+     */
+    CompletableFuture<List<T>> findByFieldInAsync(String field, Collection<?> values);
+
+    /**
+     * Get the documents whose field equals the given value without blocking
+     * @param field The field name
+     * @param value The value to match
+     * @return Future of the mapped models
+     */
+    CompletableFuture<List<T>> findByFieldAsync(String field, Object value);
+
+    /**
+     * Create or overwrite a document without blocking
+     * @param id The document ID
+     * @param entity The model to store
+     * @return Future that completes once the write is durable
+     */
+    CompletableFuture<Void> saveAsync(String id, T entity);
+
+    /**
+     * Set individual fields of an existing document without blocking
+     * @param id The document ID
+     * @param fields Map of field name to new value
+     * @return Future that completes once the write is durable; fails if the document does not exist
+     */
+    CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields);
+
+    /**
+     * Delete a document without blocking (no-op if it does not exist)
+     * @param id The document ID
+     * @return Future that completes once the delete is durable
+     */
+    CompletableFuture<Void> deleteAsync(String id);
+
+    /**
+     * Overwrite an existing document without blocking
+     * @param id The document ID
+     * @param entity The model to store
+     * @param expectedVersion Version the document must still have, or null for any
+     * @return Future that completes once the write is durable; fails with DocumentNotFoundException
+     *         or DocumentConflictException if the precondition does not hold
+     */
+    CompletableFuture<Void> replaceAsync(String id, T entity, Long expectedVersion);
+
+    /**
+     * Update individual fields of an existing document without blocking
+     * @param id The document ID
+     * @param fields Map of field name to new value
+     * @param expectedVersion Version the document must still have, or null for any
+     * @return Future that completes once the write is durable; fails with DocumentNotFoundException
+     *         or DocumentConflictException if the precondition does not hold
+     */
+    CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields, Long expectedVersion);
+
+    /**
+     * Delete an existing document without blocking
+     * @param id The document ID
+     * @param expectedVersion Version the document must still have, or null for any
+     * @return Future that completes once the delete is durable; fails with DocumentNotFoundException
+     *         or DocumentConflictException if the precondition does not hold
+     */
+    CompletableFuture<Void> deleteExistingAsync(String id, Long expectedVersion);
+
+    /**
+     * Open a writer for a large number of independent creates, e.g. an import.
+     * On Firestore this is a BulkWriter, which starts at initialOpsPerSecond and
+     * ramps up by half every five minutes (the 500/50/5 rule) up to maxOpsPerSecond.
+     * @param initialOpsPerSecond Write rate to start at
+     * @param maxOpsPerSecond Write rate never to exceed
+     * @return The writer; close it to wait for the writes still in flight
+     */
+    DocumentBulkWriter<T> openBulkWriter(int initialOpsPerSecond, int maxOpsPerSecond);
+}
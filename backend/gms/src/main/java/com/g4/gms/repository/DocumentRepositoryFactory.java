@@ -0,0 +1,19 @@
+package com.g4.gms.repository;
+
+import java.util.function.BiConsumer;
+
+/**
+ * Creates the DocumentRepository for a collection. One implementation is
+ * active per Spring profile.
+ */
+public interface DocumentRepositoryFactory {
+
+    /**
+     * Get the repository for a collection
+     * @param collectionName The collection name
+     * @param type The model class stored in the collection
+     * @param idSetter Copies the document ID onto a mapped model
+     * @return The repository
+     */
+    <T> DocumentRepository<T> create(String collectionName, Class<T> type, BiConsumer<T, String> idSetter);
+}
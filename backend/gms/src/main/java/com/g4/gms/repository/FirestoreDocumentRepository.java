@@ -0,0 +1,527 @@
+package com.g4.gms.repository;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.gax.rpc.ApiException;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.BulkWriter;
+import com.google.cloud.firestore.BulkWriterOptions;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.FieldValue;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Precondition;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import com.google.cloud.firestore.SetOptions;
+import com.google.cloud.firestore.WriteBatch;
+import com.google.cloud.firestore.WriteResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * DocumentRepository backed by a Firestore collection.
+ */
+public class FirestoreDocumentRepository<T> implements DocumentRepository<T> {
+
+    // Upper bound on document references sent in a single getAll request
+    private static final int BATCH_GET_CHUNK_SIZE = 300;
+    // Firestore accepts at most 30 values in one "in" filter
+    private static final int IN_QUERY_CHUNK_SIZE = 30;
+    // Removed by the update that opens a conditional replace or delete; no document has it
+    private static final String PRECONDITION_FIELD = "_precondition";
+
+    private final Firestore firestore;
+    private final DocumentMapper mapper;
+    private final String collectionName;
+    private final Class<T> type;
+    private final BiConsumer<T, String> idSetter;
+
+    public FirestoreDocumentRepository(Firestore firestore, DocumentMapper mapper, String collectionName,
+                                       Class<T> type, BiConsumer<T, String> idSetter) {
+        this.firestore = firestore;
+        this.mapper = mapper;
+        this.collectionName = collectionName;
+        this.type = type;
+        this.idSetter = idSetter;
+    }
+
+    private CollectionReference collection() {
+        return firestore.collection(collectionName);
+    }
+
+    /**
+     * Map a snapshot to the model class and copy the document ID onto it
+     * @param document The document snapshot
+     * @return The model, or null if the document does not exist
+     */
+    protected T toEntity(DocumentSnapshot document) {
+        if (!document.exists()) {
+            return null;
+        }
+        T entity = document.toObject(type);
+        if (entity != null) {
+            idSetter.accept(entity, document.getId());
+        }
+        return entity;
+    }
+
+    private List<T> toEntities(List<QueryDocumentSnapshot> documents) {
+        List<T> entities = new ArrayList<>(documents.size());
+        for (DocumentSnapshot document : documents) {
+            T entity = toEntity(document);
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    @Override
+    public String newId() {
+        return collection().document().getId();
+    }
+
+    @Override
+    public T findById(String id) throws ExecutionException, InterruptedException {
+        return findByIdAsync(id).get();
+    }
+
+    @Override
+    public Versioned<T> findVersionedById(String id) throws ExecutionException, InterruptedException {
+        return findVersionedByIdAsync(id).get();
+    }
+
+    @Override
+    public Map<String, T> findAllById(Collection<String> ids) throws ExecutionException, InterruptedException {
+        return findAllByIdAsync(ids).get();
+    }
+
+    @Override
+    public List<T> findAll() throws ExecutionException, InterruptedException {
+        return findAllAsync().get();
+    }
+
+    @Override
+    public Page<T> findPage(int limit, String pageToken) throws ExecutionException, InterruptedException {
+        return findPageAsync(limit, pageToken).get();
+    }
+
+    @Override
+    public Page<T> findPageByRange(String field, long fromInclusive, long toExclusive, int limit, String pageToken)
+            throws ExecutionException, InterruptedException {
+        // Reject a malformed token with IllegalArgumentException here, not wrapped in the future's failure
+        PageToken.decodeRange(pageToken);
+        return findPageByRangeAsync(field, fromInclusive, toExclusive, Map.of(), limit, pageToken).get();
+    }
+
+    @Override
+    public List<T> findByField(String field, Object value) throws ExecutionException, InterruptedException {
+        return findByFieldAsync(field, value).get();
+    }
+
+    @Override
+    public T findFirstByField(String field, Object value) throws ExecutionException, InterruptedException {
+        ApiFuture<QuerySnapshot> future = collection().whereEqualTo(field, value).limit(1).get();
+        List<T> entities = toEntities(future.get().getDocuments());
+        return entities.isEmpty() ? null : entities.get(0);
+    }
+
+    @Override
+    public void save(String id, T entity) throws ExecutionException, InterruptedException {
+        saveAsync(id, entity).get();
+    }
+
+    @Override
+    public void merge(String id, T entity) throws ExecutionException, InterruptedException {
+        collection().document(id).set(entity, SetOptions.merge()).get();
+    }
+
+    @Override
+    public void update(String id, Map<String, Object> fields) throws ExecutionException, InterruptedException {
+        collection().document(id).update(fields).get();
+    }
+
+    @Override
+    public void delete(String id) throws ExecutionException, InterruptedException {
+        deleteAsync(id).get();
+    }
+
+    @Override
+    public void replace(String id, T entity, Long expectedVersion) throws ExecutionException, InterruptedException {
+        await(replaceAsync(id, entity, expectedVersion));
+    }
+
+    @Override
+    public void update(String id, Map<String, Object> fields, Long expectedVersion)
+            throws ExecutionException, InterruptedException {
+        await(updateAsync(id, fields, expectedVersion));
+    }
+
+    @Override
+    public void update(String id, T entity, Set<String> keptFields, Long expectedVersion)
+            throws ExecutionException, InterruptedException {
+        await(updateAsync(id, mapper.toMap(entity, keptFields), expectedVersion));
+    }
+
+    @Override
+    public void deleteExisting(String id, Long expectedVersion) throws ExecutionException, InterruptedException {
+        await(deleteExistingAsync(id, expectedVersion));
+    }
+
+    @Override
+    public ListenerHandle watch(CollectionListener<T> listener) {
+        AtomicBoolean initial = new AtomicBoolean(true);
+        ListenerRegistration registration = collection().addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                listener.onError(error);
+                return;
+            }
+            if (snapshot == null) {
+                return;
+            }
+            Map<String, T> upserts = new HashMap<>();
+            Set<String> removedIds = new HashSet<>();
+            for (DocumentChange change : snapshot.getDocumentChanges()) {
+                String id = change.getDocument().getId();
+                if (change.getType() == DocumentChange.Type.REMOVED) {
+                    removedIds.add(id);
+                } else {
+                    T entity = toEntity(change.getDocument());
+                    if (entity != null) {
+                        upserts.put(id, entity);
+                    }
+                }
+            }
+            listener.onChanges(upserts, removedIds, snapshot.getReadTime(), initial.getAndSet(false));
+        });
+        return registration::remove;
+    }
+
+    @Override
+    public CompletableFuture<T> findByIdAsync(String id) {
+        return ApiFutureAdapter.toCompletableFuture(collection().document(id).get())
+                .thenApply(this::toEntity);
+    }
+
+    @Override
+    public CompletableFuture<Versioned<T>> findVersionedByIdAsync(String id) {
+        return ApiFutureAdapter.toCompletableFuture(collection().document(id).get())
+                .thenApply(document -> {
+                    T entity = toEntity(document);
+                    return entity != null ? new Versioned<>(entity, toVersion(document.getUpdateTime())) : null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> findAllByIdAsync(Collection<String> ids) {
+        Set<String> distinctIds = new LinkedHashSet<>(ids);
+        List<DocumentReference> refs = new ArrayList<>(distinctIds.size());
+        for (String id : distinctIds) {
+            refs.add(collection().document(id));
+        }
+
+        // Fire every chunk at once and merge the results when the last one lands
+        List<CompletableFuture<List<DocumentSnapshot>>> futures = new ArrayList<>();
+        for (int start = 0; start < refs.size(); start += BATCH_GET_CHUNK_SIZE) {
+            List<DocumentReference> chunk = refs.subList(start, Math.min(start + BATCH_GET_CHUNK_SIZE, refs.size()));
+            futures.add(ApiFutureAdapter.toCompletableFuture(firestore.getAll(chunk.toArray(new DocumentReference[0]))));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            Map<String, T> entities = new HashMap<>();
+            for (CompletableFuture<List<DocumentSnapshot>> future : futures) {
+                for (DocumentSnapshot document : future.join()) {
+                    T entity = toEntity(document);
+                    if (entity != null) {
+                        entities.put(document.getId(), entity);
+                    }
+                }
+            }
+            return entities;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findAllAsync() {
+        return ApiFutureAdapter.toCompletableFuture(collection().get())
+                .thenApply(snapshot -> toEntities(snapshot.getDocuments()));
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageAsync(int limit, String pageToken) {
+        String startAfterId;
+        try {
+            startAfterId = PageToken.decode(pageToken);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // Fetch one extra document to learn whether another page follows
+        Query query = collection().orderBy(FieldPath.documentId()).limit(limit + 1);
+        if (startAfterId != null) {
+            query = query.startAfter(startAfterId);
+        }
+        return ApiFutureAdapter.toCompletableFuture(query.get()).thenApply(snapshot -> {
+            List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+            boolean hasMore = documents.size() > limit;
+            List<QueryDocumentSnapshot> pageDocuments = hasMore ? documents.subList(0, limit) : documents;
+            String nextPageToken = hasMore
+                    ? PageToken.encode(pageDocuments.get(pageDocuments.size() - 1).getId())
+                    : null;
+            return new Page<>(toEntities(pageDocuments), nextPageToken);
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByFieldAsync(String field, Object value) {
+        return ApiFutureAdapter.toCompletableFuture(collection().whereEqualTo(field, value).get())
+                .thenApply(snapshot -> toEntities(snapshot.getDocuments()));
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageByRangeAsync(String field, long fromInclusive, long toExclusive,
+                                                           Map<String, Object> equalTo, int limit, String pageToken) {
+        PageToken.RangeCursor cursor;
+        try {
+            cursor = PageToken.decodeRange(pageToken);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // With no equality filters this needs only the default single-field index on the field
+        Query query = collection();
+        for (Map.Entry<String, Object> filter : equalTo.entrySet()) {
+            query = query.whereEqualTo(filter.getKey(), filter.getValue());
+        }
+        query = query
+                .whereGreaterThanOrEqualTo(field, fromInclusive)
+                .whereLessThan(field, toExclusive)
+                .orderBy(field)
+                .orderBy(FieldPath.documentId())
+                .limit(limit + 1);
+        if (cursor != null) {
+            query = query.startAfter(cursor.value(), cursor.documentId());
+        }
+        return ApiFutureAdapter.toCompletableFuture(query.get()).thenApply(snapshot -> {
+            List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+            boolean hasMore = documents.size() > limit;
+            List<QueryDocumentSnapshot> pageDocuments = hasMore ? documents.subList(0, limit) : documents;
+            String nextPageToken = null;
+            if (hasMore) {
+                QueryDocumentSnapshot last = pageDocuments.get(pageDocuments.size() - 1);
+                nextPageToken = PageToken.encode(last.getLong(field), last.getId());
+            }
+            return new Page<>(toEntities(pageDocuments), nextPageToken);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageByFieldAsync(String field, Object value, int limit, String pageToken) {
+        String startAfterId;
+        try {
+            startAfterId = PageToken.decode(pageToken);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        // An equality filter ordered by document ID is served by the default single-field index
+        Query query = collection().whereEqualTo(field, value).orderBy(FieldPath.documentId()).limit(limit + 1);
+        if (startAfterId != null) {
+            query = query.startAfter(startAfterId);
+        }
+        return ApiFutureAdapter.toCompletableFuture(query.get()).thenApply(snapshot -> {
+            List<QueryDocumentSnapshot> documents = snapshot.getDocuments();
+            boolean hasMore = documents.size() > limit;
+            List<QueryDocumentSnapshot> pageDocuments = hasMore ? documents.subList(0, limit) : documents;
+            String nextPageToken = hasMore
+                    ? PageToken.encode(pageDocuments.get(pageDocuments.size() - 1).getId())
+                    : null;
+            return new Page<>(toEntities(pageDocuments), nextPageToken);
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByFieldInAsync(String field, Collection<?> values) {
+        List<Object> distinctValues = new ArrayList<>(new LinkedHashSet<>(values));
+
+        // Like findAllByIdAsync: every chunk at once, merged when the last one lands
+        List<CompletableFuture<QuerySnapshot>> futures = new ArrayList<>();
+        for (int start = 0; start < distinctValues.size(); start += IN_QUERY_CHUNK_SIZE) {
+            List<Object> chunk = distinctValues.subList(start, Math.min(start + IN_QUERY_CHUNK_SIZE, distinctValues.size()));
+            futures.add(ApiFutureAdapter.toCompletableFuture(collection().whereIn(field, new ArrayList<>(chunk)).get()));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            List<T> entities = new ArrayList<>();
+            for (CompletableFuture<QuerySnapshot> future : futures) {
+                entities.addAll(toEntities(future.join().getDocuments()));
+            }
+            return entities;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAsync(String id, T entity) {
+        return ApiFutureAdapter.toCompletableFuture(collection().document(id).set(entity))
+                .thenApply(writeResult -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields) {
+        return ApiFutureAdapter.toCompletableFuture(collection().document(id).update(fields))
+                .thenApply(writeResult -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String id) {
+        return ApiFutureAdapter.toCompletableFuture(collection().document(id).delete())
+                .thenApply(writeResult -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> replaceAsync(String id, T entity, Long expectedVersion) {
+        DocumentReference document = collection().document(id);
+        WriteBatch batch = guardedBatch(document, expectedVersion);
+        batch.set(document, entity);
+        return conditional(id, batch.commit());
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields, Long expectedVersion) {
+        DocumentReference document = collection().document(id);
+        // update() without a precondition already requires the document to exist
+        ApiFuture<WriteResult> write = expectedVersion != null
+                ? document.update(fields, precondition(expectedVersion))
+                : document.update(fields);
+        return conditional(id, write);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteExistingAsync(String id, Long expectedVersion) {
+        DocumentReference document = collection().document(id);
+        WriteBatch batch = guardedBatch(document, expectedVersion);
+        batch.delete(document);
+        return conditional(id, batch.commit());
+    }
+
+    @Override
+    public DocumentBulkWriter<T> openBulkWriter(int initialOpsPerSecond, int maxOpsPerSecond) {
+        BulkWriter bulkWriter = firestore.bulkWriter(BulkWriterOptions.builder()
+                .setInitialOpsPerSecond(initialOpsPerSecond)
+                .setMaxOpsPerSecond(maxOpsPerSecond)
+                .build());
+        return new DocumentBulkWriter<>() {
+            @Override
+            public CompletableFuture<Void> save(String id, T entity) {
+                // BulkWriter retries writes that fail with a retryable code before failing the future
+                return ApiFutureAdapter.toCompletableFuture(bulkWriter.set(collection().document(id), entity))
+                        .thenApply(writeResult -> null);
+            }
+
+            @Override
+            public void close() throws ExecutionException, InterruptedException {
+                bulkWriter.close();
+            }
+        };
+    }
+
+    private static Precondition precondition(long expectedVersion) {
+        return Precondition.updatedAt(Timestamp.ofTimeMicroseconds(expectedVersion));
+    }
+
+    /**
+     * A batch whose first write fails it unless the document exists (and has expectedVersion).
+     * set() and delete() take no "exists" precondition in the public API, but update() always
+     * carries one, so the batch opens with an update that changes nothing. A batch commits
+     * atomically in one round trip: if that update fails, nothing after it is written.
+     */
+    private WriteBatch guardedBatch(DocumentReference document, Long expectedVersion) {
+        WriteBatch batch = firestore.batch();
+        Map<String, Object> noChange = Map.of(PRECONDITION_FIELD, FieldValue.delete());
+        if (expectedVersion != null) {
+            batch.update(document, noChange, precondition(expectedVersion));
+        } else {
+            batch.update(document, noChange);
+        }
+        return batch;
+    }
+
+    // Update times have microsecond precision, so the version round-trips exactly
+    private static long toVersion(Timestamp updateTime) {
+        return updateTime.getSeconds() * 1_000_000L + updateTime.getNanos() / 1_000;
+    }
+
+    /**
+     * Turn a failed precondition into DocumentNotFoundException or DocumentConflictException
+     */
+    private static CompletableFuture<Void> conditional(String id, ApiFuture<?> write) {
+        return ApiFutureAdapter.toCompletableFuture(write).handle((result, error) -> {
+            if (error == null) {
+                return null;
+            }
+            throw writeFailure(id, error);
+        });
+    }
+
+    /**
+     * The exception a failed conditional write is reported with
+     * @param id The document ID
+     * @param error The store's failure
+     * @return DocumentNotFoundException for NOT_FOUND, DocumentConflictException for
+     *         FAILED_PRECONDITION, else the failure itself
+     */
+    static RuntimeException writeFailure(String id, Throwable error) {
+        String code = statusCode(error);
+        if ("NOT_FOUND".equals(code)) {
+            return new DocumentNotFoundException(id);
+        }
+        if ("FAILED_PRECONDITION".equals(code)) {
+            return new DocumentConflictException(id);
+        }
+        return error instanceof RuntimeException runtime ? runtime : new CompletionException(error);
+    }
+
+    private static String statusCode(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ApiException api) {
+                return api.getStatusCode().getCode().name();
+            }
+            if (cause instanceof FirestoreException firestoreError && firestoreError.getStatus() != null) {
+                return firestoreError.getStatus().getCode().name();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wait for a conditional write, rethrowing its precondition failure as is
+     */
+    private static void await(CompletableFuture<Void> write) throws ExecutionException, InterruptedException {
+        try {
+            write.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DocumentNotFoundException || e.getCause() instanceof DocumentConflictException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.g4.gms.repository;
+
+import com.google.cloud.firestore.Firestore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Default repository factory: every collection lives in Firestore. Calls are
+ * timed per collection, see {@link MeteredDocumentRepository}.
+ */
+@Component
+@Profile("!inmemory")
+public class FirestoreRepositoryFactory implements DocumentRepositoryFactory {
+
+    private final Firestore firestore;
+    private final DocumentMapper mapper = new DocumentMapper();
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DocumentRepository<?>> repositories = new ConcurrentHashMap<>();
+
+    public FirestoreRepositoryFactory(Firestore firestore, MeterRegistry meterRegistry) {
+        this.firestore = firestore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> DocumentRepository<T> create(String collectionName, Class<T> type, BiConsumer<T, String> idSetter) {
+        return (DocumentRepository<T>) repositories.computeIfAbsent(collectionName,
+                name -> new MeteredDocumentRepository<>(name,
+                        new FirestoreDocumentRepository<>(firestore, mapper, name, type, idSetter), meterRegistry));
+    }
+}
@@ -0,0 +1,487 @@
+package com.g4.gms.repository;
+
+import com.google.cloud.Timestamp;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+
+/**
+ * DocumentRepository held entirely in memory. Documents are stored as field
+ * maps (never as the caller's model instance) and replaced atomically on
+ * every write, so concurrent readers always see a complete document. Writes
+ * are serialized so each one can stamp the document with a new version.
+ */
+public class InMemoryDocumentRepository<T> implements DocumentRepository<T> {
+
+    private static final String AUTO_ID_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int AUTO_ID_LENGTH = 20;
+    // Bulk writes are announced to listeners this many documents at a time
+    static final int BULK_PUBLISH_CHUNK = 500;
+
+    private final ConcurrentNavigableMap<String, Map<String, Object>> documents = new ConcurrentSkipListMap<>();
+    // Version of every stored document; written together with documents, under the repository's lock
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private long lastVersion;
+    private final List<CollectionListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private final DocumentMapper mapper;
+    private final Class<T> type;
+    private final BiConsumer<T, String> idSetter;
+
+    public InMemoryDocumentRepository(DocumentMapper mapper, Class<T> type, BiConsumer<T, String> idSetter) {
+        this.mapper = mapper;
+        this.type = type;
+        this.idSetter = idSetter;
+    }
+
+    private T toEntity(String id, Map<String, Object> fields) {
+        if (fields == null) {
+            return null;
+        }
+        T entity = mapper.toEntity(fields, type);
+        idSetter.accept(entity, id);
+        return entity;
+    }
+
+    @Override
+    public String newId() {
+        // Same shape as Firestore auto-IDs
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder id = new StringBuilder(AUTO_ID_LENGTH);
+        for (int i = 0; i < AUTO_ID_LENGTH; i++) {
+            id.append(AUTO_ID_ALPHABET.charAt(random.nextInt(AUTO_ID_ALPHABET.length())));
+        }
+        return id.toString();
+    }
+
+    @Override
+    public T findById(String id) {
+        return toEntity(id, documents.get(id));
+    }
+
+    @Override
+    public synchronized Versioned<T> findVersionedById(String id) {
+        T entity = findById(id);
+        return entity != null ? new Versioned<>(entity, versions.get(id)) : null;
+    }
+
+    @Override
+    public Map<String, T> findAllById(Collection<String> ids) {
+        Map<String, T> entities = new HashMap<>();
+        for (String id : ids) {
+            T entity = findById(id);
+            if (entity != null) {
+                entities.put(id, entity);
+            }
+        }
+        return entities;
+    }
+
+    @Override
+    public List<T> findAll() {
+        List<T> entities = new ArrayList<>(documents.size());
+        for (Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
+            entities.add(toEntity(entry.getKey(), entry.getValue()));
+        }
+        return entities;
+    }
+
+    @Override
+    public Page<T> findPage(int limit, String pageToken) {
+        String startAfterId = PageToken.decode(pageToken);
+        NavigableMap<String, Map<String, Object>> remaining = startAfterId != null
+                ? documents.tailMap(startAfterId, false)
+                : documents;
+
+        List<T> entities = new ArrayList<>(Math.min(limit, remaining.size()));
+        String lastId = null;
+        boolean hasMore = false;
+        for (Map.Entry<String, Map<String, Object>> entry : remaining.entrySet()) {
+            if (entities.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            entities.add(toEntity(entry.getKey(), entry.getValue()));
+            lastId = entry.getKey();
+        }
+        return new Page<>(entities, hasMore ? PageToken.encode(lastId) : null);
+    }
+
+    @Override
+    public Page<T> findPageByRange(String field, long fromInclusive, long toExclusive, int limit, String pageToken) {
+        return rangePage(field, fromInclusive, toExclusive, Map.of(), limit, pageToken);
+    }
+
+    private Page<T> rangePage(String field, long fromInclusive, long toExclusive, Map<String, Object> equalTo,
+                              int limit, String pageToken) {
+        PageToken.RangeCursor cursor = PageToken.decodeRange(pageToken);
+
+        List<Map.Entry<String, Long>> matches = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
+            if (entry.getValue().get(field) instanceof Number number && matches(entry.getValue(), equalTo)) {
+                long value = number.longValue();
+                boolean afterCursor = cursor == null || value > cursor.value()
+                        || (value == cursor.value() && entry.getKey().compareTo(cursor.documentId()) > 0);
+                if (value >= fromInclusive && value < toExclusive && afterCursor) {
+                    matches.add(Map.entry(entry.getKey(), value));
+                }
+            }
+        }
+        // Documents are already in ID order, so a stable sort by value gives (value, ID) order
+        matches.sort(Map.Entry.comparingByValue());
+
+        boolean hasMore = matches.size() > limit;
+        List<Map.Entry<String, Long>> pageMatches = hasMore ? matches.subList(0, limit) : matches;
+        List<T> entities = new ArrayList<>(pageMatches.size());
+        for (Map.Entry<String, Long> match : pageMatches) {
+            entities.add(toEntity(match.getKey(), documents.get(match.getKey())));
+        }
+        String nextPageToken = null;
+        if (hasMore) {
+            Map.Entry<String, Long> last = pageMatches.get(pageMatches.size() - 1);
+            nextPageToken = PageToken.encode(last.getValue(), last.getKey());
+        }
+        return new Page<>(entities, nextPageToken);
+    }
+
+    private static boolean matches(Map<String, Object> fields, Map<String, Object> equalTo) {
+        for (Map.Entry<String, Object> filter : equalTo.entrySet()) {
+            if (!Objects.equals(fields.get(filter.getKey()), filter.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public List<T> findByField(String field, Object value) {
+        List<T> entities = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
+            if (Objects.equals(entry.getValue().get(field), value)) {
+                entities.add(toEntity(entry.getKey(), entry.getValue()));
+            }
+        }
+        return entities;
+    }
+
+    @Override
+    public T findFirstByField(String field, Object value) {
+        for (Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
+            if (Objects.equals(entry.getValue().get(field), value)) {
+                return toEntity(entry.getKey(), entry.getValue());
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void save(String id, T entity) {
+        store(id, mapper.toMap(entity));
+    }
+
+    @Override
+    public synchronized void merge(String id, T entity) {
+        Map<String, Object> merged = new HashMap<>(documents.getOrDefault(id, Map.of()));
+        merged.putAll(mapper.toMap(entity));
+        store(id, merged);
+    }
+
+    @Override
+    public synchronized void update(String id, Map<String, Object> fields) throws ExecutionException {
+        Map<String, Object> existing = documents.get(id);
+        if (existing == null) {
+            // Firestore fails updates of missing documents the same way
+            throw new ExecutionException(new NoSuchElementException("No document to update: " + id));
+        }
+        Map<String, Object> merged = new HashMap<>(existing);
+        merged.putAll(fields);
+        store(id, merged);
+    }
+
+    @Override
+    public synchronized void delete(String id) {
+        store(id, null);
+    }
+
+    @Override
+    public synchronized void replace(String id, T entity, Long expectedVersion) {
+        checkPrecondition(id, expectedVersion);
+        store(id, mapper.toMap(entity));
+    }
+
+    @Override
+    public synchronized void update(String id, Map<String, Object> fields, Long expectedVersion) {
+        checkPrecondition(id, expectedVersion);
+        Map<String, Object> merged = new HashMap<>(documents.get(id));
+        merged.putAll(fields);
+        store(id, merged);
+    }
+
+    @Override
+    public synchronized void update(String id, T entity, Set<String> keptFields, Long expectedVersion) {
+        update(id, mapper.toMap(entity, keptFields), expectedVersion);
+    }
+
+    @Override
+    public synchronized void deleteExisting(String id, Long expectedVersion) {
+        checkPrecondition(id, expectedVersion);
+        store(id, null);
+    }
+
+    private void checkPrecondition(String id, Long expectedVersion) {
+        Long version = versions.get(id);
+        if (expectedVersion != null && !expectedVersion.equals(version)) {
+            // Firestore reports a deleted document as a failed update-time precondition too
+            throw new DocumentConflictException(id);
+        }
+        if (version == null) {
+            throw new DocumentNotFoundException(id);
+        }
+    }
+
+    /**
+     * Put (or, for null fields, remove) a document, give it a new version and tell the listeners
+     */
+    private void store(String id, Map<String, Object> fields) {
+        write(id, fields);
+        publish(id);
+    }
+
+    private void write(String id, Map<String, Object> fields) {
+        if (fields != null) {
+            documents.put(id, fields);
+            versions.put(id, ++lastVersion);
+        } else {
+            documents.remove(id);
+            versions.remove(id);
+        }
+    }
+
+    @Override
+    public synchronized ListenerHandle watch(CollectionListener<T> listener) {
+        Map<String, T> initial = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
+            initial.put(entry.getKey(), toEntity(entry.getKey(), entry.getValue()));
+        }
+        listener.onChanges(initial, Set.of(), Timestamp.now(), true);
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    /**
+     * Tell the listeners about the current state of one document. Sending the latest
+     * state (rather than the write itself) keeps listeners right even when two writes
+     * to the same document race to get here.
+     */
+    private synchronized void publish(String id) {
+        publish(List.of(id));
+    }
+
+    private synchronized void publish(Collection<String> ids) {
+        if (listeners.isEmpty() || ids.isEmpty()) {
+            return;
+        }
+        Map<String, T> upserts = new HashMap<>();
+        Set<String> removedIds = new HashSet<>();
+        for (String id : ids) {
+            T entity = toEntity(id, documents.get(id));
+            if (entity != null) {
+                upserts.put(id, entity);
+            } else {
+                removedIds.add(id);
+            }
+        }
+        for (CollectionListener<T> listener : listeners) {
+            listener.onChanges(upserts, removedIds, Timestamp.now(), false);
+        }
+    }
+
+    // The in-memory store never waits on I/O, so the async variants complete immediately
+
+    @Override
+    public CompletableFuture<T> findByIdAsync(String id) {
+        return CompletableFuture.completedFuture(findById(id));
+    }
+
+    @Override
+    public CompletableFuture<Versioned<T>> findVersionedByIdAsync(String id) {
+        return CompletableFuture.completedFuture(findVersionedById(id));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> findAllByIdAsync(Collection<String> ids) {
+        return CompletableFuture.completedFuture(findAllById(ids));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findAllAsync() {
+        return CompletableFuture.completedFuture(findAll());
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageAsync(int limit, String pageToken) {
+        try {
+            return CompletableFuture.completedFuture(findPage(limit, pageToken));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByFieldAsync(String field, Object value) {
+        return CompletableFuture.completedFuture(findByField(field, value));
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageByRangeAsync(String field, long fromInclusive, long toExclusive,
+                                                           Map<String, Object> equalTo, int limit, String pageToken) {
+        try {
+            return CompletableFuture.completedFuture(
+                    rangePage(field, fromInclusive, toExclusive, equalTo, limit, pageToken));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageByFieldAsync(String field, Object value, int limit, String pageToken) {
+        String startAfterId;
+        try {
+            startAfterId = PageToken.decode(pageToken);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        NavigableMap<String, Map<String, Object>> remaining = startAfterId != null
+                ? documents.tailMap(startAfterId, false)
+                : documents;
+
+        List<T> entities = new ArrayList<>();
+        String lastId = null;
+        boolean hasMore = false;
+        for (Map.Entry<String, Map<String, Object>> entry : remaining.entrySet()) {
+            if (!Objects.equals(entry.getValue().get(field), value)) {
+                continue;
+            }
+            if (entities.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            entities.add(toEntity(entry.getKey(), entry.getValue()));
+            lastId = entry.getKey();
+        }
+        return CompletableFuture.completedFuture(new Page<>(entities, hasMore ? PageToken.encode(lastId) : null));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByFieldInAsync(String field, Collection<?> values) {
+        Set<?> wanted = new HashSet<>(values);
+        List<T> entities = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> entry : documents.entrySet()) {
+            if (wanted.contains(entry.getValue().get(field))) {
+                entities.add(toEntity(entry.getKey(), entry.getValue()));
+            }
+        }
+        return CompletableFuture.completedFuture(entities);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAsync(String id, T entity) {
+        save(id, entity);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields) {
+        try {
+            update(id, fields);
+            return CompletableFuture.completedFuture(null);
+        } catch (ExecutionException e) {
+            return CompletableFuture.failedFuture(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String id) {
+        delete(id);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> replaceAsync(String id, T entity, Long expectedVersion) {
+        try {
+            replace(id, entity, expectedVersion);
+            return CompletableFuture.completedFuture(null);
+        } catch (DocumentNotFoundException | DocumentConflictException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields, Long expectedVersion) {
+        try {
+            update(id, fields, expectedVersion);
+            return CompletableFuture.completedFuture(null);
+        } catch (DocumentNotFoundException | DocumentConflictException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteExistingAsync(String id, Long expectedVersion) {
+        try {
+            deleteExisting(id, expectedVersion);
+            return CompletableFuture.completedFuture(null);
+        } catch (DocumentNotFoundException | DocumentConflictException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public DocumentBulkWriter<T> openBulkWriter(int initialOpsPerSecond, int maxOpsPerSecond) {
+        // Nothing to throttle: every write is applied as it is queued. Listeners hear about
+        // the writes a chunk at a time, as a Firestore listener gets one snapshot per batch.
+        return new DocumentBulkWriter<>() {
+            // Guarded by the repository's lock
+            private final Set<String> unpublished = new HashSet<>();
+
+            @Override
+            public CompletableFuture<Void> save(String id, T entity) {
+                synchronized (InMemoryDocumentRepository.this) {
+                    write(id, mapper.toMap(entity));
+                    unpublished.add(id);
+                    if (unpublished.size() >= BULK_PUBLISH_CHUNK) {
+                        flush();
+                    }
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public void close() {
+                synchronized (InMemoryDocumentRepository.this) {
+                    flush();
+                }
+            }
+
+            private void flush() {
+                publish(unpublished);
+                unpublished.clear();
+            }
+        };
+    }
+}
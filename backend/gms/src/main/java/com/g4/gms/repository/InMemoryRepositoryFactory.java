@@ -0,0 +1,42 @@
+package com.g4.gms.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Repository factory for the "inmemory" profile: every collection lives in
+ * process memory and starts empty. Meant for load testing the REST stack
+ * without network access, not for production. Calls are timed the same way
+ * as in Firestore so the metrics surface can be exercised too.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryRepositoryFactory implements DocumentRepositoryFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryRepositoryFactory.class);
+
+    private final DocumentMapper mapper = new DocumentMapper();
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DocumentRepository<?>> repositories = new ConcurrentHashMap<>();
+
+    public InMemoryRepositoryFactory(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> DocumentRepository<T> create(String collectionName, Class<T> type, BiConsumer<T, String> idSetter) {
+        return (DocumentRepository<T>) repositories.computeIfAbsent(collectionName, name -> {
+            logger.info("Using in-memory store for collection: {}", name);
+            return new MeteredDocumentRepository<>(name,
+                    new InMemoryDocumentRepository<>(mapper, type, idSetter), meterRegistry);
+        });
+    }
+}
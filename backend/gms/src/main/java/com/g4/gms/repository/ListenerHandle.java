@@ -0,0 +1,12 @@
+package com.g4.gms.repository;
+
+/**
+ * Handle for a registration made with {@link DocumentRepository#watch}.
+ */
+public interface ListenerHandle {
+
+    /**
+     * Stop delivering changes to the listener (no-op if already removed)
+     */
+    void remove();
+}
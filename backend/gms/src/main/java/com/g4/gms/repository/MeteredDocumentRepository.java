@@ -0,0 +1,290 @@
+package com.g4.gms.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * DocumentRepository that times every call to the underlying store as
+ * {@value #METRIC}, tagged by collection, operation (get, query, set, update,
+ * delete, bulk_set) and outcome. Conditional replaces count as update; a failed
+ * precondition counts as an error. Async calls are timed until their future completes.
+ * Listeners are passed through untimed.
+ */
+public class MeteredDocumentRepository<T> implements DocumentRepository<T> {
+
+    public static final String METRIC = "gms.repository.operations";
+
+    private static final String GET = "get";
+    private static final String QUERY = "query";
+    private static final String SET = "set";
+    private static final String UPDATE = "update";
+    private static final String DELETE = "delete";
+    // Kept apart from set: the time includes waiting in the bulk writer's batches and throttle
+    private static final String BULK_SET = "bulk_set";
+
+    @FunctionalInterface
+    private interface StoreCall<R> {
+        R call() throws ExecutionException, InterruptedException;
+    }
+
+    private final String collectionName;
+    private final DocumentRepository<T> delegate;
+    private final MeterRegistry registry;
+
+    public MeteredDocumentRepository(String collectionName, DocumentRepository<T> delegate, MeterRegistry registry) {
+        this.collectionName = collectionName;
+        this.delegate = delegate;
+        this.registry = registry;
+    }
+
+    @Override
+    public String newId() {
+        return delegate.newId();
+    }
+
+    @Override
+    public T findById(String id) throws ExecutionException, InterruptedException {
+        return time(GET, () -> delegate.findById(id));
+    }
+
+    @Override
+    public Versioned<T> findVersionedById(String id) throws ExecutionException, InterruptedException {
+        return time(GET, () -> delegate.findVersionedById(id));
+    }
+
+    @Override
+    public Map<String, T> findAllById(Collection<String> ids) throws ExecutionException, InterruptedException {
+        return time(GET, () -> delegate.findAllById(ids));
+    }
+
+    @Override
+    public List<T> findAll() throws ExecutionException, InterruptedException {
+        return time(QUERY, delegate::findAll);
+    }
+
+    @Override
+    public Page<T> findPage(int limit, String pageToken) throws ExecutionException, InterruptedException {
+        return time(QUERY, () -> delegate.findPage(limit, pageToken));
+    }
+
+    @Override
+    public Page<T> findPageByRange(String field, long fromInclusive, long toExclusive, int limit, String pageToken)
+            throws ExecutionException, InterruptedException {
+        return time(QUERY, () -> delegate.findPageByRange(field, fromInclusive, toExclusive, limit, pageToken));
+    }
+
+    @Override
+    public List<T> findByField(String field, Object value) throws ExecutionException, InterruptedException {
+        return time(QUERY, () -> delegate.findByField(field, value));
+    }
+
+    @Override
+    public T findFirstByField(String field, Object value) throws ExecutionException, InterruptedException {
+        return time(QUERY, () -> delegate.findFirstByField(field, value));
+    }
+
+    @Override
+    public void save(String id, T entity) throws ExecutionException, InterruptedException {
+        time(SET, () -> {
+            delegate.save(id, entity);
+            return null;
+        });
+    }
+
+    @Override
+    public void merge(String id, T entity) throws ExecutionException, InterruptedException {
+        time(SET, () -> {
+            delegate.merge(id, entity);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(String id, Map<String, Object> fields) throws ExecutionException, InterruptedException {
+        time(UPDATE, () -> {
+            delegate.update(id, fields);
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(String id) throws ExecutionException, InterruptedException {
+        time(DELETE, () -> {
+            delegate.delete(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void replace(String id, T entity, Long expectedVersion) throws ExecutionException, InterruptedException {
+        time(UPDATE, () -> {
+            delegate.replace(id, entity, expectedVersion);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(String id, Map<String, Object> fields, Long expectedVersion)
+            throws ExecutionException, InterruptedException {
+        time(UPDATE, () -> {
+            delegate.update(id, fields, expectedVersion);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(String id, T entity, Set<String> keptFields, Long expectedVersion)
+            throws ExecutionException, InterruptedException {
+        time(UPDATE, () -> {
+            delegate.update(id, entity, keptFields, expectedVersion);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteExisting(String id, Long expectedVersion) throws ExecutionException, InterruptedException {
+        time(DELETE, () -> {
+            delegate.deleteExisting(id, expectedVersion);
+            return null;
+        });
+    }
+
+    @Override
+    public ListenerHandle watch(CollectionListener<T> listener) {
+        return delegate.watch(listener);
+    }
+
+    @Override
+    public CollectionVersion currentVersion() {
+        return delegate.currentVersion();
+    }
+
+    @Override
+    public CompletableFuture<T> findByIdAsync(String id) {
+        return timeAsync(GET, () -> delegate.findByIdAsync(id));
+    }
+
+    @Override
+    public CompletableFuture<Versioned<T>> findVersionedByIdAsync(String id) {
+        return timeAsync(GET, () -> delegate.findVersionedByIdAsync(id));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> findAllByIdAsync(Collection<String> ids) {
+        return timeAsync(GET, () -> delegate.findAllByIdAsync(ids));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findAllAsync() {
+        return timeAsync(QUERY, delegate::findAllAsync);
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageAsync(int limit, String pageToken) {
+        return timeAsync(QUERY, () -> delegate.findPageAsync(limit, pageToken));
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageByRangeAsync(String field, long fromInclusive, long toExclusive,
+                                                           Map<String, Object> equalTo, int limit, String pageToken) {
+        return timeAsync(QUERY, () -> delegate.findPageByRangeAsync(field, fromInclusive, toExclusive, equalTo, limit, pageToken));
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageByFieldAsync(String field, Object value, int limit, String pageToken) {
+        return timeAsync(QUERY, () -> delegate.findPageByFieldAsync(field, value, limit, pageToken));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByFieldInAsync(String field, Collection<?> values) {
+        return timeAsync(QUERY, () -> delegate.findByFieldInAsync(field, values));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByFieldAsync(String field, Object value) {
+        return timeAsync(QUERY, () -> delegate.findByFieldAsync(field, value));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAsync(String id, T entity) {
+        return timeAsync(SET, () -> delegate.saveAsync(id, entity));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields) {
+        return timeAsync(UPDATE, () -> delegate.updateAsync(id, fields));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String id) {
+        return timeAsync(DELETE, () -> delegate.deleteAsync(id));
+    }
+
+    @Override
+    public CompletableFuture<Void> replaceAsync(String id, T entity, Long expectedVersion) {
+        return timeAsync(UPDATE, () -> delegate.replaceAsync(id, entity, expectedVersion));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields, Long expectedVersion) {
+        return timeAsync(UPDATE, () -> delegate.updateAsync(id, fields, expectedVersion));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteExistingAsync(String id, Long expectedVersion) {
+        return timeAsync(DELETE, () -> delegate.deleteExistingAsync(id, expectedVersion));
+    }
+
+    @Override
+    public DocumentBulkWriter<T> openBulkWriter(int initialOpsPerSecond, int maxOpsPerSecond) {
+        DocumentBulkWriter<T> writer = delegate.openBulkWriter(initialOpsPerSecond, maxOpsPerSecond);
+        return new DocumentBulkWriter<>() {
+            @Override
+            public CompletableFuture<Void> save(String id, T entity) {
+                return timeAsync(BULK_SET, () -> writer.save(id, entity));
+            }
+
+            @Override
+            public void close() throws ExecutionException, InterruptedException {
+                writer.close();
+            }
+        };
+    }
+
+    private <R> R time(String operation, StoreCall<R> call) throws ExecutionException, InterruptedException {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            R result = call.call();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(timer(operation, outcome));
+        }
+    }
+
+    // The caller gets the store's own future back; the timer only observes its completion
+    private <R> CompletableFuture<R> timeAsync(String operation, Supplier<CompletableFuture<R>> call) {
+        Timer.Sample sample = Timer.start(registry);
+        CompletableFuture<R> future = call.get();
+        future.whenComplete((result, error) -> sample.stop(timer(operation, error == null ? "success" : "error")));
+        return future;
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder(METRIC)
+                .description("Latency of calls to the document store")
+                .tag("collection", collectionName)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
@@ -0,0 +1,12 @@
+package com.g4.gms.repository;
+
+import java.util.List;
+
+/**
+ * One page of a collection read in document ID order.
+ * @param items The models on this page
+ * @param nextPageToken Opaque token for the following page, or null if this is the last one
+ * @param <T> The model class
+ */
+public record Page<T>(List<T> items, String nextPageToken) {
+}
@@ -0,0 +1,123 @@
+package com.g4.gms.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.CRC32;
+
+/**
+ * Encodes the pagination cursor (the ID of the last document returned, plus the
+ * ordering value for range queries) as an opaque, URL-safe token so clients
+ * cannot depend on its contents. A checksum is appended so a token that was
+ * edited, truncated or issued by an older format is rejected rather than
+ * silently starting the page somewhere else.
+ */
+public final class PageToken {
+
+    private static final String PREFIX = "v2:";
+    private static final String RANGE_PREFIX = "r2:";
+    private static final char CHECKSUM_SEPARATOR = '|';
+
+    /**
+     * Cursor of a range query page
+     * @param value Ordering field value of the last document returned
+     * @param documentId ID of the last document returned
+     */
+    public record RangeCursor(long value, String documentId) {
+    }
+
+    private PageToken() {
+    }
+
+    /**
+     * Build the token for the page that starts after the given document
+     * @param lastDocumentId ID of the last document on the current page
+     * @return The page token
+     */
+    public static String encode(String lastDocumentId) {
+        return seal(PREFIX + lastDocumentId);
+    }
+
+    /**
+     * Build the token for the range query page that starts after the given document
+     * @param value Ordering field value of the last document on the current page
+     * @param lastDocumentId ID of the last document on the current page
+     * @return The page token
+     */
+    public static String encode(long value, String lastDocumentId) {
+        return seal(RANGE_PREFIX + value + ":" + lastDocumentId);
+    }
+
+    /**
+     * Recover the range cursor from a token
+     * @param pageToken The token, or null/empty for the first page
+     * @return The cursor to start after, or null for the first page
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode(long, String)}
+     */
+    public static RangeCursor decodeRange(String pageToken) {
+        if (pageToken == null || pageToken.isEmpty()) {
+            return null;
+        }
+        String decoded = unseal(pageToken);
+        int separator = decoded.indexOf(':', RANGE_PREFIX.length());
+        if (!decoded.startsWith(RANGE_PREFIX) || separator < 0 || separator == decoded.length() - 1) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        try {
+            return new RangeCursor(Long.parseLong(decoded.substring(RANGE_PREFIX.length(), separator)),
+                    decoded.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+    }
+
+    /**
+     * Recover the cursor document ID from a token
+     * @param pageToken The token, or null/empty for the first page
+     * @return The document ID to start after, or null for the first page
+     * @throws IllegalArgumentException if the token was not produced by {@link #encode(String)}
+     */
+    public static String decode(String pageToken) {
+        if (pageToken == null || pageToken.isEmpty()) {
+            return null;
+        }
+        String decoded = unseal(pageToken);
+        if (!decoded.startsWith(PREFIX) || decoded.length() == PREFIX.length()) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        return decoded.substring(PREFIX.length());
+    }
+
+    private static String seal(String body) {
+        byte[] raw = (body + CHECKSUM_SEPARATOR + checksum(body)).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    /**
+     * Decode a token and verify its checksum
+     * @return The token body
+     * @throws IllegalArgumentException if the token is not base64url or its checksum does not match
+     */
+    private static String unseal(String pageToken) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        int separator = decoded.lastIndexOf(CHECKSUM_SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        String body = decoded.substring(0, separator);
+        if (!checksum(body).equals(decoded.substring(separator + 1))) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+        return body;
+    }
+
+    private static String checksum(String body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return Long.toHexString(crc.getValue());
+    }
+}
@@ -0,0 +1,649 @@
+package com.g4.gms.repository;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.FieldValue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * DocumentRepository that keeps a live copy of a whole collection in memory and
+ * answers ID, full-listing and page reads from it. The copy is fed by a
+ * {@link DocumentRepository#watch} listener on the underlying repository and is
+ * swapped as an immutable map on every change, so readers never lock.
+ *
+ * While the listener is not connected (before its first snapshot, or after an
+ * error until {@link #reconnect()} succeeds) every read goes straight to the
+ * underlying repository. Writes always go to the underlying repository and are
+ * applied to the copy as soon as they succeed (field updates are merged into the
+ * copy's document), so a caller reads its own writes without waiting for the listener.
+ * Bulk writes are applied in chunks, and all of them by the time the writer is closed.
+ *
+ * A write is only applied if the listener has not changed its document since the
+ * write was issued. Otherwise the listener may already hold a newer state (another
+ * instance's write, or a re-create after this delete) that the write would overwrite,
+ * and since the listener only delivers changes the copy would stay wrong. A skipped
+ * write is left for the listener to deliver.
+ *
+ * Models are copied on the way in and out so callers can never mutate the
+ * replicated instance.
+ *
+ * Health and read counters are {@value #METRIC}.* meters tagged by collection,
+ * registered by {@link #bindTo}.
+ */
+public class ReplicatedDocumentRepository<T> implements DocumentRepository<T>, MeterBinder {
+
+    public static final String METRIC = "gms.replica";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicatedDocumentRepository.class);
+
+    /**
+     * A bulk-written document waiting to be applied, with the delivery count when it was issued
+     */
+    private record IssuedWrite<T>(T entity, long issuedAt) {
+    }
+
+    // Bulk writes are applied to the copy this many documents at a time
+    static final int BULK_APPLY_CHUNK = 500;
+
+    private final String collectionName;
+    private final DocumentRepository<T> delegate;
+    private final UnaryOperator<T> copier;
+    private final DocumentMapper mapper;
+
+    private volatile NavigableMap<String, T> documents = Collections.emptyNavigableMap();
+    // Published after documents, so a reader that sees a version also sees that state (or a newer one)
+    private volatile CollectionVersion version;
+    // Distinguishes this process's version counter from any other's
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private long changeCount;
+    private volatile boolean live;
+    private ListenerHandle handle;
+    private long generation;
+    // Change sets delivered by the listener so far; a write notes the count when it is issued
+    private volatile long deliveries;
+    // The delivery of the last initial snapshot, and the delivery that last changed each
+    // document since then
+    private long snapshotDelivery;
+    private final Map<String, Long> changedIn = new HashMap<>();
+
+    private volatile long lastChangeAtMillis;
+    private volatile long lastChangeLagMillis;
+    private volatile long disconnectedSinceMillis = System.currentTimeMillis();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+
+    public ReplicatedDocumentRepository(String collectionName, DocumentRepository<T> delegate, UnaryOperator<T> copier,
+                                        DocumentMapper mapper) {
+        this.collectionName = collectionName;
+        this.delegate = delegate;
+        this.copier = copier;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Attach the snapshot listener if it is not already connected. Safe to call repeatedly.
+     */
+    public void reconnect() {
+        long registration;
+        synchronized (this) {
+            if (live || handle != null) {
+                return;
+            }
+            registration = ++generation;
+            if (registration > 1) {
+                reconnects.increment();
+            }
+        }
+        // Registered outside the lock: the store may deliver the first snapshot on this thread
+        ListenerHandle registered;
+        try {
+            registered = delegate.watch(new CollectionListener<>() {
+                @Override
+                public void onChanges(Map<String, T> upserts, Set<String> removedIds, Timestamp readTime, boolean initial) {
+                    apply(registration, upserts, removedIds, readTime, initial);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    disconnect(registration, error);
+                }
+            });
+        } catch (RuntimeException e) {
+            disconnect(registration, e);
+            return;
+        }
+        synchronized (this) {
+            if (registration == generation && handle == null) {
+                handle = registered;
+                return;
+            }
+        }
+        // Failed or superseded while registering
+        registered.remove();
+    }
+
+    /**
+     * Detach the snapshot listener; reads fall back to the underlying repository
+     */
+    public synchronized void close() {
+        generation++;
+        if (handle != null) {
+            handle.remove();
+            handle = null;
+        }
+        markDisconnected();
+    }
+
+    /**
+     * Whether reads are currently served from memory
+     * @return true once the listener has delivered its first snapshot and has not failed since
+     */
+    public boolean isLive() {
+        return live;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(METRIC + ".live", this, replica -> replica.live ? 1 : 0)
+                .description("Whether reads are served from the in-memory copy (1) or the store (0)")
+                .tag("collection", collectionName)
+                .register(registry);
+        Gauge.builder(METRIC + ".documents", this, replica -> replica.documents.size())
+                .description("Documents held in the in-memory copy")
+                .tag("collection", collectionName)
+                .register(registry);
+        // How long reads have been falling back because the listener is down (0 while live)
+        TimeGauge.builder(METRIC + ".disconnected", this, TimeUnit.MILLISECONDS,
+                        replica -> replica.live ? 0 : System.currentTimeMillis() - replica.disconnectedSinceMillis)
+                .description("Time since the listener was lost")
+                .tag("collection", collectionName)
+                .register(registry);
+        TimeGauge.builder(METRIC + ".last.change.age", this, TimeUnit.MILLISECONDS,
+                        replica -> replica.lastChangeAtMillis > 0
+                                ? System.currentTimeMillis() - replica.lastChangeAtMillis : Double.NaN)
+                .description("Time since the copy last changed")
+                .tag("collection", collectionName)
+                .register(registry);
+        // Local apply time minus the store's read time for the last change; includes clock skew
+        TimeGauge.builder(METRIC + ".last.change.lag", this, TimeUnit.MILLISECONDS,
+                        replica -> replica.lastChangeAtMillis > 0 ? replica.lastChangeLagMillis : Double.NaN)
+                .description("Delay between the store reading the last change and the copy applying it")
+                .tag("collection", collectionName)
+                .register(registry);
+        FunctionCounter.builder(METRIC + ".reads", replicaReads, LongAdder::sum)
+                .description("Reads answered by the replicated repository")
+                .tag("collection", collectionName)
+                .tag("source", "replica")
+                .register(registry);
+        FunctionCounter.builder(METRIC + ".reads", fallbackReads, LongAdder::sum)
+                .description("Reads answered by the replicated repository")
+                .tag("collection", collectionName)
+                .tag("source", "store")
+                .register(registry);
+        FunctionCounter.builder(METRIC + ".reconnects", reconnects, LongAdder::sum)
+                .description("Times the listener was re-attached after failing")
+                .tag("collection", collectionName)
+                .register(registry);
+    }
+
+    private synchronized void apply(long registration, Map<String, T> upserts, Set<String> removedIds,
+                                    Timestamp readTime, boolean initial) {
+        if (registration != generation) {
+            return;
+        }
+        long delivery = ++deliveries;
+        if (initial) {
+            // Covers every document, so per-document entries are only kept for later changes
+            snapshotDelivery = delivery;
+            changedIn.clear();
+        } else {
+            upserts.keySet().forEach(id -> changedIn.put(id, delivery));
+            removedIds.forEach(id -> changedIn.put(id, delivery));
+        }
+        NavigableMap<String, T> updated = initial ? new TreeMap<>() : new TreeMap<>(documents);
+        upserts.forEach((id, entity) -> updated.put(id, copier.apply(entity)));
+        removedIds.forEach(updated::remove);
+        documents = Collections.unmodifiableNavigableMap(updated);
+        publishVersion();
+
+        long now = System.currentTimeMillis();
+        lastChangeAtMillis = now;
+        lastChangeLagMillis = readTime != null ? Math.max(0, now - readTime.toDate().getTime()) : 0;
+        if (!live) {
+            live = true;
+            logger.info("Replica of {} is live with {} documents", collectionName, updated.size());
+        }
+    }
+
+    private synchronized void disconnect(long registration, Throwable error) {
+        if (registration != generation) {
+            return;
+        }
+        logger.warn("Replica listener for {} failed, reading through until it reconnects: {}",
+                collectionName, error.getMessage());
+        generation++;
+        if (handle != null) {
+            handle.remove();
+            handle = null;
+        }
+        markDisconnected();
+    }
+
+    private void markDisconnected() {
+        if (live) {
+            disconnectedSinceMillis = System.currentTimeMillis();
+        }
+        live = false;
+    }
+
+    /**
+     * Whether the listener has delivered a change to the document since a write to it was issued
+     * @param issuedAt The delivery count when the write was issued
+     */
+    private boolean changedSince(String id, long issuedAt) {
+        return issuedAt < snapshotDelivery || changedIn.getOrDefault(id, 0L) > issuedAt;
+    }
+
+    private synchronized void applyWrite(String id, T entity, long issuedAt) {
+        if (!live || changedSince(id, issuedAt)) {
+            return;
+        }
+        NavigableMap<String, T> updated = new TreeMap<>(documents);
+        if (entity != null) {
+            updated.put(id, copier.apply(entity));
+        } else {
+            updated.remove(id);
+        }
+        documents = Collections.unmodifiableNavigableMap(updated);
+        publishVersion();
+    }
+
+    private synchronized void applyWrites(Map<String, IssuedWrite<T>> writes) {
+        if (!live || writes.isEmpty()) {
+            return;
+        }
+        NavigableMap<String, T> updated = new TreeMap<>(documents);
+        writes.forEach((id, write) -> {
+            if (!changedSince(id, write.issuedAt())) {
+                updated.put(id, copier.apply(write.entity()));
+            }
+        });
+        documents = Collections.unmodifiableNavigableMap(updated);
+        publishVersion();
+    }
+
+    /**
+     * Apply a successful field update by merging the fields into the copy's document.
+     * Field paths and transforms only the store can resolve, and documents the copy
+     * does not hold yet, are left for the listener to deliver.
+     */
+    private synchronized void applyUpdate(String id, Map<String, Object> fields, long issuedAt) {
+        T current = live ? documents.get(id) : null;
+        if (current == null || !isPlain(fields)) {
+            return;
+        }
+        Map<String, Object> merged = mapper.toMap(current);
+        merged.putAll(fields);
+        @SuppressWarnings("unchecked")
+        Class<T> type = (Class<T>) current.getClass();
+        applyWrite(id, mapper.toEntity(merged, type), issuedAt);
+    }
+
+    private static boolean isPlain(Map<String, Object> fields) {
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            if (field.getKey().contains(".") || field.getValue() instanceof FieldValue) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void publishVersion() {
+        version = new CollectionVersion(epoch + "." + (++changeCount), System.currentTimeMillis());
+    }
+
+    private T copy(T entity) {
+        return entity != null ? copier.apply(entity) : null;
+    }
+
+    private List<T> copyAll(Collection<T> entities) {
+        List<T> copies = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            copies.add(copier.apply(entity));
+        }
+        return copies;
+    }
+
+    private Page<T> pageOf(NavigableMap<String, T> snapshot, int limit, String pageToken) {
+        String startAfterId = PageToken.decode(pageToken);
+        NavigableMap<String, T> remaining = startAfterId != null ? snapshot.tailMap(startAfterId, false) : snapshot;
+        List<T> entities = new ArrayList<>(Math.min(limit, remaining.size()));
+        String lastId = null;
+        for (Map.Entry<String, T> entry : remaining.entrySet()) {
+            if (entities.size() == limit) {
+                return new Page<>(entities, PageToken.encode(lastId));
+            }
+            entities.add(copier.apply(entry.getValue()));
+            lastId = entry.getKey();
+        }
+        return new Page<>(entities, null);
+    }
+
+    private Map<String, T> byIds(NavigableMap<String, T> snapshot, Collection<String> ids) {
+        Map<String, T> entities = new HashMap<>();
+        for (String id : ids) {
+            T entity = snapshot.get(id);
+            if (entity != null) {
+                entities.put(id, copier.apply(entity));
+            }
+        }
+        return entities;
+    }
+
+    @Override
+    public CollectionVersion currentVersion() {
+        return live ? version : null;
+    }
+
+    @Override
+    public String newId() {
+        return delegate.newId();
+    }
+
+    @Override
+    public T findById(String id) throws ExecutionException, InterruptedException {
+        if (live) {
+            replicaReads.increment();
+            return copy(documents.get(id));
+        }
+        fallbackReads.increment();
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Versioned<T> findVersionedById(String id) throws ExecutionException, InterruptedException {
+        // The replica does not track versions; they come from the store
+        return delegate.findVersionedById(id);
+    }
+
+    @Override
+    public Map<String, T> findAllById(Collection<String> ids) throws ExecutionException, InterruptedException {
+        if (live) {
+            replicaReads.increment();
+            return byIds(documents, ids);
+        }
+        fallbackReads.increment();
+        return delegate.findAllById(ids);
+    }
+
+    @Override
+    public List<T> findAll() throws ExecutionException, InterruptedException {
+        if (live) {
+            replicaReads.increment();
+            return copyAll(documents.values());
+        }
+        fallbackReads.increment();
+        return delegate.findAll();
+    }
+
+    @Override
+    public Page<T> findPage(int limit, String pageToken) throws ExecutionException, InterruptedException {
+        if (live) {
+            replicaReads.increment();
+            return pageOf(documents, limit, pageToken);
+        }
+        fallbackReads.increment();
+        return delegate.findPage(limit, pageToken);
+    }
+
+    // Field queries need the store's field mapping, so they always read through
+
+    @Override
+    public Page<T> findPageByRange(String field, long fromInclusive, long toExclusive, int limit, String pageToken)
+            throws ExecutionException, InterruptedException {
+        return delegate.findPageByRange(field, fromInclusive, toExclusive, limit, pageToken);
+    }
+
+    @Override
+    public List<T> findByField(String field, Object value) throws ExecutionException, InterruptedException {
+        return delegate.findByField(field, value);
+    }
+
+    @Override
+    public T findFirstByField(String field, Object value) throws ExecutionException, InterruptedException {
+        return delegate.findFirstByField(field, value);
+    }
+
+    @Override
+    public void save(String id, T entity) throws ExecutionException, InterruptedException {
+        long issuedAt = deliveries;
+        delegate.save(id, entity);
+        applyWrite(id, entity, issuedAt);
+    }
+
+    @Override
+    public void merge(String id, T entity) throws ExecutionException, InterruptedException {
+        delegate.merge(id, entity);
+        // The merged result is only known to the store; the listener will deliver it
+    }
+
+    @Override
+    public void update(String id, Map<String, Object> fields) throws ExecutionException, InterruptedException {
+        long issuedAt = deliveries;
+        delegate.update(id, fields);
+        applyUpdate(id, fields, issuedAt);
+    }
+
+    @Override
+    public void delete(String id) throws ExecutionException, InterruptedException {
+        long issuedAt = deliveries;
+        delegate.delete(id);
+        applyWrite(id, null, issuedAt);
+    }
+
+    @Override
+    public void replace(String id, T entity, Long expectedVersion) throws ExecutionException, InterruptedException {
+        long issuedAt = deliveries;
+        delegate.replace(id, entity, expectedVersion);
+        applyWrite(id, entity, issuedAt);
+    }
+
+    @Override
+    public void update(String id, Map<String, Object> fields, Long expectedVersion)
+            throws ExecutionException, InterruptedException {
+        long issuedAt = deliveries;
+        delegate.update(id, fields, expectedVersion);
+        applyUpdate(id, fields, issuedAt);
+    }
+
+    @Override
+    public void update(String id, T entity, Set<String> keptFields, Long expectedVersion)
+            throws ExecutionException, InterruptedException {
+        long issuedAt = deliveries;
+        delegate.update(id, entity, keptFields, expectedVersion);
+        applyUpdate(id, mapper.toMap(entity, keptFields), issuedAt);
+    }
+
+    @Override
+    public void deleteExisting(String id, Long expectedVersion) throws ExecutionException, InterruptedException {
+        long issuedAt = deliveries;
+        delegate.deleteExisting(id, expectedVersion);
+        applyWrite(id, null, issuedAt);
+    }
+
+    @Override
+    public ListenerHandle watch(CollectionListener<T> listener) {
+        return delegate.watch(listener);
+    }
+
+    @Override
+    public CompletableFuture<T> findByIdAsync(String id) {
+        if (live) {
+            replicaReads.increment();
+            return CompletableFuture.completedFuture(copy(documents.get(id)));
+        }
+        fallbackReads.increment();
+        return delegate.findByIdAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Versioned<T>> findVersionedByIdAsync(String id) {
+        return delegate.findVersionedByIdAsync(id);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, T>> findAllByIdAsync(Collection<String> ids) {
+        if (live) {
+            replicaReads.increment();
+            return CompletableFuture.completedFuture(byIds(documents, ids));
+        }
+        fallbackReads.increment();
+        return delegate.findAllByIdAsync(ids);
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findAllAsync() {
+        if (live) {
+            replicaReads.increment();
+            return CompletableFuture.completedFuture(copyAll(documents.values()));
+        }
+        fallbackReads.increment();
+        return delegate.findAllAsync();
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageAsync(int limit, String pageToken) {
+        if (live) {
+            replicaReads.increment();
+            try {
+                return CompletableFuture.completedFuture(pageOf(documents, limit, pageToken));
+            } catch (IllegalArgumentException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        fallbackReads.increment();
+        return delegate.findPageAsync(limit, pageToken);
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByFieldAsync(String field, Object value) {
+        return delegate.findByFieldAsync(field, value);
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageByRangeAsync(String field, long fromInclusive, long toExclusive,
+                                                           Map<String, Object> equalTo, int limit, String pageToken) {
+        return delegate.findPageByRangeAsync(field, fromInclusive, toExclusive, equalTo, limit, pageToken);
+    }
+
+    @Override
+    public CompletableFuture<Page<T>> findPageByFieldAsync(String field, Object value, int limit, String pageToken) {
+        return delegate.findPageByFieldAsync(field, value, limit, pageToken);
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findByFieldInAsync(String field, Collection<?> values) {
+        return delegate.findByFieldInAsync(field, values);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAsync(String id, T entity) {
+        long issuedAt = deliveries;
+        return delegate.saveAsync(id, entity).thenRun(() -> applyWrite(id, entity, issuedAt));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields) {
+        long issuedAt = deliveries;
+        return delegate.updateAsync(id, fields).thenRun(() -> applyUpdate(id, fields, issuedAt));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(String id) {
+        long issuedAt = deliveries;
+        return delegate.deleteAsync(id).thenRun(() -> applyWrite(id, null, issuedAt));
+    }
+
+    @Override
+    public CompletableFuture<Void> replaceAsync(String id, T entity, Long expectedVersion) {
+        long issuedAt = deliveries;
+        return delegate.replaceAsync(id, entity, expectedVersion).thenRun(() -> applyWrite(id, entity, issuedAt));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateAsync(String id, Map<String, Object> fields, Long expectedVersion) {
+        long issuedAt = deliveries;
+        return delegate.updateAsync(id, fields, expectedVersion).thenRun(() -> applyUpdate(id, fields, issuedAt));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteExistingAsync(String id, Long expectedVersion) {
+        long issuedAt = deliveries;
+        return delegate.deleteExistingAsync(id, expectedVersion).thenRun(() -> applyWrite(id, null, issuedAt));
+    }
+
+    @Override
+    public DocumentBulkWriter<T> openBulkWriter(int initialOpsPerSecond, int maxOpsPerSecond) {
+        DocumentBulkWriter<T> writer = delegate.openBulkWriter(initialOpsPerSecond, maxOpsPerSecond);
+        // Every write applied on its own would copy the whole map once per document. Written
+        // documents are applied a chunk at a time instead, and the rest once the writer is closed.
+        return new DocumentBulkWriter<>() {
+            // Guarded by itself
+            private final Map<String, IssuedWrite<T>> written = new HashMap<>();
+
+            @Override
+            public CompletableFuture<Void> save(String id, T entity) {
+                IssuedWrite<T> write = new IssuedWrite<>(entity, deliveries);
+                return writer.save(id, entity).thenRun(() -> {
+                    Map<String, IssuedWrite<T>> chunk = null;
+                    synchronized (written) {
+                        written.put(id, write);
+                        if (written.size() >= BULK_APPLY_CHUNK) {
+                            chunk = new HashMap<>(written);
+                            written.clear();
+                        }
+                    }
+                    if (chunk != null) {
+                        applyWrites(chunk);
+                    }
+                });
+            }
+
+            @Override
+            public void close() throws ExecutionException, InterruptedException {
+                try {
+                    writer.close();
+                } finally {
+                    Map<String, IssuedWrite<T>> rest;
+                    synchronized (written) {
+                        rest = new HashMap<>(written);
+                        written.clear();
+                    }
+                    applyWrites(rest);
+                }
+            }
+        };
+    }
+}
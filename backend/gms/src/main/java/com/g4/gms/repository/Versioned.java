@@ -0,0 +1,12 @@
+package com.g4.gms.repository;
+
+/**
+ * A document together with the version it was read at. Passing the version back
+ * to a write makes the write fail with {@link DocumentConflictException} if the
+ * document has changed since.
+ * @param document The mapped model
+ * @param version The document's version (on Firestore, its update time in epoch microseconds)
+ * @param <T> The model class
+ */
+public record Versioned<T>(T document, long version) {
+}
@@ -0,0 +1,133 @@
+package com.g4.gms.security;
+
+import com.google.firebase.auth.FirebaseAuthException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local view of the authentication system's email to account mapping, so
+ * login can check account consistency without a network call. The view is
+ * kept current by the backend's own writes (register, email change) and is
+ * fully reconciled in the background every app.account-directory.sync-interval-ms
+ * to pick up changes made elsewhere (e.g. the Firebase console). Writes made
+ * while a reconcile is listing are recorded and replayed onto the new view
+ * before it is swapped in, so the listing cannot undo them.
+ */
+@Component
+public class AccountDirectory {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountDirectory.class);
+
+    private final IdentityProvider identityProvider;
+    private volatile Map<String, IdentityProvider.Account> accountsByEmail = new ConcurrentHashMap<>();
+
+    // Guards the swap and the writes that race it
+    private final Object lock = new Object();
+    // Writes made since the running reconcile started (null value = evicted); null when none is running
+    private Map<String, IdentityProvider.Account> changedDuringSync;
+
+    public AccountDirectory(IdentityProvider identityProvider) {
+        this.identityProvider = identityProvider;
+    }
+
+    /**
+     * Look up an account by email, going to the authentication system only on a miss
+     * @param email Email address
+     * @return The account (USER_NOT_FOUND is thrown if there is none)
+     */
+    public IdentityProvider.Account getAccountByEmail(String email) throws FirebaseAuthException {
+        IdentityProvider.Account account = accountsByEmail.get(email);
+        if (account != null) {
+            return account;
+        }
+        account = identityProvider.getAccountByEmail(email);
+        put(account);
+        return account;
+    }
+
+    /**
+     * Record an account the backend has just created or changed
+     * @param account The account as returned by the authentication system
+     */
+    public void put(IdentityProvider.Account account) {
+        if (account != null && account.email() != null) {
+            record(account.email(), account);
+        }
+    }
+
+    /**
+     * Forget an email address (e.g. the old address after an email change)
+     * @param email Email address
+     */
+    public void evict(String email) {
+        if (email != null) {
+            record(email, null);
+        }
+    }
+
+    private void record(String email, IdentityProvider.Account account) {
+        synchronized (lock) {
+            if (account != null) {
+                accountsByEmail.put(email, account);
+            } else {
+                accountsByEmail.remove(email);
+            }
+            if (changedDuringSync != null) {
+                changedDuringSync.put(email, account);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the view from a full listing of the authentication system and swap it in,
+     * replaying any put or evict made while the listing ran
+     */
+    @Scheduled(fixedDelayString = "${app.account-directory.sync-interval-ms:300000}",
+            initialDelayString = "${app.account-directory.sync-interval-ms:300000}")
+    public synchronized void reconcile() {
+        Map<String, IdentityProvider.Account> fresh = new ConcurrentHashMap<>();
+        synchronized (lock) {
+            changedDuringSync = new HashMap<>();
+        }
+        try {
+            identityProvider.forEachAccount(account -> {
+                if (account.email() != null) {
+                    fresh.put(account.email(), account);
+                }
+            });
+        } catch (FirebaseAuthException | RuntimeException e) {
+            // Keep serving the current view; the next run will try again
+            logger.warn("Account directory sync failed: {}", e.getMessage());
+            synchronized (lock) {
+                changedDuringSync = null;
+            }
+            return;
+        }
+        synchronized (lock) {
+            changedDuringSync.forEach((email, account) -> {
+                if (account != null) {
+                    fresh.put(email, account);
+                } else {
+                    fresh.remove(email);
+                }
+            });
+            changedDuringSync = null;
+            accountsByEmail = fresh;
+        }
+        logger.debug("Account directory synced: {} accounts", fresh.size());
+    }
+
+    /**
+     * Number of accounts currently held
+     * @return The count
+     */
+    public int size() {
+        return accountsByEmail.size();
+    }
+}
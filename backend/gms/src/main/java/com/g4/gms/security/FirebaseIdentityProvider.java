@@ -0,0 +1,110 @@
+package com.g4.gms.security;
+
+import com.google.firebase.auth.ExportedUserRecord;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseAuthException;
+import com.google.firebase.auth.ListUsersPage;
+import com.google.firebase.auth.UserRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * IdentityProvider backed by Firebase Authentication. Every call is timed as
+ * {@value #METRIC}, tagged by operation and outcome.
+ */
+@Component
+@Profile("!inmemory")
+public class FirebaseIdentityProvider implements IdentityProvider {
+
+    public static final String METRIC = "gms.firebase.auth";
+
+    @FunctionalInterface
+    private interface AuthCall<R> {
+        R call() throws FirebaseAuthException;
+    }
+
+    private final FirebaseAuth firebaseAuth;
+    private final MeterRegistry meterRegistry;
+
+    public FirebaseIdentityProvider(FirebaseAuth firebaseAuth, MeterRegistry meterRegistry) {
+        this.firebaseAuth = firebaseAuth;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Account createAccount(String email, String password, String displayName) throws FirebaseAuthException {
+        UserRecord.CreateRequest createRequest = new UserRecord.CreateRequest()
+                .setEmail(email)
+                .setPassword(password)
+                .setDisplayName(displayName)
+                .setEmailVerified(false);
+        UserRecord userRecord = time("createUser", () -> firebaseAuth.createUser(createRequest));
+        return new Account(userRecord.getUid(), userRecord.getEmail());
+    }
+
+    @Override
+    public void setRole(String uid, String role) throws FirebaseAuthException {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("role", role);
+        time("setCustomUserClaims", () -> {
+            firebaseAuth.setCustomUserClaims(uid, claims);
+            return null;
+        });
+    }
+
+    @Override
+    public Account getAccountByEmail(String email) throws FirebaseAuthException {
+        UserRecord userRecord = time("getUserByEmail", () -> firebaseAuth.getUserByEmail(email));
+        return new Account(userRecord.getUid(), userRecord.getEmail());
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) throws FirebaseAuthException {
+        // Pages of 1000 users, fetched one at a time so each round trip is timed
+        ListUsersPage page = time("listUsers", () -> firebaseAuth.listUsers(null));
+        while (page != null) {
+            for (ExportedUserRecord userRecord : page.getValues()) {
+                action.accept(new Account(userRecord.getUid(), userRecord.getEmail()));
+            }
+            ListUsersPage current = page;
+            page = current.hasNextPage() ? time("listUsers", current::getNextPage) : null;
+        }
+    }
+
+    @Override
+    public Account updateEmail(String uid, String newEmail) throws FirebaseAuthException {
+        UserRecord.UpdateRequest request = new UserRecord.UpdateRequest(uid)
+                .setEmail(newEmail);
+        // You might also want to set setEmailVerified(false) here and trigger verification flow
+        UserRecord userRecord = time("updateUser", () -> firebaseAuth.updateUser(request));
+        return new Account(userRecord.getUid(), userRecord.getEmail());
+    }
+
+    @Override
+    public String generatePasswordResetLink(String email) throws FirebaseAuthException {
+        // Firebase Admin SDK handles sending the email containing the reset link
+        return time("generatePasswordResetLink", () -> firebaseAuth.generatePasswordResetLink(email));
+    }
+
+    private <R> R time(String operation, AuthCall<R> call) throws FirebaseAuthException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            R result = call.call();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Timer.builder(METRIC)
+                    .description("Latency of Firebase Authentication calls")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.g4.gms.security;
+
+import com.google.firebase.auth.FirebaseAuthException;
+
+import java.util.function.Consumer;
+
+/**
+ * The account operations the backend needs from the authentication system.
+ * Errors are reported as FirebaseAuthException with an AuthErrorCode so
+ * callers handle every implementation the same way.
+ */
+public interface IdentityProvider {
+
+    /**
+     * An account as seen by the authentication system
+     * @param uid The account UID (also the Firestore user ID)
+     * @param email The account email
+     */
+    record Account(String uid, String email) {}
+
+    /**
+     * Create an account
+     * @param email Email address
+     * @param password Plain-text password
+     * @param displayName Display name
+     * @return The created account
+     */
+    Account createAccount(String email, String password, String displayName) throws FirebaseAuthException;
+
+    /**
+     * Attach the role custom claim to an account
+     * @param uid Account UID
+     * @param role Role name
+     */
+    void setRole(String uid, String role) throws FirebaseAuthException;
+
+    /**
+     * Look up an account by email
+     * @param email Email address
+     * @return The account (USER_NOT_FOUND is thrown if there is none)
+     */
+    Account getAccountByEmail(String email) throws FirebaseAuthException;
+
+    /**
+     * Visit every account, paging through the authentication system as needed
+     * @param action Called once per account
+     */
+    void forEachAccount(Consumer<Account> action) throws FirebaseAuthException;
+
+    /**
+     * Change the email of an account
+     * @param uid Account UID
+     * @param newEmail New email address
+     * @return The updated account
+     */
+    Account updateEmail(String uid, String newEmail) throws FirebaseAuthException;
+
+    /**
+     * Generate (and send) a password reset link
+     * @param email Email address
+     * @return The reset link
+     */
+    String generatePasswordResetLink(String email) throws FirebaseAuthException;
+}
@@ -0,0 +1,85 @@
+package com.g4.gms.security;
+
+import com.google.firebase.ErrorCode;
+import com.google.firebase.auth.AuthErrorCode;
+import com.google.firebase.auth.FirebaseAuthException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * IdentityProvider for the "inmemory" profile. Accounts live in process
+ * memory; passwords are not stored since login checks the Firestore hash.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryIdentityProvider implements IdentityProvider {
+
+    private final Map<String, Account> accountsByUid = new ConcurrentHashMap<>();
+    private final Map<String, String> uidsByEmail = new ConcurrentHashMap<>();
+
+    @Override
+    public Account createAccount(String email, String password, String displayName) throws FirebaseAuthException {
+        String uid = UUID.randomUUID().toString().replace("-", "").substring(0, 28);
+        if (uidsByEmail.putIfAbsent(email, uid) != null) {
+            throw error(ErrorCode.ALREADY_EXISTS, AuthErrorCode.EMAIL_ALREADY_EXISTS, "Email already in use: " + email);
+        }
+        Account account = new Account(uid, email);
+        accountsByUid.put(uid, account);
+        return account;
+    }
+
+    @Override
+    public void setRole(String uid, String role) throws FirebaseAuthException {
+        if (!accountsByUid.containsKey(uid)) {
+            throw error(ErrorCode.NOT_FOUND, AuthErrorCode.USER_NOT_FOUND, "No account with UID: " + uid);
+        }
+    }
+
+    @Override
+    public Account getAccountByEmail(String email) throws FirebaseAuthException {
+        String uid = uidsByEmail.get(email);
+        Account account = uid != null ? accountsByUid.get(uid) : null;
+        if (account == null) {
+            throw error(ErrorCode.NOT_FOUND, AuthErrorCode.USER_NOT_FOUND, "No account with email: " + email);
+        }
+        return account;
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        accountsByUid.values().forEach(action);
+    }
+
+    @Override
+    public synchronized Account updateEmail(String uid, String newEmail) throws FirebaseAuthException {
+        Account current = accountsByUid.get(uid);
+        if (current == null) {
+            throw error(ErrorCode.NOT_FOUND, AuthErrorCode.USER_NOT_FOUND, "No account with UID: " + uid);
+        }
+        String owner = uidsByEmail.putIfAbsent(newEmail, uid);
+        if (owner != null && !owner.equals(uid)) {
+            throw error(ErrorCode.ALREADY_EXISTS, AuthErrorCode.EMAIL_ALREADY_EXISTS, "Email already in use: " + newEmail);
+        }
+        if (!newEmail.equals(current.email())) {
+            uidsByEmail.remove(current.email(), uid);
+        }
+        Account updated = new Account(uid, newEmail);
+        accountsByUid.put(uid, updated);
+        return updated;
+    }
+
+    @Override
+    public String generatePasswordResetLink(String email) throws FirebaseAuthException {
+        getAccountByEmail(email);
+        return "http://localhost/reset-password?email=" + email;
+    }
+
+    private static FirebaseAuthException error(ErrorCode errorCode, AuthErrorCode authErrorCode, String message) {
+        return new FirebaseAuthException(errorCode, message, null, null, authErrorCode);
+    }
+}
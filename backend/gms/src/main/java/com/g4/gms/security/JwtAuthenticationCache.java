@@ -0,0 +1,99 @@
+package com.g4.gms.security;
+
+import com.g4.gms.config.JwtProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Bounded cache of already-verified tokens, so a client reusing the same
+ * token skips the HS512 signature check on every request. Keys are SHA-256
+ * hashes of the token (the raw token is never held), and each entry expires
+ * exactly when its token does.
+ */
+@Component
+public class JwtAuthenticationCache {
+
+    /**
+     * The principal and authorities recovered from a verified token
+     * @param userId The token subject
+     * @param authorities Authorities derived from the role claim
+     * @param expiresAt When the token stops being valid
+     */
+    public record VerifiedToken(String userId, List<GrantedAuthority> authorities, Date expiresAt) {
+    }
+
+    private final Cache<String, VerifiedToken> tokens;
+
+    public JwtAuthenticationCache(JwtProperties jwtProperties) {
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(jwtProperties.getAuthCacheMaxSize())
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return untilExpiry(value);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return untilExpiry(value);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    private static long untilExpiry(VerifiedToken value) {
+        long millis = value.expiresAt().getTime() - System.currentTimeMillis();
+        return Math.max(0, Duration.ofMillis(millis).toNanos());
+    }
+
+    /**
+     * Look up a token verified earlier
+     * @param token The compact JWT
+     * @return The cached result, or null if the token has not been seen or has expired
+     */
+    public VerifiedToken get(String token) {
+        VerifiedToken verified = tokens.getIfPresent(hash(token));
+        // Caffeine evicts lazily, so re-check expiry rather than trust a stale entry
+        if (verified != null && verified.expiresAt().before(new Date())) {
+            return null;
+        }
+        return verified;
+    }
+
+    /**
+     * Remember a token whose signature and expiry have just been checked
+     * @param token The compact JWT
+     * @param verified The principal recovered from it
+     */
+    public void put(String token, VerifiedToken verified) {
+        if (verified.expiresAt() != null) {
+            tokens.put(hash(token), verified);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JRE is required to ship SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.g4.gms.security;
 
+import com.g4.gms.security.JwtAuthenticationCache.VerifiedToken;
 import com.g4.gms.service.UserService;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
@@ -11,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -21,7 +23,6 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 
 @Component
@@ -32,6 +33,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtTokenProvider tokenProvider;
 
+    @Autowired
+    private JwtAuthenticationCache authenticationCache;
+
     // Injecting UserService to potentially load more user details if needed in the future,
     // but currently relying on claims from the token.
     @Autowired
@@ -44,20 +48,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String userId = tokenProvider.getUserIdFromJWT(jwt);
-                Claims claims = tokenProvider.getAllClaimsFromToken(jwt);
-                String role = claims.get("role", String.class);
-
-                // Ensure role is not null before creating authority
-                List<SimpleGrantedAuthority> authorities = Collections.emptyList();
-                if (role != null) {
-                    // Spring Security expects roles to start with "ROLE_" convention
-                    authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()));
-                } else {
-                    logger.warn("Role claim missing in JWT for user {}", userId);
-                    // Handle missing role case if necessary (e.g., assign default role or deny access)
-                }
+            VerifiedToken verified = StringUtils.hasText(jwt) ? verify(jwt) : null;
+
+            if (verified != null) {
+                String userId = verified.userId();
+                List<GrantedAuthority> authorities = verified.authorities();
 
                 // Create authentication token directly from token data (userId as principal)
                  UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
@@ -82,6 +77,39 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Resolve the token to a principal, verifying the signature only on a cache miss
+     * @param jwt The compact JWT
+     * @return The verified principal, or null if the token is invalid or expired
+     */
+    private VerifiedToken verify(String jwt) {
+        VerifiedToken cached = authenticationCache.get(jwt);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = tokenProvider.validateAndGetClaims(jwt);
+        if (claims == null) {
+            return null;
+        }
+        String userId = claims.getSubject();
+        String role = claims.get("role", String.class);
+
+        // Ensure role is not null before creating authority
+        List<GrantedAuthority> authorities = Collections.emptyList();
+        if (role != null) {
+            // Spring Security expects roles to start with "ROLE_" convention
+            authorities = Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()));
+        } else {
+            logger.warn("Role claim missing in JWT for user {}", userId);
+            // Handle missing role case if necessary (e.g., assign default role or deny access)
+        }
+
+        VerifiedToken verified = new VerifiedToken(userId, authorities, claims.getExpiration());
+        authenticationCache.put(jwt, verified);
+        return verified;
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         // Check if the header exists and starts with "Bearer "
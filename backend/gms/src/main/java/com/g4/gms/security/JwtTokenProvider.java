@@ -25,6 +25,8 @@ public class JwtTokenProvider {
 
     private final JwtProperties jwtProperties;
     private SecretKey jwtSecretKey;
+    // Built once; a JwtParser is immutable and safe to share between threads
+    private JwtParser jwtParser;
 
     @Autowired
     public JwtTokenProvider(JwtProperties jwtProperties) {
@@ -47,6 +49,7 @@ public class JwtTokenProvider {
                  this.jwtSecretKey = Keys.secretKeyFor(SignatureAlgorithm.HS512);
             }
         }
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(jwtSecretKey).build();
     }
 
     public String generateToken(User user) {
@@ -72,11 +75,7 @@ public class JwtTokenProvider {
     }
 
      public Claims getAllClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                   .setSigningKey(jwtSecretKey)
-                   .build()
-                   .parseClaimsJws(token)
-                   .getBody();
+        return jwtParser.parseClaimsJws(token).getBody();
     }
 
     public <T> T getClaimFromToken(String token, Function<Claims, T> claimsResolver) {
@@ -98,9 +97,17 @@ public class JwtTokenProvider {
     }
 
     public boolean validateToken(String authToken) {
+        return validateAndGetClaims(authToken) != null;
+    }
+
+    /**
+     * Verify the token's signature and expiry and return its claims, in a single parse
+     * @param authToken The compact JWT
+     * @return The claims, or null if the token is invalid or expired
+     */
+    public Claims validateAndGetClaims(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(jwtSecretKey).build().parseClaimsJws(authToken);
-            return true;
+            return jwtParser.parseClaimsJws(authToken).getBody();
         } catch (SignatureException ex) {
             logger.error("Invalid JWT signature: {}", ex.getMessage());
         } catch (MalformedJwtException ex) {
@@ -112,6 +119,6 @@ public class JwtTokenProvider {
         } catch (IllegalArgumentException ex) {
             logger.error("JWT token compact of handler are invalid: {}", ex.getMessage());
         }
-        return false;
+        return null;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.g4.gms.security;
+
+import com.g4.gms.config.PasswordHashingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a small dedicated pool with a bounded queue, so password
+ * work can never occupy more than app.password-hashing.threads cores. When
+ * the queue is full the request is rejected immediately with
+ * {@link PasswordHashingRejectedException} rather than queued without limit.
+ *
+ * The pool is reported through Micrometer's executor metrics (name
+ * {@value #POOL_NAME}); hashing time, time spent queued and rejections are
+ * {@value #METRIC}, {@value #METRIC}.wait and {@value #METRIC}.rejected.
+ */
+@Component
+public class PasswordHasher {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    public static final String METRIC = "gms.password.hashing";
+    public static final String POOL_NAME = "password-hash";
+
+    // The application's only BCrypt encoder; every hash and check goes through this pool
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    private final ThreadPoolExecutor executor;
+
+    private final Timer hashTimer;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordHashingProperties properties, MeterRegistry meterRegistry) {
+        int threads = properties.getThreads();
+        int queueCapacity = properties.getQueueCapacity();
+        BlockingQueue<Runnable> queue = queueCapacity > 0
+                ? new ArrayBlockingQueue<>(queueCapacity)
+                : new SynchronousQueue<>();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue,
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        new ExecutorServiceMetrics(executor, POOL_NAME, List.of()).bindTo(meterRegistry);
+        this.hashTimer = Timer.builder(METRIC)
+                .description("Time spent running BCrypt")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder(METRIC + ".wait")
+                .description("Time password work waited for a hashing thread")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(METRIC + ".rejected")
+                .description("Password work turned away because the hashing pool was saturated")
+                .register(meterRegistry);
+        logger.info("Password hashing pool: {} threads, queue capacity {}", threads, queueCapacity);
+    }
+
+    /**
+     * Hash a password
+     * @param rawPassword Plain-text password
+     * @return The BCrypt hash
+     * @throws PasswordHashingRejectedException if the pool is saturated
+     */
+    public String encode(String rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Check a password against a stored hash
+     * @param rawPassword Plain-text password
+     * @param encodedPassword The stored BCrypt hash
+     * @return true if they match
+     * @throws PasswordHashingRejectedException if the pool is saturated
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    private <T> T run(Callable<T> work) {
+        long submittedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                waitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return work.call();
+                } finally {
+                    hashTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Too many password requests in progress. Please retry shortly.");
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
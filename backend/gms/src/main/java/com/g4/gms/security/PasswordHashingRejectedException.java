@@ -0,0 +1,12 @@
+package com.g4.gms.security;
+
+/**
+ * Thrown when the password hashing executor is saturated. Controllers map it
+ * to 429 Too Many Requests so the client backs off instead of piling up.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+}
@@ -4,19 +4,18 @@ import com.g4.gms.dto.AuthResponse;
 import com.g4.gms.dto.LoginRequest;
 import com.g4.gms.dto.RegisterRequest;
 import com.g4.gms.model.User;
+import com.g4.gms.security.AccountDirectory;
+import com.g4.gms.security.IdentityProvider;
 import com.g4.gms.security.JwtTokenProvider;
-import com.google.firebase.auth.FirebaseAuth;
+import com.g4.gms.security.PasswordHasher;
+import com.g4.gms.security.PasswordHashingRejectedException;
 import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.UserRecord;
 import com.google.firebase.auth.AuthErrorCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 @Service
@@ -25,47 +24,51 @@ public class AuthService {
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
 
     @Autowired
-    private FirebaseAuth firebaseAuth;
+    private IdentityProvider identityProvider;
     
     @Autowired
     private UserService userService;
     
     @Autowired
-    private BCryptPasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Autowired
     private JwtTokenProvider jwtTokenProvider;
 
+    @Autowired
+    private AccountDirectory accountDirectory;
+
+    @Autowired
+    private LoginMetrics loginMetrics;
+
     public AuthResponse register(RegisterRequest request) {
         try {
             logger.info("Attempting to register user with email: {}", request.getEmail());
+            // Hash first: if the hashing pool is saturated we reject before creating anything
+            String passwordHash = passwordHasher.encode(request.getPassword());
             // First, create the user in Firebase Auth
-            UserRecord.CreateRequest createRequest = new UserRecord.CreateRequest()
-                    .setEmail(request.getEmail())
-                    .setPassword(request.getPassword())
-                    .setDisplayName(request.getFirstName() + " " + request.getLastName())
-                    .setEmailVerified(false);
-
-            UserRecord userRecord = firebaseAuth.createUser(createRequest);
-            logger.info("Successfully created user in Firebase Auth with UID: {}", userRecord.getUid());
+            IdentityProvider.Account account = identityProvider.createAccount(
+                    request.getEmail(),
+                    request.getPassword(),
+                    request.getFirstName() + " " + request.getLastName());
+            logger.info("Successfully created user in Firebase Auth with UID: {}", account.uid());
+            accountDirectory.put(account);
             
             // Set custom claims (role) in Firebase Auth - still useful if interacting with Firebase services directly
             String role = request.getRole() != null ? request.getRole() : "USER";
-            Map<String, Object> claims = new HashMap<>();
-            claims.put("role", role);
-            firebaseAuth.setCustomUserClaims(userRecord.getUid(), claims);
-            logger.debug("Set custom claims in Firebase for UID: {}", userRecord.getUid());
+            identityProvider.setRole(account.uid(), role);
+            logger.debug("Set custom claims in Firebase for UID: {}", account.uid());
             
             // Create user object for Firestore
             User user = new User();
-            user.setUserId(userRecord.getUid());
+            user.setUserId(account.uid());
             user.setEmail(request.getEmail());
             user.setFirstName(request.getFirstName());
             user.setLastName(request.getLastName());
             user.setUsername(request.getUsername());
             user.setRole(role);
             // Store encrypted password in Firestore
-            user.setPassword(passwordEncoder.encode(request.getPassword()));
+            user.setPassword(passwordHash);
             user.setLocation(request.getLocation());
             user.setPhoneNumber(request.getPhoneNumber());
             // UserService will set createdAt
@@ -79,7 +82,7 @@ public class AuthService {
             logger.info("Generated JWT for user: {}", user.getEmail());
             
             // Return the JWT in the response
-            return new AuthResponse(jwtToken, userRecord.getUid(), userRecord.getEmail(), user.getRole());
+            return new AuthResponse(jwtToken, account.uid(), account.email(), user.getRole());
             
         } catch (FirebaseAuthException e) {
             logger.error("Firebase registration failed for email {}: {}", request.getEmail(), e.getMessage(), e);
@@ -100,6 +103,9 @@ public class AuthService {
                 message += "An unexpected error occurred (no specific error code). Please try again.";
             }
             return new AuthResponse(message);
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Registration rejected for email {}: password hashing pool saturated", request.getEmail());
+            throw e;
         } catch (ExecutionException | InterruptedException e) {
              logger.error("Firestore user creation failed for email {}: {}", request.getEmail(), e.getMessage(), e);
              // Consider cleaning up the Firebase Auth user if Firestore save fails (complex rollback needed)
@@ -112,34 +118,42 @@ public class AuthService {
 
     public AuthResponse login(LoginRequest request) {
         String userEmail = request.getEmail(); // Use a variable for email
+        long loginStart = System.nanoTime();
         try {
             logger.info("Attempting login for email: {}", userEmail);
             // 1. Get user by email from Firestore (contains role and hashed password)
+            long stageStart = System.nanoTime();
             User user = userService.getUserByEmail(userEmail);
+            loginMetrics.record(LoginMetrics.USER_LOOKUP, stageStart);
             if (user == null) {
                 logger.warn("Login failed: User not found in Firestore with email: {}", userEmail);
                 return new AuthResponse("Invalid email or password."); // Generic message
             }
             
             // 2. Verify password using BCrypt
-            if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+            stageStart = System.nanoTime();
+            boolean passwordMatches = passwordHasher.matches(request.getPassword(), user.getPassword());
+            loginMetrics.record(LoginMetrics.PASSWORD_CHECK, stageStart);
+            if (!passwordMatches) {
                  logger.warn("Login failed: Invalid password for email: {}", userEmail);
                 return new AuthResponse("Invalid email or password."); // Generic message
             }
             
             // 3. Verify user exists in Firebase Auth with the SAME email
+            //    (answered from the local account directory; only a miss goes to Firebase)
+            stageStart = System.nanoTime();
             try {
-                 UserRecord userRecord = firebaseAuth.getUserByEmail(userEmail);
+                 IdentityProvider.Account account = accountDirectory.getAccountByEmail(userEmail);
                  // Ensure Firestore UID matches Firebase Auth UID (already existed, kept for safety)
-                 if (!userRecord.getUid().equals(user.getUserId())) {
+                 if (!account.uid().equals(user.getUserId())) {
                      logger.error("CRITICAL INCONSISTENCY: UID mismatch for email {}. Firestore UID: {}, Firebase Auth UID: {}. Login denied.", 
-                                  userEmail, user.getUserId(), userRecord.getUid());
+                                  userEmail, user.getUserId(), account.uid());
                      return new AuthResponse("Login failed due to an internal account inconsistency.");
                  }
                  // Ensure the email matches exactly (case-sensitive)
-                 if (!userRecord.getEmail().equals(user.getEmail())) {
+                 if (!account.email().equals(user.getEmail())) {
                     logger.error("CRITICAL INCONSISTENCY: Email mismatch for UID {}. Firestore email: {}, Firebase Auth email: {}. Login denied.", 
-                                  user.getUserId(), user.getEmail(), userRecord.getEmail());
+                                  user.getUserId(), user.getEmail(), account.email());
                      // This is the scenario you described! Don't log in.
                      return new AuthResponse("Login failed due to an internal account inconsistency.");
                  }
@@ -154,15 +168,23 @@ public class AuthService {
                      logger.error("Could not retrieve user from Firebase Auth during login for email {}: {}. Login denied.", userEmail, e.getMessage(), e);
                      return new AuthResponse("Login failed: Could not verify user account status.");
                  }
+            } finally {
+                 loginMetrics.record(LoginMetrics.ACCOUNT_CHECK, stageStart);
             }
             
             // 4. Generate *our* backend JWT (only if all checks passed)
+            stageStart = System.nanoTime();
             String jwtToken = jwtTokenProvider.generateToken(user);
+            loginMetrics.record(LoginMetrics.TOKEN_ISSUE, stageStart);
+            loginMetrics.record(LoginMetrics.TOTAL, loginStart);
             logger.info("Login successful, generated JWT for user: {}", userEmail);
             
             // 5. Return the JWT response
             return new AuthResponse(jwtToken, user.getUserId(), user.getEmail(), user.getRole());
             
+        } catch (PasswordHashingRejectedException e) {
+            logger.warn("Login rejected for email {}: password hashing pool saturated", userEmail);
+            throw e;
         } catch (ExecutionException | InterruptedException e) {
              logger.error("Firestore lookup failed during login for email {}: {}", userEmail, e.getMessage(), e);
              return new AuthResponse("Login failed due to a database error.");
@@ -175,7 +197,7 @@ public class AuthService {
     public void requestPasswordReset(String email) {
         try {
             // Firebase Admin SDK handles sending the email containing the reset link
-            String link = firebaseAuth.generatePasswordResetLink(email);
+            String link = identityProvider.generatePasswordResetLink(email);
             // Log success internally. The link variable is generated but typically not used directly here.
             logger.info("Successfully requested password reset for email (email sent by Firebase): {}", email);
             // NOTE: We intentionally do NOT indicate to the caller whether the email exists
@@ -0,0 +1,421 @@
+package com.g4.gms.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.g4.gms.config.BulkImportProperties;
+import com.g4.gms.dto.ImportJobResponse;
+import com.g4.gms.dto.PickupLocationRequest;
+import com.g4.gms.dto.ScheduleImportRow;
+import com.g4.gms.model.PickupLocation;
+import com.g4.gms.model.Schedule;
+import com.g4.gms.repository.DocumentBulkWriter;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Imports pickup locations and schedules in bulk from CSV or from a JSON array.
+ *
+ * The upload is spooled to a temporary file so the request returns as soon as the
+ * body has arrived; the import itself runs as a job on a small bounded pool, and its
+ * progress is read back by job ID. Rows are parsed one at a time, never the whole
+ * payload at once, and written through the store's bulk writer, which batches them
+ * and ramps the write rate up gradually instead of hitting a cold collection at full
+ * speed. A row that cannot be read, fails validation or fails to write is reported
+ * with its row number and the job carries on; a payload that is not valid CSV or
+ * JSON at all stops the job, keeping the rows already written.
+ */
+@Service
+public class BulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+
+    public static final String PICKUP_LOCATIONS = "pickup-locations";
+    public static final String SCHEDULES = "schedules";
+
+    public enum Format {
+        CSV, JSON
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    /**
+     * Turns one parsed row into a write; throws IllegalArgumentException for a row
+     * that is readable but cannot be imported
+     */
+    @FunctionalInterface
+    private interface RowImporter<R> {
+        CompletableFuture<?> importRow(R row) throws ExecutionException, InterruptedException;
+    }
+
+    private final PickupLocationService pickupLocationService;
+    private final ScheduleService scheduleService;
+    private final BulkImportProperties properties;
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final Validator validator;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public BulkImportService(PickupLocationService pickupLocationService, ScheduleService scheduleService,
+                             BulkImportProperties properties, ObjectMapper objectMapper, Validator validator) {
+        this.pickupLocationService = pickupLocationService;
+        this.scheduleService = scheduleService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.csvMapper = CsvMapper.builder()
+                .enable(CsvParser.Feature.TRIM_SPACES)
+                .enable(CsvParser.Feature.EMPTY_STRING_AS_NULL)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+
+        int workers = properties.getWorkers();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bulk-import-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Start importing pickup locations
+     * @param format Format of the payload
+     * @param body The payload; read to the end before this returns
+     * @return The queued job
+     * @throws IllegalArgumentException if the payload is larger than app.imports.max-payload-bytes
+     * @throws ImportRejectedException if the import queue is full
+     */
+    public ImportJobResponse importPickupLocations(Format format, InputStream body) throws IOException {
+        return submit(PICKUP_LOCATIONS, format, body, job -> {
+            try (DocumentBulkWriter<PickupLocation> writer = pickupLocationService.openBulkWriter(
+                    properties.getInitialOpsPerSecond(), properties.getMaxOpsPerSecond())) {
+                readRows(job, PickupLocationRequest.class, row -> {
+                    PickupLocation location = new PickupLocation();
+                    location.setSiteName(row.getSiteName());
+                    location.setWasteType(row.getWasteType());
+                    location.setAddress(row.getAddress());
+                    location.setLatitude(row.getLatitude());
+                    location.setLongitude(row.getLongitude());
+                    return pickupLocationService.importPickupLocation(writer, location);
+                });
+            }
+        });
+    }
+
+    /**
+     * Start importing schedules. Every row's location must already exist.
+     * @param format Format of the payload
+     * @param body The payload; read to the end before this returns
+     * @return The queued job
+     * @throws IllegalArgumentException if the payload is larger than app.imports.max-payload-bytes
+     * @throws ImportRejectedException if the import queue is full
+     */
+    public ImportJobResponse importSchedules(Format format, InputStream body) throws IOException {
+        return submit(SCHEDULES, format, body, job -> {
+            // Rows tend to repeat a handful of sites, so each is looked up once per job
+            Map<String, Boolean> knownLocations = new HashMap<>();
+            try (DocumentBulkWriter<Schedule> writer = scheduleService.openBulkWriter(
+                    properties.getInitialOpsPerSecond(), properties.getMaxOpsPerSecond())) {
+                readRows(job, ScheduleImportRow.class, row -> {
+                    Boolean known = knownLocations.get(row.getLocationId());
+                    if (known == null) {
+                        known = pickupLocationService.getPickupLocationById(row.getLocationId()) != null;
+                        knownLocations.put(row.getLocationId(), known);
+                    }
+                    if (!known) {
+                        throw new IllegalArgumentException("Pickup location not found: " + row.getLocationId());
+                    }
+                    Schedule schedule = new Schedule(null, row.getTitle(), row.getPickupDate(), row.getPickupTime(),
+                            row.getLocationId(), row.getStatus() != null ? row.getStatus() : "PENDING", row.getUserId());
+                    return scheduleService.importSchedule(writer, schedule);
+                });
+            }
+        });
+    }
+
+    /**
+     * Get an import job
+     * @param jobId ID of the job
+     * @return The job, or null if it does not exist or has expired
+     */
+    public ImportJobResponse getJob(String jobId) {
+        Job job = jobs.get(jobId);
+        return job != null ? job.toResponse(false) : null;
+    }
+
+    /**
+     * Get every import job still kept, newest first, without their row errors
+     * @return The jobs
+     */
+    public List<ImportJobResponse> getJobs() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparingLong((Job job) -> job.createdAt).reversed())
+                .map(job -> job.toResponse(true))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Forget finished jobs older than app.imports.retention-ms
+     */
+    @Scheduled(fixedDelayString = "${app.imports.purge-interval-ms:600000}",
+            initialDelayString = "${app.imports.purge-interval-ms:600000}")
+    public void purgeFinishedJobs() {
+        long cutoff = System.currentTimeMillis() - properties.getRetentionMs();
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt < cutoff);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface JobBody {
+        void run(Job job) throws Exception;
+    }
+
+    private ImportJobResponse submit(String kind, Format format, InputStream body, JobBody jobBody) throws IOException {
+        // Checked before the upload is spooled, so a busy server does not read a large body only to refuse it
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new ImportRejectedException("Import queue is full, try again later");
+        }
+        Path file = spool(body);
+        Job job = new Job(UUID.randomUUID().toString(), kind, format, file);
+        jobs.put(job.jobId, job);
+        try {
+            executor.execute(() -> run(job, jobBody));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.jobId);
+            deleteQuietly(file);
+            throw new ImportRejectedException("Import queue is full, try again later");
+        }
+        logger.info("Queued {} import {} ({})", kind, job.jobId, format);
+        return job.toResponse(false);
+    }
+
+    private Path spool(InputStream body) throws IOException {
+        long limit = properties.getMaxPayloadBytes();
+        Path file = Files.createTempFile("gms-import-", ".tmp");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                total += read;
+                if (total > limit) {
+                    throw new IllegalArgumentException("Import payload is larger than " + limit + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+        return file;
+    }
+
+    private void run(Job job, JobBody jobBody) {
+        job.status = Status.RUNNING;
+        job.startedAt = System.currentTimeMillis();
+        try {
+            jobBody.run(job);
+            job.status = job.message == null ? Status.COMPLETED : Status.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.message = "Import interrupted";
+            job.status = Status.FAILED;
+        } catch (Exception e) {
+            logger.error("Import {} failed", job.jobId, e);
+            job.message = "Import failed: " + rootMessage(e);
+            job.status = Status.FAILED;
+        } finally {
+            job.finishedAt = System.currentTimeMillis();
+            deleteQuietly(job.file);
+        }
+        logger.info("{} import {} {}: {} rows read, {} written, {} failed", job.kind, job.jobId, job.status,
+                job.rowsRead.get(), job.rowsWritten.get(), job.rowsFailed.get());
+    }
+
+    /**
+     * Parse the job's payload row by row and hand every valid row to the importer.
+     * Returns once every write handed out has completed or failed, except when the
+     * payload itself is malformed, in which case job.message says why.
+     */
+    private <R> void readRows(Job job, Class<R> rowType, RowImporter<R> importer)
+            throws IOException, InterruptedException {
+        Semaphore pendingWrites = new Semaphore(properties.getMaxPendingWrites());
+        try (MappingIterator<R> rows = reader(job.format, rowType).readValues(job.file.toFile())) {
+            long rowNumber = 0;
+            while (true) {
+                try {
+                    if (!rows.hasNextValue()) {
+                        break;
+                    }
+                } catch (JsonParseException e) {
+                    job.message = "Malformed " + job.format + " after row " + rowNumber + ": " + e.getOriginalMessage();
+                    break;
+                }
+                rowNumber++;
+                job.rowsRead.incrementAndGet();
+
+                R row;
+                try {
+                    row = rows.nextValue();
+                } catch (JsonParseException e) {
+                    job.message = "Malformed " + job.format + " at row " + rowNumber + ": " + e.getOriginalMessage();
+                    job.fail(rowNumber, e.getOriginalMessage());
+                    break;
+                } catch (JsonMappingException e) {
+                    job.fail(rowNumber, e.getOriginalMessage());
+                    continue;
+                }
+
+                String violations = validate(row);
+                if (violations != null) {
+                    job.fail(rowNumber, violations);
+                    continue;
+                }
+
+                CompletableFuture<?> write;
+                pendingWrites.acquire();
+                try {
+                    write = importer.importRow(row);
+                } catch (IllegalArgumentException | ExecutionException e) {
+                    pendingWrites.release();
+                    job.fail(rowNumber, rootMessage(e));
+                    continue;
+                }
+                long writtenRow = rowNumber;
+                write.whenComplete((result, error) -> {
+                    pendingWrites.release();
+                    if (error == null) {
+                        job.rowsWritten.incrementAndGet();
+                    } else {
+                        job.fail(writtenRow, rootMessage(error));
+                    }
+                });
+            }
+        }
+    }
+
+    private ObjectReader reader(Format format, Class<?> rowType) {
+        if (format == Format.CSV) {
+            return csvMapper.readerFor(rowType).with(CsvSchema.emptySchema().withHeader());
+        }
+        // A top-level JSON array is read one element at a time
+        return objectMapper.readerFor(rowType).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    private <R> String validate(R row) {
+        Set<ConstraintViolation<R>> violations = validator.validate(row);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private static String rootMessage(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete import spool file {}", file, e);
+        }
+    }
+
+    private final class Job {
+        final String jobId;
+        final String kind;
+        final Format format;
+        final Path file;
+        final long createdAt = System.currentTimeMillis();
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong rowsWritten = new AtomicLong();
+        final AtomicLong rowsFailed = new AtomicLong();
+        // Guarded by itself; holds at most app.imports.max-reported-errors entries
+        final List<ImportJobResponse.RowError> errors = new ArrayList<>();
+        volatile Status status = Status.QUEUED;
+        volatile Long startedAt;
+        volatile Long finishedAt;
+        volatile String message;
+
+        Job(String jobId, String kind, Format format, Path file) {
+            this.jobId = jobId;
+            this.kind = kind;
+            this.format = format;
+            this.file = file;
+        }
+
+        void fail(long row, String reason) {
+            rowsFailed.incrementAndGet();
+            synchronized (errors) {
+                if (errors.size() < properties.getMaxReportedErrors()) {
+                    errors.add(new ImportJobResponse.RowError(row, reason));
+                }
+            }
+        }
+
+        ImportJobResponse toResponse(boolean summary) {
+            List<ImportJobResponse.RowError> rowErrors;
+            synchronized (errors) {
+                rowErrors = summary ? null : new ArrayList<>(errors);
+            }
+            long failed = rowsFailed.get();
+            return new ImportJobResponse(jobId, kind, format.name().toLowerCase(), status.name(),
+                    rowsRead.get(), rowsWritten.get(), failed, rowErrors,
+                    failed > properties.getMaxReportedErrors(), createdAt, startedAt, finishedAt, message);
+        }
+    }
+}
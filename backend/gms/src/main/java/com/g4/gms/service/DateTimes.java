@@ -0,0 +1,105 @@
+package com.g4.gms.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Turns the free-form date and time strings stored on reminders and schedules
+ * into instants, so they can be stored as numbers and queried by range.
+ */
+public final class DateTimes {
+
+    // "10:30 AM", "10:30AM", "10:30:00 pm" as entered in the web app
+    private static final DateTimeFormatter TWELVE_HOUR = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("h:mm[:ss][ ]a")
+            .toFormatter(Locale.ENGLISH);
+    // "7:30", "07:30", "19:30:00"
+    private static final DateTimeFormatter TWENTY_FOUR_HOUR = DateTimeFormatter.ofPattern("H:mm[:ss]", Locale.ENGLISH);
+
+    private DateTimes() {
+    }
+
+    /**
+     * Resolve a date-time string to an instant. Accepts an ISO instant or offset date-time,
+     * a local date-time ("2025-05-01T07:30" or "2025-05-01 07:30") in the given zone,
+     * or a date alone, which resolves to the given default time.
+     * @param dateTime The date-time as stored
+     * @param zone Zone for values without an offset
+     * @param defaultTime Time of day for a date alone
+     * @return Epoch milliseconds, or null if the value is blank or cannot be parsed
+     */
+    public static Long toEpochMillis(String dateTime, ZoneId zone, LocalTime defaultTime) {
+        if (dateTime == null || dateTime.isBlank()) {
+            return null;
+        }
+        String text = dateTime.trim();
+        try {
+            return OffsetDateTime.parse(text).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // Try the next format
+        }
+        try {
+            return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // Try the next format
+        }
+        try {
+            return LocalDateTime.parse(text.replace(' ', 'T')).atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // Try the next format
+        }
+        try {
+            return LocalDate.parse(text).atTime(defaultTime).atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolve a date and a separate time of day to an instant
+     * @param date An ISO date ("2025-05-01"); with a blank time, anything {@link #toEpochMillis(String, ZoneId, LocalTime)} accepts
+     * @param time A 12-hour ("10:30 AM") or 24-hour ("10:30") time of day, or blank for the default time
+     * @param zone Zone the date and time are read in
+     * @param defaultTime Time of day when none is given
+     * @return Epoch milliseconds, or null if either value cannot be parsed
+     */
+    public static Long toEpochMillis(String date, String time, ZoneId zone, LocalTime defaultTime) {
+        if (time == null || time.isBlank()) {
+            return toEpochMillis(date, zone, defaultTime);
+        }
+        if (date == null || date.isBlank()) {
+            return null;
+        }
+        LocalTime timeOfDay = parseTime(time.trim());
+        if (timeOfDay == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date.trim()).atTime(timeOfDay).atZone(zone).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static LocalTime parseTime(String time) {
+        try {
+            return LocalTime.parse(time, TWELVE_HOUR);
+        } catch (DateTimeParseException ignored) {
+            // Try the next format
+        }
+        try {
+            return LocalTime.parse(time, TWENTY_FOUR_HOUR);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
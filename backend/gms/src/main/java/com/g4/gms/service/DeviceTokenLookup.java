@@ -0,0 +1,19 @@
+package com.g4.gms.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Resolves users to the push tokens of their devices.
+ */
+public interface DeviceTokenLookup {
+
+    /**
+     * Get the device tokens of several users
+     * @param userIds User IDs
+     * @return Future of user ID to tokens; users with no devices (or notifications turned off) may be absent
+     */
+    CompletableFuture<Map<String, List<String>>> findTokensByUserIds(Collection<String> userIds);
+}
@@ -0,0 +1,447 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.DeviceTokenProperties;
+import com.g4.gms.model.DeviceToken;
+import com.g4.gms.model.User;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
+import com.google.cloud.Timestamp;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Registry of the devices each user receives push notifications on, and fan-out of
+ * notifications to sets of users instead of raw tokens. Devices are stored in the
+ * "deviceTokens" collection keyed by the FCM token, with the owning user and the time
+ * the device last registered. Users with notifications turned off are skipped, tokens
+ * not seen for app.device-tokens.stale-after-ms are neither sent to nor kept, and tokens
+ * FCM reports as unregistered are deleted as soon as it says so.
+ *
+ * Location and role audiences are read one page of users at a time, and at most
+ * app.device-tokens.fan-out-window pages are being delivered at once, so memory use and
+ * the push queue stay bounded however many users match.
+ *
+ * Registrations, removals by reason and fan-out sizes are {@value #METRIC}.* meters.
+ */
+@Service
+public class DeviceTokenService implements DeviceTokenLookup {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceTokenService.class);
+
+    public static final String METRIC = "gms.device.tokens";
+    private static final String COLLECTION_NAME = "deviceTokens";
+    private static final String USER_ID = "userId";
+    private static final String LAST_SEEN_AT = "lastSeenAt";
+    // FCM tokens are a few hundred characters; anything far longer is not one
+    private static final int MAX_TOKEN_LENGTH = 4096;
+
+    /**
+     * Counts from one fan-out
+     * @param users Users matched by the audience
+     * @param recipients Matched users with notifications on and at least one current device
+     * @param tokens Device tokens sent to
+     * @param delivered Tokens the push service accepted
+     * @param unregistered Tokens the push service no longer knows (now deleted)
+     * @param failed Tokens whose delivery failed
+     * @param rejected Tokens not sent because the push queue was full
+     */
+    public record FanOutSummary(int users, int recipients, int tokens, int delivered, int unregistered,
+                                int failed, int rejected) {
+    }
+
+    private final DocumentRepository<DeviceToken> tokenRepository;
+    private final UserService userService;
+    private final FirebaseMessagingService messagingService;
+    private final DeviceTokenProperties properties;
+
+    private final Counter registered;
+    private final Counter refreshed;
+    private final Counter evicted;
+    private final Counter pruned;
+    private final Counter removedStale;
+    private final DistributionSummary fanOutTokens;
+
+    public DeviceTokenService(DocumentRepositoryFactory repositoryFactory, UserService userService,
+                              FirebaseMessagingService messagingService, DeviceTokenProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.tokenRepository = repositoryFactory.create(COLLECTION_NAME, DeviceToken.class, DeviceToken::setToken);
+        this.userService = userService;
+        this.messagingService = messagingService;
+        this.properties = properties;
+        this.registered = Counter.builder(METRIC + ".registered")
+                .description("Devices registered, or moved to another user")
+                .register(meterRegistry);
+        this.refreshed = Counter.builder(METRIC + ".refreshed")
+                .description("Last-seen times written for devices registering again")
+                .register(meterRegistry);
+        this.evicted = removed(meterRegistry, "evicted");
+        this.pruned = removed(meterRegistry, "unregistered");
+        this.removedStale = removed(meterRegistry, "stale");
+        this.fanOutTokens = DistributionSummary.builder(METRIC + ".fan.out")
+                .description("Device tokens sent to per fan-out")
+                .register(meterRegistry);
+        messagingService.addUnregisteredTokenListener(this::pruneUnregistered);
+    }
+
+    /**
+     * Register a device for a user, or refresh its last-seen time if it is already registered.
+     * A token registered by another user moves to this one, and a user past the device limit
+     * loses their least recently seen device.
+     * @param userId The user the device belongs to
+     * @param token The FCM registration token
+     * @param platform The device platform, e.g. "android" (optional)
+     * @return The stored registration
+     * @throws IllegalArgumentException if the token is blank or malformed
+     */
+    public DeviceToken registerToken(String userId, String token, String platform)
+            throws ExecutionException, InterruptedException {
+        validateToken(token);
+        long now = System.currentTimeMillis();
+        DeviceToken existing = tokenRepository.findById(token);
+        boolean sameOwner = existing != null && userId.equals(existing.getUserId());
+
+        if (sameOwner && Objects.equals(platform, existing.getPlatform())) {
+            // Apps register on every start; last-seen only needs to be roughly right, so skip most writes
+            Long lastSeenAt = existing.getLastSeenAt();
+            if (lastSeenAt == null || now - lastSeenAt >= properties.getTouchIntervalMs()) {
+                tokenRepository.update(token, Map.of(LAST_SEEN_AT, now));
+                existing.setLastSeenAt(now);
+                refreshed.increment();
+            }
+            return existing;
+        }
+
+        DeviceToken device = new DeviceToken(token, userId, platform,
+                sameOwner ? existing.getCreatedAt() : Timestamp.now(), now);
+        tokenRepository.save(token, device);
+        registered.increment();
+        if (!sameOwner) {
+            evictLeastRecentlySeen(userId);
+        }
+        return device;
+    }
+
+    /**
+     * Get the devices registered to a user, most recently seen first
+     * @param userId The user ID
+     * @return List of registrations
+     */
+    public List<DeviceToken> getDevices(String userId) throws ExecutionException, InterruptedException {
+        List<DeviceToken> devices = new ArrayList<>(tokenRepository.findByField(USER_ID, userId));
+        devices.sort(Comparator.comparing(DeviceToken::getLastSeenAt,
+                Comparator.nullsLast(Comparator.<Long>reverseOrder())));
+        return devices;
+    }
+
+    /**
+     * Remove one of a user's devices, e.g. on sign-out
+     * @param userId The user ID
+     * @param token The FCM registration token
+     * @return true if the device was registered to the user and has been removed
+     * @throws IllegalArgumentException if the token is blank or malformed
+     */
+    public boolean unregisterToken(String userId, String token) throws ExecutionException, InterruptedException {
+        validateToken(token);
+        DeviceToken existing = tokenRepository.findById(token);
+        if (existing == null || !userId.equals(existing.getUserId())) {
+            return false;
+        }
+        tokenRepository.delete(token);
+        return true;
+    }
+
+    /**
+     * Get the current device tokens of several users, skipping users with notifications turned off
+     * @param userIds User IDs
+     * @return Future of user ID to tokens; users with no current devices are absent
+     */
+    @Override
+    public CompletableFuture<Map<String, List<String>>> findTokensByUserIds(Collection<String> userIds) {
+        return userService.getUsersByIdsAsync(userIds).thenCompose(users -> findTokens(notifiable(users.values())));
+    }
+
+    /**
+     * Notify every device of the given users
+     * @param userIds User IDs (duplicates are notified once)
+     * @param title The title of the notification
+     * @param body The body/content of the notification
+     * @return Future of the fan-out counts, completed once every device has a result
+     */
+    public CompletableFuture<FanOutSummary> notifyUsersAsync(Collection<String> userIds, String title, String body) {
+        List<String> distinctIds = new ArrayList<>(new LinkedHashSet<>(userIds));
+        int pageSize = properties.getFanOutPageSize();
+        FanOut fanOut = new FanOut(title, body);
+        CompletableFuture<Void> stream = CompletableFuture.completedFuture(null);
+        for (int start = 0; start < distinctIds.size(); start += pageSize) {
+            List<String> chunk = distinctIds.subList(start, Math.min(start + pageSize, distinctIds.size()));
+            stream = stream.thenCompose(ignored -> userService.getUsersByIdsAsync(chunk))
+                    .thenCompose(users -> fanOut.admit(fanOut.dispatch(users.values())));
+        }
+        return finish(stream, fanOut);
+    }
+
+    /**
+     * Notify every device of the users in a location (User.location, matched exactly)
+     * @param location The location
+     * @param title The title of the notification
+     * @param body The body/content of the notification
+     * @return Future of the fan-out counts, completed once every device has a result
+     */
+    public CompletableFuture<FanOutSummary> notifyLocationAsync(String location, String title, String body) {
+        FanOut fanOut = new FanOut(title, body);
+        return finish(streamPage("location", location, null, fanOut), fanOut);
+    }
+
+    /**
+     * Notify every device of the users with a role (User.role, matched exactly)
+     * @param role The role, e.g. "USER"
+     * @param title The title of the notification
+     * @param body The body/content of the notification
+     * @return Future of the fan-out counts, completed once every device has a result
+     */
+    public CompletableFuture<FanOutSummary> notifyRoleAsync(String role, String title, String body) {
+        FanOut fanOut = new FanOut(title, body);
+        return finish(streamPage("role", role, null, fanOut), fanOut);
+    }
+
+    /**
+     * Delete tokens whose devices have not registered within app.device-tokens.stale-after-ms
+     */
+    @Scheduled(fixedDelayString = "${app.device-tokens.cleanup-interval-ms:3600000}",
+            initialDelayString = "${app.device-tokens.cleanup-interval-ms:3600000}")
+    public void removeStaleTokens() {
+        long staleBefore = System.currentTimeMillis() - properties.getStaleAfterMs();
+        int removed = 0;
+        String pageToken = null;
+        try {
+            do {
+                Page<DeviceToken> page = tokenRepository.findPageByRange(LAST_SEEN_AT, Long.MIN_VALUE, staleBefore,
+                        properties.getCleanupPageSize(), pageToken);
+                List<CompletableFuture<Void>> deletes = new ArrayList<>(page.items().size());
+                for (DeviceToken device : page.items()) {
+                    deletes.add(tokenRepository.deleteAsync(device.getToken()));
+                }
+                CompletableFuture.allOf(deletes.toArray(new CompletableFuture[0])).get();
+                removed += deletes.size();
+                pageToken = page.nextPageToken();
+            } while (pageToken != null);
+        } catch (ExecutionException | InterruptedException | RuntimeException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("Failed to remove stale device tokens: {}", e.getMessage(), e);
+        }
+        if (removed > 0) {
+            removedStale.increment(removed);
+            logger.info("Removed {} stale device tokens", removed);
+        }
+    }
+
+    private void evictLeastRecentlySeen(String userId) throws ExecutionException, InterruptedException {
+        List<DeviceToken> devices = new ArrayList<>(tokenRepository.findByField(USER_ID, userId));
+        int excess = devices.size() - properties.getMaxPerUser();
+        if (excess <= 0) {
+            return;
+        }
+        devices.sort(Comparator.comparing(DeviceToken::getLastSeenAt,
+                Comparator.nullsFirst(Comparator.<Long>naturalOrder())));
+        for (DeviceToken device : devices.subList(0, excess)) {
+            tokenRepository.delete(device.getToken());
+            evicted.increment();
+        }
+    }
+
+    private void pruneUnregistered(Collection<String> tokens) {
+        for (String token : tokens) {
+            // Raw sends can carry tokens that were never registered (or could not be document IDs)
+            if (!isValidToken(token)) {
+                continue;
+            }
+            tokenRepository.deleteAsync(token).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    logger.error("Failed to delete unregistered device token: {}", e.getMessage());
+                } else {
+                    pruned.increment();
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<Map<String, List<String>>> findTokens(List<String> userIds) {
+        if (userIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        long staleBefore = System.currentTimeMillis() - properties.getStaleAfterMs();
+        return tokenRepository.findByFieldInAsync(USER_ID, userIds).thenApply(devices -> {
+            Map<String, List<String>> tokens = new HashMap<>();
+            for (DeviceToken device : devices) {
+                // Stale tokens are left for the cleanup job rather than sent to
+                if (device.getLastSeenAt() == null || device.getLastSeenAt() < staleBefore) {
+                    continue;
+                }
+                tokens.computeIfAbsent(device.getUserId(), key -> new ArrayList<>()).add(device.getToken());
+            }
+            return tokens;
+        });
+    }
+
+    private CompletableFuture<Void> streamPage(String field, String value, String pageToken, FanOut fanOut) {
+        return userService.getUsersPageByFieldAsync(field, value, properties.getFanOutPageSize(), pageToken)
+                .thenCompose(page -> {
+                    CompletableFuture<Void> admitted = fanOut.admit(fanOut.dispatch(page.items()));
+                    if (page.nextPageToken() == null) {
+                        return admitted;
+                    }
+                    return admitted.thenCompose(ignored -> streamPage(field, value, page.nextPageToken(), fanOut));
+                });
+    }
+
+    private CompletableFuture<FanOutSummary> finish(CompletableFuture<Void> stream, FanOut fanOut) {
+        return stream.thenCompose(ignored -> fanOut.drain()).thenApply(ignored -> {
+            FanOutSummary summary = fanOut.summary();
+            fanOutTokens.record(summary.tokens());
+            return summary;
+        });
+    }
+
+    private static Counter removed(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(METRIC + ".removed")
+                .description("Devices removed, by reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static List<String> notifiable(Collection<User> users) {
+        List<String> userIds = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (user.isNotificationsEnabled()) {
+                userIds.add(user.getUserId());
+            }
+        }
+        return userIds;
+    }
+
+    private static boolean isValidToken(String token) {
+        // The token is the document ID, so it must be one Firestore accepts
+        return token != null && !token.isBlank() && token.length() <= MAX_TOKEN_LENGTH && !token.contains("/")
+                && !token.equals(".") && !token.equals("..") && !(token.startsWith("__") && token.endsWith("__"));
+    }
+
+    private static void validateToken(String token) {
+        if (token == null || token.isBlank()) {
+            throw new IllegalArgumentException("Token cannot be empty");
+        }
+        if (!isValidToken(token)) {
+            throw new IllegalArgumentException("Invalid device token");
+        }
+    }
+
+    /**
+     * One fan-out in progress: its counts and the pages still being delivered
+     */
+    private final class FanOut {
+        private final String title;
+        private final String body;
+        private final Deque<CompletableFuture<Void>> window = new ArrayDeque<>();
+        private int users;
+        private int recipients;
+        private int tokens;
+        private int delivered;
+        private int unregistered;
+        private int failed;
+        private int rejected;
+
+        FanOut(String title, String body) {
+            this.title = title;
+            this.body = body;
+        }
+
+        /**
+         * Send to the devices of one page of users
+         * @return Future that completes once every device on the page has a result
+         */
+        CompletableFuture<Void> dispatch(Collection<User> page) {
+            List<String> userIds = notifiable(page);
+            countUsers(page.size());
+            return findTokens(userIds).thenCompose(tokensByUser -> {
+                List<String> pageTokens = new ArrayList<>();
+                for (List<String> userTokens : tokensByUser.values()) {
+                    pageTokens.addAll(userTokens);
+                }
+                countRecipients(tokensByUser.size());
+                if (pageTokens.isEmpty()) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                try {
+                    return messagingService.sendMulticastNotificationAsync(pageTokens, title, body)
+                            .thenAccept(this::countDelivery);
+                } catch (PushDispatchRejectedException e) {
+                    // The rest of the audience still gets its turn; the summary reports what was dropped
+                    countRejected(pageTokens.size());
+                    return CompletableFuture.completedFuture(null);
+                }
+            });
+        }
+
+        /**
+         * Add a page to the delivery window
+         * @return Future that completes when the window has room for the next page
+         */
+        synchronized CompletableFuture<Void> admit(CompletableFuture<Void> page) {
+            window.add(page);
+            window.removeIf(CompletableFuture::isDone);
+            if (window.size() < properties.getFanOutWindow()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.anyOf(window.toArray(new CompletableFuture[0])).thenRun(() -> {
+            });
+        }
+
+        synchronized CompletableFuture<Void> drain() {
+            return CompletableFuture.allOf(window.toArray(new CompletableFuture[0]));
+        }
+
+        synchronized FanOutSummary summary() {
+            return new FanOutSummary(users, recipients, tokens, delivered, unregistered, failed, rejected);
+        }
+
+        private synchronized void countUsers(int count) {
+            users += count;
+        }
+
+        private synchronized void countRecipients(int count) {
+            recipients += count;
+        }
+
+        private synchronized void countRejected(int count) {
+            tokens += count;
+            rejected += count;
+        }
+
+        private synchronized void countDelivery(FirebaseMessagingService.DispatchSummary summary) {
+            tokens += summary.total();
+            delivered += summary.delivered();
+            unregistered += summary.unregistered();
+            failed += summary.failed();
+        }
+    }
+}
@@ -1,45 +1,62 @@
 package com.g4.gms.service;
 
+import com.g4.gms.config.PaginationProperties;
 import com.g4.gms.model.Feedback;
-import com.google.api.core.ApiFuture;
+import com.g4.gms.repository.DocumentNotFoundException;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
 import com.google.cloud.Timestamp;
-import com.google.cloud.firestore.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 @Service
 public class FeedbackService {
 
     private static final String COLLECTION_NAME = "feedback";
+    // Set when the feedback is created and never changed by an update
+    private static final Set<String> KEPT_ON_UPDATE = Set.of("userId", "createdAt");
 
-    @Autowired
-    private Firestore firestore;
+    private final DocumentRepository<Feedback> feedbackRepository;
+    private final PaginationProperties paginationProperties;
     
     @Autowired
     private UserService userService;
 
+    public FeedbackService(DocumentRepositoryFactory repositoryFactory, PaginationProperties paginationProperties) {
+        this.feedbackRepository = repositoryFactory.create(COLLECTION_NAME, Feedback.class, Feedback::setFeedbackId);
+        this.paginationProperties = paginationProperties;
+    }
+
     /**
      * Get all feedback entries
      * @return List of feedback entries
      */
     public List<Feedback> getAllFeedback() throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME).get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<Feedback> feedbackList = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            Feedback feedback = document.toObject(Feedback.class);
-            if (feedback != null) {
-                feedback.setFeedbackId(document.getId());
-                feedbackList.add(feedback);
-            }
+        return feedbackRepository.findAll();
+    }
+
+    /**
+     * Get one page of feedback, ordered by document ID
+     * @param limit Requested page size (clamped to the configured maximum), or null for the default
+     * @param pageToken Token from the previous page, or null for the first page
+     *                  (the first app.pagination.max-unpaged items if limit is null too)
+     * @return The page and the token for the next one
+     * @throws IllegalArgumentException if the page token is malformed
+     */
+    public Page<Feedback> getFeedbackPage(Integer limit, String pageToken) throws ExecutionException, InterruptedException {
+        if (paginationProperties.wantsWholeList(limit, pageToken)) {
+            return UnpagedLists.capped(COLLECTION_NAME,
+                    feedbackRepository.findPage(paginationProperties.getMaxUnpaged(), null));
         }
-        
-        return feedbackList;
+        return feedbackRepository.findPage(paginationProperties.resolvePageSize(limit), pageToken);
     }
 
     /**
@@ -48,18 +65,7 @@ public class FeedbackService {
      * @return The feedback entry, or null if not found
      */
     public Feedback getFeedbackById(String feedbackId) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(feedbackId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (document.exists()) {
-            Feedback feedback = document.toObject(Feedback.class);
-            if (feedback != null) {
-                feedback.setFeedbackId(document.getId());
-                return feedback;
-            }
-        }
-        
-        return null;
+        return feedbackRepository.findById(feedbackId);
     }
 
     /**
@@ -69,8 +75,7 @@ public class FeedbackService {
      */
     public Feedback createFeedback(Feedback feedback) throws ExecutionException, InterruptedException {
         // Create a new document with auto-generated ID
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document();
-        feedback.setFeedbackId(docRef.getId());
+        feedback.setFeedbackId(feedbackRepository.newId());
         
         // Set timestamps
         Timestamp now = Timestamp.now();
@@ -78,66 +83,44 @@ public class FeedbackService {
         feedback.setUpdatedAt(now);
         
         // Save the document
-        ApiFuture<WriteResult> result = docRef.set(feedback);
-        result.get(); // Wait for the write to complete
+        feedbackRepository.save(feedback.getFeedbackId(), feedback);
         
         return feedback;
     }
 
     /**
-     * Update an existing feedback entry
+     * Update an existing feedback in one round trip, without reading it first.
+     * Its author and creation time are left as stored.
      * @param feedbackId The ID of the feedback to update
      * @param feedback The updated feedback data
-     * @return The updated feedback
+     * @return The feedback as written (without userId and createdAt), or null if it does not exist
      */
-    public Feedback updateFeedback(String feedbackId, Feedback feedback) 
-            throws ExecutionException, InterruptedException, IllegalArgumentException {
-        
-        // Check if the feedback exists
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(feedbackId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (!document.exists()) {
-            throw new IllegalArgumentException("Feedback with ID " + feedbackId + " not found");
-        }
-        
-        // Preserve created timestamp
-        Feedback existingFeedback = document.toObject(Feedback.class);
-        if (existingFeedback != null) {
-            feedback.setCreatedAt(existingFeedback.getCreatedAt());
-        }
-        
+    public Feedback updateFeedback(String feedbackId, Feedback feedback) throws ExecutionException, InterruptedException {
         // Set ID and update timestamp
         feedback.setFeedbackId(feedbackId);
         feedback.setUpdatedAt(Timestamp.now());
-        
-        // Update the document
-        ApiFuture<WriteResult> result = docRef.set(feedback);
-        result.get(); // Wait for the write to complete
+
+        try {
+            feedbackRepository.update(feedbackId, feedback, KEPT_ON_UPDATE, null);
+        } catch (DocumentNotFoundException e) {
+            return null;
+        }
         
         return feedback;
     }
 
     /**
-     * Delete a feedback entry
+     * Delete a feedback in one round trip, without reading it first
      * @param feedbackId The ID of the feedback to delete
-     * @return true if deletion was successful
+     * @return true if deleted, false if it does not exist
      */
-    public boolean deleteFeedback(String feedbackId) 
-            throws ExecutionException, InterruptedException, IllegalArgumentException {
-        
-        // Check if the feedback exists
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(feedbackId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (!document.exists()) {
-            throw new IllegalArgumentException("Feedback with ID " + feedbackId + " not found");
+    public boolean deleteFeedback(String feedbackId) throws ExecutionException, InterruptedException {
+        try {
+            feedbackRepository.deleteExisting(feedbackId, null);
+        } catch (DocumentNotFoundException e) {
+            return false;
         }
         
-        // Delete the document
-        ApiFuture<WriteResult> result = docRef.delete();
-        result.get(); // Wait for the delete to complete
-        
         return true;
     }
     
@@ -153,4 +136,17 @@ public class FeedbackService {
             return null;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Get user emails for several user IDs with a single batched lookup
+     * @param userIds The user IDs
+     * @return Map of user ID to email; empty if the lookup fails
+     */
+    public Map<String, String> getUserEmailsByIds(Collection<String> userIds) {
+        try {
+            return userService.getUserEmailsByIds(userIds);
+        } catch (Exception e) {
+            return new HashMap<>();
+        }
+    }
+}
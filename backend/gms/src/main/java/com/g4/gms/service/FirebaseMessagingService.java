@@ -1,21 +1,175 @@
 package com.g4.gms.service;
 
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.Message;
-import com.google.firebase.messaging.Notification;
+import com.g4.gms.config.PushDispatchProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Push notification dispatch. Sends are queued per device token and return
+ * immediately with a future; worker threads coalesce queued deliveries that
+ * share a title and body into batches of up to app.push.batch-size tokens and
+ * hand each batch to the {@link PushSender}. Transient failures are retried
+ * with exponential backoff, and tokens the push service reports as
+ * unregistered are remembered (later sends to them are skipped) and passed to
+ * the registered unregistered-token listeners.
+ *
+ * Queue depth, per-token outcomes, batch sizes, send latency, retries and
+ * pruning are {@value #METRIC}.* meters.
+ */
 @Service
 public class FirebaseMessagingService {
 
     private static final Logger logger = LoggerFactory.getLogger(FirebaseMessagingService.class);
 
-    private final FirebaseMessaging firebaseMessaging;
+    public static final String METRIC = "gms.push";
+
+    /**
+     * How one device fared
+     */
+    public enum Status {
+        DELIVERED,
+        /** The token is unregistered; nothing was sent */
+        UNREGISTERED,
+        /** Failed permanently, or still failing after every retry */
+        FAILED,
+        /** Dropped because the dispatch queue was full when it was due for a retry */
+        REJECTED
+    }
+
+    /**
+     * The result of sending to one device
+     * @param token The device token
+     * @param status How the send fared
+     * @param messageId The push service's message ID when delivered
+     * @param error Why it was not delivered otherwise
+     */
+    public record PushResult(String token, Status status, String messageId, String error) {
+    }
+
+    /**
+     * Counts for a send to many devices
+     * @param total Distinct tokens addressed
+     * @param delivered Tokens the push service accepted
+     * @param unregistered Tokens that are no longer valid
+     * @param failed Tokens that failed or were dropped
+     */
+    public record DispatchSummary(int total, int delivered, int unregistered, int failed) {
+    }
+
+    private record Payload(String title, String body) {
+    }
+
+    private record Delivery(Payload payload, String token, CompletableFuture<PushResult> result, int attempt) {
+
+        Delivery nextAttempt() {
+            return new Delivery(payload, token, result, attempt + 1);
+        }
+    }
+
+    private final PushSender pushSender;
+    private final PushDispatchProperties properties;
+    private final BlockingQueue<Delivery> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService retryScheduler;
+    private final Cache<String, Boolean> unregisteredTokens;
+    private final List<Consumer<Collection<String>>> unregisteredTokenListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    private final Counter enqueued;
+    // Tokens turned away because the queue was full, whether on the first send or a retry
+    private final Counter rejected;
+    private final Map<Status, Counter> results = new EnumMap<>(Status.class);
+    private final DistributionSummary batchSize;
+    private final Timer sendTimer;
+    private final Counter retries;
+    private final Counter pruned;
+    private final Counter skippedUnregistered;
 
-    public FirebaseMessagingService(FirebaseMessaging firebaseMessaging) {
-        this.firebaseMessaging = firebaseMessaging;
+    public FirebaseMessagingService(PushSender pushSender, PushDispatchProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this.pushSender = pushSender;
+        this.properties = properties;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        this.unregisteredTokens = Caffeine.newBuilder()
+                .maximumSize(properties.getUnregisteredTokenMemory())
+                .build();
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "push-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.retryScheduler = scheduler;
+
+        Gauge.builder(METRIC + ".queue.depth", queue, BlockingQueue::size)
+                .description("Deliveries waiting for a dispatch worker")
+                .register(meterRegistry);
+        Gauge.builder(METRIC + ".queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .description("Deliveries the dispatch queue can still take")
+                .register(meterRegistry);
+        this.enqueued = Counter.builder(METRIC + ".enqueued")
+                .description("Deliveries queued for dispatch")
+                .register(meterRegistry);
+        this.rejected = Counter.builder(METRIC + ".rejected")
+                .description("Deliveries turned away because the dispatch queue was full")
+                .register(meterRegistry);
+        for (Status status : Status.values()) {
+            results.put(status, Counter.builder(METRIC + ".results")
+                    .description("Deliveries completed, by how they fared")
+                    .tag("status", status.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.batchSize = DistributionSummary.builder(METRIC + ".batch.size")
+                .description("Tokens per call to the push service")
+                .register(meterRegistry);
+        this.sendTimer = Timer.builder(METRIC + ".batch.send")
+                .description("Latency of calls to the push service")
+                .register(meterRegistry);
+        this.retries = Counter.builder(METRIC + ".retries")
+                .description("Deliveries scheduled to be sent again after a transient failure")
+                .register(meterRegistry);
+        this.pruned = Counter.builder(METRIC + ".pruned")
+                .description("Tokens the push service reported as unregistered")
+                .register(meterRegistry);
+        this.skippedUnregistered = Counter.builder(METRIC + ".skipped.unregistered")
+                .description("Deliveries skipped because the token was already known to be unregistered")
+                .register(meterRegistry);
+
+        for (int i = 1; i <= properties.getWorkers(); i++) {
+            Thread worker = new Thread(this::runWorker, "push-dispatch-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        logger.info("Push dispatch: {} workers, batches of up to {} tokens, queue capacity {}",
+                properties.getWorkers(), properties.getBatchSize(), properties.getQueueCapacity());
     }
 
     /**
@@ -23,55 +177,230 @@ public class FirebaseMessagingService {
      * @param token The FCM token of the target device
      * @param title The title of the notification
      * @param body The body/content of the notification
-     * @return The message ID if successful, null otherwise
+     * @return Future of the result, completed once the push service answers or retries run out
+     * @throws PushDispatchRejectedException if the dispatch queue is full
      */
-    public String sendNotification(String token, String title, String body) {
-        try {
-            Notification notification = Notification.builder()
-                    .setTitle(title)
-                    .setBody(body)
-                    .build();
-
-            Message message = Message.builder()
-                    .setToken(token)
-                    .setNotification(notification)
-                    .build();
-
-            String response = firebaseMessaging.send(message);
-            logger.info("Successfully sent notification to token: {}, response: {}", token, response);
-            return response;
-        } catch (Exception e) {
-            logger.error("Failed to send notification to token: {}, error: {}", token, e.getMessage(), e);
-            return null;
-        }
+    public CompletableFuture<PushResult> sendNotificationAsync(String token, String title, String body) {
+        return enqueue(new Payload(title, body), List.of(token)).get(0);
     }
 
     /**
-     * Sends a notification to multiple devices using their FCM tokens
-     * @param tokens List of FCM tokens
+     * Sends a notification to multiple devices using their FCM tokens, in batches
+     * @param tokens FCM tokens (duplicates are sent once)
      * @param title The title of the notification
      * @param body The body/content of the notification
-     * @return The number of successful notifications sent
+     * @return Future of the delivery counts, completed once every token has a result
+     * @throws PushDispatchRejectedException if the dispatch queue cannot take every token
      */
-    public int sendMulticastNotification(String[] tokens, String title, String body) {
+    public CompletableFuture<DispatchSummary> sendMulticastNotificationAsync(Collection<String> tokens,
+                                                                            String title, String body) {
+        List<CompletableFuture<PushResult>> results = enqueue(new Payload(title, body), new LinkedHashSet<>(tokens));
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            int deliveredCount = 0;
+            int unregisteredCount = 0;
+            for (CompletableFuture<PushResult> result : results) {
+                Status status = result.join().status();
+                if (status == Status.DELIVERED) {
+                    deliveredCount++;
+                } else if (status == Status.UNREGISTERED) {
+                    unregisteredCount++;
+                }
+            }
+            return new DispatchSummary(results.size(), deliveredCount, unregisteredCount,
+                    results.size() - deliveredCount - unregisteredCount);
+        });
+    }
+
+    /**
+     * Register a callback for tokens the push service reports as unregistered,
+     * e.g. to delete them from wherever they are stored
+     * @param listener Called from a dispatch worker with the tokens pruned from one batch
+     */
+    public void addUnregisteredTokenListener(Consumer<Collection<String>> listener) {
+        unregisteredTokenListeners.add(listener);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        retryScheduler.shutdownNow();
+        workers.forEach(Thread::interrupt);
+        List<Delivery> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        for (Delivery delivery : pending) {
+            complete(delivery, Status.FAILED, null, "Push dispatch shut down");
+        }
+    }
+
+    private List<CompletableFuture<PushResult>> enqueue(Payload payload, Collection<String> tokens) {
+        for (String token : tokens) {
+            if (token == null || token.isBlank()) {
+                throw new IllegalArgumentException("Device tokens cannot be blank");
+            }
+        }
+        if (!running || queue.remainingCapacity() < tokens.size()) {
+            rejected.increment(tokens.size());
+            throw new PushDispatchRejectedException("Push dispatch queue is full, try again later");
+        }
+
+        List<CompletableFuture<PushResult>> results = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            CompletableFuture<PushResult> result = new CompletableFuture<>();
+            results.add(result);
+            if (unregisteredTokens.getIfPresent(token) != null) {
+                skippedUnregistered.increment();
+                result.complete(new PushResult(token, Status.UNREGISTERED, null, "Token is unregistered"));
+            } else if (queue.offer(new Delivery(payload, token, result, 1))) {
+                enqueued.increment();
+            } else {
+                // Lost a race for the last slots with another sender
+                rejected.increment();
+                result.complete(new PushResult(token, Status.REJECTED, null, "Push dispatch queue is full"));
+            }
+        }
+        return results;
+    }
+
+    private void runWorker() {
+        int batchSize = properties.getBatchSize();
+        long lingerNanos = TimeUnit.MILLISECONDS.toNanos(properties.getLingerMs());
+        List<Delivery> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - batch.size());
+                // Give a burst of single sends a moment to fill the batch
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    Delivery next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                dispatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Push dispatch worker failed on a batch of {}: {}", batch.size(), e.getMessage(), e);
+                for (Delivery delivery : batch) {
+                    complete(delivery, Status.FAILED, null, e.getMessage());
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void dispatch(List<Delivery> batch) {
+        Map<Payload, List<Delivery>> byPayload = new LinkedHashMap<>();
+        for (Delivery delivery : batch) {
+            byPayload.computeIfAbsent(delivery.payload(), payload -> new ArrayList<>()).add(delivery);
+        }
+        byPayload.forEach(this::send);
+    }
+
+    private void send(Payload payload, List<Delivery> deliveries) {
+        List<String> tokens = new ArrayList<>(deliveries.size());
+        for (Delivery delivery : deliveries) {
+            tokens.add(delivery.token());
+        }
+
+        long start = System.nanoTime();
+        List<PushSender.Outcome> outcomes;
         try {
-            Notification notification = Notification.builder()
-                    .setTitle(title)
-                    .setBody(body)
-                    .build();
-
-            com.google.firebase.messaging.MulticastMessage message = com.google.firebase.messaging.MulticastMessage.builder()
-                    .addAllTokens(java.util.Arrays.asList(tokens))
-                    .setNotification(notification)
-                    .build();
-
-            com.google.firebase.messaging.BatchResponse response = firebaseMessaging.sendMulticast(message);
-            logger.info("Successfully sent multicast notification to {} devices, {} successful", 
-                    tokens.length, response.getSuccessCount());
-            return response.getSuccessCount();
-        } catch (Exception e) {
-            logger.error("Failed to send multicast notification, error: {}", e.getMessage(), e);
-            return 0;
-        }
-    }
-} 
\ No newline at end of file
+            outcomes = pushSender.send(payload.title(), payload.body(), tokens);
+        } catch (PushSendException e) {
+            logger.warn("Push send of {} tokens failed (retryable: {}): {}", tokens.size(), e.isRetryable(), e.getMessage());
+            for (Delivery delivery : deliveries) {
+                if (e.isRetryable()) {
+                    retryOrFail(delivery, e.getMessage());
+                } else {
+                    complete(delivery, Status.FAILED, null, e.getMessage());
+                }
+            }
+            return;
+        } finally {
+            batchSize.record(tokens.size());
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        if (outcomes.size() != deliveries.size()) {
+            String error = "Push sender returned " + outcomes.size() + " outcomes for " + deliveries.size() + " tokens";
+            logger.error(error);
+            for (Delivery delivery : deliveries) {
+                complete(delivery, Status.FAILED, null, error);
+            }
+            return;
+        }
+
+        List<String> unregistered = new ArrayList<>();
+        for (int i = 0; i < deliveries.size(); i++) {
+            Delivery delivery = deliveries.get(i);
+            PushSender.Outcome outcome = outcomes.get(i);
+            switch (outcome.status()) {
+                case DELIVERED -> complete(delivery, Status.DELIVERED, outcome.messageId(), null);
+                case UNREGISTERED -> unregistered.add(delivery.token());
+                case TRANSIENT -> retryOrFail(delivery, outcome.error());
+                case FAILED -> complete(delivery, Status.FAILED, null, outcome.error());
+            }
+        }
+        if (!unregistered.isEmpty()) {
+            // Pruned before the results complete, so a caller that sees UNREGISTERED sees the token gone
+            prune(unregistered);
+            for (int i = 0; i < deliveries.size(); i++) {
+                if (outcomes.get(i).status() == PushSender.Status.UNREGISTERED) {
+                    complete(deliveries.get(i), Status.UNREGISTERED, null, outcomes.get(i).error());
+                }
+            }
+        }
+    }
+
+    private void prune(List<String> tokens) {
+        pruned.increment(tokens.size());
+        for (String token : tokens) {
+            unregisteredTokens.put(token, Boolean.TRUE);
+        }
+        logger.info("Pruning {} unregistered device tokens", tokens.size());
+        for (Consumer<Collection<String>> listener : unregisteredTokenListeners) {
+            try {
+                listener.accept(tokens);
+            } catch (RuntimeException e) {
+                logger.error("Unregistered token listener failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private void retryOrFail(Delivery delivery, String error) {
+        if (delivery.attempt() >= properties.getMaxAttempts() || !running) {
+            complete(delivery, Status.FAILED, null, error);
+            return;
+        }
+        retries.increment();
+        long delay = backoffMillis(delivery.attempt());
+        retryScheduler.schedule(() -> {
+            if (!queue.offer(delivery.nextAttempt())) {
+                rejected.increment();
+                complete(delivery, Status.REJECTED, null, "Push dispatch queue is full");
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Exponential backoff with full jitter: uniform in [0, min(max, initial * 2^(attempt-1))]
+    private long backoffMillis(int attempt) {
+        long ceiling = properties.getInitialBackoffMs() << Math.min(attempt - 1, 30);
+        if (ceiling <= 0 || ceiling > properties.getMaxBackoffMs()) {
+            ceiling = properties.getMaxBackoffMs();
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void complete(Delivery delivery, Status status, String messageId, String error) {
+        results.get(status).increment();
+        if (status == Status.FAILED) {
+            logger.warn("Push to token {} failed after {} attempts: {}", delivery.token(), delivery.attempt(), error);
+        }
+        delivery.result().complete(new PushResult(delivery.token(), status, messageId, error));
+    }
+}
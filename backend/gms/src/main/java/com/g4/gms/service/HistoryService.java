@@ -1,13 +1,15 @@
 package com.g4.gms.service;
 
+import com.g4.gms.config.PaginationProperties;
 import com.g4.gms.model.History;
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.*;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Service
@@ -15,27 +17,20 @@ public class HistoryService {
 
     private static final String COLLECTION_NAME = "history";
 
-    @Autowired
-    private Firestore firestore;
+    private final DocumentRepository<History> historyRepository;
+    private final PaginationProperties paginationProperties;
+
+    public HistoryService(DocumentRepositoryFactory repositoryFactory, PaginationProperties paginationProperties) {
+        this.historyRepository = repositoryFactory.create(COLLECTION_NAME, History.class, History::setHistoryId);
+        this.paginationProperties = paginationProperties;
+    }
 
     /**
      * Get all history records
      * @return List of history records
      */
     public List<History> getAllHistory() throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME).get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<History> historyList = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            History history = document.toObject(History.class);
-            if (history != null) {
-                history.setHistoryId(document.getId());
-                historyList.add(history);
-            }
-        }
-        
-        return historyList;
+        return historyRepository.findAll();
     }
 
     /**
@@ -44,18 +39,7 @@ public class HistoryService {
      * @return The history record, or null if not found
      */
     public History getHistoryById(String historyId) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(historyId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (document.exists()) {
-            History history = document.toObject(History.class);
-            if (history != null) {
-                history.setHistoryId(document.getId());
-                return history;
-            }
-        }
-        
-        return null;
+        return historyRepository.findById(historyId);
     }
 
     /**
@@ -65,12 +49,10 @@ public class HistoryService {
      */
     public History createHistory(History history) throws ExecutionException, InterruptedException {
         // Create a new document with auto-generated ID
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document();
-        history.setHistoryId(docRef.getId());
+        history.setHistoryId(historyRepository.newId());
         
         // Save the document
-        ApiFuture<WriteResult> result = docRef.set(history);
-        result.get(); // Wait for the write to complete
+        historyRepository.save(history.getHistoryId(), history);
         
         return history;
     }
@@ -81,20 +63,79 @@ public class HistoryService {
      * @return List of history records for the schedule
      */
     public List<History> getHistoryByScheduleId(String scheduleId) throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME)
-                .whereEqualTo("scheduleId", scheduleId)
-                .get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<History> historyList = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            History history = document.toObject(History.class);
-            if (history != null) {
-                history.setHistoryId(document.getId());
-                historyList.add(history);
-            }
+        return historyRepository.findByField("scheduleId", scheduleId);
+    }
+
+    /**
+     * Get all history records without blocking the calling thread
+     * @return Future of the list of history records
+     */
+    public CompletableFuture<List<History>> getAllHistoryAsync() {
+        return historyRepository.findAllAsync();
+    }
+
+    /**
+     * Get one page of history records, ordered by document ID, without blocking the calling thread
+     * @param limit Requested page size (clamped to the configured maximum), or null for the default
+     * @param pageToken Token from the previous page, or null for the first page
+     *                  (the first app.pagination.max-unpaged items if limit is null too)
+     * @return Future of the page; fails with IllegalArgumentException if the page token is malformed
+     */
+    public CompletableFuture<Page<History>> getHistoryPageAsync(Integer limit, String pageToken) {
+        if (paginationProperties.wantsWholeList(limit, pageToken)) {
+            return historyRepository.findPageAsync(paginationProperties.getMaxUnpaged(), null)
+                    .thenApply(page -> UnpagedLists.capped(COLLECTION_NAME, page));
         }
-        
-        return historyList;
+        return historyRepository.findPageAsync(paginationProperties.resolvePageSize(limit), pageToken);
+    }
+
+    /**
+     * Get one page of history records for a bulk export, using the export page size
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return The page and the token for the next one
+     */
+    public Page<History> getHistoryExportPage(String pageToken) throws ExecutionException, InterruptedException {
+        return historyRepository.findPage(paginationProperties.getExportPageSize(), pageToken);
+    }
+
+    /**
+     * Get history by ID without blocking the calling thread
+     * @param historyId The ID of the history record to retrieve
+     * @return Future of the history record, or of null if not found
+     */
+    public CompletableFuture<History> getHistoryByIdAsync(String historyId) {
+        return historyRepository.findByIdAsync(historyId);
+    }
+
+    /**
+     * Create a new history record without blocking the calling thread
+     * @param history The history data to save
+     * @return Future of the created history record with ID
+     */
+    public CompletableFuture<History> createHistoryAsync(History history) {
+        history.setHistoryId(historyRepository.newId());
+        return historyRepository.saveAsync(history.getHistoryId(), history)
+                .thenApply(ignored -> history);
+    }
+
+    /**
+     * Get history records by schedule ID without blocking the calling thread
+     * @param scheduleId The ID of the schedule
+     * @return Future of the list of history records for the schedule
+     */
+    public CompletableFuture<List<History>> getHistoryByScheduleIdAsync(String scheduleId) {
+        return historyRepository.findByFieldAsync("scheduleId", scheduleId);
+    }
+
+    /**
+     * Get the history records of several schedules without blocking the calling thread
+     * @param scheduleIds The IDs of the schedules
+     * @return Future of the list of history records for those schedules
+     */
+    public CompletableFuture<List<History>> getHistoryByScheduleIdsAsync(Collection<String> scheduleIds) {
+        if (scheduleIds.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return historyRepository.findByFieldInAsync("scheduleId", scheduleIds);
     }
-} 
\ No newline at end of file
+}
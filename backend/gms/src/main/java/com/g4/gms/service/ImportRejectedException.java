@@ -0,0 +1,12 @@
+package com.g4.gms.service;
+
+/**
+ * Thrown when the import queue is full. Controllers map it to 429 Too Many
+ * Requests so the caller retries once earlier imports have finished.
+ */
+public class ImportRejectedException extends RuntimeException {
+
+    public ImportRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,51 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.PushDispatchProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PushSender for the "inmemory" profile: a local fake for load testing the
+ * dispatch pipeline without FCM. Each call sleeps app.push.fake-latency-ms and
+ * fails as a whole with probability app.push.fake-transient-failure-rate.
+ * Tokens starting with "unregistered" are reported as unregistered.
+ */
+@Component
+@Profile("inmemory")
+public class InMemoryPushSender implements PushSender {
+
+    private final PushDispatchProperties properties;
+    private final AtomicLong messageIds = new AtomicLong();
+
+    public InMemoryPushSender(PushDispatchProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public List<Outcome> send(String title, String body, List<String> tokens) throws PushSendException {
+        try {
+            Thread.sleep(properties.getFakeLatencyMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PushSendException("Interrupted", true, e);
+        }
+        if (ThreadLocalRandom.current().nextDouble() < properties.getFakeTransientFailureRate()) {
+            throw new PushSendException("Simulated push service outage", true, null);
+        }
+
+        List<Outcome> outcomes = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            if (token.startsWith("unregistered")) {
+                outcomes.add(Outcome.failed(Status.UNREGISTERED, "Requested entity was not found."));
+            } else {
+                outcomes.add(Outcome.delivered("projects/gms/messages/" + messageIds.incrementAndGet()));
+            }
+        }
+        return outcomes;
+    }
+}
@@ -0,0 +1,48 @@
+package com.g4.gms.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage latency of the login path (user lookup, password check, account
+ * check, token issue and the total), so a slow login can be attributed to
+ * Firestore, BCrypt or the authentication system. Each stage is timed as
+ * {@value #METRIC}, tagged by stage.
+ */
+@Component
+public class LoginMetrics {
+
+    public static final String METRIC = "gms.login";
+
+    public static final String USER_LOOKUP = "userLookup";
+    public static final String PASSWORD_CHECK = "passwordCheck";
+    public static final String ACCOUNT_CHECK = "accountCheck";
+    public static final String TOKEN_ISSUE = "tokenIssue";
+    public static final String TOTAL = "total";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public LoginMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Record how long one stage of a login took
+     * @param stage Stage name (one of the constants above)
+     * @param startNanos System.nanoTime() taken when the stage began
+     */
+    public void record(String stage, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        timers.computeIfAbsent(stage, key -> Timer.builder(METRIC)
+                .description("Latency of each stage of a login")
+                .tag("stage", key)
+                .register(meterRegistry))
+                .record(elapsed, TimeUnit.NANOSECONDS);
+    }
+}
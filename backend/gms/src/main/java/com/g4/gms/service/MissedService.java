@@ -1,13 +1,15 @@
 package com.g4.gms.service;
 
+import com.g4.gms.config.PaginationProperties;
 import com.g4.gms.model.Missed;
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.*;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.g4.gms.repository.DocumentNotFoundException;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Service
@@ -15,27 +17,20 @@ public class MissedService {
 
     private static final String COLLECTION_NAME = "missed";
 
-    @Autowired
-    private Firestore firestore;
+    private final DocumentRepository<Missed> missedRepository;
+    private final PaginationProperties paginationProperties;
+
+    public MissedService(DocumentRepositoryFactory repositoryFactory, PaginationProperties paginationProperties) {
+        this.missedRepository = repositoryFactory.create(COLLECTION_NAME, Missed.class, Missed::setMissedId);
+        this.paginationProperties = paginationProperties;
+    }
 
     /**
      * Get all missed records
      * @return List of missed records
      */
     public List<Missed> getAllMissed() throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME).get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<Missed> missedList = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            Missed missed = document.toObject(Missed.class);
-            if (missed != null) {
-                missed.setMissedId(document.getId());
-                missedList.add(missed);
-            }
-        }
-        
-        return missedList;
+        return missedRepository.findAll();
     }
 
     /**
@@ -44,18 +39,7 @@ public class MissedService {
      * @return The missed record, or null if not found
      */
     public Missed getMissedById(String missedId) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(missedId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (document.exists()) {
-            Missed missed = document.toObject(Missed.class);
-            if (missed != null) {
-                missed.setMissedId(document.getId());
-                return missed;
-            }
-        }
-        
-        return null;
+        return missedRepository.findById(missedId);
     }
 
     /**
@@ -65,12 +49,10 @@ public class MissedService {
      */
     public Missed createMissed(Missed missed) throws ExecutionException, InterruptedException {
         // Create a new document with auto-generated ID
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document();
-        missed.setMissedId(docRef.getId());
+        missed.setMissedId(missedRepository.newId());
         
         // Save the document
-        ApiFuture<WriteResult> result = docRef.set(missed);
-        result.get(); // Wait for the write to complete
+        missedRepository.save(missed.getMissedId(), missed);
         
         return missed;
     }
@@ -82,17 +64,13 @@ public class MissedService {
      * @return The updated missed record, or null if not found
      */
     public Missed updateMissed(String missedId, Missed missed) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(missedId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (document.exists()) {
-            missed.setMissedId(missedId);
-            ApiFuture<WriteResult> result = docRef.set(missed);
-            result.get(); // Wait for the write to complete
+        missed.setMissedId(missedId);
+        try {
+            missedRepository.replace(missedId, missed, null);
             return missed;
+        } catch (DocumentNotFoundException e) {
+            return null;
         }
-        
-        return null;
     }
 
     /**
@@ -101,16 +79,12 @@ public class MissedService {
      * @return true if deleted, false if not found
      */
     public boolean deleteMissed(String missedId) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(missedId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (document.exists()) {
-            ApiFuture<WriteResult> result = docRef.delete();
-            result.get(); // Wait for the delete to complete
+        try {
+            missedRepository.deleteExisting(missedId, null);
             return true;
+        } catch (DocumentNotFoundException e) {
+            return false;
         }
-        
-        return false;
     }
 
     /**
@@ -119,21 +93,7 @@ public class MissedService {
      * @return List of missed records for the schedule
      */
     public List<Missed> getMissedByScheduleId(String scheduleId) throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME)
-                .whereEqualTo("scheduleId", scheduleId)
-                .get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<Missed> missedList = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            Missed missed = document.toObject(Missed.class);
-            if (missed != null) {
-                missed.setMissedId(document.getId());
-                missedList.add(missed);
-            }
-        }
-        
-        return missedList;
+        return missedRepository.findByField("scheduleId", scheduleId);
     }
 
     /**
@@ -142,20 +102,114 @@ public class MissedService {
      * @return List of missed records for the user
      */
     public List<Missed> getMissedByUserId(String userId) throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME)
-                .whereEqualTo("userId", userId)
-                .get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<Missed> missedList = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            Missed missed = document.toObject(Missed.class);
-            if (missed != null) {
-                missed.setMissedId(document.getId());
-                missedList.add(missed);
-            }
+        return missedRepository.findByField("userId", userId);
+    }
+
+    /**
+     * Get all missed records without blocking the calling thread
+     * @return Future of the list of missed records
+     */
+    public CompletableFuture<List<Missed>> getAllMissedAsync() {
+        return missedRepository.findAllAsync();
+    }
+
+    /**
+     * Get one page of missed records, ordered by document ID, without blocking the calling thread
+     * @param limit Requested page size (clamped to the configured maximum), or null for the default
+     * @param pageToken Token from the previous page, or null for the first page
+     *                  (the first app.pagination.max-unpaged items if limit is null too)
+     * @return Future of the page; fails with IllegalArgumentException if the page token is malformed
+     */
+    public CompletableFuture<Page<Missed>> getMissedPageAsync(Integer limit, String pageToken) {
+        if (paginationProperties.wantsWholeList(limit, pageToken)) {
+            return missedRepository.findPageAsync(paginationProperties.getMaxUnpaged(), null)
+                    .thenApply(page -> UnpagedLists.capped(COLLECTION_NAME, page));
         }
-        
-        return missedList;
+        return missedRepository.findPageAsync(paginationProperties.resolvePageSize(limit), pageToken);
+    }
+
+    /**
+     * Get one page of missed records for a bulk export, using the export page size
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return The page and the token for the next one
+     */
+    public Page<Missed> getMissedExportPage(String pageToken) throws ExecutionException, InterruptedException {
+        return missedRepository.findPage(paginationProperties.getExportPageSize(), pageToken);
+    }
+
+    /**
+     * Get missed by ID without blocking the calling thread
+     * @param missedId The ID of the missed record to retrieve
+     * @return Future of the missed record, or of null if not found
+     */
+    public CompletableFuture<Missed> getMissedByIdAsync(String missedId) {
+        return missedRepository.findByIdAsync(missedId);
+    }
+
+    /**
+     * Create a new missed record without blocking the calling thread
+     * @param missed The missed data to save
+     * @return Future of the created missed record with ID
+     */
+    public CompletableFuture<Missed> createMissedAsync(Missed missed) {
+        missed.setMissedId(missedRepository.newId());
+        return missedRepository.saveAsync(missed.getMissedId(), missed)
+                .thenApply(ignored -> missed);
+    }
+
+    /**
+     * Update an existing missed record in one round trip, without reading it first,
+     * and without blocking the calling thread
+     * @param missedId The ID of the missed record to update
+     * @param missed The updated missed data
+     * @return Future of the updated missed record, or of null if not found
+     */
+    public CompletableFuture<Missed> updateMissedAsync(String missedId, Missed missed) {
+        missed.setMissedId(missedId);
+        return missedRepository.replaceAsync(missedId, missed, null).handle((ignored, e) -> {
+            if (e == null) {
+                return missed;
+            }
+            if (WriteFailures.isNotFound(e)) {
+                return null;
+            }
+            throw WriteFailures.propagate(e);
+        });
+    }
+
+    /**
+     * Delete a missed record in one round trip, without reading it first,
+     * and without blocking the calling thread
+     * @param missedId The ID of the missed record to delete
+     * @return Future of true if deleted, false if not found
+     */
+    public CompletableFuture<Boolean> deleteMissedAsync(String missedId) {
+        return missedRepository.deleteExistingAsync(missedId, null).handle((ignored, e) -> {
+            if (e == null) {
+                return true;
+            }
+            if (WriteFailures.isNotFound(e)) {
+                return false;
+            }
+            throw WriteFailures.propagate(e);
+        });
+    }
+
+    /**
+     * Get missed records by schedule ID without blocking the calling thread
+     * @param scheduleId The ID of the schedule
+     * @return Future of the list of missed records for the schedule
+     */
+    public CompletableFuture<List<Missed>> getMissedByScheduleIdAsync(String scheduleId) {
+        return missedRepository.findByFieldAsync("scheduleId", scheduleId);
+    }
+
+    /**
+     * Get missed records by user ID without blocking the calling thread
+     * @param userId The ID of the user
+     * @return Future of the list of missed records for the user
+     */
+    public CompletableFuture<List<Missed>> getMissedByUserIdAsync(String userId) {
+        return missedRepository.findByFieldAsync("userId", userId);
     }
-} 
\ No newline at end of file
+}
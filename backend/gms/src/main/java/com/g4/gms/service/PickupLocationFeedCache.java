@@ -0,0 +1,126 @@
+package com.g4.gms.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g4.gms.config.PickupLocationFeedProperties;
+import com.g4.gms.dto.PickupLocationResponse;
+import com.g4.gms.model.PickupLocation;
+import com.g4.gms.repository.Page;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized bodies of GET /api/pickup-locations, kept as JSON bytes plus a
+ * gzip-compressed copy so a repeat request is answered with a memory copy
+ * instead of rebuilding the response and running Jackson over it.
+ *
+ * Entries are keyed by a tag that includes the collection version, so a change
+ * to the collection is never served from an older entry; writes through
+ * {@link PickupLocationService} also drop every entry straight away. Concurrent
+ * misses for the same key share one build.
+ *
+ * The cache is reported as Micrometer cache metrics named
+ * {@value #CACHE_NAME}, and the bytes it holds as {@value #BYTES_METRIC}.
+ */
+@Component
+public class PickupLocationFeedCache {
+
+    public static final String CACHE_NAME = "pickup-location-feed";
+    public static final String BYTES_METRIC = "gms.pickup.location.feed.bytes";
+
+    /**
+     * One serialized page
+     * @param json The response body as UTF-8 JSON
+     * @param gzip The same body gzip-compressed
+     * @param nextPageToken Token for the following page, or null on the last page
+     */
+    public record Feed(byte[] json, byte[] gzip, String nextPageToken) {
+    }
+
+    private final AsyncCache<String, Feed> feeds;
+    private final ObjectMapper objectMapper;
+
+    public PickupLocationFeedCache(PickupLocationFeedProperties properties, ObjectMapper objectMapper,
+                                   MeterRegistry meterRegistry) {
+        this.feeds = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .recordStats()
+                .buildAsync();
+        this.objectMapper = objectMapper;
+        CaffeineCacheMetrics.monitor(meterRegistry, feeds, CACHE_NAME);
+        registerBytes(meterRegistry, "json", Feed::json);
+        registerBytes(meterRegistry, "gzip", Feed::gzip);
+    }
+
+    /**
+     * Get a serialized page, building and caching it on a miss
+     * @param key Tag identifying the collection version and the page requested
+     * @param page Supplies the page to serialize on a miss
+     * @return Future of the serialized page; a failed build is not cached
+     */
+    public CompletableFuture<Feed> get(String key, Supplier<CompletableFuture<Page<PickupLocation>>> page) {
+        return feeds.get(key, (ignored, executor) -> page.get().thenApply(this::serialize));
+    }
+
+    /**
+     * Serialize a page without caching it
+     * @param page The page to serialize
+     * @return The serialized page
+     */
+    public Feed serialize(Page<PickupLocation> page) {
+        PickupLocationResponse response = new PickupLocationResponse(
+                page.items(),
+                true,
+                "Pickup locations retrieved successfully"
+        );
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response);
+            return new Feed(json, gzip(json), page.nextPageToken());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize pickup locations", e);
+        }
+    }
+
+    /**
+     * Drop every cached page
+     */
+    public void invalidateAll() {
+        feeds.synchronous().invalidateAll();
+    }
+
+    private void registerBytes(MeterRegistry meterRegistry, String encoding, Function<Feed, byte[]> body) {
+        Gauge.builder(BYTES_METRIC, this, cache -> {
+                    long bytes = 0;
+                    for (Feed feed : cache.feeds.synchronous().asMap().values()) {
+                        bytes += body.apply(feed).length;
+                    }
+                    return bytes;
+                })
+                .description("Memory held by the cached pickup location bodies")
+                .baseUnit("bytes")
+                .tag("encoding", encoding)
+                .register(meterRegistry);
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+}
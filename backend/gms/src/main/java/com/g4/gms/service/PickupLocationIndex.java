@@ -0,0 +1,401 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.PickupLocationIndexProperties;
+import com.g4.gms.model.PickupLocation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory spatial index of pickup locations: a fixed latitude/longitude grid
+ * whose cells hold the sites that fall inside them. Nearest and radius searches
+ * walk outward ring by ring from the query point's cell and stop as soon as no
+ * unvisited cell can hold a closer site; box searches visit only the overlapped
+ * cells. Sites without coordinates are not indexed.
+ *
+ * Reads are lock-free against the current grid; writes are serialized. The grid
+ * is built from a full listing (see {@link #replaceAll}) and kept current by
+ * {@link #put}/{@link #remove} on every write the backend makes.
+ */
+@Component
+public class PickupLocationIndex {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180.0;
+
+    private final double cellSize;
+    private final int rows;
+    private final int columns;
+
+    private volatile Grid grid = new Grid();
+    private volatile boolean loaded;
+    // Incremented on every put/remove so a rebuild can tell which writes its listing may have missed
+    private long generation;
+    private long installedGeneration = -1;
+    private final Map<String, Long> removedAt = new HashMap<>();
+
+    public PickupLocationIndex(PickupLocationIndexProperties properties) {
+        this.cellSize = properties.getCellSizeDegrees();
+        this.rows = (int) Math.ceil(180.0 / cellSize);
+        this.columns = (int) Math.ceil(360.0 / cellSize);
+    }
+
+    /**
+     * Whether a full listing has been installed yet
+     * @return true once {@link #replaceAll} has succeeded
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Current write generation, to be passed to {@link #replaceAll} by a rebuild started now
+     * @return The generation
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Number of indexed sites
+     * @return The count
+     */
+    public int size() {
+        return grid.byId.size();
+    }
+
+    /**
+     * Install a full listing read after {@link #generation()} returned the given value.
+     * Writes made through this index since then are re-applied on top, and a listing
+     * older than the one already installed is ignored.
+     * @param locations Every pickup location
+     * @param since The generation read before the listing was started
+     */
+    public synchronized void replaceAll(Collection<PickupLocation> locations, long since) {
+        if (since < installedGeneration) {
+            return;
+        }
+        Grid fresh = new Grid();
+        for (PickupLocation location : locations) {
+            Entry entry = toEntry(location, since);
+            if (entry != null) {
+                fresh.add(entry);
+            }
+        }
+        if (generation != since) {
+            for (Entry entry : grid.byId.values()) {
+                if (entry.writtenAt > since) {
+                    fresh.add(entry);
+                }
+            }
+            removedAt.forEach((locationId, removedGeneration) -> {
+                if (removedGeneration > since) {
+                    fresh.remove(locationId);
+                }
+            });
+        }
+        removedAt.values().removeIf(removedGeneration -> removedGeneration <= since);
+        installedGeneration = since;
+        grid = fresh;
+        loaded = true;
+    }
+
+    /**
+     * Add or move a site after the backend has saved it
+     * @param location The saved pickup location
+     */
+    public synchronized void put(PickupLocation location) {
+        if (location == null || location.getLocationId() == null) {
+            return;
+        }
+        generation++;
+        removedAt.remove(location.getLocationId());
+        grid.remove(location.getLocationId());
+        Entry entry = toEntry(location, generation);
+        if (entry != null) {
+            grid.add(entry);
+        }
+    }
+
+    /**
+     * Drop a site after the backend has deleted it
+     * @param locationId The ID of the deleted pickup location
+     */
+    public synchronized void remove(String locationId) {
+        if (locationId == null) {
+            return;
+        }
+        generation++;
+        removedAt.put(locationId, generation);
+        grid.remove(locationId);
+    }
+
+    /**
+     * Find the sites closest to a point, nearest first
+     * @param latitude Latitude of the point
+     * @param longitude Longitude of the point
+     * @param maxDistanceMeters Only return sites within this distance, or null for no limit
+     * @param wasteType Only return sites accepting this waste type (case-insensitive), or null for any
+     * @param limit Maximum number of sites to return
+     * @return Matching sites ordered by distance
+     */
+    public List<PickupLocation> nearest(double latitude, double longitude, Double maxDistanceMeters,
+                                        String wasteType, int limit) {
+        Grid current = grid;
+        // Max-heap on distance holding the best candidates seen so far
+        // Candidates are ranked by the haversine term, which orders exactly like distance but skips the asin
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Comparator.comparingDouble(Candidate::haversine).reversed());
+        double maxHaversine = maxDistanceMeters != null ? toHaversine(maxDistanceMeters) : Double.POSITIVE_INFINITY;
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(normalizeLongitude(longitude));
+        double cosPhi = Math.cos(phi);
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        long visitedCells = 0;
+
+        for (int ring = 0; ; ring++) {
+            if (2 * ring + 1 >= columns || visitedCells * 4 > current.byId.size()) {
+                // Cell lookups are a fair fraction of a full scan by now; finish with one pass over every site
+                best.clear();
+                for (Entry entry : current.byId.values()) {
+                    offer(best, entry, phi, lambda, cosPhi, maxHaversine, wasteType, limit);
+                }
+                break;
+            }
+            for (int r = centerRow - ring; r <= centerRow + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                boolean edgeRow = r == centerRow - ring || r == centerRow + ring;
+                int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (int c = centerColumn - ring; c <= centerColumn + ring; c += step) {
+                    visitedCells++;
+                    Map<String, Entry> cell = current.cells.get(cellKey(r, Math.floorMod(c, columns)));
+                    if (cell != null) {
+                        for (Entry entry : cell.values()) {
+                            offer(best, entry, phi, lambda, cosPhi, maxHaversine, wasteType, limit);
+                        }
+                    }
+                }
+            }
+            double unvisited = toHaversine(minDistanceOutsideRing(latitude, ring));
+            if (unvisited > maxHaversine || (best.size() >= limit && best.peek().haversine() <= unvisited)) {
+                break;
+            }
+        }
+
+        List<Candidate> ordered = new ArrayList<>(best);
+        ordered.sort(Comparator.comparingDouble(Candidate::haversine));
+        List<PickupLocation> result = new ArrayList<>(ordered.size());
+        for (Candidate candidate : ordered) {
+            result.add(copy(candidate.entry().location));
+        }
+        return result;
+    }
+
+    /**
+     * Find the sites inside a latitude/longitude box, nearest to the box centre first.
+     * A box whose west edge is east of its east edge crosses the antimeridian.
+     * @param minLatitude South edge
+     * @param minLongitude West edge
+     * @param maxLatitude North edge
+     * @param maxLongitude East edge
+     * @param wasteType Only return sites accepting this waste type (case-insensitive), or null for any
+     * @param limit Maximum number of sites to return
+     * @return Matching sites
+     */
+    public List<PickupLocation> withinBox(double minLatitude, double minLongitude, double maxLatitude,
+                                          double maxLongitude, String wasteType, int limit) {
+        Grid current = grid;
+        boolean wraps = minLongitude > maxLongitude;
+        int firstRow = row(minLatitude);
+        int lastRow = row(maxLatitude);
+        int firstColumn = column(minLongitude);
+        int lastColumn = column(maxLongitude);
+        int columnSpan = Math.min(columns, wraps || lastColumn < firstColumn
+                ? columns - firstColumn + lastColumn + 1
+                : lastColumn - firstColumn + 1);
+        long cellCount = (long) (lastRow - firstRow + 1) * columnSpan;
+
+        List<Entry> matches = new ArrayList<>();
+        if (cellCount > current.byId.size()) {
+            for (Entry entry : current.byId.values()) {
+                if (inBox(entry, minLatitude, minLongitude, maxLatitude, maxLongitude, wraps) && accepts(entry, wasteType)) {
+                    matches.add(entry);
+                }
+            }
+        } else {
+            for (int r = firstRow; r <= lastRow; r++) {
+                for (int i = 0; i < columnSpan; i++) {
+                    Map<String, Entry> cell = current.cells.get(cellKey(r, (firstColumn + i) % columns));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (Entry entry : cell.values()) {
+                        if (inBox(entry, minLatitude, minLongitude, maxLatitude, maxLongitude, wraps) && accepts(entry, wasteType)) {
+                            matches.add(entry);
+                        }
+                    }
+                }
+            }
+        }
+
+        double centerLatitude = (minLatitude + maxLatitude) / 2;
+        double centerLongitude = wraps
+                ? normalizeLongitude((minLongitude + maxLongitude + 360) / 2)
+                : (minLongitude + maxLongitude) / 2;
+        double centerPhi = Math.toRadians(centerLatitude);
+        double centerLambda = Math.toRadians(centerLongitude);
+        double centerCosPhi = Math.cos(centerPhi);
+        matches.sort(Comparator.comparingDouble(entry -> haversine(centerPhi, centerLambda, centerCosPhi, entry)));
+        List<PickupLocation> result = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            result.add(copy(matches.get(i).location));
+        }
+        return result;
+    }
+
+    /**
+     * Haversine term between a point and a site: the great-circle distance is
+     * 2R·asin(√h), so h ranks sites by distance without the inverse trig
+     */
+    private static double haversine(double phi, double lambda, double cosPhi, Entry entry) {
+        double sinHalfDeltaPhi = Math.sin((entry.phi - phi) / 2);
+        double sinHalfDeltaLambda = Math.sin((entry.lambda - lambda) / 2);
+        return sinHalfDeltaPhi * sinHalfDeltaPhi + cosPhi * entry.cosPhi * sinHalfDeltaLambda * sinHalfDeltaLambda;
+    }
+
+    /**
+     * Haversine term for a distance, so distance limits can be compared with {@link #haversine}
+     */
+    private static double toHaversine(double meters) {
+        if (meters >= Math.PI * EARTH_RADIUS_METERS) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double sinHalfAngle = Math.sin(meters / (2 * EARTH_RADIUS_METERS));
+        return sinHalfAngle * sinHalfAngle;
+    }
+
+    /**
+     * Lower bound on the distance from a point to any site in a cell outside the given ring
+     */
+    private double minDistanceOutsideRing(double latitude, int ring) {
+        // A site in a row beyond the ring is at least ring cells away in latitude
+        double latitudeBound = ring * cellSize * METERS_PER_DEGREE;
+        // A site in a column beyond the ring is at least ring cells away in longitude, at a
+        // latitude no further from the equator than the outermost visited row
+        double extremeLatitude = Math.min(90.0, Math.abs(latitude) + (ring + 1) * cellSize);
+        double halfLambda = Math.min(Math.PI, Math.toRadians(ring * cellSize)) / 2;
+        double longitudeBound = 2 * EARTH_RADIUS_METERS
+                * Math.asin(Math.min(1.0, Math.cos(Math.toRadians(extremeLatitude)) * Math.sin(halfLambda)));
+        return Math.min(latitudeBound, longitudeBound);
+    }
+
+    private static void offer(PriorityQueue<Candidate> best, Entry entry, double phi, double lambda, double cosPhi,
+                              double maxHaversine, String wasteType, int limit) {
+        if (!accepts(entry, wasteType)) {
+            return;
+        }
+        double h = haversine(phi, lambda, cosPhi, entry);
+        if (h > maxHaversine) {
+            return;
+        }
+        if (best.size() < limit) {
+            best.add(new Candidate(entry, h));
+        } else if (h < best.peek().haversine()) {
+            best.poll();
+            best.add(new Candidate(entry, h));
+        }
+    }
+
+    private static boolean accepts(Entry entry, String wasteType) {
+        return wasteType == null || wasteType.equalsIgnoreCase(entry.location.getWasteType());
+    }
+
+    private static boolean inBox(Entry entry, double minLatitude, double minLongitude, double maxLatitude,
+                                 double maxLongitude, boolean wraps) {
+        if (entry.latitude < minLatitude || entry.latitude > maxLatitude) {
+            return false;
+        }
+        return wraps
+                ? entry.longitude >= minLongitude || entry.longitude <= maxLongitude
+                : entry.longitude >= minLongitude && entry.longitude <= maxLongitude;
+    }
+
+    private Entry toEntry(PickupLocation location, long writtenAt) {
+        if (location.getLocationId() == null || location.getLatitude() == null || location.getLongitude() == null) {
+            return null;
+        }
+        double latitude = location.getLatitude();
+        double longitude = normalizeLongitude(location.getLongitude());
+        if (Double.isNaN(latitude) || Double.isNaN(longitude) || latitude < -90 || latitude > 90) {
+            return null;
+        }
+        double phi = Math.toRadians(latitude);
+        return new Entry(copy(location), latitude, longitude, phi, Math.toRadians(longitude), Math.cos(phi),
+                cellKey(row(latitude), column(longitude)), writtenAt);
+    }
+
+    private int row(double latitude) {
+        return Math.min(rows - 1, Math.max(0, (int) Math.floor((latitude + 90.0) / cellSize)));
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((normalizeLongitude(longitude) + 180.0) / cellSize), columns);
+    }
+
+    private long cellKey(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    private static double normalizeLongitude(double longitude) {
+        double normalized = ((longitude + 180.0) % 360.0 + 360.0) % 360.0 - 180.0;
+        return normalized == -180.0 && longitude > 0 ? 180.0 : normalized;
+    }
+
+    private static PickupLocation copy(PickupLocation location) {
+        return new PickupLocation(location);
+    }
+
+    private record Entry(PickupLocation location, double latitude, double longitude, double phi, double lambda,
+                         double cosPhi, long cellKey, long writtenAt) {
+    }
+
+    private record Candidate(Entry entry, double haversine) {
+    }
+
+    /**
+     * One generation of the index; swapped wholesale by {@link #replaceAll}
+     */
+    private static final class Grid {
+        private final Map<Long, Map<String, Entry>> cells = new ConcurrentHashMap<>();
+        private final Map<String, Entry> byId = new ConcurrentHashMap<>();
+
+        void add(Entry entry) {
+            String locationId = entry.location.getLocationId();
+            remove(locationId);
+            cells.computeIfAbsent(entry.cellKey, key -> new ConcurrentHashMap<>()).put(locationId, entry);
+            byId.put(locationId, entry);
+        }
+
+        void remove(String locationId) {
+            Entry previous = byId.remove(locationId);
+            if (previous != null) {
+                Map<String, Entry> cell = cells.get(previous.cellKey);
+                if (cell != null) {
+                    cell.remove(locationId);
+                    if (cell.isEmpty()) {
+                        cells.remove(previous.cellKey);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -1,41 +1,52 @@
 package com.g4.gms.service;
 
+import com.g4.gms.config.PaginationProperties;
 import com.g4.gms.model.PickupLocation;
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.*;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.g4.gms.repository.CollectionReplicas;
+import com.g4.gms.repository.CollectionVersion;
+import com.g4.gms.repository.DocumentBulkWriter;
+import com.g4.gms.repository.DocumentNotFoundException;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Service
 public class PickupLocationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PickupLocationService.class);
     private static final String COLLECTION_NAME = "pickup_locations";
 
-    @Autowired
-    private Firestore firestore;
+    private final DocumentRepository<PickupLocation> locationRepository;
+    private final PaginationProperties paginationProperties;
+    private final PickupLocationIndex locationIndex;
+    private final PickupLocationFeedCache feedCache;
+
+    public PickupLocationService(DocumentRepositoryFactory repositoryFactory, PaginationProperties paginationProperties,
+                                 PickupLocationIndex locationIndex, CollectionReplicas replicas,
+                                 PickupLocationFeedCache feedCache) {
+        // Read on every app open but rarely changed: served from a listener-fed replica
+        this.locationRepository = replicas.replicate(COLLECTION_NAME,
+                repositoryFactory.create(COLLECTION_NAME, PickupLocation.class, PickupLocation::setLocationId),
+                PickupLocation::new);
+        this.paginationProperties = paginationProperties;
+        this.locationIndex = locationIndex;
+        this.feedCache = feedCache;
+    }
 
     /**
      * Get all pickup locations
      * @return List of pickup locations
      */
     public List<PickupLocation> getAllPickupLocations() throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME).get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<PickupLocation> locations = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            PickupLocation location = document.toObject(PickupLocation.class);
-            if (location != null) {
-                location.setLocationId(document.getId());
-                locations.add(location);
-            }
-        }
-        
-        return locations;
+        return locationRepository.findAll();
     }
 
     /**
@@ -44,18 +55,7 @@ public class PickupLocationService {
      * @return The pickup location, or null if not found
      */
     public PickupLocation getPickupLocationById(String locationId) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(locationId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (document.exists()) {
-            PickupLocation location = document.toObject(PickupLocation.class);
-            if (location != null) {
-                location.setLocationId(document.getId());
-                return location;
-            }
-        }
-        
-        return null;
+        return locationRepository.findById(locationId);
     }
 
     /**
@@ -65,12 +65,12 @@ public class PickupLocationService {
      */
     public PickupLocation createPickupLocation(PickupLocation location) throws ExecutionException, InterruptedException {
         // Create a new document with auto-generated ID
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document();
-        location.setLocationId(docRef.getId());
+        location.setLocationId(locationRepository.newId());
         
         // Save the document
-        ApiFuture<WriteResult> result = docRef.set(location);
-        result.get(); // Wait for the write to complete
+        locationRepository.save(location.getLocationId(), location);
+        locationIndex.put(location);
+        feedCache.invalidateAll();
         
         return location;
     }
@@ -84,20 +84,17 @@ public class PickupLocationService {
     public PickupLocation updatePickupLocation(String locationId, PickupLocation location) 
             throws ExecutionException, InterruptedException, IllegalArgumentException {
         
-        // Check if the location exists
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(locationId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (!document.exists()) {
-            throw new IllegalArgumentException("Pickup location with ID " + locationId + " not found");
-        }
-        
         // Set the ID
         location.setLocationId(locationId);
         
-        // Update the document
-        ApiFuture<WriteResult> result = docRef.set(location);
-        result.get(); // Wait for the write to complete
+        // Overwrite the document, which must already exist
+        try {
+            locationRepository.replace(locationId, location, null);
+        } catch (DocumentNotFoundException e) {
+            throw new IllegalArgumentException("Pickup location with ID " + locationId + " not found");
+        }
+        locationIndex.put(location);
+        feedCache.invalidateAll();
         
         return location;
     }
@@ -110,18 +107,257 @@ public class PickupLocationService {
     public boolean deletePickupLocation(String locationId) 
             throws ExecutionException, InterruptedException, IllegalArgumentException {
         
-        // Check if the location exists
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(locationId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (!document.exists()) {
+        // Delete the document, which must exist
+        try {
+            locationRepository.deleteExisting(locationId, null);
+        } catch (DocumentNotFoundException e) {
             throw new IllegalArgumentException("Pickup location with ID " + locationId + " not found");
         }
-        
-        // Delete the document
-        ApiFuture<WriteResult> result = docRef.delete();
-        result.get(); // Wait for the delete to complete
+        locationIndex.remove(locationId);
+        feedCache.invalidateAll();
         
         return true;
     }
-} 
\ No newline at end of file
+
+    /**
+     * Get the version of the whole pickup location collection, if it is known without a read
+     * @return The version, or null while the replica is not live
+     */
+    public CollectionVersion getCollectionVersion() {
+        return locationRepository.currentVersion();
+    }
+
+    /**
+     * Get all pickup locations without blocking the calling thread
+     * @return Future of the list of pickup locations
+     */
+    public CompletableFuture<List<PickupLocation>> getAllPickupLocationsAsync() {
+        return locationRepository.findAllAsync();
+    }
+
+    /**
+     * Get one page of pickup locations, ordered by document ID, without blocking the calling thread
+     * @param limit Requested page size (clamped to the configured maximum), or null for the default
+     * @param pageToken Token from the previous page, or null for the first page
+     *                  (the first app.pagination.max-unpaged items if limit is null too)
+     * @return Future of the page; fails with IllegalArgumentException if the page token is malformed
+     */
+    public CompletableFuture<Page<PickupLocation>> getPickupLocationsPageAsync(Integer limit, String pageToken) {
+        if (paginationProperties.wantsWholeList(limit, pageToken)) {
+            return locationRepository.findPageAsync(paginationProperties.getMaxUnpaged(), null)
+                    .thenApply(page -> UnpagedLists.capped(COLLECTION_NAME, page));
+        }
+        return locationRepository.findPageAsync(paginationProperties.resolvePageSize(limit), pageToken);
+    }
+
+    /**
+     * Get one page of pickup locations as a serialized response body, from the feed cache when it has one
+     * @param key Tag identifying the collection version and the page requested
+     * @param limit Requested page size (clamped to the configured maximum), or null for the default
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return Future of the serialized page; fails with IllegalArgumentException if the page token is malformed
+     */
+    public CompletableFuture<PickupLocationFeedCache.Feed> getPickupLocationsFeedAsync(String key, Integer limit,
+                                                                                      String pageToken) {
+        return feedCache.get(key, () -> getPickupLocationsPageAsync(limit, pageToken));
+    }
+
+    /**
+     * Serialize a page of pickup locations as a response body, without caching it
+     * @param page The page to serialize
+     * @return The serialized page
+     */
+    public PickupLocationFeedCache.Feed serializePickupLocationsPage(Page<PickupLocation> page) {
+        return feedCache.serialize(page);
+    }
+
+    /**
+     * Get a pickup location by ID without blocking the calling thread
+     * @param locationId The ID of the location to retrieve
+     * @return Future of the pickup location, or of null if not found
+     */
+    public CompletableFuture<PickupLocation> getPickupLocationByIdAsync(String locationId) {
+        return locationRepository.findByIdAsync(locationId);
+    }
+
+    /**
+     * Create a new pickup location without blocking the calling thread
+     * @param location The pickup location data to save
+     * @return Future of the created pickup location with ID
+     */
+    public CompletableFuture<PickupLocation> createPickupLocationAsync(PickupLocation location) {
+        location.setLocationId(locationRepository.newId());
+        return locationRepository.saveAsync(location.getLocationId(), location)
+                .thenApply(ignored -> {
+                    locationIndex.put(location);
+                    feedCache.invalidateAll();
+                    return location;
+                });
+    }
+
+    /**
+     * Open a throttled writer for importing many pickup locations
+     * @param initialOpsPerSecond Write rate to start at
+     * @param maxOpsPerSecond Write rate never to exceed
+     * @return The writer, for importPickupLocation; close it to wait for the writes in flight
+     */
+    public DocumentBulkWriter<PickupLocation> openBulkWriter(int initialOpsPerSecond, int maxOpsPerSecond) {
+        DocumentBulkWriter<PickupLocation> writer = locationRepository.openBulkWriter(initialOpsPerSecond, maxOpsPerSecond);
+        // Feeds are keyed by collection version, so none goes stale mid-import; they are dropped once at the end
+        return new DocumentBulkWriter<>() {
+            @Override
+            public CompletableFuture<Void> save(String id, PickupLocation location) {
+                return writer.save(id, location);
+            }
+
+            @Override
+            public void close() throws ExecutionException, InterruptedException {
+                try {
+                    writer.close();
+                } finally {
+                    feedCache.invalidateAll();
+                }
+            }
+        };
+    }
+
+    /**
+     * Create a pickup location through a bulk writer
+     * @param writer Writer from openBulkWriter
+     * @param location The location to create
+     * @return Future of the created location, with its new ID
+     */
+    public CompletableFuture<PickupLocation> importPickupLocation(DocumentBulkWriter<PickupLocation> writer,
+                                                                  PickupLocation location) {
+        location.setLocationId(locationRepository.newId());
+        return writer.save(location.getLocationId(), location)
+                .thenApply(ignored -> {
+                    locationIndex.put(location);
+                    return location;
+                });
+    }
+
+    /**
+     * Update an existing pickup location without blocking the calling thread
+     * @param locationId The ID of the location to update
+     * @param location The updated location data
+     * @return Future of the updated pickup location; fails with IllegalArgumentException if not found
+     */
+    public CompletableFuture<PickupLocation> updatePickupLocationAsync(String locationId, PickupLocation location) {
+        location.setLocationId(locationId);
+        return locationRepository.replaceAsync(locationId, location, null).handle((ignored, e) -> {
+            if (e != null) {
+                throw WriteFailures.translate(e, "Pickup location with ID " + locationId + " not found");
+            }
+            locationIndex.put(location);
+            feedCache.invalidateAll();
+            return location;
+        });
+    }
+
+    /**
+     * Delete a pickup location without blocking the calling thread
+     * @param locationId The ID of the location to delete
+     * @return Future of true once deleted; fails with IllegalArgumentException if not found
+     */
+    public CompletableFuture<Boolean> deletePickupLocationAsync(String locationId) {
+        return locationRepository.deleteExistingAsync(locationId, null).handle((ignored, e) -> {
+            if (e != null) {
+                throw WriteFailures.translate(e, "Pickup location with ID " + locationId + " not found");
+            }
+            locationIndex.remove(locationId);
+            feedCache.invalidateAll();
+            return true;
+        });
+    }
+
+    /**
+     * Find the pickup locations nearest a point, nearest first, without blocking the calling thread
+     * @param latitude Latitude of the point
+     * @param longitude Longitude of the point
+     * @param radiusMeters Only return sites within this distance, or null for no limit
+     * @param wasteType Only return sites accepting this waste type, or null for any
+     * @param limit Maximum number of sites (clamped to the configured page size), or null for the default
+     * @return Future of the matching sites; fails with IllegalArgumentException if a parameter is out of range
+     */
+    public CompletableFuture<List<PickupLocation>> findNearestPickupLocationsAsync(double latitude, double longitude,
+            Double radiusMeters, String wasteType, Integer limit) {
+        checkLatitude(latitude);
+        checkLongitude(longitude);
+        if (radiusMeters != null && !(radiusMeters > 0)) {
+            throw new IllegalArgumentException("radiusMeters must be positive");
+        }
+        int pageSize = paginationProperties.resolvePageSize(limit);
+        return loadedIndexAsync().thenApply(index -> index.nearest(latitude, longitude, radiusMeters, blankToNull(wasteType), pageSize));
+    }
+
+    /**
+     * Find the pickup locations inside a latitude/longitude box without blocking the calling thread.
+     * A box whose west edge is east of its east edge crosses the antimeridian.
+     * @param minLatitude South edge
+     * @param minLongitude West edge
+     * @param maxLatitude North edge
+     * @param maxLongitude East edge
+     * @param wasteType Only return sites accepting this waste type, or null for any
+     * @param limit Maximum number of sites (clamped to the configured page size), or null for the default
+     * @return Future of the matching sites, nearest the box centre first; fails with IllegalArgumentException if a parameter is out of range
+     */
+    public CompletableFuture<List<PickupLocation>> findPickupLocationsInBoxAsync(double minLatitude, double minLongitude,
+            double maxLatitude, double maxLongitude, String wasteType, Integer limit) {
+        checkLatitude(minLatitude);
+        checkLatitude(maxLatitude);
+        checkLongitude(minLongitude);
+        checkLongitude(maxLongitude);
+        if (minLatitude > maxLatitude) {
+            throw new IllegalArgumentException("minLat cannot be greater than maxLat");
+        }
+        int pageSize = paginationProperties.resolvePageSize(limit);
+        return loadedIndexAsync().thenApply(index -> index.withinBox(minLatitude, minLongitude, maxLatitude, maxLongitude,
+                blankToNull(wasteType), pageSize));
+    }
+
+    /**
+     * Rebuild the spatial index from a full listing, picking up changes made outside this backend
+     */
+    @Scheduled(fixedDelayString = "${app.pickup-location-index.sync-interval-ms:300000}",
+            initialDelayString = "${app.pickup-location-index.sync-interval-ms:300000}")
+    public void reconcileIndex() {
+        try {
+            reloadIndexAsync().get();
+            logger.debug("Pickup location index synced: {} sites", locationIndex.size());
+        } catch (ExecutionException e) {
+            // Keep serving the current index; the next run will try again
+            logger.warn("Pickup location index sync failed: {}", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<PickupLocationIndex> loadedIndexAsync() {
+        if (locationIndex.isLoaded()) {
+            return CompletableFuture.completedFuture(locationIndex);
+        }
+        return reloadIndexAsync().thenApply(ignored -> locationIndex);
+    }
+
+    private CompletableFuture<Void> reloadIndexAsync() {
+        long since = locationIndex.generation();
+        return locationRepository.findAllAsync().thenAccept(locations -> locationIndex.replaceAll(locations, since));
+    }
+
+    private static void checkLatitude(double latitude) {
+        if (!(latitude >= -90 && latitude <= 90)) {
+            throw new IllegalArgumentException("Latitude must be between -90 and 90");
+        }
+    }
+
+    private static void checkLongitude(double longitude) {
+        if (!(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Longitude must be between -180 and 180");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
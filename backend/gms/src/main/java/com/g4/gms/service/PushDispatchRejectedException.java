@@ -0,0 +1,12 @@
+package com.g4.gms.service;
+
+/**
+ * Thrown when the push dispatch queue cannot take a send. Controllers map it
+ * to 429 Too Many Requests so the caller backs off instead of piling up.
+ */
+public class PushDispatchRejectedException extends RuntimeException {
+
+    public PushDispatchRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package com.g4.gms.service;
+
+/**
+ * Thrown by a {@link PushSender} when a whole send call fails, rather than
+ * individual tokens.
+ */
+public class PushSendException extends Exception {
+
+    private final boolean retryable;
+
+    public PushSendException(String message, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    /**
+     * Whether sending the same batch again later may succeed
+     * @return true for outages, throttling and timeouts
+     */
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,52 @@
+package com.g4.gms.service;
+
+import java.util.List;
+
+/**
+ * Sends one notification to a batch of devices. FirebaseMessagingService queues,
+ * batches and retries deliveries and calls this from its worker threads; the
+ * implementation only makes the call and classifies each token's outcome.
+ */
+public interface PushSender {
+
+    /**
+     * How one token fared
+     */
+    enum Status {
+        /** Accepted by the push service */
+        DELIVERED,
+        /** The token is no longer valid for this app and should be forgotten */
+        UNREGISTERED,
+        /** Failed in a way that may succeed if sent again later */
+        TRANSIENT,
+        /** Failed in a way that retrying will not fix */
+        FAILED
+    }
+
+    /**
+     * The outcome for one token
+     * @param status How the send fared
+     * @param messageId The push service's message ID when delivered
+     * @param error The push service's error message otherwise
+     */
+    record Outcome(Status status, String messageId, String error) {
+
+        public static Outcome delivered(String messageId) {
+            return new Outcome(Status.DELIVERED, messageId, null);
+        }
+
+        public static Outcome failed(Status status, String error) {
+            return new Outcome(status, null, error);
+        }
+    }
+
+    /**
+     * Send a notification to every token in one call
+     * @param title The title of the notification
+     * @param body The body/content of the notification
+     * @param tokens Device tokens (at most 500)
+     * @return One outcome per token, in the same order
+     * @throws PushSendException if the call as a whole failed
+     */
+    List<Outcome> send(String title, String body, List<String> tokens) throws PushSendException;
+}
@@ -0,0 +1,515 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.ReminderDeliveryProperties;
+import com.g4.gms.model.Reminder;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
+import com.g4.gms.repository.PageToken;
+import com.google.cloud.Timestamp;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires reminders when they fall due. Pending reminders carry a numeric
+ * pendingFireAt; a loader walks them in (pendingFireAt, ID) order with a
+ * resumable range-query cursor and keeps those due within the next
+ * app.reminders.horizon-ms in a time-ordered skip list, never more than
+ * app.reminders.max-loaded at once. A one-second tick takes what is due,
+ * re-reads it to confirm it is still pending and claims it with a write
+ * conditional on the version read, which marks it SENDING and clears
+ * pendingFireAt so it is never loaded again. Only the claimed reminder is sent
+ * through {@link FirebaseMessagingService}, and its outcome recorded after.
+ *
+ * Every instance runs the scheduler over the same reminders, and the claim is
+ * what keeps them from sending one twice: the instances that lose it count the
+ * reminder as stale. Delivery is therefore at most once: a crash between the
+ * claim and the recorded outcome leaves the reminder SENDING. After downtime the loader
+ * starts from the oldest pending reminder, so overdue ones fire at
+ * app.reminders.fire-batch-size per tick, and those older than
+ * app.reminders.max-lateness-ms are recorded as expired instead of sent.
+ *
+ * Timeline size, outcomes and how late reminders fire are {@value #METRIC}.* meters.
+ */
+@Component
+public class ReminderScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReminderScheduler.class);
+
+    public static final String METRIC = "gms.reminders";
+
+    public static final String PENDING = "PENDING";
+    // Claimed by one instance and being sent
+    public static final String SENDING = "SENDING";
+    public static final String SENT = "SENT";
+    public static final String NO_DEVICES = "NO_DEVICES";
+    public static final String FAILED = "FAILED";
+    public static final String EXPIRED = "EXPIRED";
+    // reminderDate could not be parsed, so there is nothing to fire
+    public static final String UNSCHEDULED = "UNSCHEDULED";
+
+    private static final String PENDING_FIRE_AT = "pendingFireAt";
+    private static final String DELIVERY_STATUS = "deliveryStatus";
+    private static final String HANDLED_AT = "handledAt";
+    private static final String STALE = "STALE";
+
+    private record Due(long fireAt, String reminderId) implements Comparable<Due> {
+
+        @Override
+        public int compareTo(Due other) {
+            int byTime = Long.compare(fireAt, other.fireAt);
+            return byTime != 0 ? byTime : reminderId.compareTo(other.reminderId);
+        }
+    }
+
+    private final DocumentRepository<Reminder> reminderRepository;
+    private final ReminderDeliveryProperties properties;
+    private final FirebaseMessagingService messagingService;
+    private final DeviceTokenLookup deviceTokenLookup;
+    private final ZoneId zone;
+    private final LocalTime defaultTime;
+
+    private final ConcurrentSkipListSet<Due> timeline = new ConcurrentSkipListSet<>();
+    // Reminder ID to the fire time of its timeline entry
+    private final Map<String, Long> loaded = new ConcurrentHashMap<>();
+    // Taken off the timeline and not yet recorded; the loader must not load these again
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Object loadLock = new Object();
+    // Where the next load continues; null starts from the oldest pending reminder
+    private String loadCursor;
+    // Every pending reminder due before this is on the timeline or in flight
+    private volatile long coveredUntil = Long.MIN_VALUE;
+
+    private final Counter loadedTotal;
+    // Keyed by delivery status, plus "STALE" for reminders dropped because they changed after
+    // loading or another instance claimed them first
+    private final Map<String, Counter> outcomes = new HashMap<>();
+    private final Counter requeued;
+    private final Timer fireDelay;
+
+    public ReminderScheduler(DocumentRepositoryFactory repositoryFactory, ReminderDeliveryProperties properties,
+                             FirebaseMessagingService messagingService,
+                             DeviceTokenLookup deviceTokenLookup, MeterRegistry meterRegistry) {
+        this.reminderRepository = repositoryFactory.create(ReminderService.COLLECTION_NAME, Reminder.class,
+                Reminder::setReminderId);
+        this.properties = properties;
+        this.messagingService = messagingService;
+        this.deviceTokenLookup = deviceTokenLookup;
+        this.zone = ZoneId.of(properties.getZone());
+        this.defaultTime = LocalTime.parse(properties.getDefaultTime());
+
+        Gauge.builder(METRIC + ".loaded", loaded, Map::size)
+                .description("Reminders waiting on the in-memory timeline")
+                .register(meterRegistry);
+        Gauge.builder(METRIC + ".in.flight", inFlight, Set::size)
+                .description("Reminders taken off the timeline and not yet recorded")
+                .register(meterRegistry);
+        // How far ahead the in-memory timeline is known to be complete
+        TimeGauge.builder(METRIC + ".covered.ahead", this, TimeUnit.MILLISECONDS, scheduler -> {
+                    long covered = scheduler.coveredUntil;
+                    return covered == Long.MIN_VALUE ? Double.NaN : covered - System.currentTimeMillis();
+                })
+                .description("How far ahead every pending reminder is on the timeline")
+                .register(meterRegistry);
+        TimeGauge.builder(METRIC + ".next.due", timeline, TimeUnit.MILLISECONDS, dues -> {
+                    Due next = dues.isEmpty() ? null : dues.first();
+                    return next != null ? next.fireAt() - System.currentTimeMillis() : Double.NaN;
+                })
+                .description("Time until the next reminder on the timeline is due")
+                .register(meterRegistry);
+        this.loadedTotal = Counter.builder(METRIC + ".timeline.added")
+                .description("Reminders put on the timeline by the loader")
+                .register(meterRegistry);
+        for (String status : List.of(SENT, NO_DEVICES, FAILED, EXPIRED, STALE)) {
+            outcomes.put(status, Counter.builder(METRIC + ".outcomes")
+                    .description("Reminders handled, by outcome")
+                    .tag("status", status.toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.requeued = Counter.builder(METRIC + ".requeued")
+                .description("Reminders put back on the timeline because the push queue was full or a read failed")
+                .register(meterRegistry);
+        this.fireDelay = Timer.builder(METRIC + ".fire.delay")
+                .description("How late reminders were sent after they fell due")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Resolve a reminder date to an instant. Accepts an ISO instant or offset date-time,
+     * a local date-time ("2025-05-01T07:30" or "2025-05-01 07:30") in the configured zone,
+     * or a date alone, which fires at the configured default time.
+     * @param reminderDate The reminder date as stored
+     * @return Epoch milliseconds, or null if the date cannot be parsed
+     */
+    public Long resolveFireAt(String reminderDate) {
+        return DateTimes.toEpochMillis(reminderDate, zone, defaultTime);
+    }
+
+    /**
+     * Set the delivery fields of a reminder about to be saved, arming it to fire at its reminder date
+     * @param reminder The reminder being created or replaced
+     */
+    public void prepare(Reminder reminder) {
+        Long fireAt = resolveFireAt(reminder.getReminderDate());
+        reminder.setFireAt(fireAt);
+        reminder.setPendingFireAt(fireAt);
+        reminder.setDeliveryStatus(fireAt != null ? PENDING : UNSCHEDULED);
+        reminder.setHandledAt(null);
+    }
+
+    /**
+     * Take note of a reminder that was just saved, so one due soon fires without waiting for the loader
+     * @param reminder The saved reminder
+     */
+    public void track(Reminder reminder) {
+        String reminderId = reminder.getReminderId();
+        cancel(reminderId);
+        Long fireAt = reminder.getPendingFireAt();
+        // Later reminders are picked up by the loader when their time comes
+        if (fireAt != null && fireAt < coveredUntil) {
+            add(reminderId, fireAt);
+        }
+    }
+
+    /**
+     * Forget a reminder that was deleted or rescheduled
+     * @param reminderId Reminder ID
+     */
+    public void cancel(String reminderId) {
+        Long fireAt = loaded.remove(reminderId);
+        if (fireAt != null) {
+            timeline.remove(new Due(fireAt, reminderId));
+        }
+    }
+
+    /**
+     * Load pending reminders due within the horizon, continuing from where the last load stopped
+     */
+    @Scheduled(fixedDelayString = "${app.reminders.load-interval-ms:30000}")
+    public void loadDue() {
+        if (!properties.getEnabled()) {
+            return;
+        }
+        synchronized (loadLock) {
+            long until = System.currentTimeMillis() + properties.getHorizonMs();
+            int added = 0;
+            try {
+                while (loaded.size() < properties.getMaxLoaded()) {
+                    Page<Reminder> page = reminderRepository.findPageByRange(PENDING_FIRE_AT, Long.MIN_VALUE, until,
+                            properties.getLoadPageSize(), loadCursor);
+                    Reminder last = null;
+                    for (Reminder reminder : page.items()) {
+                        if (add(reminder.getReminderId(), reminder.getPendingFireAt())) {
+                            added++;
+                        }
+                        last = reminder;
+                    }
+                    if (page.nextPageToken() == null) {
+                        // Nothing more is due before `until`; the next load continues after the last one seen
+                        if (last != null) {
+                            loadCursor = PageToken.encode(last.getPendingFireAt(), last.getReminderId());
+                        }
+                        coveredUntil = until;
+                        break;
+                    }
+                    loadCursor = page.nextPageToken();
+                    coveredUntil = last.getPendingFireAt();
+                }
+            } catch (ExecutionException | InterruptedException | RuntimeException e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                logger.error("Failed to load due reminders: {}", e.getMessage(), e);
+            }
+            if (added > 0) {
+                loadedTotal.increment(added);
+                logger.info("Loaded {} due reminders ({} waiting in memory)", added, loaded.size());
+            }
+        }
+    }
+
+    /**
+     * Start the next load from the oldest pending reminder again, to pick up reminders
+     * written by other instances or directly to Firestore behind the load cursor
+     */
+    @Scheduled(fixedDelayString = "${app.reminders.rescan-interval-ms:600000}",
+            initialDelayString = "${app.reminders.rescan-interval-ms:600000}")
+    public void rescan() {
+        synchronized (loadLock) {
+            loadCursor = null;
+        }
+    }
+
+    /**
+     * Fire the reminders that are due
+     */
+    @Scheduled(fixedDelayString = "${app.reminders.tick-ms:1000}")
+    public void fireDue() {
+        if (!properties.getEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        int room = Math.min(properties.getFireBatchSize(), properties.getMaxInFlight() - inFlight.size());
+        List<Due> due = new ArrayList<>();
+        while (due.size() < room) {
+            Due next = timeline.pollFirst();
+            if (next == null) {
+                break;
+            }
+            if (next.fireAt() > now) {
+                timeline.add(next);
+                break;
+            }
+            // Skip entries left behind by a cancel or reschedule
+            if (loaded.remove(next.reminderId(), next.fireAt())) {
+                inFlight.add(next.reminderId());
+                due.add(next);
+            }
+        }
+        if (!due.isEmpty()) {
+            fire(due, now);
+        }
+    }
+
+    /**
+     * Arm every reminder written before delivery tracking existed: resolve its date and
+     * mark it pending, or expired if it is already too late to send
+     * @return Counts of reminders scanned, armed, expired and unparseable
+     */
+    public Map<String, Object> backfill() throws ExecutionException, InterruptedException {
+        long now = System.currentTimeMillis();
+        int scanned = 0;
+        int armed = 0;
+        int expiredCount = 0;
+        int unscheduled = 0;
+        String pageToken = null;
+        do {
+            Page<Reminder> page = reminderRepository.findPage(properties.getLoadPageSize(), pageToken);
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (Reminder reminder : page.items()) {
+                scanned++;
+                if (reminder.getDeliveryStatus() != null) {
+                    continue;
+                }
+                Long fireAt = resolveFireAt(reminder.getReminderDate());
+                Map<String, Object> fields = new HashMap<>();
+                fields.put("fireAt", fireAt);
+                if (fireAt == null) {
+                    fields.put(DELIVERY_STATUS, UNSCHEDULED);
+                    unscheduled++;
+                } else if (now - fireAt > properties.getMaxLatenessMs()) {
+                    fields.put(DELIVERY_STATUS, EXPIRED);
+                    fields.put(HANDLED_AT, Timestamp.now());
+                    expiredCount++;
+                } else {
+                    fields.put(PENDING_FIRE_AT, fireAt);
+                    fields.put(DELIVERY_STATUS, PENDING);
+                    armed++;
+                }
+                writes.add(reminderRepository.updateAsync(reminder.getReminderId(), fields));
+            }
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).get();
+            pageToken = page.nextPageToken();
+        } while (pageToken != null);
+
+        if (armed > 0) {
+            // Newly armed reminders may sit behind the load cursor
+            rescan();
+            loadDue();
+        }
+        logger.info("Reminder backfill: {} scanned, {} armed, {} expired, {} unscheduled",
+                scanned, armed, expiredCount, unscheduled);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scanned", scanned);
+        result.put("armed", armed);
+        result.put("expired", expiredCount);
+        result.put("unscheduled", unscheduled);
+        return result;
+    }
+
+    private boolean add(String reminderId, Long fireAt) {
+        if (fireAt == null || inFlight.contains(reminderId)) {
+            return false;
+        }
+        if (loaded.putIfAbsent(reminderId, fireAt) != null) {
+            return false;
+        }
+        timeline.add(new Due(fireAt, reminderId));
+        return true;
+    }
+
+    private void requeue(Due due) {
+        requeued.increment();
+        inFlight.remove(due.reminderId());
+        add(due.reminderId(), due.fireAt());
+    }
+
+    private void fire(List<Due> due, long now) {
+        List<CompletableFuture<Reminder>> claims = new ArrayList<>(due.size());
+        for (Due entry : due) {
+            claims.add(claim(entry, now));
+        }
+        CompletableFuture.allOf(claims.toArray(CompletableFuture[]::new)).thenCompose(ignored -> {
+            List<Reminder> toSend = new ArrayList<>();
+            List<Due> toSendDue = new ArrayList<>();
+            for (int i = 0; i < due.size(); i++) {
+                Reminder reminder = claims.get(i).join();
+                if (reminder != null) {
+                    toSend.add(reminder);
+                    toSendDue.add(due.get(i));
+                }
+            }
+            if (toSend.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return findTokens(toSend).handle((tokensByUser, e) -> {
+                if (e != null) {
+                    logger.error("Failed to look up devices for {} reminders, retrying next tick: {}",
+                            toSend.size(), e.getMessage(), e);
+                    toSendDue.forEach(this::release);
+                    return null;
+                }
+                for (int i = 0; i < toSend.size(); i++) {
+                    send(toSend.get(i), toSendDue.get(i), tokensByUser.getOrDefault(toSend.get(i).getUserId(), List.of()));
+                }
+                return null;
+            });
+        });
+    }
+
+    /**
+     * Re-read a due reminder and claim it with a write conditional on the version read:
+     * of several instances that loaded it, only the one whose claim lands sends it.
+     * The claim clears pendingFireAt and marks the reminder SENDING, or EXPIRED if it
+     * is too late to send.
+     * @return Future of the claimed reminder, or of null if it is not to be sent; never fails
+     */
+    private CompletableFuture<Reminder> claim(Due due, long now) {
+        String reminderId = due.reminderId();
+        return reminderRepository.findVersionedByIdAsync(reminderId).thenCompose(versioned -> {
+            // Deleted, rescheduled or already handled since it was loaded
+            if (versioned == null || !Long.valueOf(due.fireAt()).equals(versioned.document().getPendingFireAt())) {
+                finish(reminderId, STALE);
+                return CompletableFuture.<Reminder>completedFuture(null);
+            }
+            long delay = now - due.fireAt();
+            boolean expired = delay > properties.getMaxLatenessMs();
+            Map<String, Object> fields = new HashMap<>();
+            fields.put(PENDING_FIRE_AT, null);
+            fields.put(DELIVERY_STATUS, expired ? EXPIRED : SENDING);
+            fields.put(HANDLED_AT, Timestamp.now());
+            return reminderRepository.updateAsync(reminderId, fields, versioned.version()).thenApply(ignored -> {
+                if (expired) {
+                    finish(reminderId, EXPIRED);
+                    return null;
+                }
+                fireDelay.record(Math.max(0, delay), TimeUnit.MILLISECONDS);
+                return versioned.document();
+            });
+        }).exceptionally(e -> {
+            if (WriteFailures.isConflict(e) || WriteFailures.isNotFound(e)) {
+                // Claimed by another instance, or changed or deleted since the re-read
+                finish(reminderId, STALE);
+            } else {
+                logger.error("Failed to claim reminder {}, retrying next tick: {}", reminderId, e.getMessage());
+                requeue(due);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Hand a claimed reminder back, pending again, and put it back on the timeline for the next tick
+     */
+    private void release(Due due) {
+        requeued.increment();
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(PENDING_FIRE_AT, due.fireAt());
+        fields.put(DELIVERY_STATUS, PENDING);
+        reminderRepository.updateAsync(due.reminderId(), fields).whenComplete((ignored, e) -> {
+            inFlight.remove(due.reminderId());
+            if (e != null) {
+                logger.error("Failed to release reminder {}; it stays {}: {}", due.reminderId(), SENDING, e.getMessage());
+                return;
+            }
+            add(due.reminderId(), due.fireAt());
+        });
+    }
+
+    private CompletableFuture<Map<String, List<String>>> findTokens(List<Reminder> reminders) {
+        Set<String> userIds = new LinkedHashSet<>();
+        for (Reminder reminder : reminders) {
+            if (reminder.getUserId() != null) {
+                userIds.add(reminder.getUserId());
+            }
+        }
+        return deviceTokenLookup.findTokensByUserIds(userIds);
+    }
+
+    private void send(Reminder reminder, Due due, List<String> tokens) {
+        if (tokens.isEmpty()) {
+            record(reminder, NO_DEVICES);
+            return;
+        }
+        String title = reminder.getTitle() != null ? reminder.getTitle() : "Reminder";
+        try {
+            messagingService.sendMulticastNotificationAsync(tokens, title, reminder.getReminderMessage())
+                    .whenComplete((summary, e) -> {
+                        if (e != null) {
+                            logger.error("Push for reminder {} failed: {}", reminder.getReminderId(), e.getMessage());
+                        }
+                        record(reminder, e == null && summary.delivered() > 0 ? SENT : FAILED);
+                    });
+        } catch (PushDispatchRejectedException e) {
+            // The push queue is full; this reminder is handed back for the next tick
+            release(due);
+        }
+    }
+
+    /**
+     * Record the outcome of a claimed reminder. pendingFireAt was cleared by the claim and
+     * is left alone, so a reschedule saved since then stays armed.
+     */
+    private void record(Reminder reminder, String status) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(DELIVERY_STATUS, status);
+        fields.put(HANDLED_AT, Timestamp.now());
+        reminderRepository.updateAsync(reminder.getReminderId(), fields).whenComplete((ignored, e) -> {
+            if (e != null) {
+                inFlight.remove(reminder.getReminderId());
+                logger.error("Failed to record reminder {} as {}: {}", reminder.getReminderId(), status, e.getMessage());
+                return;
+            }
+            finish(reminder.getReminderId(), status);
+        });
+    }
+
+    private void finish(String reminderId, String status) {
+        inFlight.remove(reminderId);
+        outcomes.get(status).increment();
+    }
+}
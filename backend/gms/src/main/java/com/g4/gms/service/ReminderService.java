@@ -1,50 +1,69 @@
 package com.g4.gms.service;
 
+import com.g4.gms.config.PaginationProperties;
 import com.g4.gms.model.Reminder;
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.*;
+import com.g4.gms.repository.DocumentNotFoundException;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
+import com.g4.gms.repository.Versioned;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Service
 public class ReminderService {
     
-    private final Firestore firestore;
-    private final String COLLECTION_NAME = "reminders";
+    static final String COLLECTION_NAME = "reminders";
+
+    private final DocumentRepository<Reminder> reminderRepository;
+    private final PaginationProperties paginationProperties;
+    private final ReminderScheduler reminderScheduler;
     
-    public ReminderService(Firestore firestore) {
-        this.firestore = firestore;
+    public ReminderService(DocumentRepositoryFactory repositoryFactory, PaginationProperties paginationProperties,
+                           ReminderScheduler reminderScheduler) {
+        this.reminderRepository = repositoryFactory.create(COLLECTION_NAME, Reminder.class, Reminder::setReminderId);
+        this.paginationProperties = paginationProperties;
+        this.reminderScheduler = reminderScheduler;
     }
     
     public List<Reminder> getAllReminders() throws ExecutionException, InterruptedException {
-        List<Reminder> reminderList = new ArrayList<>();
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME).get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        for (QueryDocumentSnapshot document : documents) {
-            Reminder reminder = document.toObject(Reminder.class);
-            reminder.setReminderId(document.getId());
-            reminderList.add(reminder);
+        return reminderRepository.findAll();
+    }
+
+    /**
+     * Get one page of reminders, ordered by document ID
+     * @param limit Requested page size (clamped to the configured maximum), or null for the default
+     * @param pageToken Token from the previous page, or null for the first page
+     *                  (the first app.pagination.max-unpaged items if limit is null too)
+     * @return The page and the token for the next one
+     * @throws IllegalArgumentException if the page token is malformed
+     */
+    public Page<Reminder> getRemindersPage(Integer limit, String pageToken) throws ExecutionException, InterruptedException {
+        if (paginationProperties.wantsWholeList(limit, pageToken)) {
+            return UnpagedLists.capped(COLLECTION_NAME,
+                    reminderRepository.findPage(paginationProperties.getMaxUnpaged(), null));
         }
-        
-        return reminderList;
+        return reminderRepository.findPage(paginationProperties.resolvePageSize(limit), pageToken);
+    }
+    
+    /**
+     * Get the reminders of a user without blocking the calling thread
+     * @param userId The ID of the user
+     * @return Future of the list of reminders for the user
+     */
+    public CompletableFuture<List<Reminder>> getRemindersByUserIdAsync(String userId) {
+        return reminderRepository.findByFieldAsync("userId", userId);
     }
     
     public Reminder getReminderById(String reminderId) throws ExecutionException, InterruptedException {
-        DocumentReference documentReference = firestore.collection(COLLECTION_NAME).document(reminderId);
-        ApiFuture<DocumentSnapshot> future = documentReference.get();
-        DocumentSnapshot document = future.get();
-        
-        if (document.exists()) {
-            Reminder reminder = document.toObject(Reminder.class);
-            reminder.setReminderId(document.getId());
-            return reminder;
-        } else {
-            return null;
-        }
+        return reminderRepository.findById(reminderId);
+    }
+    
+    public Versioned<Reminder> getVersionedReminderById(String reminderId) throws ExecutionException, InterruptedException {
+        return reminderRepository.findVersionedById(reminderId);
     }
     
     public Reminder createReminder(Reminder reminder) throws ExecutionException, InterruptedException {
@@ -53,48 +72,54 @@ public class ReminderService {
             throw new IllegalArgumentException("Reminder date cannot be empty");
         }
         
-        // Let Firestore auto-generate the document ID
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document();
-        String reminderId = docRef.getId();
+        // Let the repository auto-generate the document ID
+        String reminderId = reminderRepository.newId();
         reminder.setReminderId(reminderId);
+        reminderScheduler.prepare(reminder);
         
-        ApiFuture<WriteResult> writeResult = docRef.set(reminder);
-        writeResult.get();
+        reminderRepository.save(reminderId, reminder);
+        reminderScheduler.track(reminder);
         
         return reminder;
     }
     
     public Reminder updateReminder(String reminderId, Reminder reminder) throws ExecutionException, InterruptedException {
+        return updateReminder(reminderId, reminder, null);
+    }
+    
+    // expectedVersion comes from getVersionedReminderById (null for any); a reminder changed since then
+    // fails with DocumentConflictException, a missing one returns null
+    public Reminder updateReminder(String reminderId, Reminder reminder, Long expectedVersion)
+            throws ExecutionException, InterruptedException {
         // Validate reminder date
         if (reminder.getReminderDate() == null || reminder.getReminderDate().isEmpty()) {
             throw new IllegalArgumentException("Reminder date cannot be empty");
         }
         
-        DocumentReference documentReference = firestore.collection(COLLECTION_NAME).document(reminderId);
-        ApiFuture<DocumentSnapshot> future = documentReference.get();
-        DocumentSnapshot document = future.get();
-        
-        if (document.exists()) {
-            reminder.setReminderId(reminderId);
-            ApiFuture<WriteResult> writeResult = documentReference.set(reminder);
-            writeResult.get();
-            return reminder;
-        } else {
+        reminder.setReminderId(reminderId);
+        // A changed reminder is armed again for its (possibly new) date
+        reminderScheduler.prepare(reminder);
+        try {
+            reminderRepository.replace(reminderId, reminder, expectedVersion);
+        } catch (DocumentNotFoundException e) {
             return null;
         }
+        reminderScheduler.track(reminder);
+        return reminder;
     }
     
     public boolean deleteReminder(String reminderId) throws ExecutionException, InterruptedException {
-        DocumentReference documentReference = firestore.collection(COLLECTION_NAME).document(reminderId);
-        ApiFuture<DocumentSnapshot> future = documentReference.get();
-        DocumentSnapshot document = future.get();
-        
-        if (document.exists()) {
-            ApiFuture<WriteResult> writeResult = documentReference.delete();
-            writeResult.get();
-            return true;
-        } else {
+        return deleteReminder(reminderId, null);
+    }
+    
+    // Same precondition as updateReminder; a missing reminder returns false
+    public boolean deleteReminder(String reminderId, Long expectedVersion) throws ExecutionException, InterruptedException {
+        try {
+            reminderRepository.deleteExisting(reminderId, expectedVersion);
+        } catch (DocumentNotFoundException e) {
             return false;
         }
+        reminderScheduler.cancel(reminderId);
+        return true;
     }
-} 
\ No newline at end of file
+}
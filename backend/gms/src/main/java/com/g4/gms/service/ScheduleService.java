@@ -1,44 +1,64 @@
 package com.g4.gms.service;
 
+import com.g4.gms.config.PaginationProperties;
+import com.g4.gms.config.ScheduleProperties;
 import com.g4.gms.model.Schedule;
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.*;
+import com.g4.gms.repository.DocumentBulkWriter;
+import com.g4.gms.repository.DocumentConflictException;
+import com.g4.gms.repository.DocumentNotFoundException;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
+import com.g4.gms.repository.Versioned;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Service
 public class ScheduleService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ScheduleService.class);
     private static final String COLLECTION_NAME = "schedules";
+    private static final String PICKUP_AT = "pickupAt";
 
-    @Autowired
-    private Firestore firestore;
+    private final DocumentRepository<Schedule> scheduleRepository;
+    private final PaginationProperties paginationProperties;
+    private final ZoneId zone;
+    private final LocalTime defaultPickupTime;
 
     @Autowired
     private UserService userService;
 
+    public ScheduleService(DocumentRepositoryFactory repositoryFactory, PaginationProperties paginationProperties,
+                           ScheduleProperties scheduleProperties) {
+        this.scheduleRepository = repositoryFactory.create(COLLECTION_NAME, Schedule.class, Schedule::setScheduleId);
+        this.paginationProperties = paginationProperties;
+        this.zone = ZoneId.of(scheduleProperties.getZone());
+        this.defaultPickupTime = LocalTime.parse(scheduleProperties.getDefaultPickupTime());
+    }
+
     /**
      * Get all schedules
      * @return List of schedules
      */
     public List<Schedule> getAllSchedules() throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME).get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<Schedule> schedules = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            Schedule schedule = document.toObject(Schedule.class);
-            if (schedule != null) {
-                schedule.setScheduleId(document.getId());
-                schedules.add(schedule);
-            }
-        }
-        
-        return schedules;
+        return scheduleRepository.findAll();
     }
 
     /**
@@ -47,21 +67,7 @@ public class ScheduleService {
      * @return List of schedules for the user
      */
     public List<Schedule> getSchedulesByUserId(String userId) throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME)
-                .whereEqualTo("userId", userId)
-                .get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<Schedule> schedules = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            Schedule schedule = document.toObject(Schedule.class);
-            if (schedule != null) {
-                schedule.setScheduleId(document.getId());
-                schedules.add(schedule);
-            }
-        }
-        
-        return schedules;
+        return scheduleRepository.findByField("userId", userId);
     }
 
     /**
@@ -70,18 +76,7 @@ public class ScheduleService {
      * @return The schedule, or null if not found
      */
     public Schedule getScheduleById(String scheduleId) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(scheduleId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (document.exists()) {
-            Schedule schedule = document.toObject(Schedule.class);
-            if (schedule != null) {
-                schedule.setScheduleId(document.getId());
-                return schedule;
-            }
-        }
-        
-        return null;
+        return scheduleRepository.findById(scheduleId);
     }
 
     /**
@@ -91,12 +86,11 @@ public class ScheduleService {
      */
     public Schedule createSchedule(Schedule schedule) throws ExecutionException, InterruptedException {
         // Create a new document with auto-generated ID
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document();
-        schedule.setScheduleId(docRef.getId());
+        schedule.setScheduleId(scheduleRepository.newId());
+        schedule.setPickupAt(resolvePickupAt(schedule));
         
         // Save the document
-        ApiFuture<WriteResult> result = docRef.set(schedule);
-        result.get(); // Wait for the write to complete
+        scheduleRepository.save(schedule.getScheduleId(), schedule);
         
         return schedule;
     }
@@ -109,22 +103,27 @@ public class ScheduleService {
      */
     public Schedule updateSchedule(String scheduleId, Schedule schedule) 
             throws ExecutionException, InterruptedException, IllegalArgumentException {
-        
-        // Check if the schedule exists
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(scheduleId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (!document.exists()) {
+        return updateSchedule(scheduleId, schedule, null);
+    }
+
+    /**
+     * Update an existing schedule, in one round trip, provided it has not changed since it was read
+     * @param scheduleId The ID of the schedule to update
+     * @param schedule The updated schedule data
+     * @param expectedVersion Version from getVersionedScheduleByIdAsync, or null to only require that it exists
+     * @return The updated schedule
+     * @throws IllegalArgumentException if the schedule does not exist
+     * @throws DocumentConflictException if the schedule changed since expectedVersion
+     */
+    public Schedule updateSchedule(String scheduleId, Schedule schedule, Long expectedVersion)
+            throws ExecutionException, InterruptedException {
+        schedule.setScheduleId(scheduleId);
+        schedule.setPickupAt(resolvePickupAt(schedule));
+        try {
+            scheduleRepository.replace(scheduleId, schedule, expectedVersion);
+        } catch (DocumentNotFoundException e) {
             throw new IllegalArgumentException("Schedule with ID " + scheduleId + " not found");
         }
-        
-        // Set the ID
-        schedule.setScheduleId(scheduleId);
-        
-        // Update the document
-        ApiFuture<WriteResult> result = docRef.set(schedule);
-        result.get(); // Wait for the write to complete
-        
         return schedule;
     }
 
@@ -135,19 +134,24 @@ public class ScheduleService {
      */
     public boolean deleteSchedule(String scheduleId) 
             throws ExecutionException, InterruptedException, IllegalArgumentException {
-        
-        // Check if the schedule exists
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(scheduleId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (!document.exists()) {
+        return deleteSchedule(scheduleId, null);
+    }
+
+    /**
+     * Delete a schedule, in one round trip, provided it has not changed since it was read
+     * @param scheduleId The ID of the schedule to delete
+     * @param expectedVersion Version from getVersionedScheduleByIdAsync, or null to only require that it exists
+     * @return true if deletion was successful
+     * @throws IllegalArgumentException if the schedule does not exist
+     * @throws DocumentConflictException if the schedule changed since expectedVersion
+     */
+    public boolean deleteSchedule(String scheduleId, Long expectedVersion)
+            throws ExecutionException, InterruptedException {
+        try {
+            scheduleRepository.deleteExisting(scheduleId, expectedVersion);
+        } catch (DocumentNotFoundException e) {
             throw new IllegalArgumentException("Schedule with ID " + scheduleId + " not found");
         }
-        
-        // Delete the document
-        ApiFuture<WriteResult> result = docRef.delete();
-        result.get(); // Wait for the delete to complete
-        
         return true;
     }
 
@@ -163,4 +167,290 @@ public class ScheduleService {
             return null;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Get user emails for several user IDs with a single batched lookup
+     * @param userIds The user IDs
+     * @return Map of user ID to email; empty if the lookup fails
+     */
+    public Map<String, String> getUserEmails(Collection<String> userIds) {
+        try {
+            return userService.getUserEmailsByIds(userIds);
+        } catch (Exception e) {
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * Get all schedules without blocking the calling thread
+     * @return Future of the list of schedules
+     */
+    public CompletableFuture<List<Schedule>> getAllSchedulesAsync() {
+        return scheduleRepository.findAllAsync();
+    }
+
+    /**
+     * Get one page of schedules, ordered by document ID, without blocking the calling thread
+     * @param limit Requested page size (clamped to the configured maximum), or null for the default
+     * @param pageToken Token from the previous page, or null for the first page
+     *                  (the first app.pagination.max-unpaged items if limit is null too)
+     * @return Future of the page; fails with IllegalArgumentException if the page token is malformed
+     */
+    public CompletableFuture<Page<Schedule>> getSchedulesPageAsync(Integer limit, String pageToken) {
+        if (paginationProperties.wantsWholeList(limit, pageToken)) {
+            return scheduleRepository.findPageAsync(paginationProperties.getMaxUnpaged(), null)
+                    .thenApply(page -> UnpagedLists.capped(COLLECTION_NAME, page));
+        }
+        return scheduleRepository.findPageAsync(paginationProperties.resolvePageSize(limit), pageToken);
+    }
+
+    /**
+     * Get one page of schedules for a bulk export, using the export page size
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return The page and the token for the next one
+     */
+    public Page<Schedule> getScheduleExportPage(String pageToken) throws ExecutionException, InterruptedException {
+        return scheduleRepository.findPage(paginationProperties.getExportPageSize(), pageToken);
+    }
+
+    /**
+     * Get one page of the schedules picked up in a time window, in pickup order, without blocking
+     * the calling thread. A date alone ("2025-05-05") means the start of that day for from and the
+     * end of that day for to, so from=Monday&to=Sunday covers the whole week; date-times are read
+     * in the configured zone unless they carry an offset.
+     * @param from Start of the window (inclusive)
+     * @param to End of the window (exclusive, or the whole day for a date alone)
+     * @param locationId Only schedules at this location, or null for all
+     * @param status Only schedules with this status, or null for all
+     * @param limit Requested page size (clamped to the configured maximum), or null for the default
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return Future of the page; fails with IllegalArgumentException if a bound or the page token is invalid
+     */
+    public CompletableFuture<Page<Schedule>> getSchedulesByPickupWindowAsync(String from, String to, String locationId,
+                                                                            String status, Integer limit,
+                                                                            String pageToken) {
+        Long fromMillis = DateTimes.toEpochMillis(from, zone, LocalTime.MIDNIGHT);
+        Long toMillis = DateTimes.toEpochMillis(to, zone, LocalTime.MIDNIGHT);
+        if (toMillis != null && isDate(to)) {
+            toMillis = LocalDate.parse(to.trim()).plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        if (fromMillis == null || toMillis == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("from and to must be ISO dates or date-times"));
+        }
+        if (fromMillis >= toMillis) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("from must be before to"));
+        }
+
+        Map<String, Object> equalTo = new LinkedHashMap<>();
+        if (locationId != null && !locationId.isBlank()) {
+            equalTo.put("locationId", locationId);
+        }
+        if (status != null && !status.isBlank()) {
+            equalTo.put("status", status);
+        }
+        return scheduleRepository.findPageByRangeAsync(PICKUP_AT, fromMillis, toMillis, equalTo,
+                paginationProperties.resolvePageSize(limit), pageToken);
+    }
+
+    /**
+     * Store the resolved pickup time on schedules written before it existed (or whose
+     * pickupDate/pickupTime were changed directly in Firestore). Safe to run repeatedly.
+     * @return Counts of schedules scanned, updated and with an unparseable pickup date or time
+     */
+    public Map<String, Object> backfillPickupAt() throws ExecutionException, InterruptedException {
+        int scanned = 0;
+        int updated = 0;
+        int unparseable = 0;
+        String pageToken = null;
+        do {
+            Page<Schedule> page = scheduleRepository.findPage(paginationProperties.getExportPageSize(), pageToken);
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (Schedule schedule : page.items()) {
+                scanned++;
+                Long pickupAt = resolvePickupAt(schedule);
+                if (pickupAt == null) {
+                    unparseable++;
+                }
+                if (!Objects.equals(pickupAt, schedule.getPickupAt())) {
+                    Map<String, Object> fields = new HashMap<>();
+                    fields.put(PICKUP_AT, pickupAt);
+                    writes.add(scheduleRepository.updateAsync(schedule.getScheduleId(), fields));
+                    updated++;
+                }
+            }
+            CompletableFuture.allOf(writes.toArray(CompletableFuture[]::new)).get();
+            pageToken = page.nextPageToken();
+        } while (pageToken != null);
+
+        logger.info("Schedule pickupAt backfill: {} scanned, {} updated, {} unparseable", scanned, updated, unparseable);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scanned", scanned);
+        result.put("updated", updated);
+        result.put("unparseable", unparseable);
+        return result;
+    }
+
+    /**
+     * Get schedules by user ID without blocking the calling thread
+     * @param userId The ID of the user
+     * @return Future of the list of schedules for the user
+     */
+    public CompletableFuture<List<Schedule>> getSchedulesByUserIdAsync(String userId) {
+        return scheduleRepository.findByFieldAsync("userId", userId);
+    }
+
+    /**
+     * Get a schedule by ID without blocking the calling thread
+     * @param scheduleId The ID of the schedule to retrieve
+     * @return Future of the schedule, or of null if not found
+     */
+    public CompletableFuture<Schedule> getScheduleByIdAsync(String scheduleId) {
+        return scheduleRepository.findByIdAsync(scheduleId);
+    }
+
+    /**
+     * Get a schedule by ID together with its version, for a conditional update or delete,
+     * without blocking the calling thread
+     * @param scheduleId The ID of the schedule
+     * @return Future of the schedule and its version, or of null if not found
+     */
+    public CompletableFuture<Versioned<Schedule>> getVersionedScheduleByIdAsync(String scheduleId) {
+        return scheduleRepository.findVersionedByIdAsync(scheduleId);
+    }
+
+    /**
+     * Create a new schedule without blocking the calling thread
+     * @param schedule The schedule data to save
+     * @return Future of the created schedule with ID
+     */
+    public CompletableFuture<Schedule> createScheduleAsync(Schedule schedule) {
+        schedule.setScheduleId(scheduleRepository.newId());
+        schedule.setPickupAt(resolvePickupAt(schedule));
+        return scheduleRepository.saveAsync(schedule.getScheduleId(), schedule)
+                .thenApply(ignored -> schedule);
+    }
+
+    /**
+     * Open a throttled writer for importing many schedules
+     * @param initialOpsPerSecond Write rate to start at
+     * @param maxOpsPerSecond Write rate never to exceed
+     * @return The writer, for importSchedule; close it to wait for the writes in flight
+     */
+    public DocumentBulkWriter<Schedule> openBulkWriter(int initialOpsPerSecond, int maxOpsPerSecond) {
+        return scheduleRepository.openBulkWriter(initialOpsPerSecond, maxOpsPerSecond);
+    }
+
+    /**
+     * Create a schedule through a bulk writer. Unlike createScheduleAsync, a schedule
+     * whose pickup date and time cannot be read is refused rather than stored without pickupAt.
+     * @param writer Writer from openBulkWriter
+     * @param schedule The schedule to create
+     * @return Future of the created schedule, with its new ID; fails with IllegalArgumentException
+     *         if the pickup date or time cannot be read
+     */
+    public CompletableFuture<Schedule> importSchedule(DocumentBulkWriter<Schedule> writer, Schedule schedule) {
+        Long pickupAt = resolvePickupAt(schedule);
+        if (pickupAt == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "Unreadable pickup date/time: " + schedule.getPickupDate() + " " + schedule.getPickupTime()));
+        }
+        schedule.setScheduleId(scheduleRepository.newId());
+        schedule.setPickupAt(pickupAt);
+        return writer.save(schedule.getScheduleId(), schedule).thenApply(ignored -> schedule);
+    }
+
+    /**
+     * Update an existing schedule without blocking the calling thread
+     * @param scheduleId The ID of the schedule to update
+     * @param schedule The updated schedule data
+     * @return Future of the updated schedule; fails with IllegalArgumentException if not found
+     */
+    public CompletableFuture<Schedule> updateScheduleAsync(String scheduleId, Schedule schedule) {
+        return updateScheduleAsync(scheduleId, schedule, null);
+    }
+
+    /**
+     * Update an existing schedule, in one round trip, provided it has not changed since it was read,
+     * without blocking the calling thread
+     * @param scheduleId The ID of the schedule to update
+     * @param schedule The updated schedule data
+     * @param expectedVersion Version from getVersionedScheduleByIdAsync, or null to only require that it exists
+     * @return Future of the updated schedule; fails with IllegalArgumentException if not found, or with
+     *         DocumentConflictException if the schedule changed since expectedVersion
+     */
+    public CompletableFuture<Schedule> updateScheduleAsync(String scheduleId, Schedule schedule, Long expectedVersion) {
+        schedule.setScheduleId(scheduleId);
+        schedule.setPickupAt(resolvePickupAt(schedule));
+        return scheduleRepository.replaceAsync(scheduleId, schedule, expectedVersion)
+                .handle((ignored, e) -> {
+                    if (e != null) {
+                        throw WriteFailures.translate(e, "Schedule with ID " + scheduleId + " not found");
+                    }
+                    return schedule;
+                });
+    }
+
+    /**
+     * Delete a schedule without blocking the calling thread
+     * @param scheduleId The ID of the schedule to delete
+     * @return Future of true once deleted; fails with IllegalArgumentException if not found
+     */
+    public CompletableFuture<Boolean> deleteScheduleAsync(String scheduleId) {
+        return deleteScheduleAsync(scheduleId, null);
+    }
+
+    /**
+     * Delete a schedule, in one round trip, provided it has not changed since it was read,
+     * without blocking the calling thread
+     * @param scheduleId The ID of the schedule to delete
+     * @param expectedVersion Version from getVersionedScheduleByIdAsync, or null to only require that it exists
+     * @return Future of true once deleted; fails with IllegalArgumentException if not found, or with
+     *         DocumentConflictException if the schedule changed since expectedVersion
+     */
+    public CompletableFuture<Boolean> deleteScheduleAsync(String scheduleId, Long expectedVersion) {
+        return scheduleRepository.deleteExistingAsync(scheduleId, expectedVersion)
+                .handle((ignored, e) -> {
+                    if (e != null) {
+                        throw WriteFailures.translate(e, "Schedule with ID " + scheduleId + " not found");
+                    }
+                    return true;
+                });
+    }
+
+    /**
+     * Get user email by user ID without blocking the calling thread
+     * @param userId The user ID
+     * @return Future of the user's email, or of null if not found
+     */
+    public CompletableFuture<String> getUserEmailAsync(String userId) {
+        return getUserEmailsAsync(Collections.singleton(userId))
+                .thenApply(emails -> emails.get(userId));
+    }
+
+    /**
+     * Get user emails for several user IDs without blocking the calling thread
+     * @param userIds The user IDs
+     * @return Future of a map of user ID to email; empty if the lookup fails
+     */
+    public CompletableFuture<Map<String, String>> getUserEmailsAsync(Collection<String> userIds) {
+        return userService.getUserEmailsByIdsAsync(userIds)
+                .exceptionally(e -> new HashMap<>());
+    }
+
+    private Long resolvePickupAt(Schedule schedule) {
+        return DateTimes.toEpochMillis(schedule.getPickupDate(), schedule.getPickupTime(), zone, defaultPickupTime);
+    }
+
+    private static boolean isDate(String value) {
+        if (value == null) {
+            return false;
+        }
+        try {
+            LocalDate.parse(value.trim());
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
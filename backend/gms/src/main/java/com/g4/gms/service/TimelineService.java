@@ -0,0 +1,160 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.ScheduleProperties;
+import com.g4.gms.config.TimelineProperties;
+import com.g4.gms.dto.TimelineEntry;
+import com.g4.gms.model.History;
+import com.g4.gms.model.Missed;
+import com.g4.gms.model.Reminder;
+import com.g4.gms.model.Schedule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a user's home-screen timeline from their schedules, missed-pickup reports,
+ * reminders and collection history. The reads are issued together instead of one after
+ * another; history is keyed by schedule, so that read follows the schedule read, and the
+ * timeline is ready after about two store round trips rather than the sum of four.
+ * A source that fails or takes longer than app.timeline.source-timeout-ms is left out and
+ * named in the result instead of failing the whole timeline.
+ */
+@Service
+public class TimelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimelineService.class);
+
+    public static final String SCHEDULE = "schedule";
+    public static final String MISSED = "missed";
+    public static final String REMINDER = "reminder";
+    public static final String HISTORY = "history";
+
+    // Time order; entries without a usable time go last, ties keep a stable order
+    private static final Comparator<TimelineEntry> TIME_ORDER = Comparator
+            .comparing(TimelineEntry::getAt, Comparator.nullsLast(Comparator.<Long>naturalOrder()))
+            .thenComparing(TimelineEntry::getType)
+            .thenComparing(TimelineEntry::getId, Comparator.nullsLast(Comparator.<String>naturalOrder()));
+
+    /**
+     * A user's timeline
+     * @param entries Entries in time order; entries whose date could not be read come last
+     * @param unavailable Sources left out because they failed or timed out
+     */
+    public record Timeline(List<TimelineEntry> entries, List<String> unavailable) {
+    }
+
+    private final ScheduleService scheduleService;
+    private final MissedService missedService;
+    private final ReminderService reminderService;
+    private final HistoryService historyService;
+    private final TimelineProperties properties;
+    private final ZoneId zone;
+
+    public TimelineService(ScheduleService scheduleService, MissedService missedService,
+                           ReminderService reminderService, HistoryService historyService,
+                           TimelineProperties properties, ScheduleProperties scheduleProperties) {
+        this.scheduleService = scheduleService;
+        this.missedService = missedService;
+        this.reminderService = reminderService;
+        this.historyService = historyService;
+        this.properties = properties;
+        this.zone = ZoneId.of(scheduleProperties.getZone());
+    }
+
+    /**
+     * Get a user's timeline without blocking the calling thread
+     * @param userId The ID of the user
+     * @return Future of the timeline; never fails, unreadable sources are listed in it instead
+     */
+    public CompletableFuture<Timeline> getTimelineAsync(String userId) {
+        CompletableFuture<List<Schedule>> schedules = withinTimeout(scheduleService.getSchedulesByUserIdAsync(userId));
+        CompletableFuture<List<Missed>> missed = withinTimeout(missedService.getMissedByUserIdAsync(userId));
+        CompletableFuture<List<Reminder>> reminders = withinTimeout(reminderService.getRemindersByUserIdAsync(userId));
+        // Fails along with the schedule read, since there is then nothing to look history up by
+        CompletableFuture<List<History>> history = schedules.thenCompose(list -> {
+            List<String> scheduleIds = new ArrayList<>(list.size());
+            for (Schedule schedule : list) {
+                scheduleIds.add(schedule.getScheduleId());
+            }
+            return withinTimeout(historyService.getHistoryByScheduleIdsAsync(scheduleIds));
+        });
+
+        return CompletableFuture.allOf(schedules, missed, reminders, history).handle((ignored, e) -> {
+            List<String> unavailable = new ArrayList<>();
+            List<TimelineEntry> entries = new ArrayList<>();
+            Map<String, Schedule> schedulesById = new HashMap<>();
+            for (Schedule schedule : resultOf(SCHEDULE, schedules, userId, unavailable)) {
+                schedulesById.put(schedule.getScheduleId(), schedule);
+                entries.add(toEntry(schedule));
+            }
+            for (Missed report : resultOf(MISSED, missed, userId, unavailable)) {
+                entries.add(toEntry(report));
+            }
+            for (Reminder reminder : resultOf(REMINDER, reminders, userId, unavailable)) {
+                entries.add(toEntry(reminder));
+            }
+            for (History record : resultOf(HISTORY, history, userId, unavailable)) {
+                entries.add(toEntry(record, schedulesById.get(record.getScheduleId())));
+            }
+            entries.sort(TIME_ORDER);
+            return new Timeline(entries, unavailable);
+        });
+    }
+
+    private <T> CompletableFuture<List<T>> withinTimeout(CompletableFuture<List<T>> source) {
+        return source.orTimeout(properties.getSourceTimeoutMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private static <T> List<T> resultOf(String source, CompletableFuture<List<T>> future, String userId,
+                                        List<String> unavailable) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            logger.warn("Timeline source {} unavailable for user {}: {}", source, userId, e.getCause());
+            unavailable.add(source);
+            return List.of();
+        }
+    }
+
+    private TimelineEntry toEntry(Schedule schedule) {
+        String date = schedule.getPickupTime() != null && !schedule.getPickupTime().isBlank()
+                ? schedule.getPickupDate() + " " + schedule.getPickupTime()
+                : schedule.getPickupDate();
+        return new TimelineEntry(SCHEDULE, schedule.getScheduleId(), schedule.getPickupAt(), date,
+                schedule.getTitle(), null, schedule.getScheduleId(), schedule.getLocationId(), schedule.getStatus());
+    }
+
+    private TimelineEntry toEntry(Missed report) {
+        return new TimelineEntry(MISSED, report.getMissedId(),
+                DateTimes.toEpochMillis(report.getReportDateTime(), zone, LocalTime.MIDNIGHT),
+                report.getReportDateTime(), report.getTitle(), report.getDescription(), report.getScheduleId(),
+                null, null);
+    }
+
+    private TimelineEntry toEntry(Reminder reminder) {
+        Long at = reminder.getFireAt() != null
+                ? reminder.getFireAt()
+                : DateTimes.toEpochMillis(reminder.getReminderDate(), zone, LocalTime.MIDNIGHT);
+        return new TimelineEntry(REMINDER, reminder.getReminderId(), at, reminder.getReminderDate(),
+                reminder.getTitle(), reminder.getReminderMessage(), reminder.getScheduleId(), null,
+                reminder.getDeliveryStatus());
+    }
+
+    private TimelineEntry toEntry(History record, Schedule schedule) {
+        return new TimelineEntry(HISTORY, record.getHistoryId(),
+                DateTimes.toEpochMillis(record.getCollectionDate(), zone, LocalTime.MIDNIGHT),
+                record.getCollectionDate(), schedule != null ? schedule.getTitle() : null, record.getNotes(),
+                record.getScheduleId(), schedule != null ? schedule.getLocationId() : null, null);
+    }
+}
@@ -1,45 +1,67 @@
 package com.g4.gms.service;
 
+import com.g4.gms.config.PaginationProperties;
 import com.g4.gms.model.Tip;
-import com.google.api.core.ApiFuture;
+import com.g4.gms.repository.CollectionReplicas;
+import com.g4.gms.repository.DocumentNotFoundException;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
 import com.google.cloud.Timestamp;
-import com.google.cloud.firestore.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 @Service
 public class TipService {
 
     private static final String COLLECTION_NAME = "tips";
+    // Set when the tip is created and never changed by an update
+    private static final Set<String> KEPT_ON_UPDATE = Set.of("userId", "createdAt");
 
-    @Autowired
-    private Firestore firestore;
+    private final DocumentRepository<Tip> tipRepository;
+    private final PaginationProperties paginationProperties;
     
     @Autowired
     private UserService userService;
 
+    public TipService(DocumentRepositoryFactory repositoryFactory, PaginationProperties paginationProperties,
+                      CollectionReplicas replicas) {
+        // Read on every app open but rarely changed: served from a listener-fed replica
+        this.tipRepository = replicas.replicate(COLLECTION_NAME,
+                repositoryFactory.create(COLLECTION_NAME, Tip.class, Tip::setTipId),
+                Tip::new);
+        this.paginationProperties = paginationProperties;
+    }
+
     /**
      * Get all tips
      * @return List of tips
      */
     public List<Tip> getAllTips() throws ExecutionException, InterruptedException {
-        ApiFuture<QuerySnapshot> future = firestore.collection(COLLECTION_NAME).get();
-        List<QueryDocumentSnapshot> documents = future.get().getDocuments();
-        
-        List<Tip> tipList = new ArrayList<>();
-        for (DocumentSnapshot document : documents) {
-            Tip tip = document.toObject(Tip.class);
-            if (tip != null) {
-                tip.setTipId(document.getId());
-                tipList.add(tip);
-            }
+        return tipRepository.findAll();
+    }
+
+    /**
+     * Get one page of tips, ordered by document ID
+     * @param limit Requested page size (clamped to the configured maximum), or null for the default
+     * @param pageToken Token from the previous page, or null for the first page
+     *                  (the first app.pagination.max-unpaged items if limit is null too)
+     * @return The page and the token for the next one
+     * @throws IllegalArgumentException if the page token is malformed
+     */
+    public Page<Tip> getTipsPage(Integer limit, String pageToken) throws ExecutionException, InterruptedException {
+        if (paginationProperties.wantsWholeList(limit, pageToken)) {
+            return UnpagedLists.capped(COLLECTION_NAME,
+                    tipRepository.findPage(paginationProperties.getMaxUnpaged(), null));
         }
-        
-        return tipList;
+        return tipRepository.findPage(paginationProperties.resolvePageSize(limit), pageToken);
     }
 
     /**
@@ -48,18 +70,7 @@ public class TipService {
      * @return The tip, or null if not found
      */
     public Tip getTipById(String tipId) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(tipId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (document.exists()) {
-            Tip tip = document.toObject(Tip.class);
-            if (tip != null) {
-                tip.setTipId(document.getId());
-                return tip;
-            }
-        }
-        
-        return null;
+        return tipRepository.findById(tipId);
     }
 
     /**
@@ -69,8 +80,7 @@ public class TipService {
      */
     public Tip createTip(Tip tip) throws ExecutionException, InterruptedException {
         // Create a new document with auto-generated ID
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document();
-        tip.setTipId(docRef.getId());
+        tip.setTipId(tipRepository.newId());
         
         // Set timestamps
         Timestamp now = Timestamp.now();
@@ -78,66 +88,44 @@ public class TipService {
         tip.setUpdatedAt(now);
         
         // Save the document
-        ApiFuture<WriteResult> result = docRef.set(tip);
-        result.get(); // Wait for the write to complete
+        tipRepository.save(tip.getTipId(), tip);
         
         return tip;
     }
 
     /**
-     * Update an existing tip
+     * Update an existing tip in one round trip, without reading it first.
+     * Its author and creation time are left as stored.
      * @param tipId The ID of the tip to update
      * @param tip The updated tip data
-     * @return The updated tip
+     * @return The tip as written (without userId and createdAt), or null if it does not exist
      */
-    public Tip updateTip(String tipId, Tip tip) 
-            throws ExecutionException, InterruptedException, IllegalArgumentException {
-        
-        // Check if the tip exists
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(tipId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (!document.exists()) {
-            throw new IllegalArgumentException("Tip with ID " + tipId + " not found");
-        }
-        
-        // Preserve created timestamp
-        Tip existingTip = document.toObject(Tip.class);
-        if (existingTip != null) {
-            tip.setCreatedAt(existingTip.getCreatedAt());
-        }
-        
+    public Tip updateTip(String tipId, Tip tip) throws ExecutionException, InterruptedException {
         // Set ID and update timestamp
         tip.setTipId(tipId);
         tip.setUpdatedAt(Timestamp.now());
-        
-        // Update the document
-        ApiFuture<WriteResult> result = docRef.set(tip);
-        result.get(); // Wait for the write to complete
+
+        try {
+            tipRepository.update(tipId, tip, KEPT_ON_UPDATE, null);
+        } catch (DocumentNotFoundException e) {
+            return null;
+        }
         
         return tip;
     }
 
     /**
-     * Delete a tip
+     * Delete a tip in one round trip, without reading it first
      * @param tipId The ID of the tip to delete
-     * @return true if deletion was successful
+     * @return true if deleted, false if it does not exist
      */
-    public boolean deleteTip(String tipId) 
-            throws ExecutionException, InterruptedException, IllegalArgumentException {
-        
-        // Check if the tip exists
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(tipId);
-        DocumentSnapshot document = docRef.get().get();
-        
-        if (!document.exists()) {
-            throw new IllegalArgumentException("Tip with ID " + tipId + " not found");
+    public boolean deleteTip(String tipId) throws ExecutionException, InterruptedException {
+        try {
+            tipRepository.deleteExisting(tipId, null);
+        } catch (DocumentNotFoundException e) {
+            return false;
         }
         
-        // Delete the document
-        ApiFuture<WriteResult> result = docRef.delete();
-        result.get(); // Wait for the delete to complete
-        
         return true;
     }
     
@@ -153,4 +141,17 @@ public class TipService {
             return null;
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Get user emails for several user IDs with a single batched lookup
+     * @param userIds The user IDs
+     * @return Map of user ID to email; empty if the lookup fails
+     */
+    public Map<String, String> getUserEmailsByIds(Collection<String> userIds) {
+        try {
+            return userService.getUserEmailsByIds(userIds);
+        } catch (Exception e) {
+            return new HashMap<>();
+        }
+    }
+}
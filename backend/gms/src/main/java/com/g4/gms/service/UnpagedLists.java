@@ -0,0 +1,34 @@
+package com.g4.gms.service;
+
+import com.g4.gms.repository.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Answers to list requests that pass neither limit nor pageToken. Such a request
+ * gets up to app.pagination.max-unpaged documents as one page rather than the whole
+ * collection, so memory per request stays bounded; a longer list is cut there and
+ * X-Next-Page-Token leads to the rest.
+ */
+final class UnpagedLists {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnpagedLists.class);
+
+    private UnpagedLists() {
+    }
+
+    /**
+     * Pass on the page read for an unpaged request, logging a warning if the list was cut,
+     * so clients that still expect whole lists can be found and moved to paging
+     * @param collection The collection listed
+     * @param page The first page, read with the unpaged ceiling as its size
+     * @return The same page
+     */
+    static <T> Page<T> capped(String collection, Page<T> page) {
+        if (page.nextPageToken() != null) {
+            logger.warn("Unpaged list of {} cut at {} documents; the client has to follow X-Next-Page-Token for the rest",
+                    collection, page.items().size());
+        }
+        return page;
+    }
+}
@@ -0,0 +1,95 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.UserCacheProperties;
+import com.g4.gms.model.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded, TTL-evicting cache of User documents keyed by user ID, with a
+ * secondary email to user ID index. Entries are copied on the way in and out
+ * so callers can never mutate the cached instance. Both are reported as
+ * Micrometer cache metrics, named "users" and "user-emails".
+ */
+@Component
+public class UserCache {
+
+    private final Cache<String, User> usersById;
+    private final Cache<String, String> userIdsByEmail;
+
+    public UserCache(UserCacheProperties properties, MeterRegistry meterRegistry) {
+        Duration ttl = Duration.ofSeconds(properties.getTtlSeconds());
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.userIdsByEmail = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, usersById, "users");
+        CaffeineCacheMetrics.monitor(meterRegistry, userIdsByEmail, "user-emails");
+    }
+
+    /**
+     * Get a cached user by ID
+     * @param userId User ID
+     * @return A copy of the cached user, or null on a miss
+     */
+    public User get(String userId) {
+        User user = usersById.getIfPresent(userId);
+        return user != null ? new User(user) : null;
+    }
+
+    /**
+     * Look up the user ID last seen for an email address
+     * @param email Email address
+     * @return The user ID, or null if the email is not indexed
+     */
+    public String getUserIdByEmail(String email) {
+        return userIdsByEmail.getIfPresent(email);
+    }
+
+    /**
+     * Store a user read from Firestore
+     * @param user The user to cache
+     */
+    public void put(User user) {
+        if (user == null || user.getUserId() == null) {
+            return;
+        }
+        usersById.put(user.getUserId(), new User(user));
+        if (user.getEmail() != null) {
+            userIdsByEmail.put(user.getEmail(), user.getUserId());
+        }
+    }
+
+    /**
+     * Drop a user and its email index entry
+     * @param userId User ID
+     */
+    public void invalidate(String userId) {
+        User cached = usersById.getIfPresent(userId);
+        usersById.invalidate(userId);
+        if (cached != null && cached.getEmail() != null) {
+            userIdsByEmail.invalidate(cached.getEmail());
+        }
+    }
+
+    /**
+     * Drop an email index entry
+     * @param email Email address
+     */
+    public void invalidateEmail(String email) {
+        if (email != null) {
+            userIdsByEmail.invalidate(email);
+        }
+    }
+}
@@ -1,39 +1,55 @@
 package com.g4.gms.service;
 
 import com.g4.gms.model.User;
-import com.google.api.core.ApiFuture;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.Page;
+import com.g4.gms.security.AccountDirectory;
+import com.g4.gms.security.IdentityProvider;
+import com.g4.gms.security.PasswordHasher;
 import com.google.cloud.Timestamp;
-import com.google.cloud.firestore.DocumentReference;
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.WriteResult;
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
-import com.google.firebase.auth.UserRecord;
 import com.google.firebase.auth.AuthErrorCode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.concurrent.ExecutionException;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
     private static final String COLLECTION_NAME = "users";
+    // Fields with a dedicated update path (or none at all) that partial updates must not touch
+    private static final Set<String> PROTECTED_FIELDS = Set.of("userId", "password", "email", "createdAt");
     
+    private final DocumentRepository<User> userRepository;
+    
+    @Autowired
+    private IdentityProvider identityProvider;
+
     @Autowired
-    private Firestore firestore;
+    private AccountDirectory accountDirectory;
     
     @Autowired
-    private FirebaseAuth firebaseAuth;
+    private UserCache userCache;
     
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    public UserService(DocumentRepositoryFactory repositoryFactory) {
+        this.userRepository = repositoryFactory.create(COLLECTION_NAME, User.class, User::setUserId);
+    }
 
     public User createUser(User user) throws ExecutionException, InterruptedException {
         // Set creation timestamp
@@ -45,80 +61,225 @@ public class UserService {
         }
         
         // Save to Firestore
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(user.getUserId());
-        ApiFuture<WriteResult> result = docRef.set(user);
-        
-        // Wait for the write to complete
-        result.get();
+        userRepository.save(user.getUserId(), user);
+        userCache.invalidate(user.getUserId());
+        userCache.invalidateEmail(user.getEmail());
         
         return user;
     }
     
     public User getUserById(String userId) throws ExecutionException, InterruptedException {
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
-        ApiFuture<DocumentSnapshot> future = docRef.get();
-        DocumentSnapshot document = future.get();
+        User cached = userCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
         
-        if (document.exists()) {
-            return document.toObject(User.class);
-        } else {
-            return null;
+        User user = userRepository.findById(userId);
+        if (user != null) {
+            userCache.put(user);
         }
+        return user;
     }
     
+    /**
+     * Get several users with batched document reads instead of one read per user.
+     * Cached users are served from memory and the rest are fetched with a single
+     * batched repository read, roughly one Firestore round trip however many IDs are passed.
+     * @param userIds User IDs to look up (nulls and duplicates are ignored)
+     * @return Map of user ID to User, containing only the users that exist
+     * @throws ExecutionException
+     * @throws InterruptedException
+     */
+    public Map<String, User> getUsersByIds(Collection<String> userIds) throws ExecutionException, InterruptedException {
+        Set<String> distinctIds = new LinkedHashSet<>();
+        for (String userId : userIds) {
+            if (userId != null && !userId.isEmpty()) {
+                distinctIds.add(userId);
+            }
+        }
+
+        Map<String, User> users = new HashMap<>();
+        List<String> missingIds = new ArrayList<>(distinctIds.size());
+        for (String userId : distinctIds) {
+            User cached = userCache.get(userId);
+            if (cached != null) {
+                users.put(userId, cached);
+            } else {
+                missingIds.add(userId);
+            }
+        }
+        if (missingIds.isEmpty()) {
+            return users;
+        }
+
+        for (Map.Entry<String, User> entry : userRepository.findAllById(missingIds).entrySet()) {
+            userCache.put(entry.getValue());
+            users.put(entry.getKey(), entry.getValue());
+        }
+
+        return users;
+    }
+
+    /**
+     * Get the emails of several users in one batched lookup
+     * @param userIds User IDs to look up
+     * @return Map of user ID to email, containing only the users that exist
+     * @throws ExecutionException
+     * @throws InterruptedException
+     */
+    public Map<String, String> getUserEmailsByIds(Collection<String> userIds) throws ExecutionException, InterruptedException {
+        Map<String, String> emails = new HashMap<>();
+        for (Map.Entry<String, User> entry : getUsersByIds(userIds).entrySet()) {
+            if (entry.getValue().getEmail() != null) {
+                emails.put(entry.getKey(), entry.getValue().getEmail());
+            }
+        }
+        return emails;
+    }
+
+    /**
+     * Non-blocking variant of {@link #getUsersByIds(Collection)}.
+     * Cached users are answered immediately; the rest are fetched in one batched read.
+     * @param userIds User IDs to look up (nulls and duplicates are ignored)
+     * @return Future of a map of user ID to User, containing only users that exist
+     */
+    public CompletableFuture<Map<String, User>> getUsersByIdsAsync(Collection<String> userIds) {
+        Map<String, User> users = new HashMap<>();
+        Set<String> missingIds = new LinkedHashSet<>();
+        for (String userId : userIds) {
+            if (userId == null || userId.isEmpty()) {
+                continue;
+            }
+            User cached = userCache.get(userId);
+            if (cached != null) {
+                users.put(userId, cached);
+            } else {
+                missingIds.add(userId);
+            }
+        }
+        if (missingIds.isEmpty()) {
+            return CompletableFuture.completedFuture(users);
+        }
+
+        return userRepository.findAllByIdAsync(missingIds).thenApply(found -> {
+            for (Map.Entry<String, User> entry : found.entrySet()) {
+                userCache.put(entry.getValue());
+                users.put(entry.getKey(), entry.getValue());
+            }
+            return users;
+        });
+    }
+
+    /**
+     * Non-blocking variant of {@link #getUserEmailsByIds(Collection)}
+     * @param userIds User IDs to look up (nulls and duplicates are ignored)
+     * @return Future of a map of user ID to email, containing only users that exist
+     */
+    public CompletableFuture<Map<String, String>> getUserEmailsByIdsAsync(Collection<String> userIds) {
+        return getUsersByIdsAsync(userIds).thenApply(users -> {
+            Map<String, String> emails = new HashMap<>();
+            for (Map.Entry<String, User> entry : users.entrySet()) {
+                if (entry.getValue().getEmail() != null) {
+                    emails.put(entry.getKey(), entry.getValue().getEmail());
+                }
+            }
+            return emails;
+        });
+    }
+
+    /**
+     * Get one page of the users whose field equals the given value (e.g. everyone in a location),
+     * in user ID order, without blocking
+     * @param field The user field, e.g. "location" or "role"
+     * @param value The value to match
+     * @param limit Maximum number of users on the page
+     * @param pageToken Token from the previous page, or null for the first page
+     * @return Future of the page; fails with IllegalArgumentException if the page token is malformed
+     */
+    public CompletableFuture<Page<User>> getUsersPageByFieldAsync(String field, String value, int limit,
+                                                                  String pageToken) {
+        return userRepository.findPageByFieldAsync(field, value, limit, pageToken);
+    }
+
     public User getUserByEmail(String email) throws ExecutionException, InterruptedException {
-        ApiFuture<com.google.cloud.firestore.QuerySnapshot> future = 
-            firestore.collection(COLLECTION_NAME)
-                .whereEqualTo("email", email)
-                .limit(1)
-                .get();
-        
-        var documents = future.get().getDocuments();
+        String cachedUserId = userCache.getUserIdByEmail(email);
+        if (cachedUserId != null) {
+            User user = getUserById(cachedUserId);
+            // The index can outlive an email change made elsewhere, so confirm it still matches
+            if (user != null && email.equals(user.getEmail())) {
+                return user;
+            }
+            userCache.invalidateEmail(email);
+        }
         
-        if (!documents.isEmpty()) {
-            return documents.get(0).toObject(User.class);
-        } else {
-            return null;
+        User user = userRepository.findFirstByField("email", email);
+        if (user != null) {
+            userCache.put(user);
         }
+        return user;
     }
     
-    public User updateUser(User user) throws ExecutionException, InterruptedException {
-        // Get the existing user
-        User existingUser = getUserById(user.getUserId());
-        if (existingUser == null) {
-            throw new IllegalArgumentException("User not found with ID: " + user.getUserId());
+    /**
+     * Update only the given fields of a user document, leaving every other
+     * field (including the password hash) untouched in Firestore.
+     * @param userId User ID
+     * @param fields Map of field name to new value
+     * @throws ExecutionException
+     * @throws InterruptedException
+     * @throws IllegalArgumentException If a protected field is included
+     */
+    public void updateUserFields(String userId, Map<String, Object> fields)
+            throws ExecutionException, InterruptedException, IllegalArgumentException {
+        for (String field : PROTECTED_FIELDS) {
+            if (fields.containsKey(field)) {
+                throw new IllegalArgumentException("Field cannot be updated directly: " + field);
+            }
         }
-        
-        // Only hash the password if it has changed
-        if (user.getPassword() != null && !user.getPassword().isEmpty() 
-                && !passwordEncoder.matches(user.getPassword(), existingUser.getPassword())) {
-            user.setPassword(passwordEncoder.encode(user.getPassword()));
-        } else {
-            // Keep the existing hashed password
-            user.setPassword(existingUser.getPassword());
+        try {
+            userRepository.update(userId, fields);
+        } finally {
+            userCache.invalidate(userId);
+        }
+    }
+    
+    /**
+     * Change a user's password after checking the current one
+     * @param userId User ID
+     * @param currentPassword The password the user signs in with today
+     * @param newPassword The new password
+     * @throws ExecutionException
+     * @throws InterruptedException
+     * @throws IllegalArgumentException If the user is not found or the current password is wrong
+     */
+    public void changePassword(String userId, String currentPassword, String newPassword)
+            throws ExecutionException, InterruptedException, IllegalArgumentException {
+        if (newPassword == null || newPassword.isEmpty()) {
+            throw new IllegalArgumentException("New password cannot be empty");
+        }
+        User user = getUserById(userId);
+        if (user == null) {
+            throw new IllegalArgumentException("User not found with ID: " + userId);
+        }
+        if (currentPassword == null || !passwordHasher.matches(currentPassword, user.getPassword())) {
+            throw new IllegalArgumentException("Current password is incorrect");
         }
         
-        // Keep the original creation timestamp
-        user.setCreatedAt(existingUser.getCreatedAt());
-        
-        // Update in Firestore
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(user.getUserId());
-        ApiFuture<WriteResult> result = docRef.set(user);
-        
-        // Wait for the write to complete
-        result.get();
-        
-        return user;
+        try {
+            userRepository.update(userId, Map.of("password", passwordHasher.encode(newPassword)));
+        } finally {
+            userCache.invalidate(userId);
+        }
+        logger.info("Password changed for user ID: {}", userId);
     }
     
     public boolean deleteUser(String userId) throws ExecutionException, InterruptedException {
-        ApiFuture<WriteResult> writeResult = firestore.collection(COLLECTION_NAME).document(userId).delete();
-        writeResult.get();
+        userRepository.delete(userId);
+        userCache.invalidate(userId);
         return true;
     }
     
     public boolean verifyPassword(String rawPassword, String encodedPassword) {
-        return passwordEncoder.matches(rawPassword, encodedPassword);
+        return passwordHasher.matches(rawPassword, encodedPassword);
     }
     
     // New methods for profile management
@@ -165,12 +326,12 @@ public class UserService {
         user.setLastName(lastName);
         user.setPhoneNumber(phoneNumber);
         
-        // Update in Firestore
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
-        ApiFuture<WriteResult> result = docRef.set(user);
-        
-        // Wait for the write to complete
-        result.get();
+        // Write only the profile fields (HashMap since any of them may be null)
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("firstName", firstName);
+        fields.put("lastName", lastName);
+        fields.put("phoneNumber", phoneNumber);
+        updateUserFields(userId, fields);
         
         return user;
     }
@@ -222,13 +383,10 @@ public class UserService {
 
         // 3. Attempt to update the email in Firebase Authentication FIRST
         try {
-            UserRecord.UpdateRequest request = new UserRecord.UpdateRequest(userId)
-                    .setEmail(newEmail);
-            // You might also want to set setEmailVerified(false) here and trigger verification flow
-            // request.setEmailVerified(false); 
-            
-            UserRecord userRecord = firebaseAuth.updateUser(request);
-            logger.info("Successfully updated email in Firebase Auth for UID: {}", userRecord.getUid());
+            IdentityProvider.Account account = identityProvider.updateEmail(userId, newEmail);
+            logger.info("Successfully updated email in Firebase Auth for UID: {}", account.uid());
+            accountDirectory.evict(user.getEmail());
+            accountDirectory.put(account);
             
         } catch (FirebaseAuthException e) {
             logger.error("Failed to update email in Firebase Auth for UID {}: {}", userId, e.getMessage(), e);
@@ -245,18 +403,22 @@ public class UserService {
         }
 
         // 4. If Firebase Auth update succeeded, update the email in Firestore
+        String previousEmail = user.getEmail();
         try {
             user.setEmail(newEmail); // Update the user object
-            DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
             // Use update instead of set to only change the email field
-            ApiFuture<WriteResult> result = docRef.update("email", newEmail); 
-            result.get(); // Wait for the write to complete
+            userRepository.update(userId, Map.of("email", newEmail));
             logger.info("Successfully updated email in Firestore for user ID: {}", userId);
         } catch (ExecutionException | InterruptedException e) {
              logger.error("Failed to update email in Firestore for user ID {}: {}", userId, e.getMessage(), e);
              // Potentially try to revert the Firebase Auth email change here (complex)
              // For now, just rethrow
              throw e;
+        } finally {
+            // The write may have applied even if we did not see it complete
+            userCache.invalidate(userId);
+            userCache.invalidateEmail(previousEmail);
+            userCache.invalidateEmail(newEmail);
         }
         
         return user; // Return the user object with the updated email
@@ -281,10 +443,8 @@ public class UserService {
 
         user.setNotificationsEnabled(enabled);
 
-        // Update in Firestore
-        DocumentReference docRef = firestore.collection(COLLECTION_NAME).document(userId);
-        ApiFuture<WriteResult> result = docRef.set(user, com.google.cloud.firestore.SetOptions.merge()); // Use merge to only update the specified field
-        result.get(); // Wait for completion
+        // Update only the notification flag in Firestore
+        updateUserFields(userId, Map.of("notificationsEnabled", enabled));
 
         logger.info("Successfully updated notification settings for user ID: {} to {}", userId, enabled);
         return user;
@@ -308,4 +468,4 @@ public class UserService {
         logger.info("Retrieved notification settings for user ID: {}: {}", userId, user.isNotificationsEnabled());
         return user.isNotificationsEnabled();
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.g4.gms.service;
+
+import com.g4.gms.repository.DocumentConflictException;
+import com.g4.gms.repository.DocumentNotFoundException;
+
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for the failures of conditional repository writes, which reach a
+ * service either as is or wrapped in a CompletionException by a dependent stage.
+ */
+final class WriteFailures {
+
+    private WriteFailures() {
+    }
+
+    /**
+     * Whether a write failed because its document does not exist
+     * @param error The failure
+     * @return true for a DocumentNotFoundException, wrapped or not
+     */
+    static boolean isNotFound(Throwable error) {
+        return unwrap(error) instanceof DocumentNotFoundException;
+    }
+
+    /**
+     * Whether a write failed because its document changed since the expected version
+     * @param error The failure
+     * @return true for a DocumentConflictException, wrapped or not
+     */
+    static boolean isConflict(Throwable error) {
+        return unwrap(error) instanceof DocumentConflictException;
+    }
+
+    /**
+     * The failure to throw from a completion stage: a missing document becomes
+     * IllegalArgumentException with the given message, anything else is passed on
+     * @param error The failure
+     * @param notFoundMessage Message for a missing document
+     * @return The exception to throw
+     */
+    static CompletionException translate(Throwable error, String notFoundMessage) {
+        if (isNotFound(error)) {
+            return new CompletionException(new IllegalArgumentException(notFoundMessage));
+        }
+        return propagate(error);
+    }
+
+    /**
+     * The failure to throw from a completion stage, unchanged
+     * @param error The failure
+     * @return The exception to throw
+     */
+    static CompletionException propagate(Throwable error) {
+        return error instanceof CompletionException completion ? completion : new CompletionException(error);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
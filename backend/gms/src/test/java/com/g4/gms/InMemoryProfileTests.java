@@ -0,0 +1,15 @@
+package com.g4.gms;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+@SpringBootTest
+@ActiveProfiles("inmemory")
+class InMemoryProfileTests {
+
+	@Test
+	void contextLoads() {
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.g4.gms.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaginationPropertiesTests {
+
+	@Test
+	void pageSizeIsClampedToTheConfiguredRange() {
+		PaginationProperties properties = new PaginationProperties();
+		properties.setDefaultPageSize(50);
+		properties.setMaxPageSize(200);
+
+		assertThat(properties.resolvePageSize(null)).isEqualTo(50);
+		assertThat(properties.resolvePageSize(0)).isEqualTo(1);
+		assertThat(properties.resolvePageSize(-5)).isEqualTo(1);
+		assertThat(properties.resolvePageSize(120)).isEqualTo(120);
+		assertThat(properties.resolvePageSize(10_000)).isEqualTo(200);
+	}
+
+	@Test
+	void wholeListOnlyWhenNeitherLimitNorTokenIsSent() {
+		PaginationProperties properties = new PaginationProperties();
+
+		assertThat(properties.wantsWholeList(null, null)).isTrue();
+		assertThat(properties.wantsWholeList(null, "")).isTrue();
+		assertThat(properties.wantsWholeList(10, null)).isFalse();
+		assertThat(properties.wantsWholeList(null, "token")).isFalse();
+
+		properties.setWholeListWhenUnpaged(false);
+		assertThat(properties.wantsWholeList(null, null)).isFalse();
+	}
+}
@@ -0,0 +1,97 @@
+package com.g4.gms.controller;
+
+import com.g4.gms.config.PaginationProperties;
+import com.g4.gms.model.Tip;
+import com.g4.gms.service.TipService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("inmemory")
+@DirtiesContext
+class TipControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private TipService tipService;
+
+	@Autowired
+	private PaginationProperties paginationProperties;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			Tip tip = new Tip();
+			tip.setTitle("Tip " + i);
+			tip.setDescription("Tip description");
+			tip.setStatus("PUBLISHED");
+			tip.setUserId("user-1");
+			tipService.createTip(tip);
+		}
+	}
+
+	@Test
+	void listWithoutPagingParametersReturnsEveryTip() throws Exception {
+		mockMvc.perform(get("/api/tip"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(PageHeaders.NEXT_PAGE_TOKEN))
+				.andExpect(jsonPath("$.length()").value(tipService.getAllTips().size()));
+	}
+
+	@Test
+	void listWithoutPagingParametersIsCutAtTheUnpagedCeiling() throws Exception {
+		int maxUnpaged = paginationProperties.getMaxUnpaged();
+		paginationProperties.setMaxUnpaged(2);
+		try {
+			MvcResult first = mockMvc.perform(get("/api/tip"))
+					.andExpect(status().isOk())
+					.andExpect(header().exists(PageHeaders.NEXT_PAGE_TOKEN))
+					.andExpect(jsonPath("$.length()").value(2))
+					.andReturn();
+
+			String pageToken = first.getResponse().getHeader(PageHeaders.NEXT_PAGE_TOKEN);
+			mockMvc.perform(get("/api/tip").param("pageToken", pageToken))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.length()").value(tipService.getAllTips().size() - 2));
+		} finally {
+			paginationProperties.setMaxUnpaged(maxUnpaged);
+		}
+	}
+
+	@Test
+	void limitedListIsFollowedThroughTheNextPageToken() throws Exception {
+		MvcResult first = mockMvc.perform(get("/api/tip").param("limit", "2"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists(PageHeaders.NEXT_PAGE_TOKEN))
+				.andExpect(jsonPath("$.length()").value(2))
+				.andReturn();
+
+		String pageToken = first.getResponse().getHeader(PageHeaders.NEXT_PAGE_TOKEN);
+		mockMvc.perform(get("/api/tip").param("limit", "100").param("pageToken", pageToken))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(PageHeaders.NEXT_PAGE_TOKEN))
+				.andExpect(jsonPath("$.length()").value(tipService.getAllTips().size() - 2));
+	}
+
+	@Test
+	void malformedPageTokenIsABadRequest() throws Exception {
+		mockMvc.perform(get("/api/tip").param("pageToken", "garbage"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message").value("Invalid page token"));
+	}
+}
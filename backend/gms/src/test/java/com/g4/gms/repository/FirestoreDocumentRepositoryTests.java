@@ -0,0 +1,52 @@
+package com.g4.gms.repository;
+
+import com.google.api.gax.grpc.GrpcStatusCode;
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.ApiExceptionFactory;
+import io.grpc.Status;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FirestoreDocumentRepositoryTests {
+
+	@Test
+	void notFoundBecomesDocumentNotFoundException() {
+		RuntimeException failure = FirestoreDocumentRepository.writeFailure("doc-1", status(Status.Code.NOT_FOUND));
+
+		assertThat(failure).isInstanceOf(DocumentNotFoundException.class).hasMessageContaining("doc-1");
+	}
+
+	@Test
+	void failedPreconditionBecomesDocumentConflictException() {
+		RuntimeException failure = FirestoreDocumentRepository.writeFailure("doc-1", status(Status.Code.FAILED_PRECONDITION));
+
+		assertThat(failure).isInstanceOf(DocumentConflictException.class).hasMessageContaining("doc-1");
+	}
+
+	@Test
+	void statusIsFoundThroughWrappingExceptions() {
+		Throwable wrapped = new CompletionException(new ExecutionException(status(Status.Code.NOT_FOUND)));
+
+		assertThat(FirestoreDocumentRepository.writeFailure("doc-1", wrapped))
+				.isInstanceOf(DocumentNotFoundException.class);
+	}
+
+	@Test
+	void otherFailuresArePassedOn() {
+		ApiException unavailable = status(Status.Code.UNAVAILABLE);
+		Exception checked = new ExecutionException(new IllegalStateException("boom"));
+
+		assertThat(FirestoreDocumentRepository.writeFailure("doc-1", unavailable)).isSameAs(unavailable);
+		assertThat(FirestoreDocumentRepository.writeFailure("doc-1", checked))
+				.isInstanceOf(CompletionException.class)
+				.hasCause(checked);
+	}
+
+	private static ApiException status(Status.Code code) {
+		return ApiExceptionFactory.createException(new RuntimeException(code.name()), GrpcStatusCode.of(code), false);
+	}
+}
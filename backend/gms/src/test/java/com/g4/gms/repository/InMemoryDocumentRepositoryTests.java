@@ -0,0 +1,122 @@
+package com.g4.gms.repository;
+
+import com.g4.gms.model.Tip;
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryDocumentRepositoryTests {
+
+	private InMemoryDocumentRepository<Tip> repository;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		repository = new InMemoryDocumentRepository<>(new DocumentMapper(), Tip.class, Tip::setTipId);
+		repository.save("tip-1", tip("Rinse bottles"));
+	}
+
+	@Test
+	void conditionalWritesOfMissingDocumentFailWithNotFound() {
+		assertThatThrownBy(() -> repository.replace("missing", tip("x"), null))
+				.isInstanceOf(DocumentNotFoundException.class);
+		assertThatThrownBy(() -> repository.update("missing", Map.of("title", "x"), null))
+				.isInstanceOf(DocumentNotFoundException.class);
+		assertThatThrownBy(() -> repository.deleteExisting("missing", null))
+				.isInstanceOf(DocumentNotFoundException.class);
+		assertThat(repository.findById("missing")).isNull();
+	}
+
+	@Test
+	void conditionalWritesWithStaleVersionFailWithConflictAndChangeNothing() throws Exception {
+		long stale = repository.findVersionedById("tip-1").version();
+		repository.update("tip-1", Map.of("status", "PUBLISHED"), null);
+
+		assertThatThrownBy(() -> repository.replace("tip-1", tip("Overwritten"), stale))
+				.isInstanceOf(DocumentConflictException.class);
+		assertThatThrownBy(() -> repository.update("tip-1", Map.of("title", "Overwritten"), stale))
+				.isInstanceOf(DocumentConflictException.class);
+		assertThatThrownBy(() -> repository.deleteExisting("tip-1", stale))
+				.isInstanceOf(DocumentConflictException.class);
+
+		Tip stored = repository.findById("tip-1");
+		assertThat(stored.getTitle()).isEqualTo("Rinse bottles");
+		assertThat(stored.getStatus()).isEqualTo("PUBLISHED");
+	}
+
+	@Test
+	void deletedDocumentWithExpectedVersionIsAConflict() throws Exception {
+		long version = repository.findVersionedById("tip-1").version();
+		repository.delete("tip-1");
+
+		// Firestore reports a failed update-time precondition here, not a missing document
+		assertThatThrownBy(() -> repository.replace("tip-1", tip("x"), version))
+				.isInstanceOf(DocumentConflictException.class);
+	}
+
+	@Test
+	void conditionalWritesWithCurrentVersionSucceedAndBumpTheVersion() throws Exception {
+		Versioned<Tip> read = repository.findVersionedById("tip-1");
+
+		repository.replace("tip-1", tip("Flatten boxes"), read.version());
+
+		Versioned<Tip> replaced = repository.findVersionedById("tip-1");
+		assertThat(replaced.document().getTitle()).isEqualTo("Flatten boxes");
+		assertThat(replaced.version()).isGreaterThan(read.version());
+
+		repository.deleteExisting("tip-1", replaced.version());
+		assertThat(repository.findVersionedById("tip-1")).isNull();
+	}
+
+	@Test
+	void modelUpdateWritesEveryFieldButTheKeptOnes() throws Exception {
+		Timestamp createdAt = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0);
+		repository.update("tip-1", Map.of("createdAt", createdAt), null);
+		Tip update = tip("Flatten boxes");
+		update.setUserId(null);
+		update.setStatus(null);
+
+		repository.update("tip-1", update, Set.of("userId", "createdAt"), null);
+
+		Tip stored = repository.findById("tip-1");
+		assertThat(stored.getTitle()).isEqualTo("Flatten boxes");
+		assertThat(stored.getStatus()).isNull();
+		assertThat(stored.getUserId()).isEqualTo("user-1");
+		assertThat(stored.getCreatedAt()).isEqualTo(createdAt);
+		assertThatThrownBy(() -> repository.update("missing", update, Set.of("userId"), null))
+				.isInstanceOf(DocumentNotFoundException.class);
+	}
+
+	@Test
+	void asyncVariantsFailTheirFutureWithTheSameExceptions() throws Exception {
+		long stale = repository.findVersionedById("tip-1").version();
+		repository.update("tip-1", Map.of("status", "PUBLISHED"), null);
+
+		assertFailsWith(repository.replaceAsync("missing", tip("x"), null), DocumentNotFoundException.class);
+		assertFailsWith(repository.updateAsync("missing", Map.of("title", "x"), null), DocumentNotFoundException.class);
+		assertFailsWith(repository.deleteExistingAsync("missing", null), DocumentNotFoundException.class);
+		assertFailsWith(repository.replaceAsync("tip-1", tip("x"), stale), DocumentConflictException.class);
+		assertFailsWith(repository.updateAsync("tip-1", Map.of("title", "x"), stale), DocumentConflictException.class);
+		assertFailsWith(repository.deleteExistingAsync("tip-1", stale), DocumentConflictException.class);
+	}
+
+	private static void assertFailsWith(CompletableFuture<Void> future, Class<? extends Throwable> type) {
+		assertThat(future).isCompletedExceptionally();
+		assertThatThrownBy(future::join).hasCauseInstanceOf(type);
+	}
+
+	private static Tip tip(String title) {
+		Tip tip = new Tip();
+		tip.setTitle(title);
+		tip.setDescription("Tip description");
+		tip.setStatus("DRAFT");
+		tip.setUserId("user-1");
+		return tip;
+	}
+}
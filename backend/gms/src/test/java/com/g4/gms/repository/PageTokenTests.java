@@ -0,0 +1,61 @@
+package com.g4.gms.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageTokenTests {
+
+	@Test
+	void tokensRoundTrip() {
+		assertThat(PageToken.decode(PageToken.encode("tip-1"))).isEqualTo("tip-1");
+		assertThat(PageToken.decode(PageToken.encode("a:b|c"))).isEqualTo("a:b|c");
+		assertThat(PageToken.decodeRange(PageToken.encode(-42L, "sched:1")))
+				.isEqualTo(new PageToken.RangeCursor(-42L, "sched:1"));
+	}
+
+	@Test
+	void missingTokenIsTheFirstPage() {
+		assertThat(PageToken.decode(null)).isNull();
+		assertThat(PageToken.decode("")).isNull();
+		assertThat(PageToken.decodeRange(null)).isNull();
+	}
+
+	@Test
+	void tamperedTokenIsRejected() {
+		String token = PageToken.encode("tip-1");
+		String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		String edited = encode(decoded.replace("tip-1", "tip-2"));
+
+		assertInvalid(() -> PageToken.decode(edited));
+		assertInvalid(() -> PageToken.decode(token.substring(0, token.length() - 2)));
+	}
+
+	@Test
+	void foreignVersionAndOtherKindAreRejected() {
+		assertInvalid(() -> PageToken.decode(encode("v1:tip-1")));
+		assertInvalid(() -> PageToken.decodeRange(encode("r1:5:tip-1")));
+		assertInvalid(() -> PageToken.decode(PageToken.encode(5L, "tip-1")));
+		assertInvalid(() -> PageToken.decodeRange(PageToken.encode("tip-1")));
+	}
+
+	@Test
+	void garbageIsRejected() {
+		assertInvalid(() -> PageToken.decode("not base64!"));
+		assertInvalid(() -> PageToken.decodeRange("%%%"));
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void assertInvalid(Runnable decode) {
+		assertThatThrownBy(decode::run)
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid page token");
+	}
+}
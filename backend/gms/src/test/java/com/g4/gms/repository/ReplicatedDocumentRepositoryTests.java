@@ -0,0 +1,263 @@
+package com.g4.gms.repository;
+
+import com.g4.gms.model.Tip;
+import com.google.cloud.Timestamp;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicatedDocumentRepositoryTests {
+
+	private static final Timestamp CREATED_AT = Timestamp.ofTimeSecondsAndNanos(1_700_000_000L, 0);
+
+	private LaggingStore store;
+	private ReplicatedDocumentRepository<Tip> replica;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		store = new LaggingStore();
+		store.save("tip-1", tip("Rinse bottles"));
+		replica = new ReplicatedDocumentRepository<>("tips", store, Tip::new, new DocumentMapper());
+		replica.reconnect();
+		assertThat(replica.isLive()).isTrue();
+		store.holdBack();
+	}
+
+	@Test
+	void conditionalFieldUpdateIsReadBackBeforeTheListenerDeliversIt() throws Exception {
+		long version = replica.findVersionedById("tip-1").version();
+
+		replica.update("tip-1", Map.of("status", "PUBLISHED"), version);
+
+		Tip read = replica.findById("tip-1");
+		assertThat(read.getStatus()).isEqualTo("PUBLISHED");
+		assertThat(read.getTitle()).isEqualTo("Rinse bottles");
+	}
+
+	@Test
+	void modelUpdateIsMergedIntoTheReplicatedDocument() throws Exception {
+		Tip update = tip("Flatten boxes");
+		update.setTipId("tip-1");
+		update.setUserId(null);
+		update.setCreatedAt(null);
+
+		replica.update("tip-1", update, Set.of("userId", "createdAt"), null);
+
+		Tip read = replica.findById("tip-1");
+		assertThat(read.getTitle()).isEqualTo("Flatten boxes");
+		assertThat(read.getUserId()).isEqualTo("user-1");
+		assertThat(read.getCreatedAt()).isEqualTo(CREATED_AT);
+		assertThat(read.getTipId()).isEqualTo("tip-1");
+	}
+
+	@Test
+	void asyncFieldUpdateIsReadBackBeforeTheListenerDeliversIt() throws Exception {
+		replica.updateAsync("tip-1", Map.of("title", "Flatten boxes")).join();
+
+		assertThat(replica.findById("tip-1").getTitle()).isEqualTo("Flatten boxes");
+	}
+
+	@Test
+	void fieldPathUpdatesAreLeftForTheListener() throws Exception {
+		replica.update("tip-1", Map.of("nested.title", "x", "title", "Flatten boxes"));
+
+		assertThat(replica.findById("tip-1").getTitle()).isEqualTo("Rinse bottles");
+		store.release();
+		assertThat(replica.findById("tip-1").getTitle()).isEqualTo("Flatten boxes");
+	}
+
+	@Test
+	void localSaveAndDeleteAreReadBackBeforeTheListenerDeliversThem() throws Exception {
+		replica.save("tip-2", tip("Flatten boxes"));
+
+		assertThat(replica.findById("tip-2").getTitle()).isEqualTo("Flatten boxes");
+		assertThat(replica.findAll()).extracting(Tip::getTitle).containsExactly("Rinse bottles", "Flatten boxes");
+
+		replica.delete("tip-1");
+
+		assertThat(replica.findById("tip-1")).isNull();
+		assertThat(replica.findAllById(List.of("tip-1", "tip-2"))).containsOnlyKeys("tip-2");
+		store.release();
+		assertThat(replica.findAll()).extracting(Tip::getTitle).containsExactly("Flatten boxes");
+	}
+
+	@Test
+	void listenerDeleteAndReAddReachTheReplica() throws Exception {
+		// Written by another instance: only the listener tells this replica about it
+		store.delete("tip-1");
+		assertThat(replica.findById("tip-1")).isNotNull();
+
+		store.release();
+		assertThat(replica.findById("tip-1")).isNull();
+		assertThat(replica.findAll()).isEmpty();
+
+		store.save("tip-1", tip("Flatten boxes"));
+		assertThat(replica.findById("tip-1").getTitle()).isEqualTo("Flatten boxes");
+	}
+
+	@Test
+	void lateAcknowledgedDeleteDoesNotRemoveADocumentTheListenerReAdded() throws Exception {
+		store.release();
+		CompletableFuture<Void> ack = store.delayAcks();
+
+		CompletableFuture<Void> delete = replica.deleteAsync("tip-1");
+		// Another instance re-creates it, and the listener delivers that before the delete is acknowledged
+		store.save("tip-1", tip("Flatten boxes"));
+		ack.complete(null);
+		delete.join();
+
+		assertThat(replica.findById("tip-1").getTitle()).isEqualTo("Flatten boxes");
+	}
+
+	@Test
+	void lateAcknowledgedSaveDoesNotOverwriteANewerDelivery() throws Exception {
+		store.release();
+		CompletableFuture<Void> ack = store.delayAcks();
+
+		CompletableFuture<Void> save = replica.saveAsync("tip-1", tip("Flatten boxes"));
+		store.save("tip-1", tip("Sort glass"));
+		ack.complete(null);
+		save.join();
+
+		assertThat(replica.findById("tip-1").getTitle()).isEqualTo("Sort glass");
+		// A write issued after that delivery is applied as usual
+		store.holdBack();
+		replica.updateAsync("tip-1", Map.of("status", "PUBLISHED")).join();
+		assertThat(replica.findById("tip-1").getStatus()).isEqualTo("PUBLISHED");
+	}
+
+	@Test
+	void collectionVersionChangesWithEveryChangeAndIsUnknownWhileDisconnected() throws Exception {
+		CollectionVersion initial = replica.currentVersion();
+
+		replica.save("tip-2", tip("Flatten boxes"));
+		CollectionVersion afterWrite = replica.currentVersion();
+		assertThat(afterWrite.tag()).isNotEqualTo(initial.tag());
+
+		store.release();
+		CollectionVersion afterDelivery = replica.currentVersion();
+		assertThat(afterDelivery.tag()).isNotEqualTo(afterWrite.tag());
+
+		// A field update the store has to resolve leaves the copy, and the version, alone
+		store.holdBack();
+		replica.update("tip-2", Map.of("nested.title", "x"));
+		assertThat(replica.currentVersion()).isEqualTo(afterDelivery);
+
+		store.fail(new IllegalStateException("listener lost"));
+		assertThat(replica.isLive()).isFalse();
+		assertThat(replica.currentVersion()).isNull();
+		// Reads go to the store until the listener is back
+		store.save("tip-3", tip("Sort glass"));
+		assertThat(replica.findById("tip-3").getTitle()).isEqualTo("Sort glass");
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		replica.bindTo(meterRegistry);
+		assertThat(meterRegistry.get("gms.replica.live").tag("collection", "tips").gauge().value()).isZero();
+		assertThat(meterRegistry.get("gms.replica.reads").tag("source", "store").functionCounter().count())
+				.isPositive();
+
+		replica.reconnect();
+		assertThat(replica.isLive()).isTrue();
+		assertThat(replica.currentVersion().tag()).isNotIn(initial.tag(), afterWrite.tag(), afterDelivery.tag());
+		assertThat(replica.findAll()).hasSize(3);
+	}
+
+	static Tip tip(String title) {
+		Tip tip = new Tip();
+		tip.setTitle(title);
+		tip.setDescription("Tip description");
+		tip.setStatus("DRAFT");
+		tip.setUserId("user-1");
+		tip.setCreatedAt(CREATED_AT);
+		return tip;
+	}
+
+	/**
+	 * In-memory store whose listener can be held back, like a snapshot listener that
+	 * has not caught up with the latest writes yet, or made to fail, and whose async
+	 * writes can be acknowledged late
+	 */
+	static class LaggingStore extends InMemoryDocumentRepository<Tip> {
+
+		private final List<Runnable> heldBack = new ArrayList<>();
+		private boolean holding;
+		private CollectionListener<Tip> listener;
+		private volatile CompletableFuture<Void> acks;
+
+		LaggingStore() {
+			super(new DocumentMapper(), Tip.class, Tip::setTipId);
+		}
+
+		@Override
+		public synchronized ListenerHandle watch(CollectionListener<Tip> downstream) {
+			listener = downstream;
+			return super.watch(new CollectionListener<>() {
+				@Override
+				public void onChanges(Map<String, Tip> upserts, Set<String> removedIds, Timestamp readTime, boolean initial) {
+					Runnable delivery = () -> downstream.onChanges(upserts, removedIds, readTime, initial);
+					synchronized (LaggingStore.this) {
+						if (holding && !initial) {
+							heldBack.add(delivery);
+							return;
+						}
+					}
+					delivery.run();
+				}
+
+				@Override
+				public void onError(Throwable error) {
+					downstream.onError(error);
+				}
+			});
+		}
+
+		synchronized void holdBack() {
+			holding = true;
+		}
+
+		void release() {
+			List<Runnable> deliveries;
+			synchronized (this) {
+				holding = false;
+				deliveries = new ArrayList<>(heldBack);
+				heldBack.clear();
+			}
+			deliveries.forEach(Runnable::run);
+		}
+
+		void fail(Throwable error) {
+			listener.onError(error);
+		}
+
+		/**
+		 * Hold back the acknowledgement of async saves and deletes until the returned future completes
+		 */
+		CompletableFuture<Void> delayAcks() {
+			acks = new CompletableFuture<>();
+			return acks;
+		}
+
+		@Override
+		public CompletableFuture<Void> saveAsync(String id, Tip entity) {
+			return acknowledged(super.saveAsync(id, entity));
+		}
+
+		@Override
+		public CompletableFuture<Void> deleteAsync(String id) {
+			return acknowledged(super.deleteAsync(id));
+		}
+
+		private CompletableFuture<Void> acknowledged(CompletableFuture<Void> write) {
+			CompletableFuture<Void> gate = acks;
+			return gate != null ? write.thenCompose(ignored -> gate) : write;
+		}
+	}
+}
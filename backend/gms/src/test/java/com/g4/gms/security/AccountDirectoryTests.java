@@ -0,0 +1,114 @@
+package com.g4.gms.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountDirectoryTests {
+
+	@Test
+	void writesMadeDuringTheListingSurviveTheSwap() throws Exception {
+		ListingProvider provider = new ListingProvider(List.of(
+				new IdentityProvider.Account("uid-a", "a@example.com"),
+				new IdentityProvider.Account("uid-b", "b@example.com")));
+		AccountDirectory directory = new AccountDirectory(provider);
+		// The listing was taken before these writes reached the authentication system
+		provider.duringListing = () -> {
+			directory.put(new IdentityProvider.Account("uid-a", "a.new@example.com"));
+			directory.evict("a@example.com");
+			directory.evict("b@example.com");
+			directory.put(new IdentityProvider.Account("uid-c", "c@example.com"));
+		};
+
+		directory.reconcile();
+
+		assertThat(directory.size()).isEqualTo(2);
+		assertThat(directory.getAccountByEmail("a.new@example.com").uid()).isEqualTo("uid-a");
+		assertThat(directory.getAccountByEmail("c@example.com").uid()).isEqualTo("uid-c");
+	}
+
+	@Test
+	void writesAfterTheSwapAreNotReplayedByTheNextRun() throws Exception {
+		ListingProvider provider = new ListingProvider(List.of(
+				new IdentityProvider.Account("uid-a", "a@example.com")));
+		AccountDirectory directory = new AccountDirectory(provider);
+		provider.duringListing = () -> directory.evict("a@example.com");
+		directory.reconcile();
+		assertThat(directory.size()).isZero();
+
+		// A later run sees the account listed again with nothing racing it
+		provider.duringListing = () -> { };
+		directory.reconcile();
+
+		assertThat(directory.getAccountByEmail("a@example.com").uid()).isEqualTo("uid-a");
+	}
+
+	@Test
+	void failedListingKeepsTheCurrentView() throws Exception {
+		ListingProvider provider = new ListingProvider(List.of());
+		AccountDirectory directory = new AccountDirectory(provider);
+		directory.put(new IdentityProvider.Account("uid-a", "a@example.com"));
+		provider.duringListing = () -> {
+			throw new IllegalStateException("listing failed");
+		};
+
+		directory.reconcile();
+		directory.put(new IdentityProvider.Account("uid-b", "b@example.com"));
+
+		assertThat(directory.size()).isEqualTo(2);
+	}
+
+	/**
+	 * Lists a fixed set of accounts, running a hook after the first one
+	 */
+	private static final class ListingProvider implements IdentityProvider {
+
+		private final List<Account> accounts;
+		private volatile Runnable duringListing = () -> { };
+
+		private ListingProvider(List<Account> accounts) {
+			this.accounts = accounts;
+		}
+
+		@Override
+		public void forEachAccount(Consumer<Account> action) {
+			for (int i = 0; i < accounts.size(); i++) {
+				action.accept(accounts.get(i));
+				if (i == 0) {
+					duringListing.run();
+				}
+			}
+			if (accounts.isEmpty()) {
+				duringListing.run();
+			}
+		}
+
+		@Override
+		public Account getAccountByEmail(String email) {
+			throw new AssertionError("Unexpected lookup of " + email);
+		}
+
+		@Override
+		public Account createAccount(String email, String password, String displayName) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void setRole(String uid, String role) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Account updateEmail(String uid, String newEmail) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String generatePasswordResetLink(String email) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
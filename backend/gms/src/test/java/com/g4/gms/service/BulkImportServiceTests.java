@@ -0,0 +1,198 @@
+package com.g4.gms.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g4.gms.config.BulkImportProperties;
+import com.g4.gms.config.PaginationProperties;
+import com.g4.gms.config.PickupLocationFeedProperties;
+import com.g4.gms.config.PickupLocationIndexProperties;
+import com.g4.gms.config.ReplicaProperties;
+import com.g4.gms.config.ScheduleProperties;
+import com.g4.gms.dto.ImportJobResponse;
+import com.g4.gms.model.PickupLocation;
+import com.g4.gms.model.Schedule;
+import com.g4.gms.repository.CollectionReplicas;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.InMemoryRepositoryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkImportServiceTests {
+
+	private static final String LOCATIONS_HEADER = "siteName,wasteType,address,latitude,longitude\n";
+
+	private BulkImportProperties properties;
+	private PickupLocationService pickupLocationService;
+	private ScheduleService scheduleService;
+	private BulkImportService service;
+
+	@BeforeEach
+	void setUp() {
+		MeterRegistry meterRegistry = new SimpleMeterRegistry();
+		DocumentRepositoryFactory factory = new InMemoryRepositoryFactory(meterRegistry);
+		PaginationProperties paginationProperties = new PaginationProperties();
+		pickupLocationService = new PickupLocationService(factory, paginationProperties,
+				new PickupLocationIndex(new PickupLocationIndexProperties()),
+				new CollectionReplicas(new ReplicaProperties(), meterRegistry),
+				new PickupLocationFeedCache(new PickupLocationFeedProperties(), new ObjectMapper(), meterRegistry));
+		scheduleService = new ScheduleService(factory, paginationProperties, new ScheduleProperties());
+		properties = new BulkImportProperties();
+		service = new BulkImportService(pickupLocationService, scheduleService, properties, new ObjectMapper(),
+				Validation.buildDefaultValidatorFactory().getValidator());
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void validCsvImportsEveryRow() throws Exception {
+		ImportJobResponse job = finished(service.importPickupLocations(BulkImportService.Format.CSV, body(
+				LOCATIONS_HEADER
+						+ "North Depot,Recyclable,1 Rizal Street,10.31,123.89\n"
+						+ "South Depot,Residual,2 Rizal Street,10.29,123.88\n"
+						+ "\"Depot, East\",Biodegradable,3 Rizal Street,10.30,123.91\n")));
+
+		assertThat(job.getStatus()).isEqualTo("COMPLETED");
+		assertThat(job.getRowsRead()).isEqualTo(3);
+		assertThat(job.getRowsWritten()).isEqualTo(3);
+		assertThat(job.getRowsFailed()).isZero();
+		assertThat(job.getErrors()).isEmpty();
+		assertThat(pickupLocationService.getAllPickupLocations()).extracting(PickupLocation::getSiteName)
+				.containsExactlyInAnyOrder("North Depot", "South Depot", "Depot, East");
+	}
+
+	@Test
+	void validJsonArrayImportsEveryRow() throws Exception {
+		String locationId = importedLocationId();
+
+		ImportJobResponse job = finished(service.importSchedules(BulkImportService.Format.JSON, body("""
+				[
+				  {"title": "Morning pickup", "pickupDate": "2025-05-01", "pickupTime": "7:30 AM",
+				   "locationId": "%1$s", "userId": "user-1", "ignored": true},
+				  {"title": "Evening pickup", "pickupDate": "2025-05-01", "pickupTime": "18:00",
+				   "locationId": "%1$s", "userId": "user-1", "status": "CONFIRMED"}
+				]
+				""".formatted(locationId))));
+
+		assertThat(job.getStatus()).isEqualTo("COMPLETED");
+		assertThat(job.getRowsWritten()).isEqualTo(2);
+		List<Schedule> schedules = scheduleService.getAllSchedules();
+		assertThat(schedules).extracting(Schedule::getStatus).containsExactlyInAnyOrder("PENDING", "CONFIRMED");
+		assertThat(schedules).allSatisfy(schedule -> assertThat(schedule.getPickupAt()).isNotNull());
+	}
+
+	@Test
+	void badRowsInTheMiddleAreReportedWithTheirRowNumbers() throws Exception {
+		ImportJobResponse job = finished(service.importPickupLocations(BulkImportService.Format.CSV, body(
+				LOCATIONS_HEADER
+						+ "North Depot,Recyclable,1 Rizal Street,10.31,123.89\n"
+						+ ",Residual,2 Rizal Street,10.29,123.88\n"
+						+ "East Depot,Biodegradable,3 Rizal Street,north,123.91\n"
+						+ "West Depot,Special,4 Rizal Street,10.32,123.87\n")));
+
+		// Bad rows are skipped and the job carries on
+		assertThat(job.getStatus()).isEqualTo("COMPLETED");
+		assertThat(job.getRowsRead()).isEqualTo(4);
+		assertThat(job.getRowsWritten()).isEqualTo(2);
+		assertThat(job.getRowsFailed()).isEqualTo(2);
+		assertThat(job.getErrors()).extracting(ImportJobResponse.RowError::getRow).containsExactly(2L, 3L);
+		assertThat(job.getErrors().get(0).getMessage()).isEqualTo("Site name cannot be blank");
+		assertThat(job.getErrors().get(1).getMessage()).contains("north");
+		assertThat(job.isErrorsTruncated()).isFalse();
+	}
+
+	@Test
+	void reportedErrorsAreCappedButAllCounted() throws Exception {
+		properties.setMaxReportedErrors(1);
+
+		ImportJobResponse job = finished(service.importPickupLocations(BulkImportService.Format.CSV, body(
+				LOCATIONS_HEADER
+						+ ",Residual,1 Rizal Street,10.29,123.88\n"
+						+ ",Residual,2 Rizal Street,10.29,123.88\n")));
+
+		assertThat(job.getRowsFailed()).isEqualTo(2);
+		assertThat(job.getErrors()).hasSize(1);
+		assertThat(job.isErrorsTruncated()).isTrue();
+	}
+
+	@Test
+	void malformedJsonStopsTheJobKeepingTheRowsBeforeIt() throws Exception {
+		ImportJobResponse job = finished(service.importPickupLocations(BulkImportService.Format.JSON, body("""
+				[
+				  {"siteName": "North Depot", "wasteType": "Recyclable", "address": "1 Rizal Street",
+				   "latitude": 10.31, "longitude": 123.89},
+				  {"siteName": "South Depot", "wasteType": "Residual", "address": "2 Rizal Street",
+				   "latitude": 10.29, "longitude": 123.88},
+				  {"siteName": "East Depot", "wasteType"
+				""")));
+
+		assertThat(job.getStatus()).isEqualTo("FAILED");
+		assertThat(job.getMessage()).startsWith("Malformed JSON at row 3");
+		assertThat(job.getRowsWritten()).isEqualTo(2);
+		assertThat(pickupLocationService.getAllPickupLocations()).hasSize(2);
+	}
+
+	@Test
+	void scheduleForAnUnknownLocationIsReported() throws Exception {
+		String locationId = importedLocationId();
+
+		ImportJobResponse job = finished(service.importSchedules(BulkImportService.Format.CSV, body(
+				"title,pickupDate,pickupTime,locationId,userId\n"
+						+ "Morning pickup,2025-05-01,7:30 AM," + locationId + ",user-1\n"
+						+ "Lost pickup,2025-05-01,8:00 AM,nowhere,user-1\n")));
+
+		assertThat(job.getStatus()).isEqualTo("COMPLETED");
+		assertThat(job.getRowsWritten()).isEqualTo(1);
+		assertThat(job.getErrors()).singleElement().satisfies(error -> {
+			assertThat(error.getRow()).isEqualTo(2);
+			assertThat(error.getMessage()).isEqualTo("Pickup location not found: nowhere");
+		});
+	}
+
+	@Test
+	void oversizedPayloadIsRefusedWithoutAJob() {
+		properties.setMaxPayloadBytes(64L);
+
+		assertThatThrownBy(() -> service.importPickupLocations(BulkImportService.Format.CSV, body(
+				LOCATIONS_HEADER + "North Depot,Recyclable,1 Rizal Street,10.31,123.89\n")))
+				.isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Import payload is larger than 64 bytes");
+		assertThat(service.getJobs()).isEmpty();
+	}
+
+	private String importedLocationId() throws Exception {
+		ImportJobResponse job = finished(service.importPickupLocations(BulkImportService.Format.CSV, body(
+				LOCATIONS_HEADER + "North Depot,Recyclable,1 Rizal Street,10.31,123.89\n")));
+		assertThat(job.getRowsWritten()).isEqualTo(1);
+		return pickupLocationService.getAllPickupLocations().get(0).getLocationId();
+	}
+
+	private ImportJobResponse finished(ImportJobResponse queued) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (System.currentTimeMillis() < deadline) {
+			ImportJobResponse job = service.getJob(queued.getJobId());
+			if (job.getFinishedAt() != null) {
+				return job;
+			}
+			Thread.sleep(10);
+		}
+		throw new AssertionError("Import " + queued.getJobId() + " did not finish");
+	}
+
+	private static InputStream body(String payload) {
+		return new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,119 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.PaginationProperties;
+import com.g4.gms.config.ScheduleProperties;
+import com.g4.gms.model.Schedule;
+import com.g4.gms.repository.InMemoryRepositoryFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DateTimesTests {
+
+	private static final ZoneId MANILA = ZoneId.of("Asia/Manila");
+	private static final LocalTime SEVEN = LocalTime.of(7, 0);
+
+	@Test
+	void twelveHourTimesWithAndWithoutASpaceAndWithSeconds() {
+		long expected = manila(2025, 5, 1, 10, 30, 0);
+
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "10:30 AM", MANILA, SEVEN)).isEqualTo(expected);
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "10:30AM", MANILA, SEVEN)).isEqualTo(expected);
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "10:30 am", MANILA, SEVEN)).isEqualTo(expected);
+		assertThat(DateTimes.toEpochMillis("2025-05-01", " 10:30:15 pm ", MANILA, SEVEN))
+				.isEqualTo(manila(2025, 5, 1, 22, 30, 15));
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "12:05 AM", MANILA, SEVEN))
+				.isEqualTo(manila(2025, 5, 1, 0, 5, 0));
+	}
+
+	@Test
+	void twentyFourHourTimes() {
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "7:30", MANILA, SEVEN)).isEqualTo(manila(2025, 5, 1, 7, 30, 0));
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "07:30", MANILA, SEVEN)).isEqualTo(manila(2025, 5, 1, 7, 30, 0));
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "19:30:45", MANILA, SEVEN))
+				.isEqualTo(manila(2025, 5, 1, 19, 30, 45));
+	}
+
+	@Test
+	void dateAloneFallsBackToTheDefaultTime() {
+		long expected = manila(2025, 5, 1, 7, 0, 0);
+
+		assertThat(DateTimes.toEpochMillis("2025-05-01", MANILA, SEVEN)).isEqualTo(expected);
+		assertThat(DateTimes.toEpochMillis("2025-05-01", null, MANILA, SEVEN)).isEqualTo(expected);
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "  ", MANILA, SEVEN)).isEqualTo(expected);
+	}
+
+	@Test
+	void offsetAndInstantInputsKeepTheirOwnOffset() {
+		long expected = OffsetDateTime.of(2025, 5, 1, 7, 30, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+
+		assertThat(DateTimes.toEpochMillis("2025-05-01T07:30:00Z", MANILA, SEVEN)).isEqualTo(expected);
+		assertThat(DateTimes.toEpochMillis("2025-05-01T15:30:00+08:00", MANILA, SEVEN)).isEqualTo(expected);
+		assertThat(DateTimes.toEpochMillis("2025-05-01T09:30:00+02:00", ZoneId.of("America/New_York"), SEVEN))
+				.isEqualTo(expected);
+		// With a separate blank time, the date field may carry the whole date-time
+		assertThat(DateTimes.toEpochMillis("2025-05-01T07:30:00Z", "", MANILA, SEVEN)).isEqualTo(expected);
+	}
+
+	@Test
+	void localValuesAreReadInTheGivenZone() {
+		assertThat(DateTimes.toEpochMillis("2025-05-01T07:30", MANILA, SEVEN)).isEqualTo(manila(2025, 5, 1, 7, 30, 0));
+		assertThat(DateTimes.toEpochMillis("2025-05-01 07:30", MANILA, SEVEN)).isEqualTo(manila(2025, 5, 1, 7, 30, 0));
+
+		long utc = OffsetDateTime.of(2025, 5, 1, 7, 30, 0, 0, ZoneOffset.UTC).toInstant().toEpochMilli();
+		assertThat(DateTimes.toEpochMillis("2025-05-01T07:30", ZoneOffset.UTC, SEVEN)).isEqualTo(utc);
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "7:30 AM", MANILA, SEVEN))
+				.isEqualTo(utc - 8 * 60 * 60 * 1000L);
+	}
+
+	@Test
+	void blankOrGarbageIsNull() {
+		assertThat(DateTimes.toEpochMillis(null, MANILA, SEVEN)).isNull();
+		assertThat(DateTimes.toEpochMillis("", MANILA, SEVEN)).isNull();
+		assertThat(DateTimes.toEpochMillis("   ", MANILA, SEVEN)).isNull();
+		assertThat(DateTimes.toEpochMillis("next Tuesday", MANILA, SEVEN)).isNull();
+		assertThat(DateTimes.toEpochMillis("2025-13-01", MANILA, SEVEN)).isNull();
+		assertThat(DateTimes.toEpochMillis("05/01/2025", MANILA, SEVEN)).isNull();
+
+		assertThat(DateTimes.toEpochMillis(null, "10:30 AM", MANILA, SEVEN)).isNull();
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "half past ten", MANILA, SEVEN)).isNull();
+		assertThat(DateTimes.toEpochMillis("2025-05-01", "25:00", MANILA, SEVEN)).isNull();
+		assertThat(DateTimes.toEpochMillis("May 1st", "10:30 AM", MANILA, SEVEN)).isNull();
+	}
+
+	@Test
+	void dateOnlyPickupWindowCoversTheWholeLastDay() throws Exception {
+		ScheduleService scheduleService = new ScheduleService(new InMemoryRepositoryFactory(new SimpleMeterRegistry()),
+				new PaginationProperties(), new ScheduleProperties());
+		schedule(scheduleService, "Day before", "2025-04-30", "11:59 PM");
+		schedule(scheduleService, "First thing", "2025-05-01", "12:00 AM");
+		schedule(scheduleService, "Late", "2025-05-02", "11:59 PM");
+		schedule(scheduleService, "Next day", "2025-05-03", "12:00 AM");
+
+		List<Schedule> window = scheduleService.getSchedulesByPickupWindowAsync("2025-05-01", "2025-05-02",
+				null, null, null, null).join().items();
+		assertThat(window).extracting(Schedule::getTitle).containsExactly("First thing", "Late");
+
+		// A date-time bound is exclusive as given
+		List<Schedule> toTheMinute = scheduleService.getSchedulesByPickupWindowAsync("2025-05-01",
+				"2025-05-02T23:59", null, null, null, null).join().items();
+		assertThat(toTheMinute).extracting(Schedule::getTitle).containsExactly("First thing");
+	}
+
+	private static void schedule(ScheduleService scheduleService, String title, String date, String time)
+			throws Exception {
+		scheduleService.createSchedule(new Schedule(null, title, date, time, "loc-1", "PENDING", "user-1"));
+	}
+
+	private static long manila(int year, int month, int day, int hour, int minute, int second) {
+		return OffsetDateTime.of(year, month, day, hour, minute, second, 0, ZoneOffset.ofHours(8))
+				.toInstant().toEpochMilli();
+	}
+}
@@ -0,0 +1,148 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.DeviceTokenProperties;
+import com.g4.gms.config.PushDispatchProperties;
+import com.g4.gms.config.UserCacheProperties;
+import com.g4.gms.model.DeviceToken;
+import com.g4.gms.model.User;
+import com.g4.gms.repository.InMemoryRepositoryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FirebaseMessagingServiceTests {
+
+	private static final String INVALID = "invalid-";
+
+	private MeterRegistry meterRegistry;
+	private RecordingSender sender;
+	private List<String> pruned;
+	private FirebaseMessagingService service;
+
+	@BeforeEach
+	void setUp() {
+		PushDispatchProperties properties = new PushDispatchProperties();
+		properties.setWorkers(1);
+		properties.setLingerMs(50L);
+		meterRegistry = new SimpleMeterRegistry();
+		sender = new RecordingSender();
+		pruned = new CopyOnWriteArrayList<>();
+		service = new FirebaseMessagingService(sender, properties, meterRegistry);
+		service.addUnregisteredTokenListener(pruned::addAll);
+	}
+
+	@AfterEach
+	void tearDown() {
+		service.shutdown();
+	}
+
+	@Test
+	void multicastIsSentInBatchesOfAtMost500Tokens() throws Exception {
+		List<String> tokens = tokens(1_200, 0);
+		// Duplicates are sent once
+		tokens.addAll(tokens.subList(0, 10));
+
+		FirebaseMessagingService.DispatchSummary summary = service
+				.sendMulticastNotificationAsync(tokens, "Pickup today", "Put your bins out")
+				.get(5, TimeUnit.SECONDS);
+
+		assertThat(summary).isEqualTo(new FirebaseMessagingService.DispatchSummary(1_200, 1_200, 0, 0));
+		assertThat(sender.batches).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(500));
+		assertThat(sender.batches).hasSizeGreaterThanOrEqualTo(3);
+		assertThat(sender.batches.stream().mapToInt(List::size).sum()).isEqualTo(1_200);
+		assertThat(meterRegistry.get("gms.push.batch.size").summary().max()).isLessThanOrEqualTo(500);
+		assertThat(meterRegistry.get("gms.push.results").tag("status", "delivered").counter().count())
+				.isEqualTo(1_200);
+	}
+
+	@Test
+	void invalidTokensArePrunedAndSkippedOnLaterSends() throws Exception {
+		List<String> tokens = tokens(600, 5);
+
+		FirebaseMessagingService.DispatchSummary summary = service
+				.sendMulticastNotificationAsync(tokens, "Pickup today", "Put your bins out")
+				.get(5, TimeUnit.SECONDS);
+
+		assertThat(summary).isEqualTo(new FirebaseMessagingService.DispatchSummary(600, 595, 5, 0));
+		assertThat(pruned).containsExactlyInAnyOrderElementsOf(tokens.stream().filter(t -> t.startsWith(INVALID)).toList());
+
+		int batchesBefore = sender.batches.size();
+		FirebaseMessagingService.PushResult result = service
+				.sendNotificationAsync(pruned.get(0), "Pickup today", "Put your bins out")
+				.get(5, TimeUnit.SECONDS);
+
+		assertThat(result.status()).isEqualTo(FirebaseMessagingService.Status.UNREGISTERED);
+		assertThat(sender.batches).hasSize(batchesBefore);
+		assertThat(meterRegistry.get("gms.push.pruned").counter().count()).isEqualTo(5);
+		assertThat(meterRegistry.get("gms.push.skipped.unregistered").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void unregisteredTokensAreDeletedFromTheirOwnersDevices() throws Exception {
+		InMemoryRepositoryFactory repositoryFactory = new InMemoryRepositoryFactory(meterRegistry);
+		UserService userService = new UserService(repositoryFactory);
+		ReflectionTestUtils.setField(userService, "userCache", new UserCache(new UserCacheProperties(), meterRegistry));
+		DeviceTokenService deviceTokenService = new DeviceTokenService(repositoryFactory, userService, service,
+				new DeviceTokenProperties(), meterRegistry);
+		User user = new User();
+		user.setUserId("user-1");
+		user.setEmail("a@b.com");
+		user.setNotificationsEnabled(true);
+		userService.createUser(user);
+		deviceTokenService.registerToken("user-1", "device-phone", "android");
+		deviceTokenService.registerToken("user-1", INVALID + "old-phone", "android");
+
+		DeviceTokenService.FanOutSummary summary = deviceTokenService
+				.notifyUsersAsync(List.of("user-1"), "Pickup today", "Put your bins out")
+				.get(5, TimeUnit.SECONDS);
+
+		assertThat(summary.delivered()).isEqualTo(1);
+		assertThat(summary.unregistered()).isEqualTo(1);
+		assertThat(deviceTokenService.getDevices("user-1")).extracting(DeviceToken::getToken)
+				.containsExactly("device-phone");
+		assertThat(meterRegistry.get("gms.device.tokens.removed").tag("reason", "unregistered").counter().count())
+				.isEqualTo(1);
+	}
+
+	/**
+	 * Tokens, the given number of them invalid, spread through the list
+	 */
+	private static List<String> tokens(int count, int invalid) {
+		int spacing = invalid > 0 ? count / invalid : count;
+		List<String> tokens = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			tokens.add((invalid > 0 && i % spacing == 0 ? INVALID : "device-") + i);
+		}
+		return tokens;
+	}
+
+	/**
+	 * Push sender that records each batch and reports tokens starting with "invalid-" as unregistered
+	 */
+	static class RecordingSender implements PushSender {
+
+		final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+		@Override
+		public List<Outcome> send(String title, String body, List<String> tokens) {
+			batches.add(List.copyOf(tokens));
+			List<Outcome> outcomes = new ArrayList<>(tokens.size());
+			for (String token : tokens) {
+				outcomes.add(token.startsWith(INVALID)
+						? Outcome.failed(Status.UNREGISTERED, "Requested entity was not found.")
+						: Outcome.delivered("message-" + token));
+			}
+			return outcomes;
+		}
+	}
+}
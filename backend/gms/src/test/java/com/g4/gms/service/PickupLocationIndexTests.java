@@ -0,0 +1,108 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.PickupLocationIndexProperties;
+import com.g4.gms.model.PickupLocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PickupLocationIndexTests {
+
+	// Osmena Boulevard, Cebu City; 0.01 degrees of latitude is about 1.1 km
+	private static final double LATITUDE = 10.3157;
+	private static final double LONGITUDE = 123.8854;
+
+	private PickupLocationIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new PickupLocationIndex(new PickupLocationIndexProperties());
+		index.replaceAll(List.of(
+				site("north-1km", "Recyclable", LATITUDE + 0.009, LONGITUDE),
+				site("east-3km", "Biodegradable", LATITUDE, LONGITUDE + 0.0275),
+				site("south-6km", "Recyclable", LATITUDE - 0.054, LONGITUDE),
+				site("west-40km", "Residual", LATITUDE, LONGITUDE - 0.365),
+				site("unplaced", "Recyclable", null, null)), index.generation());
+	}
+
+	@Test
+	void nearestIsOrderedByDistanceAndLimited() {
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, null, null, 10)))
+				.containsExactly("north-1km", "east-3km", "south-6km", "west-40km");
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, null, null, 2)))
+				.containsExactly("north-1km", "east-3km");
+		// Sites without coordinates are not indexed
+		assertThat(index.size()).isEqualTo(4);
+	}
+
+	@Test
+	void nearestStopsAtTheRadius() {
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, 5_000.0, null, 10)))
+				.containsExactly("north-1km", "east-3km");
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, 500.0, null, 10))).isEmpty();
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, 50_000.0, null, 10))).hasSize(4);
+	}
+
+	@Test
+	void nearestFiltersByWasteTypeIgnoringCase() {
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, null, "recyclable", 10)))
+				.containsExactly("north-1km", "south-6km");
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, 5_000.0, "Residual", 10))).isEmpty();
+	}
+
+	@Test
+	void withinBoxKeepsSitesInsideOrderedFromTheCentre() {
+		List<PickupLocation> inside = index.withinBox(LATITUDE - 0.06, LONGITUDE - 0.03, LATITUDE + 0.01,
+				LONGITUDE + 0.03, null, 10);
+
+		// The centre is 2.8 km south of the point: south-6km is closest to it, west-40km is outside
+		assertThat(ids(inside)).containsExactly("south-6km", "north-1km", "east-3km");
+		assertThat(ids(index.withinBox(LATITUDE - 0.06, LONGITUDE - 0.03, LATITUDE + 0.01, LONGITUDE + 0.03,
+				"Biodegradable", 10))).containsExactly("east-3km");
+		assertThat(index.withinBox(LATITUDE - 0.06, LONGITUDE - 0.03, LATITUDE + 0.01, LONGITUDE + 0.03,
+				null, 1)).hasSize(1);
+	}
+
+	@Test
+	void boxAcrossTheAntimeridianWraps() {
+		index.put(site("fiji", "Residual", -17.7, 179.9));
+		index.put(site("samoa", "Residual", -17.7, -179.9));
+		index.put(site("tonga", "Residual", -17.7, -175.0));
+
+		assertThat(ids(index.withinBox(-18, 179.5, -17, -179.5, null, 10)))
+				.containsExactlyInAnyOrder("fiji", "samoa");
+	}
+
+	@Test
+	void putMovesAndRemoveDropsASite() {
+		index.put(site("west-40km", "Residual", LATITUDE + 0.001, LONGITUDE));
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, null, null, 1))).containsExactly("west-40km");
+
+		index.remove("west-40km");
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, null, null, 10)))
+				.containsExactly("north-1km", "east-3km", "south-6km");
+	}
+
+	@Test
+	void listingReadBeforeALocalWriteDoesNotUndoIt() {
+		long since = index.generation();
+		index.put(site("added", "Recyclable", LATITUDE, LONGITUDE));
+		index.remove("north-1km");
+
+		// A rebuild that read the collection before those writes landed
+		index.replaceAll(List.of(site("north-1km", "Recyclable", LATITUDE + 0.009, LONGITUDE)), since);
+
+		assertThat(ids(index.nearest(LATITUDE, LONGITUDE, null, null, 10))).containsExactly("added");
+	}
+
+	private static PickupLocation site(String id, String wasteType, Double latitude, Double longitude) {
+		return new PickupLocation(id, "Site " + id, wasteType, "Osmena Boulevard", latitude, longitude);
+	}
+
+	private static List<String> ids(List<PickupLocation> locations) {
+		return locations.stream().map(PickupLocation::getLocationId).toList();
+	}
+}
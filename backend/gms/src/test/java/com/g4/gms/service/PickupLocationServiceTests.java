@@ -0,0 +1,151 @@
+package com.g4.gms.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.g4.gms.config.PaginationProperties;
+import com.g4.gms.config.PickupLocationFeedProperties;
+import com.g4.gms.config.PickupLocationIndexProperties;
+import com.g4.gms.config.ReplicaProperties;
+import com.g4.gms.model.PickupLocation;
+import com.g4.gms.repository.CollectionListener;
+import com.g4.gms.repository.CollectionReplicas;
+import com.g4.gms.repository.DocumentBulkWriter;
+import com.g4.gms.repository.DocumentMapper;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.InMemoryDocumentRepository;
+import com.g4.gms.repository.ListenerHandle;
+import com.g4.gms.repository.Page;
+import com.google.cloud.Timestamp;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PickupLocationServiceTests {
+
+	private static final int ROWS = 3_000;
+
+	private MeterRegistry meterRegistry;
+	private CountingStore store;
+	private PickupLocationIndex index;
+	private PickupLocationService service;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		store = new CountingStore();
+		index = new PickupLocationIndex(new PickupLocationIndexProperties());
+		DocumentRepositoryFactory factory = new DocumentRepositoryFactory() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public <T> DocumentRepository<T> create(String collectionName, Class<T> type, BiConsumer<T, String> idSetter) {
+				return (DocumentRepository<T>) store;
+			}
+		};
+		service = new PickupLocationService(factory, new PaginationProperties(), index,
+				new CollectionReplicas(new ReplicaProperties(), meterRegistry),
+				new PickupLocationFeedCache(new PickupLocationFeedProperties(), new ObjectMapper(), meterRegistry));
+	}
+
+	@Test
+	void bulkImportReachesTheReplicaTheIndexAndTheFeed() throws Exception {
+		// Load the (empty) index and cache a feed page before the import
+		assertThat(service.findNearestPickupLocationsAsync(0, 0, null, null, 1).join()).isEmpty();
+		service.getPickupLocationsFeedAsync("before", null, null).join();
+		assertThat(feedCacheSize()).isEqualTo(1);
+		String versionBefore = service.getCollectionVersion().tag();
+
+		List<CompletableFuture<PickupLocation>> writes = new ArrayList<>(ROWS);
+		try (DocumentBulkWriter<PickupLocation> writer = service.openBulkWriter(500, 5_000)) {
+			for (int i = 0; i < ROWS; i++) {
+				writes.add(service.importPickupLocation(writer, location(i)));
+			}
+		}
+		CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+
+		// The listener heard about the import a chunk at a time, not once per row
+		assertThat(store.deliveries.get()).isEqualTo(ROWS / 500);
+		assertThat(service.getCollectionVersion().tag()).isNotEqualTo(versionBefore);
+
+		// Replica: every row is readable, and the pages walk the whole collection
+		assertThat(service.getAllPickupLocations()).hasSize(ROWS);
+		PickupLocation last = writes.get(ROWS - 1).join();
+		assertThat(service.getPickupLocationById(last.getLocationId()).getSiteName()).isEqualTo("Site " + (ROWS - 1));
+		Set<String> paged = new HashSet<>();
+		String pageToken = null;
+		do {
+			Page<PickupLocation> page = service.getPickupLocationsPageAsync(500, pageToken).join();
+			page.items().forEach(location -> paged.add(location.getLocationId()));
+			pageToken = page.nextPageToken();
+		} while (pageToken != null);
+		assertThat(paged).hasSize(ROWS);
+
+		// Index: every row was added, and a query finds an imported site
+		assertThat(index.size()).isEqualTo(ROWS);
+		List<PickupLocation> nearest = service.findNearestPickupLocationsAsync(
+				last.getLatitude(), last.getLongitude(), 10.0, null, 1).join();
+		assertThat(nearest).extracting(PickupLocation::getLocationId).containsExactly(last.getLocationId());
+
+		// Feed: the cache was dropped once the import finished, and a fresh page shows the new rows
+		assertThat(feedCacheSize()).isZero();
+		PickupLocationFeedCache.Feed feed = service.getPickupLocationsFeedAsync("after", 500, null).join();
+		assertThat(feed.nextPageToken()).isNotNull();
+		assertThat(new String(feed.json())).contains("\"siteName\":\"Site ");
+	}
+
+	private double feedCacheSize() {
+		return meterRegistry.get("cache.size").tag("cache", PickupLocationFeedCache.CACHE_NAME).gauge().value();
+	}
+
+	private static PickupLocation location(int i) {
+		PickupLocation location = new PickupLocation();
+		location.setSiteName("Site " + i);
+		location.setWasteType(i % 2 == 0 ? "PLASTIC" : "GLASS");
+		location.setAddress(i + " Main Street");
+		location.setLatitude(-60 + i * 0.04);
+		location.setLongitude(-180 + (i * 0.1) % 360);
+		return location;
+	}
+
+	/**
+	 * In-memory store that counts the changes its listener is told about after the first snapshot
+	 */
+	static class CountingStore extends InMemoryDocumentRepository<PickupLocation> {
+
+		final AtomicInteger deliveries = new AtomicInteger();
+
+		CountingStore() {
+			super(new DocumentMapper(), PickupLocation.class, PickupLocation::setLocationId);
+		}
+
+		@Override
+		public synchronized ListenerHandle watch(CollectionListener<PickupLocation> downstream) {
+			return super.watch(new CollectionListener<>() {
+				@Override
+				public void onChanges(Map<String, PickupLocation> upserts, Set<String> removedIds, Timestamp readTime,
+									  boolean initial) {
+					if (!initial) {
+						deliveries.incrementAndGet();
+					}
+					downstream.onChanges(upserts, removedIds, readTime, initial);
+				}
+
+				@Override
+				public void onError(Throwable error) {
+					downstream.onError(error);
+				}
+			});
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package com.g4.gms.service;
+
+import com.g4.gms.config.PushDispatchProperties;
+import com.g4.gms.config.ReminderDeliveryProperties;
+import com.g4.gms.model.Reminder;
+import com.g4.gms.repository.DocumentMapper;
+import com.g4.gms.repository.DocumentRepository;
+import com.g4.gms.repository.DocumentRepositoryFactory;
+import com.g4.gms.repository.InMemoryDocumentRepository;
+import com.g4.gms.repository.Versioned;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReminderSchedulerTests {
+
+	private static final long MINUTE = 60_000L;
+
+	private MeterRegistry meterRegistry;
+	private GatedRepository repository;
+	private DocumentRepositoryFactory factory;
+	private ReminderDeliveryProperties properties;
+	private DeviceTokenLookup deviceTokenLookup;
+	private FirebaseMessagingServiceTests.RecordingSender sender;
+	private FirebaseMessagingService messagingService;
+	private ReminderScheduler scheduler;
+	private long now;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		meterRegistry = new SimpleMeterRegistry();
+		repository = new GatedRepository();
+		factory = new DocumentRepositoryFactory() {
+			@Override
+			@SuppressWarnings("unchecked")
+			public <T> DocumentRepository<T> create(String collectionName, Class<T> type, BiConsumer<T, String> idSetter) {
+				return (DocumentRepository<T>) repository;
+			}
+		};
+		properties = new ReminderDeliveryProperties();
+		properties.setHorizonMs(10 * MINUTE);
+		properties.setMaxLatenessMs(60 * MINUTE);
+		sender = new FirebaseMessagingServiceTests.RecordingSender();
+		messagingService = new FirebaseMessagingService(sender, new PushDispatchProperties(), meterRegistry);
+		deviceTokenLookup = userIds -> CompletableFuture.completedFuture(
+				Map.of("user-1", List.of("device-1")));
+		scheduler = new ReminderScheduler(factory, properties, messagingService, deviceTokenLookup, meterRegistry);
+
+		now = System.currentTimeMillis();
+		save("overdue", "user-1", now - MINUTE);
+		save("no-devices", "user-2", now - MINUTE);
+		save("too-late", "user-1", now - 2 * 60 * MINUTE);
+		save("soon", "user-1", now + 5 * MINUTE);
+		save("beyond-horizon", "user-1", now + 60 * MINUTE);
+		Reminder handled = save("handled", "user-1", null);
+		handled.setDeliveryStatus(ReminderScheduler.SENT);
+		repository.save("handled", handled);
+	}
+
+	@AfterEach
+	void tearDown() {
+		messagingService.shutdown();
+		repository.executor.shutdown();
+	}
+
+	@Test
+	void loaderKeepsPendingRemindersDueWithinTheHorizon() {
+		scheduler.loadDue();
+
+		// overdue, no-devices, too-late and soon; not the one past the horizon or the handled one
+		assertThat(gauge("gms.reminders.loaded")).isEqualTo(4);
+		assertThat(meterRegistry.get("gms.reminders.timeline.added").counter().count()).isEqualTo(4);
+
+		scheduler.loadDue();
+		assertThat(gauge("gms.reminders.loaded")).isEqualTo(4);
+		assertThat(meterRegistry.get("gms.reminders.timeline.added").counter().count()).isEqualTo(4);
+	}
+
+	@Test
+	void tickFiresWhatIsDueAndRecordsTheOutcome() throws Exception {
+		scheduler.loadDue();
+
+		scheduler.fireDue();
+
+		// Outcomes are counted once they are recorded
+		await(() -> outcomes("sent") == 1 && outcomes("no_devices") == 1 && outcomes("expired") == 1);
+		assertThat(repository.findById("overdue").getDeliveryStatus()).isEqualTo(ReminderScheduler.SENT);
+		assertThat(repository.findById("no-devices").getDeliveryStatus()).isEqualTo(ReminderScheduler.NO_DEVICES);
+		assertThat(repository.findById("too-late").getDeliveryStatus()).isEqualTo(ReminderScheduler.EXPIRED);
+		assertThat(repository.findById("overdue").getPendingFireAt()).isNull();
+		assertThat(repository.findById("soon").getDeliveryStatus()).isEqualTo(ReminderScheduler.PENDING);
+		assertThat(gauge("gms.reminders.loaded")).isEqualTo(1);
+		assertThat(gauge("gms.reminders.in.flight")).isZero();
+		assertThat(meterRegistry.get("gms.reminders.next.due").timeGauge().value()).isPositive();
+		// Fired on time: overdue and no-devices, not too-late
+		assertThat(meterRegistry.get("gms.reminders.fire.delay").timer().count()).isEqualTo(2);
+
+		// Handled reminders are not loaded again
+		scheduler.rescan();
+		scheduler.loadDue();
+		assertThat(gauge("gms.reminders.loaded")).isEqualTo(1);
+	}
+
+	@Test
+	void onlyOneInstanceSendsAReminderBothLoaded() throws Exception {
+		MeterRegistry otherRegistry = new SimpleMeterRegistry();
+		FirebaseMessagingService otherMessagingService = new FirebaseMessagingService(sender,
+				new PushDispatchProperties(), otherRegistry);
+		ReminderScheduler other = new ReminderScheduler(factory, properties, otherMessagingService, deviceTokenLookup,
+				otherRegistry);
+		try {
+			scheduler.loadDue();
+			other.loadDue();
+
+			// Both instances re-read the three due reminders before either claims one
+			repository.gate = new CountDownLatch(6);
+			scheduler.fireDue();
+			other.fireDue();
+
+			await(() -> outcomes("sent") + outcomes(otherRegistry, "sent") == 1
+					&& outcomes("no_devices") + outcomes(otherRegistry, "no_devices") == 1
+					&& outcomes("expired") + outcomes(otherRegistry, "expired") == 1
+					&& outcomes("stale") + outcomes(otherRegistry, "stale") == 3);
+			assertThat(sender.batches).hasSize(1);
+			assertThat(repository.findById("overdue").getDeliveryStatus()).isEqualTo(ReminderScheduler.SENT);
+		} finally {
+			otherMessagingService.shutdown();
+		}
+	}
+
+	@Test
+	void savedReminderInsideTheCoveredWindowIsTrackedWithoutTheLoader() throws Exception {
+		scheduler.loadDue();
+
+		scheduler.track(save("just-saved", "user-1", now + 2 * MINUTE));
+		scheduler.track(save("next-week", "user-1", now + 7 * 24 * 60 * MINUTE));
+		assertThat(gauge("gms.reminders.loaded")).isEqualTo(5);
+
+		scheduler.cancel("soon");
+		scheduler.cancel("just-saved");
+		assertThat(gauge("gms.reminders.loaded")).isEqualTo(3);
+	}
+
+	private Reminder save(String reminderId, String userId, Long pendingFireAt) throws Exception {
+		Reminder reminder = new Reminder();
+		reminder.setReminderId(reminderId);
+		reminder.setUserId(userId);
+		reminder.setTitle("Pickup");
+		reminder.setReminderMessage("Put your bins out");
+		reminder.setFireAt(pendingFireAt);
+		reminder.setPendingFireAt(pendingFireAt);
+		reminder.setDeliveryStatus(ReminderScheduler.PENDING);
+		repository.save(reminderId, reminder);
+		return reminder;
+	}
+
+	private double gauge(String name) {
+		return meterRegistry.get(name).gauge().value();
+	}
+
+	private double outcomes(String status) {
+		return outcomes(meterRegistry, status);
+	}
+
+	private static double outcomes(MeterRegistry registry, String status) {
+		return registry.get("gms.reminders.outcomes").tag("status", status).counter().count();
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertThat(condition.getAsBoolean()).isTrue();
+	}
+
+	/**
+	 * In-memory store whose versioned reads, once a gate is set, wait for the gate's count
+	 * of reads to arrive before any of them answers
+	 */
+	static class GatedRepository extends InMemoryDocumentRepository<Reminder> {
+
+		private final ExecutorService executor = Executors.newCachedThreadPool();
+		volatile CountDownLatch gate;
+
+		GatedRepository() {
+			super(new DocumentMapper(), Reminder.class, Reminder::setReminderId);
+		}
+
+		@Override
+		public CompletableFuture<Versioned<Reminder>> findVersionedByIdAsync(String id) {
+			CountDownLatch latch = gate;
+			if (latch == null) {
+				return super.findVersionedByIdAsync(id);
+			}
+			return super.findVersionedByIdAsync(id).thenApplyAsync(versioned -> {
+				latch.countDown();
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return versioned;
+			}, executor);
+		}
+	}
+}